@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.auth;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Configuration;
+import org.glassfish.jersey.client.ClientConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Measures the serialization of the entities which are not pre-serialized by the client,
+ * including the lookup of the object mapper in the request configuration, and with the writer
+ * cached by the filter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LMv1AuthenticationFilterBenchmark {
+
+    /**
+     * Number of the entries in the entity.
+     */
+    @Param({"1", "100", "5000"})
+    public int entries;
+
+    private Configuration config;
+    private final LMv1AuthenticationFilter filter = new LMv1AuthenticationFilter("/rest", "id",
+            "key");
+    private List<LogEntry> entity;
+
+    @Setup
+    public void setup() {
+        config = new ClientConfig().register(new JSON());
+        entity = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            entity.add(new LogEntry()
+                .message("2020-07-01 12:00:00.000 INFO [main] com.example.Service - request "
+                        + i + " processed in " + (i % 1000) + " ms")
+                .timestamp(System.currentTimeMillis())
+                .putLmResourceIdItem("system.hostname", "host-" + (i % 10)));
+        }
+    }
+
+    @Benchmark
+    public String getEntityAsString() throws IOException {
+        return LMv1AuthenticationFilter.getEntityAsString(config, entity);
+    }
+
+    @Benchmark
+    public String writeEntityAsString() throws IOException {
+        return filter.writeEntityAsString(config, entity);
+    }
+
+}
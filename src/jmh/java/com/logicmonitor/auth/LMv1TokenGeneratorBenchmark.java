@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.auth;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the LMv1 token generation for the payloads passed as String, bytes and ByteBuffer,
+ * and for the credentials of two tenants used alternately.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LMv1TokenGeneratorBenchmark {
+
+    /**
+     * Size of the payload in bytes.
+     */
+    @Param({"0", "1024", "65536", "1048576"})
+    public int payloadBytes;
+
+    private String payload;
+    private byte[] payloadArray;
+    private ByteBuffer payloadBuffer;
+    private final LMv1Key[] keys = {new LMv1Key("id", "key"), new LMv1Key("other", "other")};
+    private int tenant;
+
+    @Setup
+    public void setup() {
+        payload = String.join("", Collections.nCopies(payloadBytes, "x"));
+        payloadArray = payload.getBytes(StandardCharsets.UTF_8);
+        payloadBuffer = ByteBuffer.wrap(payloadArray);
+    }
+
+    @Benchmark
+    public String generateString() {
+        return LMv1TokenGenerator.generate("id", "key", "POST", payload, "/log/ingest",
+                System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String generateBytes() {
+        return LMv1TokenGenerator.generate("id", "key", "POST", payloadArray, "/log/ingest",
+                System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String generateByteBuffer() {
+        return LMv1TokenGenerator.generate("id", "key", "POST", payloadBuffer, "/log/ingest",
+                System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String generateAlternatingAccessKeys() {
+        tenant ^= 1;
+        return LMv1TokenGenerator.generate(keys[tenant].getAccessId(), tenant == 0 ? "key" : "other",
+                "POST", payloadBuffer, "/log/ingest", System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String generateAlternatingKeys() {
+        tenant ^= 1;
+        return LMv1TokenGenerator.generate(keys[tenant], "POST", payloadBuffer, "/log/ingest",
+                System.currentTimeMillis());
+    }
+
+}
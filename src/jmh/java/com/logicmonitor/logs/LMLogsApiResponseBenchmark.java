@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.logicmonitor.logs.invoker.ApiResponse;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Measures wrapping the responses of the generated client, which copies the headers
+ * into a case-insensitive map, and the lookup of the request ID.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LMLogsApiResponseBenchmark {
+
+    /**
+     * Number of the response headers.
+     */
+    @Param({"4", "16", "64"})
+    public int headers;
+
+    private ApiResponse<LogResponse> response;
+
+    @Setup
+    public void setup() {
+        Map<String, List<String>> responseHeaders = new HashMap<>();
+        responseHeaders.put(LMLogsApi.REQUEST_ID_HEADER, List.of("9f4c1b1e-6a1d-4f3e-8d3a-1c2b3a4d5e6f"));
+        for (int i = 1; i < headers; i++) {
+            responseHeaders.put("X-Header-" + i, List.of("value-" + i));
+        }
+        response = new ApiResponse<>(202, responseHeaders, new LogResponse());
+    }
+
+    @Benchmark
+    public LMLogsApiResponse<LogResponse> wrap() {
+        return new LMLogsApiResponse<>(response);
+    }
+
+    @Benchmark
+    public String wrapAndGetRequestId() {
+        return new LMLogsApiResponse<>(response).getRequestId();
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Measures handing off the log lines from many application threads to the batcher queue
+ * and to the ring buffer. The batches are discarded instead of being sent, so the consumers
+ * only release the queued lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class LMLogsHandOffBenchmark {
+
+    private static final String MESSAGE =
+            "2020-07-01 12:00:00.000 INFO [main] com.example.Service - request processed in 12 ms";
+    private static final Map<String, String> RESOURCE_ID = Map.of("system.hostname", "host");
+
+    /**
+     * Strategy of the threads waiting for the ring buffer.
+     */
+    @Param({"BUSY_SPIN", "YIELDING", "BLOCKING"})
+    public LMLogsWaitStrategy waitStrategy;
+
+    private LMLogsBatcher batcher;
+    private LMLogsRingBuffer ringBuffer;
+
+    @Setup
+    public void setup() {
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withAccessId("accessId")
+            .withAccessKey("accessKey")
+            .build();
+        batcher = new LMLogsBatcher(new LMLogsBatcher.Builder(api)
+                .withQueueCapacity(LMLogsRingBuffer.DEFAULT_CAPACITY)) {
+            @Override
+            protected void send(List<LogEntry> batch) {
+            }
+        };
+        ringBuffer = new LMLogsRingBuffer(new LMLogsRingBuffer.Builder(api)
+                .withWaitStrategy(waitStrategy)) {
+            @Override
+            protected void send(List<LMLogsRecord> records) {
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        batcher.close();
+        ringBuffer.close();
+    }
+
+    @Benchmark
+    public boolean batcher() {
+        return batcher.offer(new LogEntry()
+            .message(MESSAGE)
+            .timestamp(System.currentTimeMillis())
+            .lmResourceId(RESOURCE_ID));
+    }
+
+    @Benchmark
+    public boolean ringBuffer() {
+        return ringBuffer.offer(MESSAGE, System.currentTimeMillis(), RESOURCE_ID);
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.logicmonitor.logs.invoker.ServerConfiguration;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Measures the whole ingestion request (serialization, signing, HTTP round trip and reading
+ * of the response) against an in-process Grizzly server accepting every payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LMLogsIngestBenchmark {
+
+    /**
+     * Number of the entries in a batch.
+     */
+    @Param({"10", "1000"})
+    public int entries;
+
+    /**
+     * HTTP transport of the client: DEFAULT, APACHE or JDK.
+     */
+    @Param({"DEFAULT", "APACHE", "JDK"})
+    public String transport;
+
+    private HttpServer server;
+    private LMLogsTransport clientTransport;
+    private LMLogsApi api;
+    private List<LogEntry> batch;
+
+    @Path("/rest")
+    public static class LogIngestResource {
+        @Path("/log/ingest")
+        @POST
+        @Produces(MediaType.APPLICATION_JSON)
+        @Consumes(MediaType.APPLICATION_JSON)
+        public Response doPost(String payload) {
+            return Response
+                .status(Status.ACCEPTED)
+                .entity(new LogResponse())
+                .header(LMLogsApi.REQUEST_ID_HEADER, "requestId")
+                .build();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        server = GrizzlyHttpServerFactory.createHttpServer(URI.create("http://localhost:0/"),
+                new ResourceConfig(LogIngestResource.class));
+        int port = server.getListeners().iterator().next().getPort();
+
+        switch (transport) {
+            case "APACHE":
+                clientTransport = new LMLogsApacheTransport();
+                break;
+            case "JDK":
+                clientTransport = new LMLogsJdkTransport();
+                break;
+            default:
+                clientTransport = LMLogsTransport.DEFAULT;
+        }
+        api = new LMLogsApi.Builder()
+            .withAccessId("id")
+            .withAccessKey("key")
+            .withTransport(clientTransport)
+            .build();
+        URI baseUrl = URI.create("http://localhost:" + port + "/").resolve(
+                URI.create(api.getApiClient().getBasePath()).getPath());
+        api.getApiClient().setServers(List.of(
+                new ServerConfiguration(baseUrl.toString(), null, Map.of())));
+
+        batch = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            batch.add(new LogEntry()
+                .message("2020-07-01 12:00:00.000 INFO [main] com.example.Service - request "
+                        + i + " processed in " + (i % 1000) + " ms")
+                .timestamp(System.currentTimeMillis())
+                .putLmResourceIdItem("system.hostname", "host-" + (i % 10)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        server.shutdownNow();
+        clientTransport.close();
+    }
+
+    @Benchmark
+    public LMLogsApiResponse<LogResponse> logIngestPost() throws LMLogsApiException {
+        return api.logIngestPostWithHttpInfo(batch);
+    }
+
+}
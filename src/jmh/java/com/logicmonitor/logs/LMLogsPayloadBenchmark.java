@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logicmonitor.auth.LMv1TokenGenerator;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Compares signing and writing a batch serialized twice (String for the signature, then again
+ * by Jersey) with the batch serialized once into a reusable buffer.
+ * Run with the allocation profiler ('-prof gc') to see the difference in garbage per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LMLogsPayloadBenchmark {
+
+    /**
+     * Number of the entries in a batch (5000 entries are about 1 MB).
+     */
+    @Param({"100", "5000", "30000"})
+    public int entries;
+
+    private ObjectMapper mapper;
+    private LMLogsSerializer serializer;
+    private List<LogEntry> batch;
+    private OutputStream wire;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        mapper = new JSON().getContext(LogEntry.class);
+        serializer = new LMLogsSerializer(mapper);
+        batch = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            batch.add(new LogEntry()
+                .message("2020-07-01 12:00:00.000 INFO [main] com.example.Service - request "
+                        + i + " processed in " + (i % 1000) + " ms")
+                .timestamp(System.currentTimeMillis())
+                .putLmResourceIdItem("system.hostname", "host-" + (i % 10)));
+        }
+        wire = new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+            }
+        };
+    }
+
+    /**
+     * Current filter: the entity is serialized to String for the signature
+     * and serialized again by Jersey when the body is written.
+     */
+    @Benchmark
+    public String serializeTwice() throws IOException {
+        String payload = mapper.writeValueAsString(batch);
+        String token = LMv1TokenGenerator.generate("id", "key", "POST", payload, "/log/ingest",
+                System.currentTimeMillis());
+        mapper.writeValue(wire, batch);
+        return token;
+    }
+
+    /**
+     * Single serialization: the same bytes are signed and written to the wire.
+     */
+    @Benchmark
+    public String serializeOnce() throws IOException {
+        ByteBuffer payload = serializer.serialize(batch);
+        String token = LMv1TokenGenerator.generate("id", "key", "POST", payload, "/log/ingest",
+                System.currentTimeMillis());
+        wire.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        return token;
+    }
+
+}
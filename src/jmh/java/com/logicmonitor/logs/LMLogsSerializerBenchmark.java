@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Measures the serialization of the log entry lists by the object mapper
+ * and by the payload serializer of the client, and the creation of the batches from log lines
+ * as log entries and as reused records (allocation rates are reported with {@code -prof gc}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LMLogsSerializerBenchmark {
+
+    /**
+     * Number of the entries in a batch (5000 entries are about 1 MB).
+     */
+    @Param({"100", "5000", "30000"})
+    public int entries;
+
+    private ObjectMapper mapper;
+    private LMLogsSerializer serializer;
+    private List<LogEntry> batch;
+    private String[] messages;
+    private List<Map<String, String>> resourceIds;
+    private List<LMLogsRecord> records;
+
+    @Setup
+    public void setup() {
+        mapper = new JSON().getContext(LogEntry.class);
+        serializer = new LMLogsSerializer(mapper);
+        batch = new ArrayList<>();
+        messages = new String[entries];
+        resourceIds = new ArrayList<>();
+        records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            resourceIds.add(Map.of("system.hostname", "host-" + i));
+        }
+        for (int i = 0; i < entries; i++) {
+            messages[i] = "2020-07-01 12:00:00.000 INFO [main] com.example.Service - request "
+                    + i + " processed in " + (i % 1000) + " ms";
+            batch.add(new LogEntry()
+                .message(messages[i])
+                .timestamp(System.currentTimeMillis())
+                .putLmResourceIdItem("system.hostname", "host-" + (i % 10)));
+            records.add(new LMLogsRecord());
+        }
+    }
+
+    @Benchmark
+    public byte[] mapper() throws IOException {
+        return mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() throws IOException {
+        return serializer.serialize(batch);
+    }
+
+    @Benchmark
+    public ByteBuffer serializeDetached() throws IOException {
+        return serializer.serializeDetached(batch);
+    }
+
+    @Benchmark
+    public ByteBuffer createEntries() throws IOException {
+        List<LogEntry> lines = new ArrayList<>(entries);
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            lines.add(new LogEntry()
+                .message(messages[i])
+                .timestamp(timestamp)
+                .putLmResourceIdItem("system.hostname", resourceIds.get(i % 10).get("system.hostname")));
+        }
+        return serializer.serialize(lines);
+    }
+
+    @Benchmark
+    public ByteBuffer reuseRecords() throws IOException {
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            records.get(i).set(messages[i], timestamp, resourceIds.get(i % 10));
+        }
+        return serializer.serializeRecords(records);
+    }
+
+    @Benchmark
+    public List<?> split() throws IOException {
+        return serializer.split(batch, LMLogsClient.DEFAULT_MAX_PAYLOAD_BYTES);
+    }
+
+}
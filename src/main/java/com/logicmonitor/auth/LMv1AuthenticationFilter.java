@@ -15,7 +15,10 @@
 package com.logicmonitor.auth;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.client.ClientRequestContext;
@@ -26,9 +29,16 @@ import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * Filter adding LMv1 authentication to the requests.
+ * <p>
+ * The credentials are prepared {@link LMv1Key}s taken from a {@link LMv1CredentialsProvider}
+ * for each request, so they can be rotated at any time without blocking the requests being
+ * signed or rebuilding the client. The object mapper serializing the entities is
+ * looked up once and its writers are cached by the entity type, as long as the same
+ * context resolver stays registered in the request configuration.
  */
 @Provider
 @Priority(Priorities.HEADER_DECORATOR)
@@ -39,13 +49,27 @@ public class LMv1AuthenticationFilter implements ClientRequestFilter {
      */
     protected final String basePath;
     /**
-     * LogicMonitor access ID.
+     * LogicMonitor access ID of the credentials the filter was created with, or null if the
+     * provider had none.
+     * @deprecated the credentials can be replaced, use {@link #getKey()} instead.
      */
+    @Deprecated
     protected final String accessId;
     /**
-     * LogicMonitor access key.
+     * LogicMonitor access key of the credentials the filter was created with, or null if the
+     * provider had none.
+     * @deprecated the credentials can be replaced, use {@link #getKey()} instead.
      */
+    @Deprecated
     protected final String accessKey;
+    /**
+     * Provider of the credentials signing the requests.
+     */
+    private volatile LMv1CredentialsProvider credentialsProvider;
+    /**
+     * Writers of the entities, or null before the first entity is serialized.
+     */
+    private volatile Writers writers;
 
     /**
      * Initializes LMv1AuthenticationFilter instance.
@@ -53,17 +77,82 @@ public class LMv1AuthenticationFilter implements ClientRequestFilter {
      * @param accessId LogicMonitor access ID.
      * @param accessKey LogicMonitor access key.
      * @throws NullPointerException if any of the parameters is null.
+     * @throws IllegalArgumentException if the access key is empty.
      */
     public LMv1AuthenticationFilter(String basePath, String accessId, String accessKey) {
+        this(basePath, new LMv1Key(
+                Objects.requireNonNull(accessId, "Access id must not be null"),
+                Objects.requireNonNull(accessKey, "Access key must not be null")));
+    }
+
+    /**
+     * Initializes LMv1AuthenticationFilter instance.
+     * @param basePath base path of the service.
+     * @param key LogicMonitor credentials.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public LMv1AuthenticationFilter(String basePath, LMv1Key key) {
+        this(basePath, LMv1CredentialsProvider.of(key));
+    }
+
+    /**
+     * Initializes LMv1AuthenticationFilter instance.
+     * @param basePath base path of the service.
+     * @param credentialsProvider provider of the credentials consulted for each request.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public LMv1AuthenticationFilter(String basePath, LMv1CredentialsProvider credentialsProvider) {
         this.basePath = Objects.requireNonNull(basePath, "Base path must not be null");
-        this.accessId = Objects.requireNonNull(accessId, "Access id must not be null");
-        this.accessKey = Objects.requireNonNull(accessKey, "Access key must not be null");
+        this.credentialsProvider = Objects.requireNonNull(credentialsProvider,
+                "Credentials provider must not be null");
+        // kept for the subclasses reading the fields of the former versions
+        LMv1Key initialKey = credentialsProvider.getKey();
+        accessId = initialKey != null ? initialKey.getAccessId() : null;
+        accessKey = initialKey != null ? initialKey.getAccessKey() : null;
+    }
+
+    /**
+     * Gets the current credentials signing the requests.
+     * @return LogicMonitor credentials, or null if the provider has none.
+     */
+    public LMv1Key getKey() {
+        return credentialsProvider.getKey();
+    }
+
+    /**
+     * Replaces the credentials signing the following requests with fixed ones.
+     * The requests being signed complete with the previous credentials.
+     * @param key LogicMonitor credentials.
+     * @throws NullPointerException if the key is null.
+     */
+    public void setKey(LMv1Key key) {
+        credentialsProvider = LMv1CredentialsProvider.of(key);
+    }
+
+    /**
+     * Gets the provider of the credentials.
+     * @return credentials provider.
+     */
+    public LMv1CredentialsProvider getCredentialsProvider() {
+        return credentialsProvider;
+    }
+
+    /**
+     * Replaces the provider of the credentials signing the following requests.
+     * The requests being signed complete with the previous credentials.
+     * @param credentialsProvider credentials provider.
+     * @throws NullPointerException if the provider is null.
+     */
+    public void setCredentialsProvider(LMv1CredentialsProvider credentialsProvider) {
+        this.credentialsProvider = Objects.requireNonNull(credentialsProvider,
+                "Credentials provider must not be null");
     }
 
     /**
      * Adds 'Authorization' header with the LMv1 token to the request.
+     * ByteBuffer entities are signed as they are, other entities are serialized to JSON first.
      * @param requestContext request context.
-     * @throws IOException if an I/O exception occurs.
+     * @throws IOException if an I/O exception occurs or no credentials are available.
      */
     @Override
     public void filter(ClientRequestContext requestContext) throws IOException {
@@ -72,17 +161,64 @@ public class LMv1AuthenticationFilter implements ClientRequestFilter {
             throw new IOException("Invalid request path '" + requestPath + "'");
         }
 
-        String payload = getEntityAsString(requestContext.getConfiguration(), requestContext.getEntity());
-        String lmToken = LMv1TokenGenerator.generate(
-                accessId,
-                accessKey,
-                requestContext.getMethod(),
-                payload,
-                requestPath.substring(basePath.length()),
-                System.currentTimeMillis());
+        // the same key signs the whole request even if it is replaced meanwhile
+        LMv1Key currentKey = credentialsProvider.getKey();
+        if (currentKey == null) {
+            throw new IOException("No credentials available");
+        }
+        String lmToken;
+        Object entity = requestContext.getEntity();
+        if (entity instanceof ByteBuffer) {
+            // the entity has been already serialized, sign the bytes written to the wire
+            lmToken = LMv1TokenGenerator.generate(
+                    currentKey,
+                    requestContext.getMethod(),
+                    (ByteBuffer) entity,
+                    requestPath.substring(basePath.length()),
+                    System.currentTimeMillis());
+        } else {
+            String payload = writeEntityAsString(requestContext.getConfiguration(), entity);
+            lmToken = LMv1TokenGenerator.generate(
+                    currentKey,
+                    requestContext.getMethod(),
+                    payload,
+                    requestPath.substring(basePath.length()),
+                    System.currentTimeMillis());
+        }
         requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, lmToken);
     }
 
+    /**
+     * Converts the request entity to string using the cached writer of its type.
+     * The object mapper is looked up again if its resolver is no longer in the configuration.
+     * @param config request configuration.
+     * @param entity request entity.
+     * @return The entity serialized to String.
+     * @throws IOException if object mapper can't be found in the configuration.
+     * @throws JsonProcessingException (unchecked) if the entity is invalid.
+     */
+    protected String writeEntityAsString(Configuration config, Object entity)
+            throws IOException, JsonProcessingException {
+
+        Class<?> type = entity.getClass();
+        Writers current = writers;
+        if (current == null || !config.getInstances().contains(current.resolver)) {
+            current = new Writers(findResolver(config, type));
+            writers = current;
+        }
+        ObjectWriter writer = current.byType.get(type);
+        if (writer == null) {
+            Object mapper = current.resolver.getContext(type);
+            if (!(mapper instanceof ObjectMapper)) {
+                // another resolver may provide the mapper for this type
+                return getEntityAsString(config, entity);
+            }
+            writer = ((ObjectMapper) mapper).writerFor(type);
+            current.byType.putIfAbsent(type, writer);
+        }
+        return writer.writeValueAsString(entity);
+    }
+
     /**
      * Converts the request entity to string using object mapper from the configuration.
      * @param config request configuration.
@@ -94,17 +230,50 @@ public class LMv1AuthenticationFilter implements ClientRequestFilter {
     protected static String getEntityAsString(Configuration config, Object entity)
             throws IOException, JsonProcessingException {
 
-        @SuppressWarnings("unchecked")
-        ObjectMapper mapper = config.getInstances().stream()
+        ContextResolver<?> resolver = findResolver(config, entity.getClass());
+        return ((ObjectMapper) resolver.getContext(entity.getClass())).writeValueAsString(entity);
+    }
+
+    /**
+     * Finds the context resolver providing the object mapper for the type.
+     * @param config request configuration.
+     * @param type entity type.
+     * @return context resolver.
+     * @throws IOException if object mapper can't be found in the configuration.
+     */
+    private static ContextResolver<?> findResolver(Configuration config, Class<?> type)
+            throws IOException {
+
+        return config.getInstances().stream()
             .filter(ContextResolver.class::isInstance)
-            .map(ContextResolver.class::cast)
-            .map(resolver -> resolver.getContext(entity.getClass()))
-            .filter(ObjectMapper.class::isInstance)
+            .map(resolver -> (ContextResolver<?>) resolver)
+            .filter(resolver -> resolver.getContext(type) instanceof ObjectMapper)
             .findAny()
-            .map(ObjectMapper.class::cast)
             .orElseThrow(() -> new IOException(
-                    "No ObjectMapper found for type " + entity.getClass().getName()));
-        return mapper.writeValueAsString(entity);
+                    "No ObjectMapper found for type " + type.getName()));
+    }
+
+    /**
+     * Writers of the entity types created by the object mappers of a context resolver.
+     */
+    private static class Writers {
+
+        /**
+         * Context resolver providing the object mappers.
+         */
+        final ContextResolver<?> resolver;
+        /**
+         * Writers by the entity type.
+         */
+        final ConcurrentMap<Class<?>, ObjectWriter> byType = new ConcurrentHashMap<>();
+
+        /**
+         * Initializes Writers instance.
+         * @param resolver context resolver providing the object mappers.
+         */
+        Writers(ContextResolver<?> resolver) {
+            this.resolver = resolver;
+        }
     }
 
 }
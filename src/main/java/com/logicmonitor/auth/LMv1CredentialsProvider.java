@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.auth;
+
+import java.util.Objects;
+
+/**
+ * Source of the LogicMonitor credentials signing the requests.
+ * <p>
+ * The provider is consulted for each request, so it should return a snapshot kept in memory
+ * rather than load the credentials. Changing the returned key rotates the credentials of the
+ * following requests without rebuilding the client.
+ */
+@FunctionalInterface
+public interface LMv1CredentialsProvider {
+
+    /**
+     * Gets the current credentials.
+     * @return LogicMonitor credentials, or null if none are available.
+     */
+    LMv1Key getKey();
+
+    /**
+     * Creates a provider of fixed credentials.
+     * @param key LogicMonitor credentials.
+     * @return provider always returning the key.
+     * @throws NullPointerException if the key is null.
+     */
+    static LMv1CredentialsProvider of(LMv1Key key) {
+        Objects.requireNonNull(key, "Key must not be null");
+        return () -> key;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * LogicMonitor credentials prepared for signing.
+ * <p>
+ * The HMAC is initialized with the access key once, when the key is created. Each thread signs
+ * with its own clone of the initialized HMAC, so the key is neither parsed nor scheduled again
+ * for each request and the threads don't contend. The instances are immutable, so the
+ * credentials are rotated by replacing the whole key.
+ */
+public final class LMv1Key {
+
+    /**
+     * LogicMonitor access ID.
+     */
+    private final String accessId;
+    /**
+     * Access key encoded for the HMAC.
+     */
+    private final SecretKeySpec keySpec;
+    /**
+     * HMAC initialized with the access key, cloned by the threads.
+     */
+    private final Mac prototype;
+    /**
+     * HMAC instances of the threads.
+     */
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    /**
+     * Initializes LMv1Key instance.
+     * @param accessId LogicMonitor access ID.
+     * @param accessKey LogicMonitor access key.
+     * @throws NullPointerException if any of the parameters is null.
+     * @throws IllegalArgumentException if the access key is empty.
+     * @throws IllegalStateException if the HMAC algorithm is not available.
+     */
+    public LMv1Key(String accessId, String accessKey) {
+        this.accessId = Objects.requireNonNull(accessId, "Access ID must not be null");
+        Objects.requireNonNull(accessKey, "Access key must not be null");
+        keySpec = new SecretKeySpec(accessKey.getBytes(StandardCharsets.UTF_8),
+                LMv1TokenGenerator.ALGORITHM);
+        prototype = init();
+    }
+
+    /**
+     * Gets the LogicMonitor access ID.
+     * @return access ID.
+     */
+    public String getAccessId() {
+        return accessId;
+    }
+
+    /**
+     * Gets the LogicMonitor access key, decoded from the HMAC key.
+     * @return access key.
+     */
+    String getAccessKey() {
+        return new String(keySpec.getEncoded(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the HMAC of the calling thread, reset for a new value.
+     * @return HMAC initialized with the access key.
+     */
+    Mac mac() {
+        Mac mac = macs.get();
+        mac.reset();
+        return mac;
+    }
+
+    /**
+     * Creates a HMAC for a new thread.
+     * @return clone of the prototype, or a new HMAC if the provider doesn't support cloning.
+     */
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return init();
+        }
+    }
+
+    /**
+     * Creates a HMAC initialized with the access key.
+     * @return initialized HMAC.
+     * @throws IllegalStateException if the HMAC algorithm is not available.
+     */
+    private Mac init() {
+        try {
+            Mac mac = Mac.getInstance(LMv1TokenGenerator.ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LMv1Key [accessId=" + accessId + "]";
+    }
+
+}
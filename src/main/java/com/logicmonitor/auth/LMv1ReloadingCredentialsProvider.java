@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.auth;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provider of the credentials reloaded periodically from a file or another source,
+ * such as a secret store.
+ * <p>
+ * The requests read the last loaded key from a volatile field, so reloading never blocks them.
+ * A failed reload keeps the previous key, so the requests are signed until the source
+ * is fixed. The requests signed with the previous key complete with it.
+ */
+public class LMv1ReloadingCredentialsProvider implements LMv1CredentialsProvider, AutoCloseable {
+
+    /**
+     * Default interval between the reloads.
+     */
+    public static final long DEFAULT_RELOAD_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * Name of the property holding the access ID in the credentials file.
+     */
+    public static final String ACCESS_ID_PROPERTY = "accessId";
+    /**
+     * Name of the property holding the access key in the credentials file.
+     */
+    public static final String ACCESS_KEY_PROPERTY = "accessKey";
+
+    /**
+     * Counter of the reloading threads.
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Source loading the credentials.
+     */
+    protected final Callable<LMv1Key> source;
+    /**
+     * Thread reloading the credentials, or null if they are reloaded only on demand.
+     */
+    private final ScheduledExecutorService executor;
+    /**
+     * Last loaded credentials.
+     */
+    private volatile LMv1Key key;
+    /**
+     * Failure of the last reload, or null if it succeeded.
+     */
+    private volatile Exception lastFailure;
+
+    /**
+     * Initializes LMv1ReloadingCredentialsProvider instance.
+     * @param builder builder of the provider.
+     * @throws IOException if the credentials can't be loaded.
+     */
+    protected LMv1ReloadingCredentialsProvider(Builder builder) throws IOException {
+        source = builder.source;
+        reload();
+        if (builder.reloadIntervalMillis > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable,
+                        "lm-logs-credentials-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::reloadQuietly, builder.reloadIntervalMillis,
+                    builder.reloadIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    @Override
+    public LMv1Key getKey() {
+        return key;
+    }
+
+    /**
+     * Loads the credentials from the source and replaces the current ones if they differ.
+     * @return true if the credentials were replaced.
+     * @throws IOException if the credentials can't be loaded, the current ones are kept.
+     */
+    public synchronized boolean reload() throws IOException {
+        LMv1Key loaded;
+        try {
+            loaded = source.call();
+        } catch (IOException e) {
+            lastFailure = e;
+            throw e;
+        } catch (Exception e) {
+            lastFailure = e;
+            throw new IOException("Failed to load the credentials", e);
+        }
+        if (loaded == null) {
+            IOException e = new IOException("No credentials loaded");
+            lastFailure = e;
+            throw e;
+        }
+        lastFailure = null;
+        if (loaded == key) {
+            return false;
+        }
+        key = loaded;
+        return true;
+    }
+
+    /**
+     * Reloads the credentials, keeping the current ones if the reload fails.
+     */
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException e) {
+            // already recorded as the last failure
+        }
+    }
+
+    /**
+     * Gets the failure of the last reload.
+     * @return exception thrown by the source, or null if the last reload succeeded.
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops reloading the credentials, the last loaded ones are still provided.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks if the periodic reloading is stopped.
+     * @return true if closed or the credentials are reloaded only on demand.
+     */
+    public boolean isClosed() {
+        return executor == null || executor.isShutdown();
+    }
+
+    /**
+     * Source reading the credentials from a properties file.
+     * The key is created again only when the file and its credentials change.
+     */
+    static class FileSource implements Callable<LMv1Key> {
+
+        /**
+         * Credentials file.
+         */
+        private final Path file;
+        /**
+         * Modification time of the file when it was read.
+         */
+        private FileTime lastModified;
+        /**
+         * Size of the file when it was read.
+         */
+        private long size = -1;
+        /**
+         * Access key of the last loaded credentials.
+         */
+        private String accessKey;
+        /**
+         * Last loaded credentials.
+         */
+        private LMv1Key key;
+
+        /**
+         * Initializes FileSource instance.
+         * @param file credentials file.
+         */
+        FileSource(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Reads the credentials if the file changed since it was read.
+         * @return last loaded credentials, or new ones if they changed.
+         * @throws IOException if the file can't be read or the credentials are missing.
+         */
+        @Override
+        public LMv1Key call() throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (key != null && attributes.lastModifiedTime().equals(lastModified)
+                    && attributes.size() == size) {
+                return key;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            String newAccessId = properties.getProperty(ACCESS_ID_PROPERTY);
+            String newAccessKey = properties.getProperty(ACCESS_KEY_PROPERTY);
+            if (newAccessId == null || newAccessKey == null || newAccessKey.isEmpty()) {
+                throw new IOException("Missing " + ACCESS_ID_PROPERTY + " or "
+                        + ACCESS_KEY_PROPERTY + " in " + file);
+            }
+            if (key == null || !newAccessId.equals(key.getAccessId())
+                    || !newAccessKey.equals(accessKey)) {
+                key = new LMv1Key(newAccessId, newAccessKey);
+                accessKey = newAccessKey;
+            }
+            lastModified = attributes.lastModifiedTime();
+            size = attributes.size();
+            return key;
+        }
+    }
+
+    /**
+     * Builder of the provider.
+     */
+    public static class Builder {
+
+        /**
+         * Source loading the credentials.
+         */
+        private final Callable<LMv1Key> source;
+        /**
+         * Interval between the reloads in milliseconds.
+         */
+        private long reloadIntervalMillis = DEFAULT_RELOAD_INTERVAL_MILLIS;
+
+        /**
+         * Initializes the builder of a provider loading the credentials from the source.
+         * The source should return the same key instance while the credentials don't change.
+         * @param source source loading the credentials.
+         * @throws NullPointerException if the source is null.
+         */
+        public Builder(Callable<LMv1Key> source) {
+            this.source = Objects.requireNonNull(source, "Source must not be null");
+        }
+
+        /**
+         * Initializes the builder of a provider reading the credentials from a properties file
+         * with the {@code accessId} and {@code accessKey} properties.
+         * The file is read again only when its modification time or size change.
+         * @param file credentials file.
+         * @throws NullPointerException if the file is null.
+         */
+        public Builder(Path file) {
+            this(new FileSource(Objects.requireNonNull(file, "File must not be null")));
+        }
+
+        /**
+         * Sets the interval between the reloads.
+         * @param reloadIntervalMillis interval in milliseconds, 0 to reload only on demand.
+         * @return this builder.
+         */
+        public Builder withReloadIntervalMillis(long reloadIntervalMillis) {
+            this.reloadIntervalMillis = reloadIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Builds the provider, loading the credentials.
+         * @return new provider.
+         * @throws IllegalArgumentException if the reload interval is negative.
+         * @throws IOException if the credentials can't be loaded.
+         */
+        public LMv1ReloadingCredentialsProvider build() throws IOException {
+            if (reloadIntervalMillis < 0) {
+                throw new IllegalArgumentException("Reload interval must not be negative");
+            }
+            return new LMv1ReloadingCredentialsProvider(this);
+        }
+    }
+
+}
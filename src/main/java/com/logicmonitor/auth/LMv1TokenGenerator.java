@@ -14,13 +14,26 @@
 
 package com.logicmonitor.auth;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
+import java.util.Locale;
 import java.util.Objects;
-import org.apache.commons.codec.digest.HmacAlgorithms;
-import org.apache.commons.codec.digest.HmacUtils;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Generates LogicMonitor authentication tokens.
+ * <p>
+ * The signed value is fed part by part into a HMAC instance cached by the calling thread,
+ * so neither the value nor the payload is copied to generate the token. The HMAC instances
+ * of a {@link LMv1Key} are initialized once per thread, while the access key passed as String
+ * initializes the HMAC again whenever it differs from the previous one of the thread.
  */
 public class LMv1TokenGenerator {
 
@@ -28,6 +41,15 @@ public class LMv1TokenGenerator {
      * Name of the LogicMonitor authentication token.
      */
     public static final String TOKEN_NAME = "LMv1";
+    /**
+     * Name of the HMAC algorithm.
+     */
+    public static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * Signers cached by the threads.
+     */
+    private static final ThreadLocal<Signer> SIGNERS = ThreadLocal.withInitial(Signer::new);
 
     /**
      * Generates LogicMonitor authentication token.
@@ -43,22 +65,321 @@ public class LMv1TokenGenerator {
     public static String generate(String accessId, String accessKey, String httpMethod, String payload,
             String resourcePath, long timestamp) {
 
-        accessId = Objects.requireNonNull(accessId, "Access ID must not be null");
-        accessKey = Objects.requireNonNull(accessKey, "Access key must not be null");
-        httpMethod = Objects.requireNonNull(httpMethod, "HTTP method must not be null");
-        payload = Objects.requireNonNull(payload, "Payload must not be null");
-        resourcePath = Objects.requireNonNull(resourcePath, "Resource path must not be null");
+        checkParameters(accessId, accessKey, httpMethod, payload, resourcePath);
+        Signer signer = SIGNERS.get().begin(accessKey, httpMethod, timestamp);
+        signer.update(payload);
+        return signer.finish(accessId, resourcePath, timestamp);
+    }
+
+    /**
+     * Generates LogicMonitor authentication token for the payload serialized to bytes.
+     * @param accessId LogicMonitor access ID.
+     * @param accessKey LogicMonitor access key.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload encoded in UTF-8.
+     * @param resourcePath reuqest's resource path.
+     * @param timestamp reuqest's timestamp (epoch).
+     * @return LogicMonitor authentication token ('LMv1 accessId:digest:timestamp').
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public static String generate(String accessId, String accessKey, String httpMethod,
+            byte[] payload, String resourcePath, long timestamp) {
+
+        checkParameters(accessId, accessKey, httpMethod, payload, resourcePath);
+        Signer signer = SIGNERS.get().begin(accessKey, httpMethod, timestamp);
+        signer.mac.update(payload);
+        return signer.finish(accessId, resourcePath, timestamp);
+    }
+
+    /**
+     * Generates LogicMonitor authentication token for the payload serialized to bytes.
+     * The position of the payload buffer is not changed.
+     * @param accessId LogicMonitor access ID.
+     * @param accessKey LogicMonitor access key.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload encoded in UTF-8.
+     * @param resourcePath reuqest's resource path.
+     * @param timestamp reuqest's timestamp (epoch).
+     * @return LogicMonitor authentication token ('LMv1 accessId:digest:timestamp').
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public static String generate(String accessId, String accessKey, String httpMethod,
+            ByteBuffer payload, String resourcePath, long timestamp) {
+
+        checkParameters(accessId, accessKey, httpMethod, payload, resourcePath);
+        Signer signer = SIGNERS.get().begin(accessKey, httpMethod, timestamp);
+        signer.mac.update(payload.duplicate());
+        return signer.finish(accessId, resourcePath, timestamp);
+    }
+
+    /**
+     * Generates LogicMonitor authentication token with the prepared key.
+     * @param key LogicMonitor credentials.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload.
+     * @param resourcePath reuqest's resource path.
+     * @param timestamp reuqest's timestamp (epoch).
+     * @return LogicMonitor authentication token ('LMv1 accessId:digest:timestamp').
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public static String generate(LMv1Key key, String httpMethod, String payload,
+            String resourcePath, long timestamp) {
+
+        checkParameters(key, httpMethod, payload, resourcePath);
+        Signer signer = SIGNERS.get().begin(key.mac(), httpMethod, timestamp);
+        signer.update(payload);
+        return signer.finish(key.getAccessId(), resourcePath, timestamp);
+    }
+
+    /**
+     * Generates LogicMonitor authentication token for the payload serialized to bytes
+     * with the prepared key.
+     * @param key LogicMonitor credentials.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload encoded in UTF-8.
+     * @param resourcePath reuqest's resource path.
+     * @param timestamp reuqest's timestamp (epoch).
+     * @return LogicMonitor authentication token ('LMv1 accessId:digest:timestamp').
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public static String generate(LMv1Key key, String httpMethod, byte[] payload,
+            String resourcePath, long timestamp) {
+
+        checkParameters(key, httpMethod, payload, resourcePath);
+        Signer signer = SIGNERS.get().begin(key.mac(), httpMethod, timestamp);
+        signer.mac.update(payload);
+        return signer.finish(key.getAccessId(), resourcePath, timestamp);
+    }
+
+    /**
+     * Generates LogicMonitor authentication token for the payload serialized to bytes
+     * with the prepared key. The position of the payload buffer is not changed.
+     * @param key LogicMonitor credentials.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload encoded in UTF-8.
+     * @param resourcePath reuqest's resource path.
+     * @param timestamp reuqest's timestamp (epoch).
+     * @return LogicMonitor authentication token ('LMv1 accessId:digest:timestamp').
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public static String generate(LMv1Key key, String httpMethod, ByteBuffer payload,
+            String resourcePath, long timestamp) {
+
+        checkParameters(key, httpMethod, payload, resourcePath);
+        Signer signer = SIGNERS.get().begin(key.mac(), httpMethod, timestamp);
+        signer.mac.update(payload.duplicate());
+        return signer.finish(key.getAccessId(), resourcePath, timestamp);
+    }
+
+    /**
+     * Checks that none of the parameters is null.
+     * @param accessId LogicMonitor access ID.
+     * @param accessKey LogicMonitor access key.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload.
+     * @param resourcePath reuqest's resource path.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private static void checkParameters(String accessId, String accessKey, String httpMethod,
+            Object payload, String resourcePath) {
+        Objects.requireNonNull(accessId, "Access ID must not be null");
+        Objects.requireNonNull(accessKey, "Access key must not be null");
+        Objects.requireNonNull(httpMethod, "HTTP method must not be null");
+        Objects.requireNonNull(payload, "Payload must not be null");
+        Objects.requireNonNull(resourcePath, "Resource path must not be null");
+    }
+
+    /**
+     * Checks that none of the parameters is null.
+     * @param key LogicMonitor credentials.
+     * @param httpMethod request's HTTP method.
+     * @param payload reuqest's payload.
+     * @param resourcePath reuqest's resource path.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    private static void checkParameters(LMv1Key key, String httpMethod, Object payload,
+            String resourcePath) {
+        Objects.requireNonNull(key, "Key must not be null");
+        Objects.requireNonNull(httpMethod, "HTTP method must not be null");
+        Objects.requireNonNull(payload, "Payload must not be null");
+        Objects.requireNonNull(resourcePath, "Resource path must not be null");
+    }
+
+    /**
+     * HMAC instance and buffers reused by a thread.
+     */
+    private static class Signer {
+
+        /**
+         * Lowercase hexadecimal digits.
+         */
+        private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        /**
+         * HMAC instance initialized with the access key passed as String.
+         */
+        private final Mac keyMac;
+        /**
+         * HMAC instance signing the current value.
+         */
+        private Mac mac;
+        /**
+         * UTF-8 encoder of the string values.
+         */
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        /**
+         * Buffer for the encoded string values.
+         */
+        private final ByteBuffer encoded = ByteBuffer.allocate(8 * 1024);
+        /**
+         * Buffer for the decimal digits of the timestamp.
+         */
+        private final byte[] digits = new byte[20];
+        /**
+         * Buffer for the digest.
+         */
+        private final byte[] digest;
+        /**
+         * Buffer for the hexadecimal digest.
+         */
+        private final byte[] hexDigest;
+        /**
+         * Buffer for the BASE64-encoded hexadecimal digest.
+         */
+        private final byte[] base64Digest;
+        /**
+         * Access key passed as String the HMAC instance is initialized with.
+         */
+        private String accessKey;
+
+        /**
+         * Initializes Signer instance.
+         * @throws IllegalStateException if the HMAC algorithm is not available.
+         */
+        Signer() {
+            try {
+                keyMac = Mac.getInstance(ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            digest = new byte[keyMac.getMacLength()];
+            hexDigest = new byte[2 * digest.length];
+            base64Digest = new byte[4 * ((hexDigest.length + 2) / 3)];
+        }
+
+        /**
+         * Starts signing a new value.
+         * @param accessKey LogicMonitor access key.
+         * @param httpMethod request's HTTP method.
+         * @param timestamp reuqest's timestamp (epoch).
+         * @return itself.
+         * @throws IllegalArgumentException if the access key is empty.
+         */
+        Signer begin(String accessKey, String httpMethod, long timestamp) {
+            if (!accessKey.equals(this.accessKey)) {
+                try {
+                    keyMac.init(new SecretKeySpec(accessKey.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                this.accessKey = accessKey;
+            } else {
+                keyMac.reset();
+            }
+            return begin(keyMac, httpMethod, timestamp);
+        }
+
+        /**
+         * Starts signing a new value with the initialized HMAC.
+         * @param mac HMAC instance, initialized and reset.
+         * @param httpMethod request's HTTP method.
+         * @param timestamp reuqest's timestamp (epoch).
+         * @return itself.
+         */
+        Signer begin(Mac mac, String httpMethod, long timestamp) {
+            this.mac = mac;
+
+            // METHOD + TIMESTAMP + PAYLOAD + RESOURCE PATH
+            update(httpMethod.toUpperCase(Locale.ROOT));
+            update(timestamp);
+            return this;
+        }
+
+        /**
+         * Finishes signing and formats the token.
+         * @param accessId LogicMonitor access ID.
+         * @param resourcePath reuqest's resource path.
+         * @param timestamp reuqest's timestamp (epoch).
+         * @return LogicMonitor authentication token ('LMv1 accessId:digest:timestamp').
+         */
+        String finish(String accessId, String resourcePath, long timestamp) {
+            update(resourcePath);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < digest.length; i++) {
+                hexDigest[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+                hexDigest[2 * i + 1] = HEX_DIGITS[digest[i] & 0x0f];
+            }
+            int length = Base64.getEncoder().encode(hexDigest, base64Digest);
+
+            // 'LMv1' ID : BASE64(DIGEST) : TIMESTAMP
+            StringBuilder token = new StringBuilder(
+                    TOKEN_NAME.length() + accessId.length() + length + digits.length + 3);
+            token.append(TOKEN_NAME).append(' ').append(accessId).append(':');
+            for (int i = 0; i < length; i++) {
+                token.append((char) base64Digest[i]);
+            }
+            return token.append(':').append(timestamp).toString();
+        }
 
-        // METHOD + TIMESTAMP + PAYLOAD + RESOURCE PATH
-        String value = httpMethod.toUpperCase() + timestamp + payload + resourcePath;
+        /**
+         * Updates the HMAC with the value encoded in UTF-8.
+         * @param value string value.
+         */
+        void update(CharSequence value) {
+            CharBuffer chars = CharBuffer.wrap(value);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, encoded, true);
+                flushEncoded();
+            } while (result.isOverflow());
+            while (encoder.flush(encoded).isOverflow()) {
+                flushEncoded();
+            }
+            flushEncoded();
+        }
 
-        byte[] digest = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, accessKey)
-            .hmacHex(value)
-            .getBytes();
+        /**
+         * Updates the HMAC with the decimal representation of the value.
+         * @param value numeric value.
+         */
+        void update(long value) {
+            int position = digits.length;
+            long remaining = value;
+            do {
+                digits[--position] = (byte) ('0' + Math.abs(remaining % 10));
+                remaining /= 10;
+            } while (remaining != 0);
+            if (value < 0) {
+                digits[--position] = '-';
+            }
+            mac.update(digits, position, digits.length - position);
+        }
 
-        // 'LMv1' ID : BASE64(DIGEST) : TIMESTAMP
-        return String.format("%s %s:%s:%d", TOKEN_NAME, accessId,
-                Base64.getEncoder().encodeToString(digest), timestamp);
+        /**
+         * Updates the HMAC with the encoded bytes and clears the buffer.
+         */
+        private void flushEncoded() {
+            encoded.flip();
+            mac.update(encoded);
+            encoded.clear();
+        }
     }
 
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writer sending the remaining bytes of a ByteBuffer entity as they are.
+ */
+@Provider
+class ByteBufferMessageBodyWriter implements MessageBodyWriter<ByteBuffer> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        return ByteBuffer.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer without changing its position.
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException {
+
+        if (buffer.hasArray()) {
+            entityStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.remaining());
+        } else {
+            Channels.newChannel(entityStream).write(buffer.duplicate());
+        }
+    }
+
+}
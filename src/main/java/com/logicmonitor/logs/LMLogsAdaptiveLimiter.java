@@ -0,0 +1,625 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limiter of the in-flight requests and request rate adjusted by the responses (AIMD).
+ * <p>
+ * Each request holds a permit, released with the response status. The limits grow additively,
+ * by one request per limit-full of successful requests while the limit is used, and shrink
+ * multiplicatively when the endpoint is overloaded: status 429 or 5xx, no response, or latency
+ * above the tolerance of the minimum latency. The minimum latency is taken over the last two
+ * windows of successful requests, so it follows a lasting change of the baseline latency of the
+ * endpoint. Only the requests started after the last decrease can decrease the limits
+ * again, so a burst of failures of the concurrent requests backs off once.
+ * <p>
+ * A limiter may be shared by the clients sending to the same endpoint.
+ */
+public class LMLogsAdaptiveLimiter {
+
+    /**
+     * Default initial number of the in-flight requests.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 4;
+    /**
+     * Default minimum number of the in-flight requests.
+     */
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    /**
+     * Default maximum number of the in-flight requests.
+     */
+    public static final int DEFAULT_MAX_LIMIT = 64;
+    /**
+     * Default ratio of the limits after an overload.
+     */
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    /**
+     * Default minimum request rate per second when the rate is limited.
+     */
+    public static final double DEFAULT_MIN_RATE = 1;
+    /**
+     * Default increase of the request rate per second of successful requests.
+     */
+    public static final double DEFAULT_RATE_INCREASE = 1;
+    /**
+     * Default number of the successful requests in a window of the minimum latency.
+     */
+    public static final int DEFAULT_MIN_LATENCY_WINDOW = 100;
+
+    /**
+     * Minimum number of the in-flight requests.
+     */
+    protected final int minLimit;
+    /**
+     * Maximum number of the in-flight requests.
+     */
+    protected final int maxLimit;
+    /**
+     * Ratio of the limits after an overload.
+     */
+    protected final double backoffRatio;
+    /**
+     * Ratio of the minimum latency above which the endpoint is considered overloaded,
+     * 0 to ignore the latency.
+     */
+    protected final double latencyTolerance;
+    /**
+     * Minimum request rate per second.
+     */
+    protected final double minRate;
+    /**
+     * Maximum request rate per second, infinite if the rate is not limited.
+     */
+    protected final double maxRate;
+    /**
+     * Increase of the request rate per second of successful requests.
+     */
+    protected final double rateIncrease;
+    /**
+     * Number of the successful requests in a window of the minimum latency.
+     */
+    protected final int minLatencyWindow;
+
+    /**
+     * Requests waiting for a permit.
+     */
+    private final ArrayDeque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    /**
+     * Current number of the in-flight requests.
+     */
+    private double limit;
+    /**
+     * Current request rate per second.
+     */
+    private double rate;
+    /**
+     * Number of the in-flight requests.
+     */
+    private int inFlight;
+    /**
+     * Time when the next request is allowed by the rate.
+     */
+    private long nextPermitNanos = System.nanoTime();
+    /**
+     * Time of the last decrease of the limits.
+     */
+    private long lastDecreaseNanos = System.nanoTime();
+    /**
+     * Minimum latency of the successful requests in the current window.
+     */
+    private long minLatencyNanos = Long.MAX_VALUE;
+    /**
+     * Minimum latency of the successful requests in the previous window.
+     */
+    private long previousMinLatencyNanos = Long.MAX_VALUE;
+    /**
+     * Number of the successful requests in the current window.
+     */
+    private int minLatencySamples;
+    /**
+     * Smoothed latency of the successful requests.
+     */
+    private double averageLatencyNanos;
+
+    /**
+     * Initializes LMLogsAdaptiveLimiter instance with the default settings and no rate limit.
+     */
+    public LMLogsAdaptiveLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_BACKOFF_RATIO, 0,
+                Double.POSITIVE_INFINITY, DEFAULT_MIN_RATE, Double.POSITIVE_INFINITY,
+                DEFAULT_RATE_INCREASE, DEFAULT_MIN_LATENCY_WINDOW);
+    }
+
+    /**
+     * Initializes LMLogsAdaptiveLimiter instance.
+     * @param initialLimit initial number of the in-flight requests.
+     * @param minLimit minimum number of the in-flight requests.
+     * @param maxLimit maximum number of the in-flight requests.
+     * @param backoffRatio ratio of the limits after an overload.
+     * @param latencyTolerance ratio of the minimum latency above which the endpoint is considered
+     *        overloaded, 0 to ignore the latency.
+     * @param initialRate initial request rate per second, infinite if the rate is not limited.
+     * @param minRate minimum request rate per second.
+     * @param maxRate maximum request rate per second.
+     * @param rateIncrease increase of the request rate per second of successful requests.
+     * @param minLatencyWindow number of the successful requests in a window of the minimum
+     *        latency.
+     */
+    protected LMLogsAdaptiveLimiter(int initialLimit, int minLimit, int maxLimit,
+            double backoffRatio, double latencyTolerance, double initialRate, double minRate,
+            double maxRate, double rateIncrease, int minLatencyWindow) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.rate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.rateIncrease = rateIncrease;
+        this.minLatencyWindow = minLatencyWindow;
+    }
+
+    /**
+     * Acquires a permit, waiting for a free slot and the rate if necessary.
+     * @return permit to release when the response is received.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public Permit acquire() throws InterruptedException {
+        CompletableFuture<Permit> permit = acquireAsync();
+        try {
+            return permit.get();
+        } catch (InterruptedException e) {
+            if (!permit.cancel(false)) {
+                permit.join().release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            // the permits are never completed exceptionally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Acquires a permit if a slot is free and the rate allows a request immediately.
+     * @return permit to release when the response is received, or null.
+     */
+    public synchronized Permit tryAcquire() {
+        long now = System.nanoTime();
+        if (inFlight >= (int) limit || !waiters.isEmpty() || nextPermitNanos > now) {
+            return null;
+        }
+        inFlight++;
+        reserveRate(now);
+        return new Permit();
+    }
+
+    /**
+     * Acquires a permit without blocking the calling thread.
+     * @return future permit to release when the response is received. Cancelling the future
+     *         gives up waiting.
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        CompletableFuture<Permit> permit = new CompletableFuture<>();
+        long delay;
+        synchronized (this) {
+            if (inFlight >= (int) limit || !waiters.isEmpty()) {
+                waiters.add(permit);
+                return permit;
+            }
+            inFlight++;
+            delay = reserveRate(System.nanoTime());
+        }
+        grant(permit, delay);
+        return permit;
+    }
+
+    /**
+     * Gets the current number of the in-flight requests allowed.
+     * @return concurrency limit.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the current request rate per second allowed.
+     * @return rate limit, infinite if the rate is not limited.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Gets the number of the in-flight requests.
+     * @return number of the acquired permits.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of the requests waiting for a permit.
+     * @return number of the waiters.
+     */
+    public synchronized int getWaiting() {
+        return (int) waiters.stream().filter(waiter -> !waiter.isDone()).count();
+    }
+
+    /**
+     * Gets the smoothed latency of the successful requests.
+     * @return latency in milliseconds.
+     */
+    public synchronized double getAverageLatencyMillis() {
+        return averageLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Reserves the next request allowed by the rate.
+     * @param now current time.
+     * @return delay before the request is allowed in nanoseconds.
+     */
+    private long reserveRate(long now) {
+        if (Double.isInfinite(rate)) {
+            return 0;
+        }
+        long start = Math.max(now, nextPermitNanos);
+        nextPermitNanos = start + (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        return start - now;
+    }
+
+    /**
+     * Completes the future permit after the delay.
+     * @param permit future permit.
+     * @param delayNanos delay in nanoseconds.
+     */
+    private void grant(CompletableFuture<Permit> permit, long delayNanos) {
+        if (delayNanos <= 0) {
+            complete(permit);
+        } else {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS)
+                .execute(() -> complete(permit));
+        }
+    }
+
+    /**
+     * Completes the future permit, releasing the permit if the future is cancelled.
+     * @param permit future permit.
+     */
+    private void complete(CompletableFuture<Permit> permit) {
+        Permit granted = new Permit();
+        if (!permit.complete(granted)) {
+            granted.release();
+        }
+    }
+
+    /**
+     * Releases a slot, adjusts the limits and grants the permits to the waiters.
+     * @param permit released permit.
+     * @param statusCode response status, 0 for requests failed without response, or -1
+     *        if the limits should not be adjusted.
+     */
+    private void release(Permit permit, int statusCode) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        List<Long> delays = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            boolean used = inFlight >= (int) limit;
+            inFlight--;
+            if (statusCode >= 0) {
+                adjust(permit, statusCode, now, used);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                CompletableFuture<Permit> waiter = waiters.poll();
+                if (!waiter.isDone()) {
+                    inFlight++;
+                    granted.add(waiter);
+                    delays.add(reserveRate(now));
+                }
+            }
+        }
+        for (int i = 0; i < granted.size(); i++) {
+            grant(granted.get(i), delays.get(i));
+        }
+    }
+
+    /**
+     * Adjusts the limits by the response.
+     * @param permit released permit.
+     * @param statusCode response status, 0 for requests failed without response.
+     * @param now current time.
+     * @param used true if all the slots were used before the release.
+     */
+    private void adjust(Permit permit, int statusCode, long now, boolean used) {
+        long latency = now - permit.acquiredNanos;
+        boolean success = statusCode >= 200 && statusCode < 300;
+        boolean overload = statusCode == LMLogsRetryPolicy.NO_RESPONSE || statusCode == 429
+                || statusCode >= 500;
+        if (success) {
+            minLatencyNanos = Math.min(minLatencyNanos, latency);
+            averageLatencyNanos = averageLatencyNanos == 0
+                    ? latency : 0.9 * averageLatencyNanos + 0.1 * latency;
+            long baselineNanos = Math.min(minLatencyNanos, previousMinLatencyNanos);
+            overload = latencyTolerance > 0 && latency > latencyTolerance * baselineNanos;
+            if (++minLatencySamples == minLatencyWindow) {
+                previousMinLatencyNanos = minLatencyNanos;
+                minLatencyNanos = Long.MAX_VALUE;
+                minLatencySamples = 0;
+            }
+        }
+
+        if (overload) {
+            // the requests in flight during the last decrease don't decrease the limits again
+            if (permit.acquiredNanos - lastDecreaseNanos > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                rate = Math.max(minRate, rate * backoffRatio);
+                lastDecreaseNanos = now;
+            }
+        } else if (success) {
+            if (used) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (!Double.isInfinite(rate)) {
+                rate = Math.min(maxRate, rate + rateIncrease / rate);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LMLogsAdaptiveLimiter [limit=" + getLimit() + ", rate=" + rate
+                + ", inFlight=" + inFlight + "]";
+    }
+
+    /**
+     * Permit of a request.
+     */
+    public class Permit {
+
+        /**
+         * Time when the permit was acquired.
+         */
+        private final long acquiredNanos = System.nanoTime();
+        /**
+         * Flag set when the permit is released.
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Releases the permit with the response status to adjust the limits.
+         * Subsequent calls have no effect.
+         * @param statusCode response status, 0 for requests failed without response.
+         */
+        public void release(int statusCode) {
+            if (released.compareAndSet(false, true)) {
+                LMLogsAdaptiveLimiter.this.release(this, Math.max(statusCode, 0));
+            }
+        }
+
+        /**
+         * Releases the permit without adjusting the limits, e.g. if the request was not sent.
+         * Subsequent calls have no effect.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                LMLogsAdaptiveLimiter.this.release(this, -1);
+            }
+        }
+    }
+
+    /**
+     * A builder for creating adaptive limiters.
+     */
+    public static class Builder {
+
+        /**
+         * Initial number of the in-flight requests.
+         */
+        private Integer initialLimit;
+        /**
+         * Minimum number of the in-flight requests.
+         */
+        private Integer minLimit;
+        /**
+         * Maximum number of the in-flight requests.
+         */
+        private Integer maxLimit;
+        /**
+         * Ratio of the limits after an overload.
+         */
+        private Double backoffRatio;
+        /**
+         * Ratio of the minimum latency above which the endpoint is considered overloaded.
+         */
+        private Double latencyTolerance;
+        /**
+         * Initial request rate per second.
+         */
+        private Double initialRate;
+        /**
+         * Minimum request rate per second.
+         */
+        private Double minRate;
+        /**
+         * Maximum request rate per second.
+         */
+        private Double maxRate;
+        /**
+         * Increase of the request rate per second of successful requests.
+         */
+        private Double rateIncrease;
+        /**
+         * Number of the successful requests in a window of the minimum latency.
+         */
+        private Integer minLatencyWindow;
+
+        /**
+         * Configures initial number of the in-flight requests.
+         * @param initialLimit
+         * @return this builder object
+         */
+        public Builder withInitialLimit(Integer initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Configures minimum number of the in-flight requests.
+         * @param minLimit
+         * @return this builder object
+         */
+        public Builder withMinLimit(Integer minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Configures maximum number of the in-flight requests.
+         * @param maxLimit
+         * @return this builder object
+         */
+        public Builder withMaxLimit(Integer maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Configures ratio of the limits after an overload.
+         * @param backoffRatio
+         * @return this builder object
+         */
+        public Builder withBackoffRatio(Double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Configures ratio of the minimum latency above which the endpoint is considered
+         * overloaded, 0 to ignore the latency.
+         * @param latencyTolerance
+         * @return this builder object
+         */
+        public Builder withLatencyTolerance(Double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * Configures initial request rate per second, which enables the rate limit.
+         * @param initialRate
+         * @return this builder object
+         */
+        public Builder withInitialRate(Double initialRate) {
+            this.initialRate = initialRate;
+            return this;
+        }
+
+        /**
+         * Configures minimum request rate per second.
+         * @param minRate
+         * @return this builder object
+         */
+        public Builder withMinRate(Double minRate) {
+            this.minRate = minRate;
+            return this;
+        }
+
+        /**
+         * Configures maximum request rate per second.
+         * @param maxRate
+         * @return this builder object
+         */
+        public Builder withMaxRate(Double maxRate) {
+            this.maxRate = maxRate;
+            return this;
+        }
+
+        /**
+         * Configures increase of the request rate per second of successful requests.
+         * @param rateIncrease
+         * @return this builder object
+         */
+        public Builder withRateIncrease(Double rateIncrease) {
+            this.rateIncrease = rateIncrease;
+            return this;
+        }
+
+        /**
+         * Configures number of the successful requests in a window of the minimum latency.
+         * @param minLatencyWindow
+         * @return this builder object
+         */
+        public Builder withMinLatencyWindow(Integer minLatencyWindow) {
+            this.minLatencyWindow = minLatencyWindow;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsAdaptiveLimiter based on the contents of the builder.
+         * @return new LMLogsAdaptiveLimiter instance
+         * @throws IllegalArgumentException if the limits are not positive or not ordered,
+         *         the backoff ratio is not between 0 and 1, the latency tolerance
+         *         or the rate increase is negative, or the minimum latency window is not
+         *         positive.
+         */
+        public LMLogsAdaptiveLimiter build() {
+            int minLimit = this.minLimit != null ? this.minLimit : DEFAULT_MIN_LIMIT;
+            int maxLimit = this.maxLimit != null ? this.maxLimit : DEFAULT_MAX_LIMIT;
+            int initialLimit = this.initialLimit != null
+                    ? this.initialLimit : Math.max(minLimit, Math.min(maxLimit, DEFAULT_INITIAL_LIMIT));
+            double backoffRatio = this.backoffRatio != null ? this.backoffRatio : DEFAULT_BACKOFF_RATIO;
+            double latencyTolerance = this.latencyTolerance != null ? this.latencyTolerance : 0;
+            double minRate = this.minRate != null ? this.minRate : DEFAULT_MIN_RATE;
+            double maxRate = this.maxRate != null ? this.maxRate : Double.POSITIVE_INFINITY;
+            double initialRate = this.initialRate != null ? this.initialRate
+                    : this.maxRate != null ? maxRate : Double.POSITIVE_INFINITY;
+            double rateIncrease = this.rateIncrease != null ? this.rateIncrease : DEFAULT_RATE_INCREASE;
+            int minLatencyWindow = this.minLatencyWindow != null
+                    ? this.minLatencyWindow : DEFAULT_MIN_LATENCY_WINDOW;
+            if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException(
+                        "Limits must be positive and min <= initial <= max");
+            }
+            if (!(backoffRatio > 0 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+            }
+            if (!(latencyTolerance >= 0)) {
+                throw new IllegalArgumentException("Latency tolerance must not be negative");
+            }
+            if (!(minRate > 0) || minRate > initialRate || initialRate > maxRate) {
+                throw new IllegalArgumentException(
+                        "Rates must be positive and min <= initial <= max");
+            }
+            if (!(rateIncrease >= 0)) {
+                throw new IllegalArgumentException("Rate increase must not be negative");
+            }
+            if (minLatencyWindow <= 0) {
+                throw new IllegalArgumentException("Minimum latency window must be positive");
+            }
+            return new LMLogsAdaptiveLimiter(initialLimit, minLimit, maxLimit, backoffRatio,
+                    latencyTolerance, initialRate, minRate, maxRate, rateIncrease,
+                    minLatencyWindow);
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+
+/**
+ * HTTP transport keeping persistent connections in a pool of Apache HttpClient.
+ * <p>
+ * The pool is shared by all the HTTP clients configured with the transport, so TLS sessions
+ * and sockets are reused across the requests. The pool is released when the transport is closed.
+ * <p>
+ * Requires {@code org.glassfish.jersey.connectors:jersey-apache-connector} on the classpath,
+ * which is an optional dependency of the SDK.
+ */
+public class LMLogsApacheTransport implements LMLogsTransport {
+
+    /**
+     * Default maximum number of the pooled connections.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    /**
+     * Default maximum number of the pooled connections to a single host.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    /**
+     * Default time to live of a pooled connection (5 minutes).
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * Default inactivity after which a pooled connection is validated before reuse (2 seconds).
+     */
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS = (int) TimeUnit.SECONDS.toMillis(2);
+
+    /**
+     * Pool of the connections.
+     */
+    protected final PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * Initializes LMLogsApacheTransport instance with the default pool settings.
+     */
+    public LMLogsApacheTransport() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_TIME_TO_LIVE_MILLIS,
+                DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS);
+    }
+
+    /**
+     * Initializes LMLogsApacheTransport instance.
+     * @param maxConnections maximum number of the pooled connections.
+     * @param maxConnectionsPerRoute maximum number of the pooled connections to a single host.
+     * @param timeToLiveMillis time to live of a pooled connection, 0 for no limit.
+     * @param validateAfterInactivityMillis inactivity after which a pooled connection is validated
+     *        before reuse, 0 to disable the validation.
+     */
+    protected LMLogsApacheTransport(int maxConnections, int maxConnectionsPerRoute,
+            long timeToLiveMillis, int validateAfterInactivityMillis) {
+        connectionManager = new PoolingHttpClientConnectionManager(
+                timeToLiveMillis > 0 ? timeToLiveMillis : -1, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(
+                validateAfterInactivityMillis > 0 ? validateAfterInactivityMillis : -1);
+    }
+
+    /**
+     * Configures the Apache connector using the pool of the transport.
+     */
+    @Override
+    public void configure(ClientConfig clientConfig) {
+        clientConfig.connectorProvider(new ApacheConnectorProvider());
+        clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+        // the pool outlives the HTTP clients rebuilt by LMLogsClient
+        clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER_SHARED, true);
+    }
+
+    /**
+     * Gets the pool of the connections.
+     * @return connection manager.
+     */
+    public PoolingHttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Closes the idle connections and releases the pool.
+     */
+    @Override
+    public void close() {
+        connectionManager.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsApacheTransport [maxConnections=" + connectionManager.getMaxTotal()
+                + ", maxConnectionsPerRoute=" + connectionManager.getDefaultMaxPerRoute() + "]";
+    }
+
+    /**
+     * A builder for creating Apache HttpClient transports.
+     */
+    public static class Builder {
+
+        /**
+         * Maximum number of the pooled connections.
+         */
+        private Integer maxConnections;
+        /**
+         * Maximum number of the pooled connections to a single host.
+         */
+        private Integer maxConnectionsPerRoute;
+        /**
+         * Time to live of a pooled connection.
+         */
+        private Long timeToLiveMillis;
+        /**
+         * Inactivity after which a pooled connection is validated before reuse.
+         */
+        private Integer validateAfterInactivityMillis;
+
+        /**
+         * Configures maximum number of the pooled connections.
+         * @param maxConnections
+         * @return this builder object
+         */
+        public Builder withMaxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Configures maximum number of the pooled connections to a single host.
+         * @param maxConnectionsPerRoute
+         * @return this builder object
+         */
+        public Builder withMaxConnectionsPerRoute(Integer maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * Configures time to live of a pooled connection, 0 for no limit.
+         * @param timeToLiveMillis
+         * @return this builder object
+         */
+        public Builder withTimeToLiveMillis(Long timeToLiveMillis) {
+            this.timeToLiveMillis = timeToLiveMillis;
+            return this;
+        }
+
+        /**
+         * Configures inactivity after which a pooled connection is validated before reuse,
+         * 0 to disable the validation.
+         * @param validateAfterInactivityMillis
+         * @return this builder object
+         */
+        public Builder withValidateAfterInactivityMillis(Integer validateAfterInactivityMillis) {
+            this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsApacheTransport based on the contents of the builder.
+         * @return new LMLogsApacheTransport instance
+         * @throws IllegalArgumentException if maxConnections or maxConnectionsPerRoute
+         *         is not positive, or timeToLiveMillis or validateAfterInactivityMillis is negative.
+         */
+        public LMLogsApacheTransport build() {
+            int maxConnections = this.maxConnections != null
+                    ? this.maxConnections : DEFAULT_MAX_CONNECTIONS;
+            int maxConnectionsPerRoute = this.maxConnectionsPerRoute != null
+                    ? this.maxConnectionsPerRoute : DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+            long timeToLiveMillis = this.timeToLiveMillis != null
+                    ? this.timeToLiveMillis : DEFAULT_TIME_TO_LIVE_MILLIS;
+            int validateAfterInactivityMillis = this.validateAfterInactivityMillis != null
+                    ? this.validateAfterInactivityMillis : DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS;
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("Max connections must be positive");
+            }
+            if (maxConnectionsPerRoute <= 0) {
+                throw new IllegalArgumentException("Max connections per route must be positive");
+            }
+            if (timeToLiveMillis < 0) {
+                throw new IllegalArgumentException("Time to live must not be negative");
+            }
+            if (validateAfterInactivityMillis < 0) {
+                throw new IllegalArgumentException("Validate after inactivity must not be negative");
+            }
+            return new LMLogsApacheTransport(maxConnections, maxConnectionsPerRoute,
+                    timeToLiveMillis, validateAfterInactivityMillis);
+        }
+    }
+
+}
@@ -15,6 +15,8 @@
 package com.logicmonitor.logs;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import com.logicmonitor.auth.LMv1CredentialsProvider;
 import com.logicmonitor.logs.api.LogIngestApi;
 import com.logicmonitor.logs.invoker.ApiException;
 import com.logicmonitor.logs.model.LogEntry;
@@ -26,9 +28,9 @@ import com.logicmonitor.logs.model.LogResponse;
 public class LMLogsApi extends LogIngestApi {
 
     /**
-     * API version.
+     * Default API version.
      */
-    public static final Integer API_VERSION = 2;
+    public static final Integer API_VERSION = LMLogsApiVersion.V2.getNumber();
     /**
      * Name of the response header containing request ID.
      */
@@ -44,6 +46,16 @@ public class LMLogsApi extends LogIngestApi {
         super(new LMLogsClient(accessId, accessKey));
     }
 
+    /**
+     * Initializes LMLogsClient instance with the default company name and the credentials
+     * consulted for each request.
+     * @param credentialsProvider provider of LogicMonitor credentials.
+     * @throws NullPointerException if the provider is null.
+     */
+    private LMLogsApi(LMv1CredentialsProvider credentialsProvider) {
+        super(new LMLogsClient(credentialsProvider));
+    }
+
     /**
      * Gets the LogicMonitor Logs client instance.
      * @return LogIngestApi.
@@ -74,11 +86,7 @@ public class LMLogsApi extends LogIngestApi {
        </table>
      */
     public LogResponse logIngestPost(List<LogEntry> logEntry) throws LMLogsApiException {
-        try {
-            return super.logIngestPost(API_VERSION, logEntry);
-        } catch (ApiException e) {
-            throw new LMLogsApiException(e);
-        }
+        return logIngestPostWithHttpInfo(logEntry).getData();
     }
 
     /**
@@ -104,12 +112,79 @@ public class LMLogsApi extends LogIngestApi {
     public LMLogsApiResponse<LogResponse> logIngestPostWithHttpInfo(List<LogEntry> logEntry)
             throws LMLogsApiException {
         try {
-            return new LMLogsApiResponse<>(super.logIngestPostWithHttpInfo(API_VERSION, logEntry));
+            return new LMLogsApiResponse<>(getApiClient().ingest(apiVersion(), logEntry));
         } catch (ApiException e) {
             throw new LMLogsApiException(e);
         }
     }
 
+    /**
+     * Send custom logs to your LogicMonitor account without creating {@link LogEntry} objects.
+     * The records are serialized on the calling thread and can be reused as soon as
+     * the method returns, so high-volume producers may keep a fixed set of records.
+     * @param records list of the log records
+     * @return LMLogsApiResponse&lt;LogResponse&gt;
+     * @throws LMLogsApiException if fails to make API call
+     */
+    public LMLogsApiResponse<LogResponse> logIngestPostRecords(List<LMLogsRecord> records)
+            throws LMLogsApiException {
+        try {
+            return new LMLogsApiResponse<>(getApiClient().ingestRecords(apiVersion(), records));
+        } catch (ApiException e) {
+            throw new LMLogsApiException(e);
+        }
+    }
+
+    /**
+     * Send custom logs to your LogicMonitor account asynchronously.
+     * The entries are serialized on the calling thread, which is not blocked by the request.
+     * The request is sent without blocking any thread when the client uses a non-blocking
+     * transport, e.g. {@link LMLogsJdkTransport}.
+     * @param logEntry list of the log entries
+     * @return future LMLogsApiResponse&lt;LogResponse&gt;, completed exceptionally
+     *         with LMLogsApiException if fails to make API call
+     */
+    public CompletableFuture<LMLogsApiResponse<LogResponse>> logIngestPostAsync(
+            List<LogEntry> logEntry) {
+        CompletableFuture<LMLogsApiResponse<LogResponse>> future = new CompletableFuture<>();
+        getApiClient().ingestAsync(apiVersion(), logEntry).whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                future.complete(new LMLogsApiResponse<>(response));
+            } else if (throwable instanceof ApiException) {
+                future.completeExceptionally(new LMLogsApiException((ApiException) throwable));
+            } else {
+                future.completeExceptionally(new LMLogsApiException(new ApiException(throwable)));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Send custom logs to your LogicMonitor account, splitting them into the minimum number
+     * of requests not exceeding the maximum payload size of the client.
+     * The requests are sent in parallel if the client's send parallelism is greater than 1.
+     * An entry which alone exceeds the limit fails with status 413 without being sent.
+     * @param logEntry list of the log entries
+     * @return results of the requests in the order of the entries
+     * @throws LMLogsApiException if the list is missing or invalid
+     */
+    public List<LMLogsBatchResult> logIngestPostSplit(List<LogEntry> logEntry)
+            throws LMLogsApiException {
+        try {
+            return getApiClient().ingestSplit(apiVersion(), logEntry);
+        } catch (ApiException e) {
+            throw new LMLogsApiException(e);
+        }
+    }
+
+    /**
+     * Gets the number of the protocol version used by the client for the next request.
+     * @return API version.
+     */
+    private Integer apiVersion() {
+        return getApiClient().getApiVersion().getNumber();
+    }
+
     /**
      * A builder for creating LogicMonitor Logs API instances.
      */
@@ -127,6 +202,10 @@ public class LMLogsApi extends LogIngestApi {
          * LogicMonitor access key.
          */
         private String accessKey;
+        /**
+         * Provider of LogicMonitor credentials, used instead of the access ID and key.
+         */
+        private LMv1CredentialsProvider credentialsProvider;
         /**
          * Connection timeout.
          */
@@ -143,6 +222,42 @@ public class LMLogsApi extends LogIngestApi {
          * User-Agent header.
          */
         private String userAgentHeader;
+        /**
+         * Maximum size of the request payload.
+         */
+        private Integer maxPayloadBytes;
+        /**
+         * Number of the requests sent in parallel when the entries are split.
+         */
+        private Integer sendParallelism;
+        /**
+         * Compression of the request body.
+         */
+        private LMLogsCompression compression;
+        /**
+         * HTTP transport.
+         */
+        private LMLogsTransport transport;
+        /**
+         * Policy retrying the failed requests.
+         */
+        private LMLogsRetryPolicy retryPolicy;
+        /**
+         * Limiter of the in-flight requests and request rate.
+         */
+        private LMLogsAdaptiveLimiter limiter;
+        /**
+         * Instrumentation of the requests.
+         */
+        private LMLogsMetrics metrics;
+        /**
+         * Version of the ingestion protocol.
+         */
+        private LMLogsApiVersion apiVersion;
+        /**
+         * Whether the older protocol versions are tried when the server rejects the selected one.
+         */
+        private Boolean apiVersionNegotiation;
 
         /**
          * Configures the company.
@@ -174,6 +289,18 @@ public class LMLogsApi extends LogIngestApi {
             return this;
         }
 
+        /**
+         * Configures the provider of LogicMonitor credentials consulted for each request,
+         * so the credentials can be rotated without rebuilding the client.
+         * The access ID and key are ignored if the provider is set.
+         * @param credentialsProvider
+         * @return this builder object
+         */
+        public Builder withCredentialsProvider(LMv1CredentialsProvider credentialsProvider) {
+            this.credentialsProvider = credentialsProvider;
+            return this;
+        }
+
         /**
          * Configures connection timeout.
          * @param connectTimeout
@@ -213,13 +340,111 @@ public class LMLogsApi extends LogIngestApi {
             this.userAgentHeader = userAgentHeader;
             return this;
         }
+
+        /**
+         * Configures maximum size of the request payload.
+         * @param maxPayloadBytes
+         * @return this builder object
+         */
+        public Builder withMaxPayloadBytes(Integer maxPayloadBytes) {
+            this.maxPayloadBytes = maxPayloadBytes;
+            return this;
+        }
+
+        /**
+         * Configures number of the requests sent in parallel when the entries are split.
+         * @param sendParallelism
+         * @return this builder object
+         */
+        public Builder withSendParallelism(Integer sendParallelism) {
+            this.sendParallelism = sendParallelism;
+            return this;
+        }
+
+        /**
+         * Configures compression of the request body.
+         * @param compression
+         * @return this builder object
+         */
+        public Builder withCompression(LMLogsCompression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Configures HTTP transport, e.g. a pool of persistent connections.
+         * The transport is not closed by the API.
+         * @param transport
+         * @return this builder object
+         */
+        public Builder withTransport(LMLogsTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Configures policy retrying the failed requests.
+         * @param retryPolicy
+         * @return this builder object
+         */
+        public Builder withRetryPolicy(LMLogsRetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Configures limiter of the in-flight requests and request rate adjusted by the responses.
+         * @param limiter
+         * @return this builder object
+         */
+        public Builder withLimiter(LMLogsAdaptiveLimiter limiter) {
+            this.limiter = limiter;
+            return this;
+        }
+
+        /**
+         * Configures instrumentation notified about the requests, e.g. {@link LMLogsClientMetrics}.
+         * @param metrics
+         * @return this builder object
+         */
+        public Builder withMetrics(LMLogsMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Configures version of the ingestion protocol, 2 by default.
+         * @param apiVersion
+         * @return this builder object
+         */
+        public Builder withApiVersion(LMLogsApiVersion apiVersion) {
+            this.apiVersion = apiVersion;
+            return this;
+        }
+
+        /**
+         * Configures negotiation of the protocol version: the requests rejected with status 400
+         * are sent again with the previous versions until the server accepts one.
+         * @param apiVersionNegotiation
+         * @return this builder object
+         */
+        public Builder withApiVersionNegotiation(Boolean apiVersionNegotiation) {
+            this.apiVersionNegotiation = apiVersionNegotiation;
+            return this;
+        }
+
         /**
          * Returns a newly-created LMLogsApi based on the contents of the builder.
          * @return new LMLogsApi instance
-         * @throws NullPointerException if accessId or accessKey is null.
+         * @throws NullPointerException if accessId or accessKey is null
+         *         and no credentials provider is set.
+         * @throws IllegalArgumentException if maxPayloadBytes or sendParallelism is not positive,
+         *         or accessKey is empty.
          */
         public LMLogsApi build() {
-            LMLogsApi api = new LMLogsApi(accessId, accessKey);
+            LMLogsApi api = credentialsProvider != null
+                    ? new LMLogsApi(credentialsProvider)
+                    : new LMLogsApi(accessId, accessKey);
             LMLogsClient client = api.getApiClient();
             if (company != null) {
                 client.setCompany(company);
@@ -236,6 +461,33 @@ public class LMLogsApi extends LogIngestApi {
             if (userAgentHeader != null) {
                 client.setUserAgent(userAgentHeader);
             }
+            if (maxPayloadBytes != null) {
+                client.setMaxPayloadBytes(maxPayloadBytes);
+            }
+            if (sendParallelism != null) {
+                client.setSendParallelism(sendParallelism);
+            }
+            if (compression != null) {
+                client.setCompression(compression);
+            }
+            if (transport != null) {
+                client.setTransport(transport);
+            }
+            if (retryPolicy != null) {
+                client.setRetryPolicy(retryPolicy);
+            }
+            if (limiter != null) {
+                client.setLimiter(limiter);
+            }
+            if (metrics != null) {
+                client.setMetrics(metrics);
+            }
+            if (apiVersion != null) {
+                client.setApiVersion(apiVersion);
+            }
+            if (apiVersionNegotiation != null) {
+                client.setApiVersionNegotiation(apiVersionNegotiation);
+            }
             return api;
         }
     }
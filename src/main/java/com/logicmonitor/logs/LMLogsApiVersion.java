@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+/**
+ * Version of the log ingestion protocol, sent in the 'X-Version' header of the requests.
+ * <p>
+ * Both versions share the format of the log entries and of the response, so the same
+ * serializer and response handling are used for each of them.
+ */
+public enum LMLogsApiVersion {
+
+    /**
+     * Version 2, accepted by all the servers.
+     */
+    V2(2),
+    /**
+     * Version 3.
+     */
+    V3(3);
+
+    /**
+     * Value of the X-Version header.
+     */
+    private final int number;
+
+    /**
+     * Initializes the version.
+     * @param number value of the X-Version header.
+     */
+    LMLogsApiVersion(int number) {
+        this.number = number;
+    }
+
+    /**
+     * Gets the value of the X-Version header.
+     * @return version number.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets the preceding version, tried when the server rejects this one
+     * during the negotiation.
+     * @return previous version or null if this is the oldest one.
+     */
+    public LMLogsApiVersion previous() {
+        return ordinal() == 0 ? null : values()[ordinal() - 1];
+    }
+
+    /**
+     * Gets the version with the number.
+     * @param number value of the X-Version header.
+     * @return version or null if the number is unknown.
+     */
+    public static LMLogsApiVersion forNumber(int number) {
+        for (LMLogsApiVersion version : values()) {
+            if (version.number == number) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+}
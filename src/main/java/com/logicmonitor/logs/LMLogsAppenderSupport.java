@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Configuration and pipeline shared by the appenders of the logging frameworks.
+ * <p>
+ * The events are offered to a {@link LMLogsRingBuffer}, so the logging threads only copy the
+ * values into a pre-allocated slot and never wait for the network. When the ring is full,
+ * the events are dropped or the logging threads wait for a free slot, depending on the
+ * overflow policy. The resource ID is configured statically and may be completed from the MDC
+ * of each event; without MDC keys all the events share the same map.
+ */
+class LMLogsAppenderSupport {
+
+    /**
+     * Prefix of the names of the threads started by the SDK, whose events are ignored,
+     * so the SDK doesn't send its own logs or wait for itself.
+     */
+    static final String INTERNAL_THREAD_PREFIX = "lm-logs-";
+    /**
+     * Pattern of the messages when no layout is configured, understood by both Logback
+     * and Log4j 2. The log entries have no other field for the level, the logger or the
+     * stack trace, so they are kept in the message.
+     */
+    static final String DEFAULT_PATTERN = "%level %logger - %msg%n%ex";
+
+    /**
+     * LogicMonitor account name.
+     */
+    private String company;
+    /**
+     * LogicMonitor access ID.
+     */
+    private String accessId;
+    /**
+     * LogicMonitor access key.
+     */
+    private String accessKey;
+    /**
+     * User agent header, or null for the default one.
+     */
+    private String userAgent;
+    /**
+     * Resource ID properties of all the events.
+     */
+    private Map<String, String> resourceId = Collections.emptyMap();
+    /**
+     * Resource ID properties by the MDC keys of their values.
+     */
+    private Map<String, String> mdcResourceId = Collections.emptyMap();
+    /**
+     * Capacity of the ring.
+     */
+    private int capacity = LMLogsRingBuffer.DEFAULT_CAPACITY;
+    /**
+     * Maximum number of events in a batch.
+     */
+    private int batchSize = LMLogsRingBuffer.DEFAULT_BATCH_SIZE;
+    /**
+     * Linger time in milliseconds.
+     */
+    private long lingerMillis = LMLogsRingBuffer.DEFAULT_LINGER_MILLIS;
+    /**
+     * Policy applied when the ring is full.
+     */
+    private LMLogsRingBuffer.OverflowPolicy overflowPolicy = LMLogsRingBuffer.OverflowPolicy.DROP;
+    /**
+     * Strategy of waiting for the records.
+     */
+    private LMLogsWaitStrategy waitStrategy = LMLogsWaitStrategy.BLOCKING;
+    /**
+     * API used to send the events, created on start if not set.
+     */
+    private LMLogsApi api;
+    /**
+     * Ring buffer sending the events, null when stopped.
+     */
+    private volatile LMLogsRingBuffer ringBuffer;
+    /**
+     * Flag set if the API was created on start and is closed on stop.
+     */
+    private boolean ownsApi;
+
+    /**
+     * Creates the API, unless set, and starts the ring buffer.
+     * @throws NullPointerException if the company or the credentials are missing.
+     * @throws IllegalArgumentException if the configuration is invalid.
+     */
+    synchronized void start() {
+        if (ringBuffer != null) {
+            return;
+        }
+        ownsApi = api == null;
+        LMLogsApi target = ownsApi ? createApi() : api;
+        try {
+            ringBuffer = new LMLogsRingBuffer.Builder(target)
+                .withCapacity(capacity)
+                .withBatchSize(batchSize)
+                .withLingerMillis(lingerMillis)
+                .withOverflowPolicy(overflowPolicy)
+                .withWaitStrategy(waitStrategy)
+                .build();
+        } catch (RuntimeException e) {
+            if (ownsApi) {
+                target.getApiClient().close();
+            }
+            throw e;
+        }
+        api = target;
+    }
+
+    /**
+     * Creates the API from the configuration.
+     * @return API instance.
+     * @throws NullPointerException if the company or the credentials are missing.
+     */
+    private LMLogsApi createApi() {
+        return new LMLogsApi.Builder()
+            .withCompany(Objects.requireNonNull(company, "Company must not be null"))
+            .withAccessId(Objects.requireNonNull(accessId, "Access ID must not be null"))
+            .withAccessKey(Objects.requireNonNull(accessKey, "Access key must not be null"))
+            .withUserAgentHeader(userAgent)
+            .build();
+    }
+
+    /**
+     * Stops the ring buffer, waiting for the published events to be sent.
+     */
+    synchronized void stop() {
+        LMLogsRingBuffer current = ringBuffer;
+        if (current == null) {
+            return;
+        }
+        ringBuffer = null;
+        current.close();
+        if (ownsApi) {
+            api.getApiClient().close();
+            api = null;
+        }
+    }
+
+    /**
+     * Checks if the pipeline is started.
+     * @return true if started.
+     */
+    boolean isStarted() {
+        return ringBuffer != null;
+    }
+
+    /**
+     * Offers the event to the ring buffer.
+     * @param threadName name of the thread which logged the event.
+     * @param message formatted message.
+     * @param timestamp time of the event in milliseconds since the epoch.
+     * @param mdc function getting the MDC value by its key, or null if there is no MDC.
+     * @return true if the event was queued, false if it was dropped or ignored.
+     */
+    boolean append(String threadName, String message, long timestamp,
+            UnaryOperator<String> mdc) {
+        LMLogsRingBuffer current = ringBuffer;
+        if (current == null || threadName != null
+                && threadName.startsWith(INTERNAL_THREAD_PREFIX)) {
+            return false;
+        }
+        return current.offer(message, timestamp, resourceId(mdc));
+    }
+
+    /**
+     * Gets the resource ID of the event.
+     * @param mdc function getting the MDC value by its key, or null if there is no MDC.
+     * @return the static resource ID, or a new map completed from the MDC.
+     */
+    private Map<String, String> resourceId(UnaryOperator<String> mdc) {
+        if (mdcResourceId.isEmpty() || mdc == null) {
+            return resourceId;
+        }
+        Map<String, String> result = null;
+        for (Map.Entry<String, String> item : mdcResourceId.entrySet()) {
+            String value = mdc.apply(item.getKey());
+            if (value != null) {
+                if (result == null) {
+                    result = new LinkedHashMap<>(resourceId);
+                }
+                result.put(item.getValue(), value);
+            }
+        }
+        return result != null ? result : resourceId;
+    }
+
+    /**
+     * Gets the number of the events dropped because the ring was full.
+     * @return number of dropped events.
+     */
+    long getDroppedCount() {
+        LMLogsRingBuffer current = ringBuffer;
+        return current != null ? current.getDroppedCount() : 0;
+    }
+
+    /**
+     * Parses the properties of the form {@code key1=value1,key2=value2}.
+     * @param properties comma separated properties, or null.
+     * @return map of the properties in their order.
+     * @throws IllegalArgumentException if a property has no key or value.
+     */
+    static Map<String, String> parseProperties(String properties) {
+        if (properties == null || properties.trim().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String property : properties.split(",", -1)) {
+            int separator = property.indexOf('=');
+            String key = separator > 0 ? property.substring(0, separator).trim() : "";
+            String value = separator > 0 ? property.substring(separator + 1).trim() : "";
+            if (key.isEmpty() || value.isEmpty()) {
+                throw new IllegalArgumentException("Invalid property '" + property.trim()
+                        + "', expected key=value");
+            }
+            result.put(key, value);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Sets the LogicMonitor account name.
+     * @param company company name.
+     */
+    void setCompany(String company) {
+        this.company = company;
+    }
+
+    /**
+     * Sets the LogicMonitor access ID.
+     * @param accessId access ID.
+     */
+    void setAccessId(String accessId) {
+        this.accessId = accessId;
+    }
+
+    /**
+     * Sets the LogicMonitor access key.
+     * @param accessKey access key.
+     */
+    void setAccessKey(String accessKey) {
+        this.accessKey = accessKey;
+    }
+
+    /**
+     * Sets the user agent header.
+     * @param userAgent user agent or null for the default one.
+     */
+    void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Sets the resource ID properties of all the events.
+     * @param resourceId properties of the form {@code key1=value1,key2=value2}.
+     * @throws IllegalArgumentException if a property has no key or value.
+     */
+    void setResourceId(String resourceId) {
+        this.resourceId = parseProperties(resourceId);
+    }
+
+    /**
+     * Sets the resource ID properties taken from the MDC of the events.
+     * @param mdcResourceId properties of the form {@code mdcKey1=key1,mdcKey2=key2}.
+     * @throws IllegalArgumentException if a property has no key or value.
+     */
+    void setMdcResourceId(String mdcResourceId) {
+        this.mdcResourceId = parseProperties(mdcResourceId);
+    }
+
+    /**
+     * Sets the capacity of the ring.
+     * @param capacity power of two.
+     */
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sets the maximum number of events in a batch.
+     * @param batchSize batch size.
+     */
+    void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the linger time.
+     * @param lingerMillis linger time in milliseconds.
+     */
+    void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Sets the policy applied when the ring is full.
+     * @param overflowPolicy name of the policy, case insensitive.
+     * @throws IllegalArgumentException if there is no such policy.
+     */
+    void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = LMLogsRingBuffer.OverflowPolicy.valueOf(
+                Objects.requireNonNull(overflowPolicy, "Overflow policy must not be null")
+                    .trim().toUpperCase());
+    }
+
+    /**
+     * Sets the strategy of waiting for the records.
+     * @param waitStrategy name of the strategy, case insensitive.
+     * @throws IllegalArgumentException if there is no such strategy.
+     */
+    void setWaitStrategy(String waitStrategy) {
+        this.waitStrategy = LMLogsWaitStrategy.valueOf(
+                Objects.requireNonNull(waitStrategy, "Wait strategy must not be null")
+                    .trim().toUpperCase());
+    }
+
+    /**
+     * Sets the API used to send the events instead of creating it on start.
+     * @param api API instance, which is not closed on stop.
+     */
+    void setApi(LMLogsApi api) {
+        this.api = api;
+    }
+
+}
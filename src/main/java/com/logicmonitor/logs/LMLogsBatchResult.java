@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.Collections;
+import java.util.List;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Result of sending a part of the log entries in a single request.
+ */
+public class LMLogsBatchResult {
+
+    /**
+     * Log entries sent in the request.
+     */
+    private final List<LogEntry> entries;
+    /**
+     * API response, null if the request failed.
+     */
+    private final LMLogsApiResponse<LogResponse> response;
+    /**
+     * API exception, null if the request succeeded.
+     */
+    private final LMLogsApiException exception;
+    /**
+     * Entries rejected by the server, correlated on the first access.
+     */
+    private List<LMLogsRejection> rejections;
+
+    /**
+     * Constructs a successful result.
+     * @param entries log entries sent in the request.
+     * @param response API response.
+     */
+    LMLogsBatchResult(List<LogEntry> entries, LMLogsApiResponse<LogResponse> response) {
+        this.entries = entries;
+        this.response = response;
+        this.exception = null;
+    }
+
+    /**
+     * Constructs a failed result.
+     * @param entries log entries sent in the request.
+     * @param exception API exception.
+     */
+    LMLogsBatchResult(List<LogEntry> entries, LMLogsApiException exception) {
+        this.entries = entries;
+        this.response = null;
+        this.exception = exception;
+    }
+
+    /**
+     * Gets the log entries sent in the request.
+     * @return list of the log entries.
+     */
+    public List<LogEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the API response.
+     * @return API response or null if the request failed.
+     */
+    public LMLogsApiResponse<LogResponse> getResponse() {
+        return response;
+    }
+
+    /**
+     * Gets the API exception.
+     * @return API exception or null if the request succeeded.
+     */
+    public LMLogsApiException getException() {
+        return exception;
+    }
+
+    /**
+     * Checks if the request succeeded.
+     * @return true if the request succeeded.
+     */
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+    /**
+     * Checks if the request succeeded but the server rejected some of the entries (status 207).
+     * @return true if the response contains errors.
+     */
+    public boolean isPartialSuccess() {
+        return !getRejections().isEmpty();
+    }
+
+    /**
+     * Gets the entries rejected by the server, correlated with their indices in the request.
+     * @return list of the rejections, empty if the request failed or all the entries were accepted.
+     */
+    public synchronized List<LMLogsRejection> getRejections() {
+        if (rejections == null) {
+            rejections = response != null
+                    ? LMLogsRejection.correlate(entries, response)
+                    : Collections.emptyList();
+        }
+        return rejections;
+    }
+
+}
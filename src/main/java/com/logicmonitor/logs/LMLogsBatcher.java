@@ -0,0 +1,717 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Asynchronous sender accumulating log entries and sending them in batches.
+ * <p>
+ * Entries are offered without blocking to a bounded queue and sent by background workers
+ * through {@link LMLogsApi} when the batch reaches the configured number of entries or size,
+ * or when the oldest entry in the batch has been waiting longer than the linger time.
+ * <p>
+ * If a spill queue is configured, the batches failed with a retryable status or without
+ * response are appended to it and sent again after the next successful request.
+ * <p>
+ * The entries rejected individually in a partially accepted request (status 207) are correlated
+ * with the batch, and those matching the rejection retry predicate are sent again once.
+ */
+public class LMLogsBatcher implements AutoCloseable {
+
+    /**
+     * Default capacity of the queue.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100_000;
+    /**
+     * Default maximum number of entries in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * Default maximum estimated size of a batch (1 MB).
+     */
+    public static final int DEFAULT_BATCH_BYTES = 1024 * 1024;
+    /**
+     * Default linger time (200 milliseconds).
+     */
+    public static final long DEFAULT_LINGER_MILLIS = 200;
+    /**
+     * Default number of the worker threads.
+     */
+    public static final int DEFAULT_WORKERS = 1;
+    /**
+     * Default time to wait for the workers when closing (10 seconds).
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Estimated size of the JSON structure surrounding the values of an entry.
+     */
+    static final int ENTRY_OVERHEAD = 64;
+    /**
+     * Time the idle workers wait for the first entry of a batch before checking the closed flag.
+     */
+    static final long IDLE_POLL_MILLIS = 100;
+    /**
+     * Maximum number of the spilled batches sent after a successful request.
+     */
+    static final int DRAIN_BATCHES = 4;
+
+    /**
+     * Counter used to name the worker threads.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * API used to send the batches.
+     */
+    protected final LMLogsApi api;
+    /**
+     * Queue of the entries waiting to be sent.
+     */
+    protected final BlockingQueue<LogEntry> queue;
+    /**
+     * Maximum number of entries in a batch.
+     */
+    protected final int batchSize;
+    /**
+     * Maximum estimated size of a batch in bytes.
+     */
+    protected final int batchBytes;
+    /**
+     * Linger time in nanoseconds.
+     */
+    protected final long lingerNanos;
+    /**
+     * Time to wait for the workers when closing in milliseconds.
+     */
+    protected final long closeTimeoutMillis;
+    /**
+     * Listener notified about the results of the batches.
+     */
+    protected final Listener listener;
+    /**
+     * Queue of the failed batches, or null.
+     */
+    protected final LMLogsSpillQueue spillQueue;
+    /**
+     * Predicate selecting the rejected entries to send again, or null.
+     */
+    protected final Predicate<LMLogsRejection> rejectionRetry;
+    /**
+     * Instrumentation notified about the queue and the dropped entries.
+     */
+    protected final LMLogsMetrics metrics;
+    /**
+     * Size of the queue registered in the metrics.
+     */
+    private final IntSupplier queueSize;
+    /**
+     * Worker threads.
+     */
+    private final ExecutorService workers;
+    /**
+     * Number of entries rejected because the queue was full or the batcher was closed.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Closed flag.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+    /**
+     * Lock held shared by the offers and exclusively when closing, so no entry is queued
+     * after the workers have seen the batcher closed.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Initializes LMLogsBatcher instance and starts the workers.
+     * @param builder builder containing the configuration.
+     */
+    protected LMLogsBatcher(Builder builder) {
+        api = builder.api;
+        queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        batchSize = builder.batchSize;
+        batchBytes = builder.batchBytes;
+        lingerNanos = TimeUnit.MILLISECONDS.toNanos(builder.lingerMillis);
+        closeTimeoutMillis = builder.closeTimeoutMillis;
+        listener = builder.listener;
+        spillQueue = builder.spillQueue;
+        rejectionRetry = builder.rejectionRetry;
+        metrics = builder.metrics;
+        queueSize = queue::size;
+        metrics.registerQueue(queueSize);
+
+        String namePrefix = "lm-logs-batcher-" + INSTANCES.incrementAndGet() + "-";
+        AtomicInteger threads = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        workers = Executors.newFixedThreadPool(builder.workers, threadFactory);
+        for (int i = 0; i < builder.workers; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Offers the entry to be sent. Never blocks.
+     * @param entry log entry.
+     * @return true if the entry was queued, false if the queue is full or the batcher is closed.
+     * @throws NullPointerException if the entry is null.
+     */
+    public boolean offer(LogEntry entry) {
+        Objects.requireNonNull(entry, "Log entry must not be null");
+        closeLock.readLock().lock();
+        try {
+            if (!closed.get() && queue.offer(entry)) {
+                return true;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        dropped.incrementAndGet();
+        metrics.onEntriesDropped(1);
+        return false;
+    }
+
+    /**
+     * Sends all the queued entries on the calling thread.
+     */
+    public void flush() {
+        List<LogEntry> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        List<LogEntry> batch = new ArrayList<>();
+        long bytes = 0;
+        for (LogEntry entry : pending) {
+            int size = estimateSize(entry);
+            if (!batch.isEmpty() && (batch.size() >= batchSize || bytes + size > batchBytes)) {
+                send(batch);
+                batch = new ArrayList<>();
+                bytes = 0;
+            }
+            batch.add(entry);
+            bytes += size;
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Stops accepting new entries, waits for the workers to send the queued entries
+     * and sends the remaining ones on the calling thread.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(closeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        metrics.unregisterQueue(queueSize);
+    }
+
+    /**
+     * Checks if the batcher is closed.
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Gets the number of entries waiting to be sent.
+     * @return number of queued entries.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of entries rejected because the queue was full or the batcher was closed.
+     * @return number of dropped entries.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Worker loop collecting the batches until the batcher is closed and the queue is empty.
+     */
+    private void work() {
+        LogEntry carried = null;
+        boolean interrupted = false;
+        while (!interrupted && (!closed.get() || carried != null || !queue.isEmpty())) {
+            List<LogEntry> batch = new ArrayList<>();
+            long bytes = 0;
+            long deadline = 0;
+            try {
+                LogEntry entry = carried != null
+                        ? carried
+                        : queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                carried = null;
+                while (entry != null) {
+                    int size = estimateSize(entry);
+                    if (!batch.isEmpty() && bytes + size > batchBytes) {
+                        carried = entry;
+                        break;
+                    }
+                    if (batch.isEmpty()) {
+                        deadline = System.nanoTime() + lingerNanos;
+                    }
+                    batch.add(entry);
+                    bytes += size;
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+                    long remaining = closed.get() ? 0 : deadline - System.nanoTime();
+                    entry = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                }
+            } catch (InterruptedException e) {
+                // send what has been already taken from the queue before exiting
+                interrupted = true;
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        }
+        if (carried != null && !queue.offer(carried)) {
+            dropped.incrementAndGet();
+            metrics.onEntriesDropped(1);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends the batch, split if it exceeds the maximum payload size of the API,
+     * and notifies the listener about the result of each request.
+     * @param batch list of the log entries.
+     */
+    protected void send(List<LogEntry> batch) {
+        send(batch, rejectionRetry);
+    }
+
+    /**
+     * Sends the batch and then the rejected entries selected by the predicate.
+     * @param batch list of the log entries.
+     * @param retry predicate selecting the rejected entries to send again, or null.
+     */
+    private void send(List<LogEntry> batch, Predicate<LMLogsRejection> retry) {
+        List<LMLogsBatchResult> results;
+        // only the failures of the request are caught, the accepted entries are never spilled
+        try {
+            results = api.logIngestPostSplit(batch);
+        } catch (LMLogsApiException e) {
+            notifyListener(() -> listener.onFailure(batch, e));
+            return;
+        } catch (RuntimeException e) {
+            if (!spill(batch)) {
+                notifyListener(() -> listener.onError(batch, e));
+            }
+            return;
+        }
+        boolean success = true;
+        List<LogEntry> resend = new ArrayList<>();
+        for (LMLogsBatchResult result : results) {
+            if (result.isSuccess()) {
+                notifyListener(() -> listener.onSuccess(result.getEntries(),
+                        result.getResponse()));
+                if (result.isPartialSuccess()) {
+                    reject(result, retry, resend);
+                }
+            } else {
+                success = false;
+                if (!isRetryable(result.getException()) || !spill(result.getEntries())) {
+                    notifyListener(() -> listener.onFailure(result.getEntries(),
+                            result.getException()));
+                }
+            }
+        }
+        if (!resend.isEmpty()) {
+            // the entries rejected again are reported rather than retried
+            send(resend, null);
+        }
+        if (success && spillQueue != null && !spillQueue.isEmpty()) {
+            try {
+                spillQueue.drain(api, DRAIN_BATCHES);
+            } catch (IOException e) {
+                // the spilled batches stay in the queue
+            }
+        }
+    }
+
+    /**
+     * Collects the rejected entries selected by the predicate and notifies the listener
+     * about the others.
+     * @param result result of the partially accepted request.
+     * @param retry predicate selecting the rejected entries to send again, or null.
+     * @param resend list collecting the entries to send again.
+     */
+    private void reject(LMLogsBatchResult result, Predicate<LMLogsRejection> retry,
+            List<LogEntry> resend) {
+        List<LMLogsRejection> rejected = new ArrayList<>();
+        for (LMLogsRejection rejection : result.getRejections()) {
+            if (retry != null && rejection.getEntry() != null && retry.test(rejection)) {
+                resend.add(rejection.getEntry());
+            } else {
+                rejected.add(rejection);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            notifyListener(() -> listener.onRejected(rejected, result.getResponse()));
+        }
+    }
+
+    /**
+     * Calls the listener, ignoring its exceptions so a failing listener does not stop
+     * the worker, which is not restarted by the pool.
+     * @param callback call of the listener.
+     */
+    private static void notifyListener(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            // the listener is responsible for its own failures
+        }
+    }
+
+    /**
+     * Checks if the request failed with a status worth sending the entries again later.
+     * @param exception API exception.
+     * @return true if the status is retryable.
+     */
+    private static boolean isRetryable(LMLogsApiException exception) {
+        return LMLogsRetryPolicy.DEFAULT_RETRYABLE_STATUSES.contains(
+                exception.getResponse().getStatusCode());
+    }
+
+    /**
+     * Appends the entries to the spill queue and notifies the listener.
+     * @param entries list of the log entries.
+     * @return true if the entries were spilled, false if there is no spill queue or it is full.
+     */
+    private boolean spill(List<LogEntry> entries) {
+        if (spillQueue == null) {
+            return false;
+        }
+        try {
+            if (!spillQueue.append(entries)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        notifyListener(() -> listener.onSpilled(entries));
+        return true;
+    }
+
+    /**
+     * Estimates the size of the entry serialized to JSON.
+     * @param entry log entry.
+     * @return estimated size in bytes.
+     */
+    static int estimateSize(LogEntry entry) {
+        int size = ENTRY_OVERHEAD;
+        if (entry.getMessage() != null) {
+            size += entry.getMessage().length();
+        }
+        Map<String, String> resourceId = entry.getLmResourceId();
+        if (resourceId != null) {
+            for (Map.Entry<String, String> item : resourceId.entrySet()) {
+                size += 6 + length(item.getKey()) + length(item.getValue());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the length of the string.
+     * @param value string value.
+     * @return length of the string or 0 if it is null.
+     */
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Listener notified about the results of the batches sent by the workers.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the batch, or a part of it sent in a single request, has been accepted.
+         * @param batch list of the log entries.
+         * @param response API response.
+         */
+        default void onSuccess(List<LogEntry> batch, LMLogsApiResponse<LogResponse> response) {
+        }
+
+        /**
+         * Called when the API returns an error response for the batch or a part of it.
+         * @param batch list of the log entries.
+         * @param exception API exception.
+         */
+        default void onFailure(List<LogEntry> batch, LMLogsApiException exception) {
+        }
+
+        /**
+         * Called when the batch could not be sent because of an unexpected error.
+         * @param batch list of the log entries.
+         * @param exception unexpected exception.
+         */
+        default void onError(List<LogEntry> batch, RuntimeException exception) {
+        }
+
+        /**
+         * Called when the batch, or a part of it, has failed with a retryable status
+         * and has been appended to the spill queue.
+         * @param batch list of the log entries.
+         */
+        default void onSpilled(List<LogEntry> batch) {
+        }
+
+        /**
+         * Called when the server has rejected some entries of an accepted request (status 207)
+         * and they are not sent again. Called after {@link #onSuccess} for the same request.
+         * @param rejections rejected entries with their errors.
+         * @param response API response.
+         */
+        default void onRejected(List<LMLogsRejection> rejections,
+                LMLogsApiResponse<LogResponse> response) {
+        }
+    }
+
+    /**
+     * A builder for creating LogicMonitor Logs batchers.
+     */
+    public static class Builder {
+
+        /**
+         * API used to send the batches.
+         */
+        private final LMLogsApi api;
+        /**
+         * Capacity of the queue.
+         */
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        /**
+         * Maximum number of entries in a batch.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        /**
+         * Maximum estimated size of a batch in bytes.
+         */
+        private int batchBytes = DEFAULT_BATCH_BYTES;
+        /**
+         * Linger time in milliseconds.
+         */
+        private long lingerMillis = DEFAULT_LINGER_MILLIS;
+        /**
+         * Number of the worker threads.
+         */
+        private int workers = DEFAULT_WORKERS;
+        /**
+         * Time to wait for the workers when closing in milliseconds.
+         */
+        private long closeTimeoutMillis = DEFAULT_CLOSE_TIMEOUT_MILLIS;
+        /**
+         * Listener notified about the results of the batches.
+         */
+        private Listener listener = new Listener() {};
+        /**
+         * Queue of the failed batches.
+         */
+        private LMLogsSpillQueue spillQueue;
+        /**
+         * Predicate selecting the rejected entries to send again.
+         */
+        private Predicate<LMLogsRejection> rejectionRetry;
+        /**
+         * Instrumentation notified about the queue and the dropped entries.
+         */
+        private LMLogsMetrics metrics = LMLogsMetrics.NONE;
+
+        /**
+         * Initializes the builder.
+         * @param api API used to send the batches.
+         * @throws NullPointerException if the API is null.
+         */
+        public Builder(LMLogsApi api) {
+            this.api = Objects.requireNonNull(api, "API must not be null");
+        }
+
+        /**
+         * Configures the capacity of the queue.
+         * @param queueCapacity
+         * @return this builder object
+         */
+        public Builder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of entries in a batch.
+         * @param batchSize
+         * @return this builder object
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Configures the maximum estimated size of a batch in bytes.
+         * @param batchBytes
+         * @return this builder object
+         */
+        public Builder withBatchBytes(int batchBytes) {
+            this.batchBytes = batchBytes;
+            return this;
+        }
+
+        /**
+         * Configures the linger time in milliseconds.
+         * @param lingerMillis
+         * @return this builder object
+         */
+        public Builder withLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        /**
+         * Configures the number of the worker threads.
+         * @param workers
+         * @return this builder object
+         */
+        public Builder withWorkers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Configures the time to wait for the workers when closing in milliseconds.
+         * @param closeTimeoutMillis
+         * @return this builder object
+         */
+        public Builder withCloseTimeoutMillis(long closeTimeoutMillis) {
+            this.closeTimeoutMillis = closeTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Configures the listener notified about the results of the batches.
+         * @param listener
+         * @return this builder object
+         */
+        public Builder withListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Configures the queue of the batches failed with a retryable status. The queue
+         * is drained after the successful requests and is not closed by the batcher.
+         * @param spillQueue
+         * @return this builder object
+         */
+        public Builder withSpillQueue(LMLogsSpillQueue spillQueue) {
+            this.spillQueue = spillQueue;
+            return this;
+        }
+
+        /**
+         * Configures the predicate selecting the entries rejected in a partially accepted
+         * request which are sent again once, e.g. by the error message. By default no rejected
+         * entries are sent again.
+         * @param rejectionRetry
+         * @return this builder object
+         */
+        public Builder withRejectionRetry(Predicate<LMLogsRejection> rejectionRetry) {
+            this.rejectionRetry = rejectionRetry;
+            return this;
+        }
+
+        /**
+         * Configures the instrumentation notified about the queue and the dropped entries,
+         * usually the same as the metrics of the API.
+         * @param metrics
+         * @return this builder object
+         */
+        public Builder withMetrics(LMLogsMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsBatcher based on the contents of the builder.
+         * @return new LMLogsBatcher instance
+         * @throws IllegalArgumentException if any of the limits is not positive.
+         * @throws NullPointerException if the listener or the metrics is null.
+         */
+        public LMLogsBatcher build() {
+            if (queueCapacity <= 0 || batchSize <= 0 || batchBytes <= 0 || workers <= 0) {
+                throw new IllegalArgumentException(
+                        "Queue capacity, batch size, batch bytes and workers must be positive");
+            }
+            if (lingerMillis < 0 || closeTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Linger and close timeout must not be negative");
+            }
+            Objects.requireNonNull(listener, "Listener must not be null");
+            Objects.requireNonNull(metrics, "Metrics must not be null");
+            return new LMLogsBatcher(this);
+        }
+    }
+
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Sender of large amounts of log entries, e.g. backfills of historic logs.
+ * <p>
+ * The entries are read on the calling thread and partitioned into batches, which are sent
+ * concurrently through {@link LMLogsApi#logIngestPostSplit}. At most the configured number of
+ * batches are in flight, so the memory used doesn't depend on the size of the input. The results
+ * are reported to the consumer on the calling thread in the order of the entries.
+ * <p>
+ * The requests are sent on a pool of platform threads as large as the concurrency. The pooled
+ * threads keep the per-thread caches of the SDK warm: the serialization buffers, the request
+ * signers and the resource ID caches. Virtual threads can be enabled on Java 21+ with
+ * {@link Builder#withVirtualThreads(boolean)}; they are cheaper to block, but each request starts
+ * on a new thread, so the caches are rebuilt for every batch.
+ */
+public class LMLogsBulkSender implements AutoCloseable {
+
+    /**
+     * Default maximum number of entries in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = LMLogsBatcher.DEFAULT_BATCH_SIZE;
+    /**
+     * Default maximum estimated size of a batch (1 MB).
+     */
+    public static final int DEFAULT_BATCH_BYTES = LMLogsBatcher.DEFAULT_BATCH_BYTES;
+    /**
+     * Default maximum number of the batches in flight.
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    /**
+     * Counter used to name the platform threads.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * API used to send the batches.
+     */
+    protected final LMLogsApi api;
+    /**
+     * Maximum number of entries in a batch.
+     */
+    protected final int batchSize;
+    /**
+     * Maximum estimated size of a batch in bytes.
+     */
+    protected final int batchBytes;
+    /**
+     * Maximum number of the batches in flight.
+     */
+    protected final int concurrency;
+    /**
+     * Executor sending the batches.
+     */
+    private final ExecutorService executor;
+    /**
+     * Flag set if the executor runs the tasks on virtual threads.
+     */
+    private final boolean virtual;
+
+    /**
+     * Initializes LMLogsBulkSender instance.
+     * @param builder builder containing the configuration.
+     */
+    protected LMLogsBulkSender(Builder builder) {
+        api = builder.api;
+        batchSize = builder.batchSize;
+        batchBytes = builder.batchBytes;
+        concurrency = builder.concurrency;
+        ExecutorService virtualExecutor = builder.virtualThreads ? newVirtualExecutor() : null;
+        virtual = virtualExecutor != null;
+        if (virtual) {
+            executor = virtualExecutor;
+        } else {
+            String namePrefix = "lm-logs-bulk-" + INSTANCES.incrementAndGet() + "-";
+            AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Sends the entries of the stream and waits until all the batches are completed.
+     * @param entries stream of the log entries.
+     * @param consumer consumer of the results, called on the calling thread in the order
+     *        of the entries.
+     * @return summary of the sent entries.
+     * @throws InterruptedException if the calling thread is interrupted, the batches in flight
+     *         are cancelled.
+     * @throws NullPointerException if the stream, an entry or the consumer is null.
+     * @throws IllegalStateException if the sender is closed.
+     */
+    public Summary sendAll(Stream<LogEntry> entries, Consumer<LMLogsBatchResult> consumer)
+            throws InterruptedException {
+        Objects.requireNonNull(entries, "Log entries must not be null");
+        return sendAll(entries.iterator(), consumer);
+    }
+
+    /**
+     * Sends the entries of the iterator and waits until all the batches are completed.
+     * @param entries iterator of the log entries.
+     * @param consumer consumer of the results, called on the calling thread in the order
+     *        of the entries.
+     * @return summary of the sent entries.
+     * @throws InterruptedException if the calling thread is interrupted, the batches in flight
+     *         are cancelled.
+     * @throws NullPointerException if the iterator, an entry or the consumer is null.
+     * @throws IllegalStateException if the sender is closed.
+     */
+    public Summary sendAll(Iterator<LogEntry> entries, Consumer<LMLogsBatchResult> consumer)
+            throws InterruptedException {
+        Objects.requireNonNull(entries, "Log entries must not be null");
+        Objects.requireNonNull(consumer, "Consumer must not be null");
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("Bulk sender is closed");
+        }
+        Summary summary = new Summary();
+        Deque<Future<List<LMLogsBatchResult>>> inFlight = new ArrayDeque<>(concurrency);
+        try {
+            List<LogEntry> batch = new ArrayList<>();
+            long bytes = 0;
+            while (entries.hasNext()) {
+                LogEntry entry = Objects.requireNonNull(entries.next(),
+                        "Log entry must not be null");
+                int size = LMLogsBatcher.estimateSize(entry);
+                if (!batch.isEmpty() && (batch.size() >= batchSize || bytes + size > batchBytes)) {
+                    submit(batch, inFlight, summary, consumer);
+                    batch = new ArrayList<>();
+                    bytes = 0;
+                }
+                batch.add(entry);
+                bytes += size;
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, inFlight, summary, consumer);
+            }
+            while (!inFlight.isEmpty()) {
+                report(inFlight.peekFirst(), summary, consumer);
+                inFlight.removeFirst();
+            }
+        } finally {
+            // cancels the batches in flight if the input, the consumer or the waiting fails
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        return summary;
+    }
+
+    /**
+     * Stops the threads. The batches in flight are completed.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Checks if the sender is closed.
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * Checks if the batches are sent on virtual threads.
+     * @return true if the JVM supports virtual threads and they are enabled.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Submits the batch, reporting the completed batches first and waiting for the oldest one
+     * while the maximum number of batches is in flight.
+     * @param batch list of the log entries.
+     * @param inFlight futures of the batches in flight, from the oldest.
+     * @param summary summary of the sent entries.
+     * @param consumer consumer of the results.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    private void submit(List<LogEntry> batch, Deque<Future<List<LMLogsBatchResult>>> inFlight,
+            Summary summary, Consumer<LMLogsBatchResult> consumer) throws InterruptedException {
+        while (!inFlight.isEmpty()
+                && (inFlight.size() >= concurrency || inFlight.peekFirst().isDone())) {
+            report(inFlight.peekFirst(), summary, consumer);
+            inFlight.removeFirst();
+        }
+        inFlight.addLast(executor.submit(() -> send(batch)));
+    }
+
+    /**
+     * Waits for the batch and reports its results.
+     * @param future future results of the batch.
+     * @param summary summary of the sent entries.
+     * @param consumer consumer of the results.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    private static void report(Future<List<LMLogsBatchResult>> future, Summary summary,
+            Consumer<LMLogsBatchResult> consumer) throws InterruptedException {
+        List<LMLogsBatchResult> results;
+        try {
+            results = future.get();
+        } catch (ExecutionException e) {
+            // send() catches the exceptions
+            throw new IllegalStateException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Bulk sender is closed", e);
+        }
+        for (LMLogsBatchResult result : results) {
+            summary.add(result);
+            consumer.accept(result);
+        }
+    }
+
+    /**
+     * Sends the batch, split if it exceeds the maximum payload size of the API.
+     * @param batch list of the log entries.
+     * @return results of the requests in the order of the entries.
+     */
+    protected List<LMLogsBatchResult> send(List<LogEntry> batch) {
+        try {
+            return api.logIngestPostSplit(batch);
+        } catch (LMLogsApiException e) {
+            return Collections.singletonList(new LMLogsBatchResult(batch, e));
+        } catch (RuntimeException e) {
+            return Collections.singletonList(
+                    new LMLogsBatchResult(batch, new LMLogsApiException(new ApiException(e))));
+        }
+    }
+
+    /**
+     * Creates the executor starting a virtual thread per task if the JVM supports it.
+     * @return executor or null if virtual threads are not supported.
+     */
+    static ExecutorService newVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 20 or older, or preview features disabled
+            return null;
+        }
+    }
+
+    /**
+     * Counts of the entries sent by a bulk call.
+     */
+    public static final class Summary {
+
+        /**
+         * Number of the requests.
+         */
+        private long requests;
+        /**
+         * Number of the entries accepted.
+         */
+        private long sent;
+        /**
+         * Number of the entries in the failed requests.
+         */
+        private long failed;
+        /**
+         * Number of the entries rejected in the partially accepted requests.
+         */
+        private long rejected;
+
+        /**
+         * Initializes Summary instance.
+         */
+        Summary() {
+        }
+
+        /**
+         * Adds the result of a request.
+         * @param result result of the request.
+         */
+        void add(LMLogsBatchResult result) {
+            requests++;
+            int entries = result.getEntries().size();
+            if (result.isSuccess()) {
+                int rejections = result.getRejections().size();
+                sent += entries - rejections;
+                rejected += rejections;
+            } else {
+                failed += entries;
+            }
+        }
+
+        /**
+         * Gets the number of the requests.
+         * @return number of the requests.
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets the number of the entries accepted.
+         * @return number of the sent entries.
+         */
+        public long getSent() {
+            return sent;
+        }
+
+        /**
+         * Gets the number of the entries in the failed requests.
+         * @return number of the failed entries.
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Gets the number of the entries rejected in the partially accepted requests.
+         * @return number of the rejected entries.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "Summary [requests=" + requests + ", sent=" + sent + ", failed=" + failed
+                    + ", rejected=" + rejected + "]";
+        }
+    }
+
+    /**
+     * A builder for creating LogicMonitor Logs bulk senders.
+     */
+    public static class Builder {
+
+        /**
+         * API used to send the batches.
+         */
+        private final LMLogsApi api;
+        /**
+         * Maximum number of entries in a batch.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        /**
+         * Maximum estimated size of a batch in bytes.
+         */
+        private int batchBytes = DEFAULT_BATCH_BYTES;
+        /**
+         * Maximum number of the batches in flight.
+         */
+        private int concurrency = DEFAULT_CONCURRENCY;
+        /**
+         * Flag set to use virtual threads if supported.
+         */
+        private boolean virtualThreads;
+
+        /**
+         * Initializes the builder.
+         * @param api API used to send the batches.
+         * @throws NullPointerException if the API is null.
+         */
+        public Builder(LMLogsApi api) {
+            this.api = Objects.requireNonNull(api, "API must not be null");
+        }
+
+        /**
+         * Configures the maximum number of entries in a batch.
+         * @param batchSize
+         * @return this builder object
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Configures the maximum estimated size of a batch in bytes.
+         * @param batchBytes
+         * @return this builder object
+         */
+        public Builder withBatchBytes(int batchBytes) {
+            this.batchBytes = batchBytes;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of the batches in flight. The requests are also limited
+         * by the limiter of the API, if configured.
+         * @param concurrency
+         * @return this builder object
+         */
+        public Builder withConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Configures if the batches are sent on virtual threads when the JVM supports them,
+         * rather than on pooled platform threads (the default). A virtual thread is started for
+         * each batch, so the thread-local buffers, signers and caches of the SDK are not reused.
+         * @param virtualThreads
+         * @return this builder object
+         */
+        public Builder withVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Builds the bulk sender.
+         * @return bulk sender.
+         * @throws IllegalArgumentException if any of the parameters is not positive.
+         */
+        public LMLogsBulkSender build() {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive");
+            }
+            if (batchBytes <= 0) {
+                throw new IllegalArgumentException("Batch bytes must be positive");
+            }
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("Concurrency must be positive");
+            }
+            return new LMLogsBulkSender(this);
+        }
+    }
+
+}
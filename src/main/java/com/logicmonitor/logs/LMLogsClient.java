@@ -14,14 +14,44 @@
 
 package com.logicmonitor.logs;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Variant;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.message.DeflateEncoder;
+import org.glassfish.jersey.message.GZipEncoder;
 import com.logicmonitor.auth.LMv1AuthenticationFilter;
+import com.logicmonitor.auth.LMv1CredentialsProvider;
+import com.logicmonitor.auth.LMv1Key;
 import com.logicmonitor.logs.invoker.ApiClient;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.invoker.ApiResponse;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
 
 /**
  * Implementation of LogicMonitor Logs client.
@@ -36,6 +66,27 @@ public class LMLogsClient extends ApiClient {
      * Name of the company variable.
      */
     public static final String COMPANY_VARIABLE = "company";
+    /**
+     * Path of the log ingestion endpoint.
+     */
+    public static final String INGEST_PATH = "/log/ingest";
+    /**
+     * Name of the request header containing API version.
+     */
+    public static final String VERSION_HEADER = "X-Version";
+    /**
+     * Default maximum size of the request payload (8 MB).
+     */
+    public static final int DEFAULT_MAX_PAYLOAD_BYTES = 8 * 1000 * 1000;
+    /**
+     * Default number of the requests sent in parallel when the entries are split.
+     */
+    public static final int DEFAULT_SEND_PARALLELISM = 1;
+
+    /**
+     * Writer sending the serialized payloads.
+     */
+    private static final ByteBufferMessageBodyWriter PAYLOAD_WRITER = new ByteBufferMessageBodyWriter();
 
     /**
      * Filter adding LMv1 authentication to the requests.
@@ -45,16 +96,74 @@ public class LMLogsClient extends ApiClient {
      * Company name.
      */
     protected String company;
-
+    /**
+     * Maximum size of the request payload.
+     */
+    protected int maxPayloadBytes = DEFAULT_MAX_PAYLOAD_BYTES;
+    /**
+     * Number of the requests sent in parallel when the entries are split.
+     */
+    protected int sendParallelism = DEFAULT_SEND_PARALLELISM;
+    /**
+     * Compression of the request body.
+     */
+    protected LMLogsCompression compression = LMLogsCompression.NONE;
+    /**
+     * HTTP transport.
+     */
+    protected LMLogsTransport transport = LMLogsTransport.DEFAULT;
+    /**
+     * Policy retrying the failed requests.
+     */
+    protected LMLogsRetryPolicy retryPolicy = LMLogsRetryPolicy.NONE;
+    /**
+     * Limiter of the in-flight requests and request rate, or null.
+     */
+    protected LMLogsAdaptiveLimiter limiter;
+    /**
+     * Instrumentation of the requests.
+     */
+    protected LMLogsMetrics metrics = LMLogsMetrics.NONE;
+    /**
+     * Version of the ingestion protocol, replaced by the accepted one during the negotiation.
+     */
+    protected volatile LMLogsApiVersion apiVersion = LMLogsApiVersion.V2;
+    /**
+     * Whether the older versions are tried when the server rejects the selected one.
+     */
+    protected volatile boolean apiVersionNegotiation;
+    /**
+     * Whether the server has accepted a request since the version was selected.
+     */
+    private volatile boolean apiVersionAccepted;
+    /**
+     * Serializer of the log entries.
+     */
+    private final LMLogsSerializer serializer;
+    /**
+     * Threads sending the requests in parallel, created on demand.
+     */
+    private ExecutorService sendExecutor;
 
     /**
      * Initializes LMLogsClient instance.
      * @param accessId LogicMonitor access ID.
      * @param accessKey LogicMonitor access key.
      * @throws NullPointerException if any of the parameters is null.
+     * @throws IllegalArgumentException if the access key is empty.
      */
     public LMLogsClient(String accessId, String accessKey) {
-        authFilter = new LMv1AuthenticationFilter(URI.create(basePath).getPath(), accessId, accessKey);
+        this(LMv1CredentialsProvider.of(new LMv1Key(accessId, accessKey)));
+    }
+
+    /**
+     * Initializes LMLogsClient instance with the credentials consulted for each request.
+     * @param credentialsProvider provider of LogicMonitor credentials.
+     * @throws NullPointerException if the provider is null.
+     */
+    public LMLogsClient(LMv1CredentialsProvider credentialsProvider) {
+        authFilter = new LMv1AuthenticationFilter(URI.create(basePath).getPath(), credentialsProvider);
+        serializer = new LMLogsSerializer(getJSON().getContext(LogEntry.class));
         setConnectTimeout(DEFAULT_TIMEOUT);
         setReadTimeout(DEFAULT_TIMEOUT);
         httpClient = buildHttpClient(debugging);
@@ -83,6 +192,27 @@ public class LMLogsClient extends ApiClient {
         return company;
     }
 
+    /**
+     * Replaces the provider of the credentials signing the following requests.
+     * The HTTP client and its connections are kept, and the requests in flight
+     * complete with the previous credentials.
+     * @param credentialsProvider provider of LogicMonitor credentials.
+     * @return itself.
+     * @throws NullPointerException if the provider is null.
+     */
+    public LMLogsClient setCredentialsProvider(LMv1CredentialsProvider credentialsProvider) {
+        ((LMv1AuthenticationFilter) authFilter).setCredentialsProvider(credentialsProvider);
+        return this;
+    }
+
+    /**
+     * Gets the provider of the credentials signing the requests.
+     * @return credentials provider.
+     */
+    public LMv1CredentialsProvider getCredentialsProvider() {
+        return ((LMv1AuthenticationFilter) authFilter).getCredentialsProvider();
+    }
+
     /**
      * Gets the user-agent from the request header.
      * @return user agent header.
@@ -91,6 +221,750 @@ public class LMLogsClient extends ApiClient {
         return super.defaultHeaderMap.get("User-Agent");
     }
 
+    /**
+     * Sets the maximum size of the request payload.
+     * @param maxPayloadBytes maximum size in bytes.
+     * @return itself.
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public LMLogsClient setMaxPayloadBytes(int maxPayloadBytes) {
+        if (maxPayloadBytes <= 0) {
+            throw new IllegalArgumentException("Max payload bytes must be positive");
+        }
+        this.maxPayloadBytes = maxPayloadBytes;
+        return this;
+    }
+
+    /**
+     * Gets the maximum size of the request payload.
+     * @return maximum size in bytes.
+     */
+    public int getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    /**
+     * Sets the number of the requests sent in parallel when the entries are split.
+     * @param sendParallelism number of the parallel requests, 1 to send them sequentially
+     *        on the calling thread.
+     * @return itself.
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public synchronized LMLogsClient setSendParallelism(int sendParallelism) {
+        if (sendParallelism <= 0) {
+            throw new IllegalArgumentException("Send parallelism must be positive");
+        }
+        this.sendParallelism = sendParallelism;
+        if (sendExecutor != null) {
+            sendExecutor.shutdown();
+            sendExecutor = null;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of the requests sent in parallel when the entries are split.
+     * @return number of the parallel requests.
+     */
+    public int getSendParallelism() {
+        return sendParallelism;
+    }
+
+    /**
+     * Sets the compression of the request body.
+     * @param compression compression type.
+     * @return itself.
+     * @throws NullPointerException if the compression is null.
+     */
+    public LMLogsClient setCompression(LMLogsCompression compression) {
+        this.compression = Objects.requireNonNull(compression, "Compression must not be null");
+        return this;
+    }
+
+    /**
+     * Gets the compression of the request body.
+     * @return compression type.
+     */
+    public LMLogsCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets the version of the ingestion protocol and starts a new negotiation.
+     * @param apiVersion protocol version.
+     * @return itself.
+     * @throws NullPointerException if the version is null.
+     */
+    public LMLogsClient setApiVersion(LMLogsApiVersion apiVersion) {
+        this.apiVersion = Objects.requireNonNull(apiVersion, "API version must not be null");
+        apiVersionAccepted = false;
+        return this;
+    }
+
+    /**
+     * Gets the version of the ingestion protocol, which is the negotiated one
+     * after the server has accepted a request.
+     * @return protocol version.
+     */
+    public LMLogsApiVersion getApiVersion() {
+        return apiVersion;
+    }
+
+    /**
+     * Enables the negotiation of the protocol version. Until the server accepts a request,
+     * a request rejected with status 400 is sent again at once with the previous version,
+     * and the first version accepted is used for all the following requests.
+     * A request rejected by every version fails with the response to the oldest one.
+     * @param apiVersionNegotiation true to negotiate the version.
+     * @return itself.
+     */
+    public LMLogsClient setApiVersionNegotiation(boolean apiVersionNegotiation) {
+        this.apiVersionNegotiation = apiVersionNegotiation;
+        return this;
+    }
+
+    /**
+     * Checks if the protocol version is negotiated.
+     * @return true if the older versions are tried when the selected one is rejected.
+     */
+    public boolean isApiVersionNegotiation() {
+        return apiVersionNegotiation;
+    }
+
+    /**
+     * Sets the HTTP transport and rebuilds the HTTP client.
+     * The transport is not closed by the client.
+     * @param transport HTTP transport.
+     * @return itself.
+     * @throws NullPointerException if the transport is null.
+     */
+    public LMLogsClient setTransport(LMLogsTransport transport) {
+        this.transport = Objects.requireNonNull(transport, "Transport must not be null");
+        httpClient = buildHttpClient(debugging);
+        return this;
+    }
+
+    /**
+     * Gets the HTTP transport.
+     * @return HTTP transport.
+     */
+    public LMLogsTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the policy retrying the failed requests.
+     * @param retryPolicy retry policy, {@link LMLogsRetryPolicy#NONE} to send each request once.
+     * @return itself.
+     * @throws NullPointerException if the retry policy is null.
+     */
+    public LMLogsClient setRetryPolicy(LMLogsRetryPolicy retryPolicy) {
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "Retry policy must not be null");
+        return this;
+    }
+
+    /**
+     * Gets the policy retrying the failed requests.
+     * @return retry policy.
+     */
+    public LMLogsRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the limiter of the in-flight requests and request rate adjusted by the responses.
+     * The limiter may be shared by several clients.
+     * @param limiter adaptive limiter, or null to send the requests without limits.
+     * @return itself.
+     */
+    public LMLogsClient setLimiter(LMLogsAdaptiveLimiter limiter) {
+        this.limiter = limiter;
+        return this;
+    }
+
+    /**
+     * Gets the limiter of the in-flight requests and request rate.
+     * @return adaptive limiter or null.
+     */
+    public LMLogsAdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Sets the instrumentation notified about the requests.
+     * @param metrics instrumentation, {@link LMLogsMetrics#NONE} to record nothing.
+     * @return itself.
+     * @throws NullPointerException if the metrics is null.
+     */
+    public LMLogsClient setMetrics(LMLogsMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+        return this;
+    }
+
+    /**
+     * Gets the instrumentation notified about the requests.
+     * @return instrumentation.
+     */
+    public LMLogsMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the URL of the log ingestion endpoint.
+     * @return target URL.
+     */
+    public String getIngestUrl() {
+        Integer serverIndex = getServerIndex();
+        if (serverIndex == null) {
+            return getBasePath() + INGEST_PATH;
+        }
+        return getServers().get(serverIndex).URL(getServerVariables()) + INGEST_PATH;
+    }
+
+    /**
+     * Sends the log entries serialized once, so the same bytes are signed and written to the wire.
+     * @param version API version.
+     * @param logEntries list of the log entries.
+     * @return API response.
+     * @throws ApiException if the entries are missing or invalid, or the request fails.
+     */
+    protected ApiResponse<LogResponse> ingest(Integer version, List<LogEntry> logEntries)
+            throws ApiException {
+        if (logEntries == null) {
+            throw new ApiException(Status.BAD_REQUEST.getStatusCode(),
+                    "Missing the required parameter 'logEntry' when calling logIngestPost");
+        }
+        ByteBuffer payload;
+        try {
+            payload = serializer.serialize(logEntries);
+        } catch (IOException e) {
+            metrics.onEntriesFailed(logEntries.size());
+            throw new ApiException(e);
+        }
+        return ingestPayload(version, payload, logEntries.size());
+    }
+
+    /**
+     * Sends the log records serialized once without converting them to log entries.
+     * The records can be reused as soon as the method returns.
+     * @param version API version.
+     * @param records list of the log records.
+     * @return API response.
+     * @throws ApiException if the records are missing or invalid, or the request fails.
+     */
+    protected ApiResponse<LogResponse> ingestRecords(Integer version, List<LMLogsRecord> records)
+            throws ApiException {
+        if (records == null) {
+            throw new ApiException(Status.BAD_REQUEST.getStatusCode(),
+                    "Missing the required parameter 'records' when calling logIngestPostRecords");
+        }
+        ByteBuffer payload;
+        try {
+            payload = serializer.serializeRecords(records);
+        } catch (IOException e) {
+            metrics.onEntriesFailed(records.size());
+            throw new ApiException(e);
+        }
+        return ingestPayload(version, payload, records.size());
+    }
+
+    /**
+     * Sends the serialized log entries in a single request.
+     * @param version API version.
+     * @param payload log entries serialized to JSON.
+     * @param entries number of the log entries.
+     * @return API response.
+     * @throws ApiException if the payload exceeds the maximum size, or the request fails.
+     */
+    private ApiResponse<LogResponse> ingestPayload(Integer version, ByteBuffer payload, int entries)
+            throws ApiException {
+        try {
+            checkPayloadSize(payload);
+            ApiResponse<LogResponse> response = invokeIngest(version, payload);
+            onEntriesAccepted(entries, response);
+            return response;
+        } catch (ApiException | ProcessingException e) {
+            metrics.onEntriesFailed(entries);
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the entries of the accepted request, the events rejected by a partial success
+     * (status 207) as failed and the others as sent.
+     * @param entries number of the log entries.
+     * @param response API response.
+     */
+    private void onEntriesAccepted(int entries, ApiResponse<LogResponse> response) {
+        LogResponse data = response.getData();
+        int rejected = data != null && data.getErrors() != null
+                ? Math.min(entries, data.getErrors().size())
+                : 0;
+        metrics.onEntriesSent(entries - rejected);
+        if (rejected > 0) {
+            metrics.onEntriesFailed(rejected);
+        }
+    }
+
+    /**
+     * Sends the log entries in the minimum number of requests not exceeding the maximum payload
+     * size. An entry which alone exceeds the limit fails with status 413 without being sent.
+     * @param version API version.
+     * @param logEntries list of the log entries.
+     * @return results of the requests in the order of the entries.
+     * @throws ApiException if the entries are missing or invalid, or the calling thread
+     *         is interrupted.
+     */
+    protected List<LMLogsBatchResult> ingestSplit(Integer version, List<LogEntry> logEntries)
+            throws ApiException {
+        if (logEntries == null) {
+            throw new ApiException(Status.BAD_REQUEST.getStatusCode(),
+                    "Missing the required parameter 'logEntry' when calling logIngestPost");
+        }
+        List<LMLogsSerializer.Chunk> chunks;
+        try {
+            chunks = serializer.split(logEntries, maxPayloadBytes);
+        } catch (IOException e) {
+            throw new ApiException(e);
+        }
+
+        List<LMLogsBatchResult> results = new ArrayList<>(chunks.size());
+        ExecutorService executor = chunks.size() > 1 ? getSendExecutor() : null;
+        if (executor == null) {
+            for (LMLogsSerializer.Chunk chunk : chunks) {
+                results.add(sendChunk(version, logEntries, chunk));
+            }
+            return results;
+        }
+
+        List<Future<LMLogsBatchResult>> futures = new ArrayList<>(chunks.size());
+        for (LMLogsSerializer.Chunk chunk : chunks) {
+            // a cancelled task may still be writing its chunk after this method returns,
+            // when the buffer of the calling thread already holds the next entries
+            LMLogsSerializer.Chunk detached = chunk.detach();
+            futures.add(executor.submit(() -> sendChunk(version, logEntries, detached)));
+        }
+        try {
+            for (Future<LMLogsBatchResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        } catch (ExecutionException e) {
+            // sendChunk() catches the API and processing exceptions
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+        return results;
+    }
+
+    /**
+     * Sends a part of the serialized log entries.
+     * @param version API version.
+     * @param logEntries list of all the log entries.
+     * @param chunk part of the entries to send.
+     * @return result of the request.
+     */
+    private LMLogsBatchResult sendChunk(Integer version, List<LogEntry> logEntries,
+            LMLogsSerializer.Chunk chunk) {
+        List<LogEntry> entries = logEntries.subList(chunk.fromIndex, chunk.toIndex);
+        try {
+            checkPayloadSize(chunk.payload);
+            LMLogsApiResponse<LogResponse> response =
+                    new LMLogsApiResponse<>(invokeIngest(version, chunk.payload));
+            onEntriesAccepted(entries.size(), response);
+            return new LMLogsBatchResult(entries, response);
+        } catch (ApiException e) {
+            metrics.onEntriesFailed(entries.size());
+            return new LMLogsBatchResult(entries, new LMLogsApiException(e));
+        } catch (ProcessingException e) {
+            metrics.onEntriesFailed(entries.size());
+            return new LMLogsBatchResult(entries, new LMLogsApiException(new ApiException(e)));
+        }
+    }
+
+    /**
+     * Checks the payload size before sending, so the request is not rejected after the upload.
+     * @param payload log entries serialized to JSON.
+     * @throws ApiException with status 413 if the payload exceeds the maximum size.
+     */
+    protected void checkPayloadSize(ByteBuffer payload) throws ApiException {
+        if (payload.remaining() > maxPayloadBytes) {
+            throw new ApiException(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(),
+                    "The payload of " + payload.remaining() + " bytes exceeds the limit of "
+                            + maxPayloadBytes + " bytes");
+        }
+    }
+
+    /**
+     * Gets the threads sending the requests in parallel.
+     * @return executor or null if the requests should be sent on the calling thread.
+     */
+    private synchronized ExecutorService getSendExecutor() {
+        if (sendParallelism <= 1) {
+            return null;
+        }
+        if (sendExecutor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(sendParallelism, sendParallelism,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "lm-logs-sender-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            sendExecutor = executor;
+        }
+        return sendExecutor;
+    }
+
+    /**
+     * Sends the log entries asynchronously. The entries are serialized on the calling thread
+     * into a buffer owned by the request, and the request is sent by the connector of the
+     * transport without blocking the calling thread.
+     * @param version API version.
+     * @param logEntries list of the log entries.
+     * @return future API response, completed exceptionally with ApiException if the entries are
+     *         missing or invalid, or the request fails.
+     */
+    protected CompletableFuture<ApiResponse<LogResponse>> ingestAsync(Integer version,
+            List<LogEntry> logEntries) {
+        CompletableFuture<ApiResponse<LogResponse>> future = new CompletableFuture<>();
+        try {
+            if (logEntries == null) {
+                throw new ApiException(Status.BAD_REQUEST.getStatusCode(),
+                        "Missing the required parameter 'logEntry' when calling logIngestPost");
+            }
+            ByteBuffer payload;
+            try {
+                payload = serializer.serializeDetached(logEntries);
+            } catch (IOException e) {
+                throw new ApiException(e);
+            }
+            int entries = logEntries.size();
+            // the entries are counted before the caller sees the response
+            CompletableFuture<ApiResponse<LogResponse>> attempts = new CompletableFuture<>();
+            attempts.whenComplete((response, throwable) -> {
+                if (throwable == null) {
+                    onEntriesAccepted(entries, response);
+                    future.complete(response);
+                } else {
+                    metrics.onEntriesFailed(entries);
+                    future.completeExceptionally(throwable);
+                }
+            });
+            try {
+                checkPayloadSize(payload);
+            } catch (ApiException e) {
+                attempts.completeExceptionally(e);
+                return future;
+            }
+            invokeIngestAsync(version, payload, 1, attempts);
+        } catch (ApiException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Sends the serialized log entries asynchronously when the limiter grants a permit,
+     * scheduling a retry if the attempt fails and the retry policy allows it.
+     * @param version API version.
+     * @param payload log entries serialized to JSON.
+     * @param attempt number of the attempt, starting from 1.
+     * @param future future API response completed by the last attempt.
+     */
+    private void invokeIngestAsync(Integer version, ByteBuffer payload, int attempt,
+            CompletableFuture<ApiResponse<LogResponse>> future) {
+        LMLogsAdaptiveLimiter limiter = this.limiter;
+        if (limiter == null) {
+            postIngestAsync(version, payload, attempt, future, null);
+        } else {
+            limiter.acquireAsync()
+                .thenAccept(permit -> postIngestAsync(version, payload, attempt, future, permit))
+                .exceptionally(throwable -> {
+                    Throwable cause = throwable instanceof CompletionException
+                            && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    future.completeExceptionally(cause instanceof ApiException
+                            ? cause : new ApiException(cause));
+                    return null;
+                });
+        }
+    }
+
+    /**
+     * Sends the serialized log entries asynchronously.
+     * @param version API version.
+     * @param payload log entries serialized to JSON.
+     * @param attempt number of the attempt, starting from 1.
+     * @param future future API response completed by the last attempt.
+     * @param permit permit of the request released with the response status, or null.
+     */
+    private void postIngestAsync(Integer version, ByteBuffer payload, int attempt,
+            CompletableFuture<ApiResponse<LogResponse>> future, LMLogsAdaptiveLimiter.Permit permit) {
+        try {
+            int payloadBytes = payload.remaining();
+            long start = System.nanoTime();
+            LMv1Key key = getCredentialsProvider().getKey();
+            InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+                @Override
+                public void completed(Response response) {
+                    metrics.onRequest(response.getStatus(), payloadBytes,
+                            System.nanoTime() - start);
+                    release(permit, response.getStatus());
+                    try {
+                        ApiResponse<LogResponse> result = readResponse(response);
+                        onVersionAccepted(version);
+                        future.complete(result);
+                    } catch (ApiException e) {
+                        retryAsync(e);
+                    } catch (RuntimeException e) {
+                        // the response is received, so the request is not sent again
+                        future.completeExceptionally(new ApiException(e));
+                    } finally {
+                        response.close();
+                    }
+                }
+
+                @Override
+                public void failed(Throwable throwable) {
+                    metrics.onRequest(LMLogsRetryPolicy.NO_RESPONSE, payloadBytes,
+                            System.nanoTime() - start);
+                    release(permit, LMLogsRetryPolicy.NO_RESPONSE);
+                    retryAsync(new ApiException(throwable));
+                }
+
+                private void retryAsync(ApiException failure) {
+                    Integer fallback = fallbackVersion(version, failure.getCode());
+                    long delay = fallback != null || isRotated(failure.getCode(), key) ? 0
+                            : retryPolicy.getDelayMillis(attempt, failure.getCode(),
+                                    failure.getResponseHeaders());
+                    if (delay < 0) {
+                        future.completeExceptionally(failure);
+                        return;
+                    }
+                    metrics.onRetry(failure.getCode());
+                    Integer nextVersion = fallback != null ? fallback : version;
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(
+                            () -> invokeIngestAsync(nextVersion, payload, attempt + 1, future));
+                }
+            };
+            try {
+                ingestRequest(version).async()
+                    .post(ingestEntity(payload), callback);
+            } catch (ProcessingException e) {
+                callback.failed(e);
+            }
+        } catch (RuntimeException e) {
+            // e.g. the client has been closed during the backoff, so the request is not sent
+            if (permit != null) {
+                permit.release();
+            }
+            future.completeExceptionally(new ApiException(e));
+        }
+    }
+
+    /**
+     * Sends the serialized log entries, retrying the failed attempts as allowed by
+     * the retry policy. Each attempt sends the same payload signed with a fresh timestamp.
+     * A request rejected as unauthorized is sent again at once if the credentials have been
+     * rotated since it was sent, so the batches in flight during a rotation are not lost.
+     * While the protocol version is negotiated, a request rejected with status 400 is sent
+     * again at once with the previous version.
+     * @param version API version.
+     * @param payload log entries serialized to JSON.
+     * @return API response.
+     * @throws ApiException if the response status of the last attempt is not successful.
+     * @throws ProcessingException if the last attempt fails without response.
+     */
+    protected ApiResponse<LogResponse> invokeIngest(Integer version, ByteBuffer payload)
+            throws ApiException {
+        for (int attempt = 1; ; attempt++) {
+            long delay;
+            int statusCode;
+            LMv1Key key = getCredentialsProvider().getKey();
+            try {
+                ApiResponse<LogResponse> response = invokeIngestOnce(version, payload);
+                onVersionAccepted(version);
+                return response;
+            } catch (ApiException e) {
+                statusCode = e.getCode();
+                Integer fallback = fallbackVersion(version, statusCode);
+                delay = fallback != null || isRotated(statusCode, key) ? 0
+                        : retryPolicy.getDelayMillis(attempt, statusCode, e.getResponseHeaders());
+                if (delay < 0) {
+                    throw e;
+                }
+                if (fallback != null) {
+                    version = fallback;
+                }
+            } catch (ProcessingException e) {
+                statusCode = LMLogsRetryPolicy.NO_RESPONSE;
+                delay = retryPolicy.getDelayMillis(attempt, statusCode, null);
+                if (delay < 0) {
+                    throw e;
+                }
+            }
+            metrics.onRetry(statusCode);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(e);
+            }
+        }
+    }
+
+    /**
+     * Sends the serialized log entries once.
+     * @param version API version.
+     * @param payload log entries serialized to JSON.
+     * @return API response.
+     * @throws ApiException if the response status is not successful.
+     */
+    protected ApiResponse<LogResponse> invokeIngestOnce(Integer version, ByteBuffer payload)
+            throws ApiException {
+        LMLogsAdaptiveLimiter.Permit permit = null;
+        LMLogsAdaptiveLimiter limiter = this.limiter;
+        if (limiter != null) {
+            try {
+                permit = limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(e);
+            }
+        }
+        int statusCode = LMLogsRetryPolicy.NO_RESPONSE;
+        int payloadBytes = payload.remaining();
+        long start = System.nanoTime();
+        try {
+            Response response = ingestRequest(version)
+                .post(ingestEntity(payload));
+            statusCode = response.getStatus();
+            try {
+                return readResponse(response);
+            } finally {
+                response.close();
+            }
+        } finally {
+            metrics.onRequest(statusCode, payloadBytes, System.nanoTime() - start);
+            release(permit, statusCode);
+        }
+    }
+
+    /**
+     * Checks if the request was rejected as unauthorized after the credentials were rotated.
+     * @param statusCode response status.
+     * @param key credentials current when the request was sent.
+     * @return true if the request should be sent again with the new credentials.
+     */
+    private boolean isRotated(int statusCode, LMv1Key key) {
+        return statusCode == Status.UNAUTHORIZED.getStatusCode()
+                && key != getCredentialsProvider().getKey();
+    }
+
+    /**
+     * Gets the protocol version to send again a request rejected by the server
+     * while the version is negotiated.
+     * @param version API version of the rejected request.
+     * @param statusCode response status.
+     * @return previous API version, or null if the request should not be sent with another one.
+     */
+    private Integer fallbackVersion(Integer version, int statusCode) {
+        if (!apiVersionNegotiation || apiVersionAccepted
+                || statusCode != Status.BAD_REQUEST.getStatusCode()) {
+            return null;
+        }
+        LMLogsApiVersion rejected = LMLogsApiVersion.forNumber(version);
+        LMLogsApiVersion previous = rejected == null ? null : rejected.previous();
+        return previous == null ? null : previous.getNumber();
+    }
+
+    /**
+     * Settles the negotiation on the version of a request accepted by the server.
+     * @param version API version of the accepted request.
+     */
+    private void onVersionAccepted(Integer version) {
+        if (apiVersionNegotiation && !apiVersionAccepted) {
+            LMLogsApiVersion accepted = LMLogsApiVersion.forNumber(version);
+            if (accepted != null) {
+                apiVersion = accepted;
+                apiVersionAccepted = true;
+            }
+        }
+    }
+
+    /**
+     * Releases the permit of a request with the response status.
+     * @param permit permit or null.
+     * @param statusCode response status, 0 for requests failed without response.
+     */
+    private static void release(LMLogsAdaptiveLimiter.Permit permit, int statusCode) {
+        if (permit != null) {
+            permit.release(statusCode);
+        }
+    }
+
+    /**
+     * Prepares the request to the log ingestion endpoint.
+     * @param version API version.
+     * @return request builder.
+     */
+    protected Invocation.Builder ingestRequest(Integer version) {
+        Invocation.Builder request = httpClient.target(getIngestUrl())
+            .request(MediaType.APPLICATION_JSON);
+        defaultHeaderMap.forEach(request::header);
+        request.header(VERSION_HEADER, version);
+        return request;
+    }
+
+    /**
+     * Wraps the serialized log entries into the request entity.
+     * The content encoding is set on the entity, because posting the entity replaces
+     * the 'Content-Encoding' header of the request with the encoding of the entity.
+     * The encoders registered in the configuration compress the body while writing it.
+     * @param payload log entries serialized to JSON.
+     * @return request entity.
+     */
+    protected Entity<ByteBuffer> ingestEntity(ByteBuffer payload) {
+        return Entity.entity(payload, new Variant(MediaType.APPLICATION_JSON_TYPE, (String) null,
+                compression.getEncoding()));
+    }
+
+    /**
+     * Reads the ingestion response the same way as the generated client.
+     * @param response HTTP response.
+     * @return API response.
+     * @throws ApiException if the response status is not successful.
+     */
+    static ApiResponse<LogResponse> readResponse(Response response) throws ApiException {
+        int statusCode = response.getStatus();
+        Map<String, List<String>> headers = response.getStringHeaders();
+        if (response.getStatusInfo().getFamily() == Status.Family.SUCCESSFUL) {
+            LogResponse data = response.hasEntity() ? response.readEntity(LogResponse.class) : null;
+            return new ApiResponse<>(statusCode, headers, data);
+        }
+        String body = response.hasEntity() ? response.readEntity(String.class) : null;
+        throw new ApiException(statusCode, body != null ? body : "error", headers, body);
+    }
+
+    /**
+     * Closes the HTTP client and stops the threads sending the requests in parallel.
+     * The transport is not closed, so it can be still used by the other clients.
+     */
+    public synchronized void close() {
+        if (sendExecutor != null) {
+            sendExecutor.shutdown();
+            sendExecutor = null;
+        }
+        httpClient.close();
+    }
+
     /**
      * Performs additional configuration before HTTP client is built.
      */
@@ -98,15 +972,27 @@ public class LMLogsClient extends ApiClient {
     protected void performAdditionalClientConfiguration(ClientConfig clientConfig) {
         clientConfig.property(ClientProperties.CONNECT_TIMEOUT, getConnectTimeout());
         clientConfig.property(ClientProperties.READ_TIMEOUT, getReadTimeout());
+        clientConfig.register(PAYLOAD_WRITER);
+        clientConfig.register(GZipEncoder.class);
+        clientConfig.register(DeflateEncoder.class);
         if (authFilter != null) {
             clientConfig.register(authFilter);
         }
+        // the client is built by the superclass constructor before the transport is initialized
+        if (transport != null) {
+            transport.configure(clientConfig);
+        }
     }
 
     @Override
     public String toString() {
         return "LMLogsClient [basePath=" + getBasePath() + ", debugging=" + isDebugging()
-                + ", connectTimeout=" + getConnectTimeout() + ", readTimeout=" + getReadTimeout() + ", userAgent="+ getUserAgent()+"]";
+                + ", connectTimeout=" + getConnectTimeout() + ", readTimeout=" + getReadTimeout() + ", userAgent="+ getUserAgent()
+                + ", maxPayloadBytes=" + getMaxPayloadBytes() + ", sendParallelism=" + getSendParallelism()
+                + ", compression=" + getCompression() + ", transport=" + getTransport()
+                + ", retryPolicy=" + getRetryPolicy() + ", limiter=" + getLimiter()
+                + ", metrics=" + getMetrics() + ", apiVersion=" + getApiVersion()
+                + ", apiVersionNegotiation=" + isApiVersionNegotiation() + "]";
     }
 
 }
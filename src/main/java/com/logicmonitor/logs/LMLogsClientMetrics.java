@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongConsumer;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Default instrumentation of the ingestion counting the requests, entries and bytes
+ * with {@link LongAdder}s and the request latencies in {@link LMLogsLatencyHistogram}.
+ * <p>
+ * The latency statistics of the MBean cover the recent requests: the latencies are also
+ * recorded in histograms rotated every window, and the statistics are computed from the current
+ * and the previous windows, so they follow changes within two windows. The histogram of all the
+ * latencies is available with {@link #getLatencyHistogram()}.
+ * <p>
+ * The values can be read directly, through the platform MBean server after
+ * {@link #registerMBean(String)}, or through Micrometer with {@link LMLogsMetricsBinder}.
+ * An instance may be shared by several clients and batchers.
+ */
+public class LMLogsClientMetrics implements LMLogsMetrics, LMLogsClientMetricsMBean {
+
+    /**
+     * Domain of the MBean names.
+     */
+    public static final String JMX_DOMAIN = "com.logicmonitor.logs";
+    /**
+     * Default length of the windows of the recent latencies (1 minute).
+     */
+    public static final long DEFAULT_LATENCY_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Number of the request attempts.
+     */
+    private final LongAdder requests = new LongAdder();
+    /**
+     * Number of the requests accepted with status 202.
+     */
+    private final LongAdder acceptedRequests = new LongAdder();
+    /**
+     * Number of the requests partially accepted with status 207.
+     */
+    private final LongAdder partialRequests = new LongAdder();
+    /**
+     * Number of the requests rejected with status 4xx other than 429.
+     */
+    private final LongAdder clientErrorRequests = new LongAdder();
+    /**
+     * Number of the requests throttled with status 429.
+     */
+    private final LongAdder throttledRequests = new LongAdder();
+    /**
+     * Number of the requests failed with status 5xx.
+     */
+    private final LongAdder serverErrorRequests = new LongAdder();
+    /**
+     * Number of the requests failed without response.
+     */
+    private final LongAdder noResponseRequests = new LongAdder();
+    /**
+     * Number of the retried attempts.
+     */
+    private final LongAdder retries = new LongAdder();
+    /**
+     * Number of the uncompressed payload bytes sent.
+     */
+    private final LongAdder payloadBytes = new LongAdder();
+    /**
+     * Number of the accepted entries.
+     */
+    private final LongAdder entriesSent = new LongAdder();
+    /**
+     * Number of the entries failed after the last attempt.
+     */
+    private final LongAdder entriesFailed = new LongAdder();
+    /**
+     * Number of the entries dropped before sending.
+     */
+    private final LongAdder entriesDropped = new LongAdder();
+    /**
+     * Latencies of the requests.
+     */
+    private final LMLogsLatencyHistogram latency = new LMLogsLatencyHistogram();
+    /**
+     * Length of the windows of the recent latencies in nanoseconds.
+     */
+    private final long latencyWindowNanos;
+    /**
+     * Histograms of the current and the previous windows of the latencies.
+     */
+    private final AtomicReference<LatencyWindow> latencyWindow;
+    /**
+     * Recorders of the request latencies added by the bindings, e.g. Micrometer timers.
+     */
+    private final List<LongConsumer> latencyRecorders = new CopyOnWriteArrayList<>();
+    /**
+     * Registered queues of the entries.
+     */
+    private final List<IntSupplier> queues = new CopyOnWriteArrayList<>();
+    /**
+     * Name of the registered MBean, or null.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Initializes LMLogsClientMetrics instance with the default window of the recent latencies.
+     */
+    public LMLogsClientMetrics() {
+        this(DEFAULT_LATENCY_WINDOW_MILLIS);
+    }
+
+    /**
+     * Initializes LMLogsClientMetrics instance.
+     * @param latencyWindowMillis length of the windows of the recent latencies in milliseconds.
+     * @throws IllegalArgumentException if the window is not positive.
+     */
+    public LMLogsClientMetrics(long latencyWindowMillis) {
+        if (latencyWindowMillis <= 0) {
+            throw new IllegalArgumentException("Latency window must be positive");
+        }
+        latencyWindowNanos = TimeUnit.MILLISECONDS.toNanos(latencyWindowMillis);
+        latencyWindow = new AtomicReference<>(new LatencyWindow(System.nanoTime(),
+                new LMLogsLatencyHistogram(), new LMLogsLatencyHistogram()));
+    }
+
+    @Override
+    public void onRequest(int statusCode, int payloadBytes, long latencyNanos) {
+        requests.increment();
+        this.payloadBytes.add(payloadBytes);
+        latency.record(latencyNanos);
+        latencyWindow().current.record(latencyNanos);
+        for (LongConsumer recorder : latencyRecorders) {
+            recorder.accept(latencyNanos);
+        }
+        if (statusCode == 202) {
+            acceptedRequests.increment();
+        } else if (statusCode == 207) {
+            partialRequests.increment();
+        } else if (statusCode == 429) {
+            throttledRequests.increment();
+        } else if (statusCode >= 400 && statusCode < 500) {
+            clientErrorRequests.increment();
+        } else if (statusCode >= 500) {
+            serverErrorRequests.increment();
+        } else if (statusCode == LMLogsRetryPolicy.NO_RESPONSE) {
+            noResponseRequests.increment();
+        }
+    }
+
+    @Override
+    public void onRetry(int statusCode) {
+        retries.increment();
+    }
+
+    @Override
+    public void onEntriesSent(int entries) {
+        entriesSent.add(entries);
+    }
+
+    @Override
+    public void onEntriesFailed(int entries) {
+        entriesFailed.add(entries);
+    }
+
+    @Override
+    public void onEntriesDropped(int entries) {
+        entriesDropped.add(entries);
+    }
+
+    @Override
+    public void registerQueue(IntSupplier size) {
+        queues.add(Objects.requireNonNull(size, "Queue size must not be null"));
+    }
+
+    @Override
+    public void unregisterQueue(IntSupplier size) {
+        queues.remove(size);
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getAcceptedRequests() {
+        return acceptedRequests.sum();
+    }
+
+    @Override
+    public long getPartialRequests() {
+        return partialRequests.sum();
+    }
+
+    @Override
+    public long getClientErrorRequests() {
+        return clientErrorRequests.sum();
+    }
+
+    @Override
+    public long getThrottledRequests() {
+        return throttledRequests.sum();
+    }
+
+    @Override
+    public long getServerErrorRequests() {
+        return serverErrorRequests.sum();
+    }
+
+    @Override
+    public long getNoResponseRequests() {
+        return noResponseRequests.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getPayloadBytes() {
+        return payloadBytes.sum();
+    }
+
+    @Override
+    public long getEntriesSent() {
+        return entriesSent.sum();
+    }
+
+    @Override
+    public long getEntriesFailed() {
+        return entriesFailed.sum();
+    }
+
+    @Override
+    public long getEntriesDropped() {
+        return entriesDropped.sum();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        long depth = 0;
+        for (IntSupplier queue : queues) {
+            depth += queue.getAsInt();
+        }
+        return depth;
+    }
+
+    @Override
+    public double getLatencyMeanMillis() {
+        return getRecentLatencyHistogram().getMeanMillis();
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return getRecentLatencyHistogram().getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return getRecentLatencyHistogram().getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getLatencyMaxMillis() {
+        return getRecentLatencyHistogram().getMaxMillis();
+    }
+
+    /**
+     * Gets a histogram of the latencies recorded in the current and the previous windows.
+     * @return new latency histogram.
+     */
+    public LMLogsLatencyHistogram getRecentLatencyHistogram() {
+        LatencyWindow window = latencyWindow();
+        LMLogsLatencyHistogram recent = new LMLogsLatencyHistogram();
+        recent.add(window.previous);
+        recent.add(window.current);
+        return recent;
+    }
+
+    /**
+     * Gets the window of the latencies, rotating it if its time has elapsed.
+     * @return current window.
+     */
+    private LatencyWindow latencyWindow() {
+        long now = System.nanoTime();
+        while (true) {
+            LatencyWindow window = latencyWindow.get();
+            long elapsed = now - window.startNanos;
+            if (elapsed < latencyWindowNanos) {
+                return window;
+            }
+            // the previous window is empty if no latency was recorded for a whole window
+            LMLogsLatencyHistogram previous = elapsed < 2 * latencyWindowNanos
+                    ? window.current : new LMLogsLatencyHistogram();
+            long startNanos = window.startNanos + elapsed / latencyWindowNanos * latencyWindowNanos;
+            LatencyWindow next = new LatencyWindow(startNanos, new LMLogsLatencyHistogram(),
+                    previous);
+            if (latencyWindow.compareAndSet(window, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Adds a recorder notified about the latency of each request, e.g. to keep
+     * a distribution decaying over time next to the lifetime histogram.
+     * @param recorder consumer of the latencies in nanoseconds.
+     * @throws NullPointerException if the recorder is null.
+     */
+    public void addLatencyRecorder(LongConsumer recorder) {
+        latencyRecorders.add(Objects.requireNonNull(recorder, "Recorder must not be null"));
+    }
+
+    /**
+     * Removes a recorder of the request latencies.
+     * @param recorder consumer of the latencies in nanoseconds.
+     */
+    public void removeLatencyRecorder(LongConsumer recorder) {
+        latencyRecorders.remove(recorder);
+    }
+
+    /**
+     * Gets the histogram of all the request latencies since the metrics were created.
+     * @return latency histogram.
+     */
+    public LMLogsLatencyHistogram getLatencyHistogram() {
+        return latency;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server
+     * as 'com.logicmonitor.logs:type=LMLogsClientMetrics,name=&lt;name&gt;'.
+     * @param name value of the name key, e.g. the company.
+     * @return name of the registered MBean.
+     * @throws JMException if the name is invalid or already registered.
+     * @throws IllegalStateException if the metrics are already registered.
+     */
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        if (objectName != null) {
+            throw new IllegalStateException("Metrics are already registered as " + objectName);
+        }
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + getClass().getSimpleName()
+                + ",name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server, if registered.
+     * @throws JMException if the MBean can't be unregistered.
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsClientMetrics [requests=" + getRequests() + ", retries=" + getRetries()
+                + ", entriesSent=" + getEntriesSent() + ", entriesFailed=" + getEntriesFailed()
+                + ", entriesDropped=" + getEntriesDropped() + ", queueDepth=" + getQueueDepth() + "]";
+    }
+
+    /**
+     * Histograms of the latencies of a window and the previous one.
+     */
+    private static final class LatencyWindow {
+
+        /**
+         * Start of the window in nanoseconds.
+         */
+        final long startNanos;
+        /**
+         * Histogram of the window.
+         */
+        final LMLogsLatencyHistogram current;
+        /**
+         * Histogram of the previous window.
+         */
+        final LMLogsLatencyHistogram previous;
+
+        /**
+         * Initializes LatencyWindow instance.
+         * @param startNanos start of the window in nanoseconds.
+         * @param current histogram of the window.
+         * @param previous histogram of the previous window.
+         */
+        LatencyWindow(long startNanos, LMLogsLatencyHistogram current,
+                LMLogsLatencyHistogram previous) {
+            this.startNanos = startNanos;
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+/**
+ * JMX management interface of {@link LMLogsClientMetrics}.
+ */
+public interface LMLogsClientMetricsMBean {
+
+    /**
+     * Gets the number of the request attempts.
+     * @return number of the requests.
+     */
+    long getRequests();
+
+    /**
+     * Gets the number of the requests accepted with status 202.
+     * @return number of the requests.
+     */
+    long getAcceptedRequests();
+
+    /**
+     * Gets the number of the requests partially accepted with status 207.
+     * @return number of the requests.
+     */
+    long getPartialRequests();
+
+    /**
+     * Gets the number of the requests rejected with status 4xx other than 429.
+     * @return number of the requests.
+     */
+    long getClientErrorRequests();
+
+    /**
+     * Gets the number of the requests throttled with status 429.
+     * @return number of the requests.
+     */
+    long getThrottledRequests();
+
+    /**
+     * Gets the number of the requests failed with status 5xx.
+     * @return number of the requests.
+     */
+    long getServerErrorRequests();
+
+    /**
+     * Gets the number of the requests failed without response.
+     * @return number of the requests.
+     */
+    long getNoResponseRequests();
+
+    /**
+     * Gets the number of the retried attempts.
+     * @return number of the retries.
+     */
+    long getRetries();
+
+    /**
+     * Gets the number of the uncompressed payload bytes sent, including the retries.
+     * @return number of bytes.
+     */
+    long getPayloadBytes();
+
+    /**
+     * Gets the number of the accepted entries.
+     * @return number of the entries.
+     */
+    long getEntriesSent();
+
+    /**
+     * Gets the number of the entries failed after the last attempt.
+     * @return number of the entries.
+     */
+    long getEntriesFailed();
+
+    /**
+     * Gets the number of the entries dropped before sending.
+     * @return number of the entries.
+     */
+    long getEntriesDropped();
+
+    /**
+     * Gets the number of the entries waiting in the registered queues.
+     * @return number of the entries.
+     */
+    long getQueueDepth();
+
+    /**
+     * Gets the mean latency of the recent requests, of the current and the previous
+     * windows of the metrics.
+     * @return latency in milliseconds.
+     */
+    double getLatencyMeanMillis();
+
+    /**
+     * Gets the median latency of the recent requests, of the current and the previous
+     * windows of the metrics.
+     * @return latency in milliseconds.
+     */
+    double getLatencyP50Millis();
+
+    /**
+     * Gets the 99th percentile latency of the recent requests, of the current and the previous
+     * windows of the metrics.
+     * @return latency in milliseconds.
+     */
+    double getLatencyP99Millis();
+
+    /**
+     * Gets the maximum latency of the recent requests, of the current and the previous
+     * windows of the metrics.
+     * @return latency in milliseconds.
+     */
+    double getLatencyMaxMillis();
+
+}
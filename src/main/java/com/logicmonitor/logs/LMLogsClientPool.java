@@ -0,0 +1,594 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pool of the API instances of many LogicMonitor portals, keyed by the company and credentials.
+ * <p>
+ * All the pooled clients send the requests through the same transport, so e.g. a single
+ * connection pool of {@link LMLogsApacheTransport} serves all the companies, while each client
+ * targets the URL of its company and signs the requests with its own credentials. The clients
+ * are created on first use, and evicted when they have been idle longer than the idle timeout or
+ * the pool exceeds the maximum number of clients.
+ * <p>
+ * The API instances are used through {@link Lease}s obtained from the pool for each use:
+ * a leased client stays open when it's evicted, and is closed when its last lease is closed.
+ * The number of the clients is not tied to the connections: the requests of all the companies
+ * share the connections of the transport, {@link #DEFAULT_MAX_CONNECTIONS} by default.
+ */
+public class LMLogsClientPool implements AutoCloseable {
+
+    /**
+     * Default time after which an unused client is evicted (10 minutes).
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * Default maximum number of the pooled clients.
+     */
+    public static final int DEFAULT_MAX_CLIENTS = 1000;
+    /**
+     * Default maximum number of the connections of the transport created by the pool,
+     * shared by all the clients. Each company is limited to
+     * {@link LMLogsApacheTransport#DEFAULT_MAX_CONNECTIONS_PER_ROUTE} of them.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+    /**
+     * Class of the Apache connector, checked before creating the default transport.
+     */
+    static final String APACHE_CONNECTOR_CLASS =
+            "org.glassfish.jersey.apache.connector.ApacheConnectorProvider";
+
+    /**
+     * Counter used to name the eviction threads.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * Transport shared by the clients.
+     */
+    protected final LMLogsTransport transport;
+    /**
+     * Flag set if the transport has been created, and is closed, by the pool.
+     */
+    protected final boolean ownsTransport;
+    /**
+     * Configuration applied to the builders of the API instances.
+     */
+    protected final Consumer<LMLogsApi.Builder> configurer;
+    /**
+     * Time after which an unused client is evicted in nanoseconds, 0 to keep the idle clients.
+     */
+    protected final long idleTimeoutNanos;
+    /**
+     * Maximum number of the pooled clients.
+     */
+    protected final int maxClients;
+    /**
+     * Pooled API instances by the tenants.
+     */
+    private final ConcurrentMap<Tenant, PooledApi> apis = new ConcurrentHashMap<>();
+    /**
+     * Thread evicting the idle clients, or null.
+     */
+    private final ScheduledExecutorService evictor;
+    /**
+     * Closed flag.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Initializes LMLogsClientPool instance.
+     * @param builder builder containing the configuration.
+     */
+    protected LMLogsClientPool(Builder builder) {
+        ownsTransport = builder.transport == null;
+        transport = ownsTransport ? defaultTransport(builder.maxConnections) : builder.transport;
+        configurer = builder.configurer;
+        idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(builder.idleTimeoutMillis);
+        maxClients = builder.maxClients;
+        if (builder.idleTimeoutMillis > 0) {
+            String name = "lm-logs-pool-" + INSTANCES.incrementAndGet();
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, builder.idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Creates the transport of the pool when none is configured: a pool of Apache HttpClient
+     * connections if the optional Apache connector is on the classpath, otherwise the default
+     * connector. The connector is looked up by name, so this class loads without it.
+     * @param maxConnections maximum number of the pooled connections.
+     * @return new transport.
+     */
+    private static LMLogsTransport defaultTransport(int maxConnections) {
+        try {
+            Class.forName(APACHE_CONNECTOR_CLASS, false, LMLogsClientPool.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return LMLogsTransport.DEFAULT;
+        }
+        return new LMLogsApacheTransport.Builder()
+            .withMaxConnections(maxConnections)
+            .build();
+    }
+
+    /**
+     * Leases the API instance of the company and credentials, creating it if it's not pooled.
+     * The client is not closed until the lease is closed, even if it's evicted in the meantime.
+     * @param company company name.
+     * @param accessId LogicMonitor access ID.
+     * @param accessKey LogicMonitor access key.
+     * @return lease of the pooled API instance, to be closed after use.
+     * @throws NullPointerException if any of the parameters is null.
+     * @throws IllegalStateException if the pool is closed.
+     */
+    public Lease lease(String company, String accessId, String accessKey) {
+        Tenant tenant = new Tenant(
+                Objects.requireNonNull(company, "Company must not be null"),
+                Objects.requireNonNull(accessId, "Access id must not be null"),
+                Objects.requireNonNull(accessKey, "Access key must not be null"));
+        if (closed) {
+            throw new IllegalStateException("Client pool is closed");
+        }
+        long now = System.nanoTime();
+        PooledApi pooled = acquire(tenant, now);
+        if (pooled == null) {
+            // the client is created outside the lock of the pool entry, so the configurer
+            // doesn't block the other tenants and may use the pool
+            PooledApi created = new PooledApi(create(tenant));
+            created.lastUsedNanos = now;
+            created.acquire();
+            while (pooled == null) {
+                if (apis.putIfAbsent(tenant, created) == null) {
+                    pooled = created;
+                } else if ((pooled = acquire(tenant, now)) != null) {
+                    // a concurrent lease has created the client first
+                    created.api.getApiClient().close();
+                }
+            }
+        }
+        Lease lease = new Lease(pooled);
+        // the pool may have been closed after the client was added
+        if (closed) {
+            evict(tenant, pooled, 0, true);
+            lease.close();
+            throw new IllegalStateException("Client pool is closed");
+        }
+        if (apis.size() > maxClients) {
+            evictLeastRecentlyUsed();
+        }
+        return lease;
+    }
+
+    /**
+     * Closes the clients which have been idle longer than the idle timeout.
+     * Called periodically by the pool.
+     * @return number of the evicted clients.
+     */
+    public int evictIdle() {
+        if (idleTimeoutNanos <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<Tenant, PooledApi> entry : apis.entrySet()) {
+            long lastUsedNanos = entry.getValue().lastUsedNanos;
+            if (now - lastUsedNanos > idleTimeoutNanos
+                    && evict(entry.getKey(), entry.getValue(), lastUsedNanos, false)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Gets the number of the pooled clients.
+     * @return number of the clients.
+     */
+    public int size() {
+        return apis.size();
+    }
+
+    /**
+     * Gets the transport shared by the clients.
+     * @return transport.
+     */
+    public LMLogsTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Checks if the pool is closed.
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes all the clients, and the transport if it has been created by the pool.
+     * The leased clients are closed with their last lease, but they can't send requests
+     * through a transport closed by the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        for (Map.Entry<Tenant, PooledApi> entry : apis.entrySet()) {
+            evict(entry.getKey(), entry.getValue(), 0, true);
+        }
+        if (ownsTransport) {
+            try {
+                transport.close();
+            } catch (Exception e) {
+                // the pool is closed anyway
+            }
+        }
+    }
+
+    /**
+     * Creates the API instance of the tenant.
+     * @param tenant company and credentials.
+     * @return new API instance.
+     */
+    protected LMLogsApi create(Tenant tenant) {
+        LMLogsApi.Builder builder = new LMLogsApi.Builder();
+        configurer.accept(builder);
+        return builder
+            .withCompany(tenant.company)
+            .withAccessId(tenant.accessId)
+            .withAccessKey(tenant.accessKey)
+            .withTransport(transport)
+            .build();
+    }
+
+    /**
+     * Acquires a lease of the pooled client of the tenant, recording its use atomically with the
+     * eviction of the same tenant.
+     * @param tenant company and credentials.
+     * @param now time of the use.
+     * @return pooled client, or null if the tenant has no client.
+     */
+    private PooledApi acquire(Tenant tenant, long now) {
+        return apis.computeIfPresent(tenant, (key, value) -> {
+            value.lastUsedNanos = now;
+            value.acquire();
+            return value;
+        });
+    }
+
+    /**
+     * Closes the client of the tenant which has been used least recently.
+     */
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<Tenant, PooledApi> eldest = null;
+        long eldestUsedNanos = 0;
+        for (Map.Entry<Tenant, PooledApi> entry : apis.entrySet()) {
+            long lastUsedNanos = entry.getValue().lastUsedNanos;
+            if (eldest == null || lastUsedNanos - eldestUsedNanos < 0) {
+                eldest = entry;
+                eldestUsedNanos = lastUsedNanos;
+            }
+        }
+        if (eldest != null) {
+            evict(eldest.getKey(), eldest.getValue(), eldestUsedNanos, false);
+        }
+    }
+
+    /**
+     * Removes the client from the pool, unless it has been used in the meantime, and closes it
+     * if it's not leased. A leased client is closed when its last lease is closed.
+     * @param tenant company and credentials.
+     * @param pooled pooled client.
+     * @param lastUsedNanos time of the last use when the client was selected for eviction.
+     * @param force true to evict the client even if it has been used.
+     * @return true if the client has been evicted.
+     */
+    private boolean evict(Tenant tenant, PooledApi pooled, long lastUsedNanos, boolean force) {
+        boolean[] removed = new boolean[1];
+        apis.computeIfPresent(tenant, (key, value) -> {
+            if (value != pooled || (!force && value.lastUsedNanos != lastUsedNanos)) {
+                return value;
+            }
+            removed[0] = true;
+            return null;
+        });
+        // no lease is acquired once the client is removed, as the tenant gets a new client
+        if (removed[0] && pooled.retire()) {
+            pooled.api.getApiClient().close();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Company and credentials of a pooled client.
+     */
+    protected static final class Tenant {
+
+        /**
+         * Company name.
+         */
+        final String company;
+        /**
+         * LogicMonitor access ID.
+         */
+        final String accessId;
+        /**
+         * LogicMonitor access key.
+         */
+        final String accessKey;
+
+        /**
+         * Initializes Tenant instance.
+         * @param company company name.
+         * @param accessId LogicMonitor access ID.
+         * @param accessKey LogicMonitor access key.
+         */
+        Tenant(String company, String accessId, String accessKey) {
+            this.company = company;
+            this.accessId = accessId;
+            this.accessKey = accessKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Tenant tenant = (Tenant) o;
+            return company.equals(tenant.company) && accessId.equals(tenant.accessId)
+                    && accessKey.equals(tenant.accessKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(company, accessId, accessKey);
+        }
+
+        @Override
+        public String toString() {
+            // the access key is not exposed
+            return "Tenant [company=" + company + ", accessId=" + accessId + "]";
+        }
+    }
+
+    /**
+     * Lease of a pooled API instance, keeping the client open until the lease is closed.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        /**
+         * Leased client.
+         */
+        private final PooledApi pooled;
+        /**
+         * Closed flag.
+         */
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        /**
+         * Initializes Lease instance.
+         * @param pooled leased client.
+         */
+        Lease(PooledApi pooled) {
+            this.pooled = pooled;
+        }
+
+        /**
+         * Gets the leased API instance.
+         * @return API instance.
+         */
+        public LMLogsApi getApi() {
+            return pooled.api;
+        }
+
+        /**
+         * Releases the client, closing it if it has been evicted and this was its last lease.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true) && pooled.release()) {
+                pooled.api.getApiClient().close();
+            }
+        }
+    }
+
+    /**
+     * API instance with the time of its last use and the number of its leases.
+     */
+    private static final class PooledApi {
+
+        /**
+         * Pooled API instance.
+         */
+        final LMLogsApi api;
+        /**
+         * Time of the last use in nanoseconds, updated under the lock of the pool entry.
+         */
+        volatile long lastUsedNanos;
+        /**
+         * Number of the open leases.
+         */
+        private int leases;
+        /**
+         * Flag set when the client is removed from the pool.
+         */
+        private boolean retired;
+
+        /**
+         * Initializes PooledApi instance.
+         * @param api pooled API instance.
+         */
+        PooledApi(LMLogsApi api) {
+            this.api = api;
+        }
+
+        /**
+         * Counts a new lease of the client.
+         */
+        synchronized void acquire() {
+            leases++;
+        }
+
+        /**
+         * Counts a closed lease of the client.
+         * @return true if the client has been removed from the pool and is not leased anymore,
+         *         so it should be closed.
+         */
+        synchronized boolean release() {
+            leases--;
+            return retired && leases == 0;
+        }
+
+        /**
+         * Marks the client removed from the pool.
+         * @return true if the client is not leased, so it should be closed.
+         */
+        synchronized boolean retire() {
+            retired = true;
+            return leases == 0;
+        }
+    }
+
+    /**
+     * A builder for creating LogicMonitor Logs client pools.
+     */
+    public static class Builder {
+
+        /**
+         * Transport shared by the clients.
+         */
+        private LMLogsTransport transport;
+        /**
+         * Configuration applied to the builders of the API instances.
+         */
+        private Consumer<LMLogsApi.Builder> configurer = builder -> { };
+        /**
+         * Time after which an unused client is evicted in milliseconds.
+         */
+        private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+        /**
+         * Maximum number of the pooled clients.
+         */
+        private int maxClients = DEFAULT_MAX_CLIENTS;
+        /**
+         * Maximum number of the connections of the transport created by the pool.
+         */
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+        /**
+         * Configures the transport shared by the clients, which is not closed by the pool.
+         * By default the pool creates an {@link LMLogsApacheTransport} closed with the pool,
+         * or uses the default connector if jersey-apache-connector is not on the classpath.
+         * @param transport
+         * @return this builder object
+         */
+        public Builder withTransport(LMLogsTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Configures the settings of the API instances other than the company, credentials
+         * and transport, e.g. the compression, retry policy or metrics.
+         * @param configurer
+         * @return this builder object
+         */
+        public Builder withConfigurer(Consumer<LMLogsApi.Builder> configurer) {
+            this.configurer = configurer;
+            return this;
+        }
+
+        /**
+         * Configures the time after which an unused client is evicted in milliseconds,
+         * 0 to keep the idle clients.
+         * @param idleTimeoutMillis
+         * @return this builder object
+         */
+        public Builder withIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of the pooled clients.
+         * @param maxClients
+         * @return this builder object
+         */
+        public Builder withMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of the connections shared by all the clients,
+         * when the pool creates its transport. Ignored if a transport is configured.
+         * @param maxConnections
+         * @return this builder object
+         */
+        public Builder withMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsClientPool based on the contents of the builder.
+         * @return new LMLogsClientPool instance
+         * @throws IllegalArgumentException if the idle timeout is negative or the maximum number
+         *         of the clients or connections is not positive.
+         * @throws NullPointerException if the configurer is null.
+         */
+        public LMLogsClientPool build() {
+            if (idleTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Idle timeout must not be negative");
+            }
+            if (maxClients <= 0) {
+                throw new IllegalArgumentException("Max clients must be positive");
+            }
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("Max connections must be positive");
+            }
+            Objects.requireNonNull(configurer, "Configurer must not be null");
+            return new LMLogsClientPool(this);
+        }
+    }
+
+}
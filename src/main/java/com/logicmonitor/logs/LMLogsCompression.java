@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+/**
+ * Compression of the request body.
+ * <p>
+ * The body is compressed while it is written to the connection. The LMv1 signature is computed
+ * over the uncompressed JSON, which is what the server gets after decoding the request.
+ */
+public enum LMLogsCompression {
+
+    /**
+     * No compression.
+     */
+    NONE(null),
+    /**
+     * GZIP compression ('Content-Encoding: gzip').
+     */
+    GZIP("gzip"),
+    /**
+     * Deflate compression in zlib format ('Content-Encoding: deflate').
+     */
+    DEFLATE("deflate");
+
+    /**
+     * Value of the Content-Encoding header.
+     */
+    private final String encoding;
+
+    /**
+     * Initializes the compression.
+     * @param encoding value of the Content-Encoding header.
+     */
+    LMLogsCompression(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Gets the value of the Content-Encoding header.
+     * @return content encoding or null if the body is not compressed.
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Writes log entries with the streaming generator instead of the data binding.
+ * <p>
+ * The field names are pre-encoded and the values are written directly, so no serializers
+ * are looked up and no intermediate objects are created per entry. The output is identical
+ * to the data binding of the generated model. The entries containing nulls, whose inclusion
+ * depends on the configuration of the object mapper, and subclasses of {@link LogEntry},
+ * which may declare additional properties, are written by the data binding.
+ * <p>
+ * The {@link LMLogsRecord}s are written in the same format without the data binding.
+ * The resource ID maps are spliced from the {@link LMLogsResourceIdCache} of the writing thread.
+ */
+class LMLogsEntryWriter {
+
+    /**
+     * Pre-encoded name of the message field.
+     */
+    static final SerializedString MESSAGE = new SerializedString(LogEntry.JSON_PROPERTY_MESSAGE);
+    /**
+     * Pre-encoded name of the timestamp field.
+     */
+    static final SerializedString TIMESTAMP = new SerializedString(LogEntry.JSON_PROPERTY_TIMESTAMP);
+    /**
+     * Pre-encoded name of the resource ID field.
+     */
+    static final SerializedString RESOURCE_ID = new SerializedString(LogEntry.JSON_PROPERTY_LM_RESOURCE_ID);
+
+    /**
+     * Writer of the entries which are not written directly.
+     */
+    private final ObjectWriter fallbackWriter;
+    /**
+     * Caches of the serialized resource ID maps owned by the writing threads.
+     */
+    private final ThreadLocal<LMLogsResourceIdCache> resourceIdCaches;
+
+    /**
+     * Initializes LMLogsEntryWriter instance.
+     * @param factory factory of the generators writing the entries.
+     * @param fallbackWriter writer of the entries which are not written directly.
+     */
+    LMLogsEntryWriter(JsonFactory factory, ObjectWriter fallbackWriter) {
+        this.fallbackWriter = fallbackWriter;
+        resourceIdCaches = ThreadLocal.withInitial(() -> new LMLogsResourceIdCache(factory,
+                LMLogsResourceIdCache.DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Writes the entries as JSON array.
+     * @param generator target generator.
+     * @param entries list of the log entries.
+     * @throws IOException if the entries can't be written.
+     */
+    void writeEntries(JsonGenerator generator, List<LogEntry> entries) throws IOException {
+        generator.writeStartArray();
+        for (LogEntry entry : entries) {
+            writeEntry(generator, entry);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes the entry as JSON object.
+     * @param generator target generator.
+     * @param entry log entry or null.
+     * @throws IOException if the entry can't be written.
+     */
+    void writeEntry(JsonGenerator generator, LogEntry entry) throws IOException {
+        if (entry == null) {
+            generator.writeNull();
+            return;
+        }
+        String message = entry.getMessage();
+        Map<String, String> resourceId = entry.getLmResourceId();
+        if (entry.getClass() != LogEntry.class || message == null || resourceId == null
+                || containsNull(resourceId)) {
+            fallbackWriter.writeValue(generator, entry);
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(MESSAGE);
+        generator.writeString(message);
+        Long timestamp = entry.getTimestamp();
+        if (timestamp != null) {
+            generator.writeFieldName(TIMESTAMP);
+            generator.writeNumber(timestamp);
+        }
+        writeResourceId(generator, resourceId);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the records as JSON array.
+     * @param generator target generator.
+     * @param records list of the log records.
+     * @throws IOException if the records can't be written.
+     */
+    void writeRecords(JsonGenerator generator, List<LMLogsRecord> records) throws IOException {
+        generator.writeStartArray();
+        for (LMLogsRecord record : records) {
+            writeRecord(generator, record);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes the record as JSON object. The null message and resource ID values are written
+     * as JSON nulls.
+     * @param generator target generator.
+     * @param record log record or null.
+     * @throws IOException if the record can't be written.
+     */
+    void writeRecord(JsonGenerator generator, LMLogsRecord record) throws IOException {
+        if (record == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(MESSAGE);
+        generator.writeString(record.getMessage());
+        if (record.hasTimestamp()) {
+            generator.writeFieldName(TIMESTAMP);
+            generator.writeNumber(record.getTimestamp());
+        }
+        writeResourceId(generator, record.getResourceId());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the resource ID field, splicing the JSON object of the map from the cache.
+     * @param generator target generator.
+     * @param resourceId resource ID map.
+     * @throws IOException if the map can't be written.
+     */
+    private void writeResourceId(JsonGenerator generator, Map<String, String> resourceId)
+            throws IOException {
+        generator.writeFieldName(RESOURCE_ID);
+        if (resourceId.isEmpty()) {
+            writeResourceIdObject(generator, resourceId);
+        } else {
+            generator.writeRawValue(resourceIdCaches.get().get(resourceId));
+        }
+    }
+
+    /**
+     * Writes the resource ID map as JSON object.
+     * @param generator target generator.
+     * @param resourceId resource ID map.
+     * @throws IOException if the map can't be written.
+     */
+    static void writeResourceIdObject(JsonGenerator generator, Map<String, String> resourceId)
+            throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, String> item : resourceId.entrySet()) {
+            generator.writeFieldName(item.getKey());
+            generator.writeString(item.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Checks if the map contains a null key or value.
+     * @param map map of strings.
+     * @return true if any key or value is null.
+     */
+    private static boolean containsNull(Map<String, String> map) {
+        for (Map.Entry<String, String> item : map.entrySet()) {
+            if (item.getKey() == null || item.getValue() == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,708 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Tailer of a log file sending its lines through {@link LMLogsApi}.
+ * <p>
+ * The file is read through a {@link FileChannel} into a buffer reused for the whole file,
+ * and the lines are split by scanning the bytes of the buffer. A line is decoded to a String only
+ * when it is copied into one of the reused {@link LMLogsRecord}s of the batch, which is sent with
+ * {@link LMLogsApi#logIngestPostRecords} when it reaches the configured number of lines or size,
+ * or when the end of the file is reached. Lines longer than the maximum are split.
+ * <p>
+ * The offset after the last line sent is written to a checkpoint file together with the
+ * identity of the file, so the tailer resumes after restarts. When the file is replaced
+ * (rotated by renaming), the rest of the old file is read before the new one is opened from
+ * the start; when the file shrinks (truncated in place), it is read again from the start.
+ * Batches failed with a retryable status or without response are read and sent again
+ * at the next poll, so the lines are delivered at least once.
+ */
+public class LMLogsFileTailer implements AutoCloseable {
+
+    /**
+     * Default maximum number of lines in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = LMLogsBatcher.DEFAULT_BATCH_SIZE;
+    /**
+     * Default maximum estimated size of a batch (1 MB).
+     */
+    public static final int DEFAULT_BATCH_BYTES = LMLogsBatcher.DEFAULT_BATCH_BYTES;
+    /**
+     * Default maximum length of a line (32 KB).
+     */
+    public static final int DEFAULT_MAX_LINE_BYTES = 32 * 1024;
+    /**
+     * Default interval of polling the file for new lines (250 milliseconds).
+     */
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 250;
+    /**
+     * Suffix appended to the name of the file to name the default checkpoint file.
+     */
+    public static final String CHECKPOINT_SUFFIX = ".lm-checkpoint";
+
+    /**
+     * Minimum size of the read buffer (64 KB).
+     */
+    static final int MIN_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Counter used to name the tailer threads.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * API used to send the batches.
+     */
+    protected final LMLogsApi api;
+    /**
+     * Tailed file.
+     */
+    protected final Path file;
+    /**
+     * Checkpoint file.
+     */
+    protected final Path checkpointFile;
+    /**
+     * Resource ID of the sent lines.
+     */
+    protected final Map<String, String> resourceId;
+    /**
+     * Charset of the file.
+     */
+    protected final Charset charset;
+    /**
+     * Maximum number of lines in a batch.
+     */
+    protected final int batchSize;
+    /**
+     * Maximum estimated size of a batch in bytes.
+     */
+    protected final int batchBytes;
+    /**
+     * Maximum length of a line in bytes.
+     */
+    protected final int maxLineBytes;
+
+    /**
+     * Buffer of the bytes read from the file, reused for all the reads.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Records of the batch, reused for all the batches.
+     */
+    private final List<LMLogsRecord> records;
+    /**
+     * Thread polling the file.
+     */
+    private final ScheduledExecutorService poller;
+    /**
+     * Number of the lines sent.
+     */
+    private final AtomicLong sent = new AtomicLong();
+    /**
+     * Number of the lines failed with a status which is not retryable.
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * Channel of the file being read, or null if the file doesn't exist.
+     */
+    private FileChannel channel;
+    /**
+     * Identity of the file being read.
+     */
+    private String identity;
+    /**
+     * Offset after the last line sent, or failed with a status which is not retryable.
+     */
+    private volatile long committed;
+    /**
+     * Offset after the last line added to the batch.
+     */
+    private long pendingOffset;
+    /**
+     * Offset of the first byte of the buffer in the file.
+     */
+    private long bufferOffset;
+    /**
+     * Number of the records used in the batch.
+     */
+    private int batchCount;
+    /**
+     * Estimated size of the batch in bytes.
+     */
+    private long batchSizeBytes;
+    /**
+     * Closed flag.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Opens the file at the checkpoint and starts polling it.
+     * @param builder builder containing the configuration.
+     * @throws IOException if the checkpoint or the file can't be read.
+     */
+    protected LMLogsFileTailer(Builder builder) throws IOException {
+        api = builder.api;
+        file = builder.file;
+        checkpointFile = builder.checkpointFile != null ? builder.checkpointFile
+                : file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+        resourceId = builder.resourceId;
+        charset = builder.charset;
+        batchSize = builder.batchSize;
+        batchBytes = builder.batchBytes;
+        maxLineBytes = builder.maxLineBytes;
+        buffer = ByteBuffer.allocate(Math.max(MIN_BUFFER_BYTES, 2 * maxLineBytes));
+        records = new ArrayList<>(batchSize);
+
+        if (Files.exists(checkpointFile)) {
+            List<String> lines = Files.readAllLines(checkpointFile, StandardCharsets.UTF_8);
+            if (lines.size() == 2) {
+                try {
+                    committed = Long.parseLong(lines.get(0));
+                    identity = lines.get(1);
+                } catch (NumberFormatException e) {
+                    // corrupted checkpoint, read the file from the start
+                }
+            }
+        }
+        reopen();
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lm-logs-tailer-" + INSTANCES.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollQuietly, builder.pollIntervalMillis,
+                builder.pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling the file and closes it. The lines not sent yet are read again from the
+     * checkpoint by the next tailer of the file.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        poller.shutdown();
+        try {
+            poller.awaitTermination(LMLogsBatcher.DEFAULT_CLOSE_TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            closeChannel();
+        }
+    }
+
+    /**
+     * Checks if the tailer is closed.
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the offset in the file after the last line sent.
+     * @return offset in bytes.
+     */
+    public long getPosition() {
+        return committed;
+    }
+
+    /**
+     * Gets the number of the lines sent.
+     * @return number of sent lines.
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * Gets the number of the lines failed with a status which is not retryable.
+     * @return number of failed lines.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Polls the file, ignoring the errors until the next poll.
+     */
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (IOException | RuntimeException e) {
+            // the file is read again from the checkpoint at the next poll
+            synchronized (this) {
+                closeChannel();
+            }
+        }
+    }
+
+    /**
+     * Reads and sends the lines appended to the file since the last poll.
+     * @throws IOException if the file or the checkpoint can't be accessed.
+     */
+    synchronized void poll() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (channel == null && !reopen()) {
+            return;
+        }
+        if (channel.size() < bufferOffset + buffer.position()) {
+            // truncated in place
+            seek(0);
+            writeCheckpoint();
+        }
+        if (!readToEnd(false)) {
+            return;
+        }
+        String current = readIdentity();
+        if (current != null && !current.equals(identity)) {
+            // rotated, the old file is complete
+            if (!readToEnd(true)) {
+                return;
+            }
+            closeChannel();
+            if (reopen()) {
+                readToEnd(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the lines until the end of the file and sends them.
+     * @param complete true to send the last line even if it doesn't end with a line feed.
+     * @return true if all the lines were sent, false if a batch has failed and will be sent
+     *         again.
+     * @throws IOException if the file or the checkpoint can't be accessed.
+     */
+    private boolean readToEnd(boolean complete) throws IOException {
+        while (!closed) {
+            int read = channel.read(buffer, bufferOffset + buffer.position());
+            if (read > 0) {
+                if (!splitLines(false)) {
+                    return false;
+                }
+            } else {
+                if (complete && !splitLines(true)) {
+                    return false;
+                }
+                return sendBatch();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits the complete lines of the buffer into the batch, keeping the incomplete last line
+     * at the start of the buffer.
+     * @param complete true to take the incomplete last line as well.
+     * @return true if the full batches were sent, false if a batch has failed.
+     * @throws IOException if the checkpoint can't be written.
+     */
+    private boolean splitLines(boolean complete) throws IOException {
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] == '\n') {
+                addLine(bytes, start, i);
+                start = i + 1;
+            } else if (i - start >= maxLineBytes) {
+                i = splitPosition(bytes, start, i);
+                addLine(bytes, start, i);
+                start = i;
+            } else {
+                continue;
+            }
+            pendingOffset = bufferOffset + start;
+            if ((batchCount >= batchSize || batchSizeBytes >= batchBytes) && !sendBatch()) {
+                return false;
+            }
+        }
+        if (complete && start < end) {
+            addLine(bytes, start, end);
+            start = end;
+            pendingOffset = bufferOffset + start;
+        }
+        // move the incomplete line to the start of the buffer
+        buffer.flip();
+        buffer.position(start);
+        buffer.compact();
+        bufferOffset += start;
+        return true;
+    }
+
+    /**
+     * Decodes the line into the next record of the batch.
+     * @param bytes buffer content.
+     * @param start index of the first byte of the line.
+     * @param end index after the last byte of the line, including the line feed.
+     */
+    private void addLine(byte[] bytes, int start, int end) {
+        int length = end - start;
+        if (length > 0 && bytes[end - 1] == '\r') {
+            length--;
+        }
+        if (batchCount == records.size()) {
+            records.add(new LMLogsRecord());
+        }
+        String message = new String(bytes, start, length, charset);
+        records.get(batchCount++).set(message, LMLogsRecord.NO_TIMESTAMP, resourceId);
+        batchSizeBytes += LMLogsBatcher.ENTRY_OVERHEAD + length;
+    }
+
+    /**
+     * Finds the position splitting a long line, not inside a multi-byte UTF-8 character.
+     * @param bytes buffer content.
+     * @param start index of the first byte of the line.
+     * @param end index after the maximum length of the line.
+     * @return index after the first part of the line.
+     */
+    private int splitPosition(byte[] bytes, int start, int end) {
+        int position = end;
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            while (position > start + 1 && (bytes[position] & 0xC0) == 0x80) {
+                position--;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Sends the batch and writes the checkpoint if it was sent or failed with a status which
+     * is not retryable, otherwise rewinds the file to the checkpoint.
+     * @return true if the batch was sent or empty, false if it will be sent again.
+     * @throws IOException if the checkpoint can't be written.
+     */
+    private boolean sendBatch() throws IOException {
+        if (batchCount == 0) {
+            return true;
+        }
+        boolean done = send(records.subList(0, batchCount));
+        for (int i = 0; i < batchCount; i++) {
+            records.get(i).clear();
+        }
+        batchCount = 0;
+        batchSizeBytes = 0;
+        if (!done) {
+            seek(committed);
+            return false;
+        }
+        committed = pendingOffset;
+        writeCheckpoint();
+        return true;
+    }
+
+    /**
+     * Sends the records, splitting them in halves if they exceed the maximum payload size.
+     * @param batch list of the log records.
+     * @return true if the records were sent or failed with a status which is not retryable,
+     *         false if they should be sent again.
+     */
+    protected boolean send(List<LMLogsRecord> batch) {
+        try {
+            api.logIngestPostRecords(batch);
+            sent.addAndGet(batch.size());
+            return true;
+        } catch (LMLogsApiException e) {
+            int status = e.getResponse().getStatusCode();
+            if (status == Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode() && batch.size() > 1) {
+                int half = batch.size() / 2;
+                return send(batch.subList(0, half)) && send(batch.subList(half, batch.size()));
+            }
+            if (LMLogsRetryPolicy.DEFAULT_RETRYABLE_STATUSES.contains(status)) {
+                return false;
+            }
+            failed.addAndGet(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens the file at the committed offset if it is the same file and it hasn't shrunk,
+     * otherwise from the start.
+     * @return true if the file was opened, false if it doesn't exist.
+     * @throws IOException if the file can't be opened or the checkpoint can't be written.
+     */
+    private boolean reopen() throws IOException {
+        String previous = identity;
+        long offset = committed;
+        if (!open()) {
+            return false;
+        }
+        if (identity.equals(previous) && offset <= channel.size()) {
+            seek(offset);
+        } else {
+            // rotated or truncated while the file was closed
+            writeCheckpoint();
+        }
+        return true;
+    }
+
+    /**
+     * Opens the file from the start.
+     * @return true if the file was opened, false if it doesn't exist.
+     * @throws IOException if the file can't be opened.
+     */
+    private boolean open() throws IOException {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        identity = identity(Files.readAttributes(file, BasicFileAttributes.class));
+        seek(0);
+        return true;
+    }
+
+    /**
+     * Closes the file.
+     */
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing to release
+            }
+            channel = null;
+        }
+        batchCount = 0;
+        batchSizeBytes = 0;
+    }
+
+    /**
+     * Moves the read position, discarding the buffered bytes.
+     * @param offset new offset in the file.
+     */
+    private void seek(long offset) {
+        buffer.clear();
+        bufferOffset = offset;
+        committed = offset;
+        pendingOffset = offset;
+    }
+
+    /**
+     * Reads the identity of the file at the tailed path.
+     * @return identity or null if the file doesn't exist.
+     * @throws IOException if the attributes can't be read.
+     */
+    private String readIdentity() throws IOException {
+        try {
+            return identity(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the identity of the file, which changes when the file is replaced.
+     * @param attributes file attributes.
+     * @return file key, e.g. device and inode, or creation time if not supported.
+     */
+    private static String identity(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key != null ? key.toString() : Long.toString(attributes.creationTime().toMillis());
+    }
+
+    /**
+     * Writes the committed offset and the identity of the file to the checkpoint atomically.
+     * @throws IOException if the checkpoint can't be written.
+     */
+    private void writeCheckpoint() throws IOException {
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temporary, List.of(Long.toString(committed), identity),
+                StandardCharsets.UTF_8);
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A builder for creating LogicMonitor Logs file tailers.
+     */
+    public static class Builder {
+
+        /**
+         * Tailed file.
+         */
+        private final Path file;
+        /**
+         * API used to send the batches.
+         */
+        private final LMLogsApi api;
+        /**
+         * Checkpoint file.
+         */
+        private Path checkpointFile;
+        /**
+         * Resource ID of the sent lines.
+         */
+        private Map<String, String> resourceId = Collections.emptyMap();
+        /**
+         * Charset of the file.
+         */
+        private Charset charset = StandardCharsets.UTF_8;
+        /**
+         * Maximum number of lines in a batch.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        /**
+         * Maximum estimated size of a batch in bytes.
+         */
+        private int batchBytes = DEFAULT_BATCH_BYTES;
+        /**
+         * Maximum length of a line in bytes.
+         */
+        private int maxLineBytes = DEFAULT_MAX_LINE_BYTES;
+        /**
+         * Interval of polling the file in milliseconds.
+         */
+        private long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+
+        /**
+         * Initializes the builder.
+         * @param file tailed file.
+         * @param api API used to send the batches.
+         * @throws NullPointerException if the file or the API is null.
+         */
+        public Builder(Path file, LMLogsApi api) {
+            this.file = Objects.requireNonNull(file, "File must not be null");
+            this.api = Objects.requireNonNull(api, "API must not be null");
+        }
+
+        /**
+         * Configures the checkpoint file, by default the name of the tailed file with suffix
+         * {@value LMLogsFileTailer#CHECKPOINT_SUFFIX} in the same directory.
+         * @param checkpointFile
+         * @return this builder object
+         */
+        public Builder withCheckpointFile(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /**
+         * Configures the resource ID of the sent lines. The map is not copied.
+         * @param resourceId
+         * @return this builder object
+         */
+        public Builder withResourceId(Map<String, String> resourceId) {
+            this.resourceId = resourceId;
+            return this;
+        }
+
+        /**
+         * Configures the charset of the file, by default UTF-8.
+         * @param charset
+         * @return this builder object
+         */
+        public Builder withCharset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of lines in a batch.
+         * @param batchSize
+         * @return this builder object
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Configures the maximum estimated size of a batch in bytes.
+         * @param batchBytes
+         * @return this builder object
+         */
+        public Builder withBatchBytes(int batchBytes) {
+            this.batchBytes = batchBytes;
+            return this;
+        }
+
+        /**
+         * Configures the maximum length of a line in bytes. Longer lines are split.
+         * @param maxLineBytes
+         * @return this builder object
+         */
+        public Builder withMaxLineBytes(int maxLineBytes) {
+            this.maxLineBytes = maxLineBytes;
+            return this;
+        }
+
+        /**
+         * Configures the interval of polling the file for new lines.
+         * @param pollIntervalMillis
+         * @return this builder object
+         */
+        public Builder withPollIntervalMillis(long pollIntervalMillis) {
+            this.pollIntervalMillis = pollIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Builds the tailer and starts polling the file.
+         * @return file tailer.
+         * @throws IllegalArgumentException if any of the limits is not positive.
+         * @throws NullPointerException if the resource ID or the charset is null.
+         * @throws IOException if the checkpoint or the file can't be read.
+         */
+        public LMLogsFileTailer build() throws IOException {
+            if (batchSize <= 0 || batchBytes <= 0 || maxLineBytes <= 0 || pollIntervalMillis <= 0) {
+                throw new IllegalArgumentException(
+                        "Batch size, batch bytes, max line bytes and poll interval must be positive");
+            }
+            Objects.requireNonNull(resourceId, "Resource ID must not be null");
+            Objects.requireNonNull(charset, "Charset must not be null");
+            return new LMLogsFileTailer(this);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.jdk.connector.JdkConnectorProperties;
+import org.glassfish.jersey.jdk.connector.JdkConnectorProvider;
+
+/**
+ * Non-blocking HTTP transport based on the NIO connector of Jersey.
+ * <p>
+ * Asynchronous requests are written and read by the selector threads of the connector,
+ * so {@link LMLogsApi#logIngestPostAsync} does not hold a thread per request.
+ * The persistent connections are pooled by each HTTP client configured with the transport.
+ * <p>
+ * Requires {@code org.glassfish.jersey.connectors:jersey-jdk-connector} on the classpath,
+ * which is an optional dependency of the SDK.
+ */
+public class LMLogsJdkTransport implements LMLogsTransport {
+
+    /**
+     * Default maximum number of the pooled connections to a single host.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_DESTINATION = 20;
+    /**
+     * Default time after which an idle connection is closed (1 minute).
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = (int) TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Maximum number of the pooled connections to a single host.
+     */
+    protected final int maxConnectionsPerDestination;
+    /**
+     * Time after which an idle connection is closed.
+     */
+    protected final int idleTimeoutMillis;
+
+    /**
+     * Initializes LMLogsJdkTransport instance with the default pool settings.
+     */
+    public LMLogsJdkTransport() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_DESTINATION, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Initializes LMLogsJdkTransport instance.
+     * @param maxConnectionsPerDestination maximum number of the pooled connections to a single host.
+     * @param idleTimeoutMillis time after which an idle connection is closed.
+     */
+    protected LMLogsJdkTransport(int maxConnectionsPerDestination, int idleTimeoutMillis) {
+        this.maxConnectionsPerDestination = maxConnectionsPerDestination;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Configures the NIO connector.
+     */
+    @Override
+    public void configure(ClientConfig clientConfig) {
+        clientConfig.connectorProvider(new JdkConnectorProvider());
+        clientConfig.property(JdkConnectorProperties.MAX_CONNECTIONS_PER_DESTINATION,
+                maxConnectionsPerDestination);
+        clientConfig.property(JdkConnectorProperties.CONNECTION_IDLE_TIMEOUT, idleTimeoutMillis);
+    }
+
+    /**
+     * Gets the maximum number of the pooled connections to a single host.
+     * @return maximum number of the connections.
+     */
+    public int getMaxConnectionsPerDestination() {
+        return maxConnectionsPerDestination;
+    }
+
+    /**
+     * Gets the time after which an idle connection is closed.
+     * @return idle timeout in milliseconds.
+     */
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsJdkTransport [maxConnectionsPerDestination=" + maxConnectionsPerDestination
+                + ", idleTimeoutMillis=" + idleTimeoutMillis + "]";
+    }
+
+    /**
+     * A builder for creating non-blocking transports.
+     */
+    public static class Builder {
+
+        /**
+         * Maximum number of the pooled connections to a single host.
+         */
+        private Integer maxConnectionsPerDestination;
+        /**
+         * Time after which an idle connection is closed.
+         */
+        private Integer idleTimeoutMillis;
+
+        /**
+         * Configures maximum number of the pooled connections to a single host.
+         * @param maxConnectionsPerDestination
+         * @return this builder object
+         */
+        public Builder withMaxConnectionsPerDestination(Integer maxConnectionsPerDestination) {
+            this.maxConnectionsPerDestination = maxConnectionsPerDestination;
+            return this;
+        }
+
+        /**
+         * Configures time after which an idle connection is closed.
+         * @param idleTimeoutMillis
+         * @return this builder object
+         */
+        public Builder withIdleTimeoutMillis(Integer idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsJdkTransport based on the contents of the builder.
+         * @return new LMLogsJdkTransport instance
+         * @throws IllegalArgumentException if maxConnectionsPerDestination or idleTimeoutMillis
+         *         is not positive.
+         */
+        public LMLogsJdkTransport build() {
+            int maxConnectionsPerDestination = this.maxConnectionsPerDestination != null
+                    ? this.maxConnectionsPerDestination : DEFAULT_MAX_CONNECTIONS_PER_DESTINATION;
+            int idleTimeoutMillis = this.idleTimeoutMillis != null
+                    ? this.idleTimeoutMillis : DEFAULT_IDLE_TIMEOUT_MILLIS;
+            if (maxConnectionsPerDestination <= 0) {
+                throw new IllegalArgumentException(
+                        "Max connections per destination must be positive");
+            }
+            if (idleTimeoutMillis <= 0) {
+                throw new IllegalArgumentException("Idle timeout must be positive");
+            }
+            return new LMLogsJdkTransport(maxConnectionsPerDestination, idleTimeoutMillis);
+        }
+    }
+
+}
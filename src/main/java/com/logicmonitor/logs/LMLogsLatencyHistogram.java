@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies recorded concurrently without locks.
+ * <p>
+ * The latencies are counted in microsecond buckets with logarithmic width: each power of 2
+ * is divided into 8 linear sub-buckets, so the percentiles are reported with a relative error
+ * below 12.5% and the footprint does not depend on the number of the values.
+ */
+public class LMLogsLatencyHistogram {
+
+    /**
+     * Number of the bits of the sub-bucket index.
+     */
+    static final int SUB_BUCKET_BITS = 3;
+    /**
+     * Number of the sub-buckets of a power of 2.
+     */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Highest power of 2 of the recorded microseconds, the larger values are counted
+     * in the last bucket (about 19 hours).
+     */
+    static final int MAX_EXPONENT = 35;
+    /**
+     * Number of the buckets.
+     */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    /**
+     * Counts of the values in the buckets.
+     */
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    /**
+     * Number of the values.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Sum of the values in microseconds.
+     */
+    private final LongAdder sumMicros = new LongAdder();
+    /**
+     * Maximum value in microseconds.
+     */
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Initializes empty LMLogsLatencyHistogram instance.
+     */
+    public LMLogsLatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the latency.
+     * @param latencyNanos latency in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long latencyNanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        counts[bucket(micros)].increment();
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * Adds the values recorded by another histogram.
+     * @param other histogram whose values are added.
+     * @throws NullPointerException if the histogram is null.
+     */
+    public void add(LMLogsLatencyHistogram other) {
+        Objects.requireNonNull(other, "Histogram must not be null");
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i].add(other.counts[i].sum());
+        }
+        count.add(other.count.sum());
+        sumMicros.add(other.sumMicros.sum());
+        maxMicros.accumulate(other.maxMicros.get());
+    }
+
+    /**
+     * Gets the number of the recorded latencies.
+     * @return number of the values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the mean of the recorded latencies.
+     * @return mean in milliseconds, 0 if no value has been recorded.
+     */
+    public double getMeanMillis() {
+        long count = this.count.sum();
+        return count > 0 ? sumMicros.sum() / 1000.0 / count : 0;
+    }
+
+    /**
+     * Gets the maximum of the recorded latencies.
+     * @return maximum in milliseconds.
+     */
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * Gets the latency not exceeded by the given fraction of the recorded values.
+     * @param percentile fraction of the values from 0 to 1, e.g. 0.99.
+     * @return upper bound of the bucket containing the percentile in milliseconds,
+     *         0 if no value has been recorded.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 1.
+     */
+    public double getPercentileMillis(double percentile) {
+        if (!(percentile >= 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                // the last bucket also counts the values above its range
+                long bound = i < BUCKETS - 1 ? upperBound(i) : Long.MAX_VALUE;
+                return Math.min(bound, maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Gets the bucket of the value.
+     * @param micros value in microseconds.
+     * @return index of the bucket.
+     */
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest value of the bucket.
+     * @param bucket index of the bucket.
+     * @return value in microseconds.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsLatencyHistogram [count=" + getCount() + ", meanMillis=" + getMeanMillis()
+                + ", maxMillis=" + getMaxMillis() + "]";
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.StringLayout;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderFactory;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+/**
+ * Log4j 2 appender sending the events to LogicMonitor.
+ * <p>
+ * The events are queued in a bounded ring buffer and sent in batches by a background thread,
+ * so the logging threads never wait for the network:
+ * <pre>
+ * &lt;LMLogs name="LM" company="company" accessId="accessId" accessKey="accessKey"
+ *         resourceId="system.hostname=host" mdcResourceId="device=system.deviceId"/&gt;
+ * </pre>
+ */
+@Plugin(name = "LMLogs", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE)
+public class LMLogsLog4j2Appender extends AbstractAppender {
+
+    /**
+     * Configuration and pipeline of the appender.
+     */
+    private final LMLogsAppenderSupport support;
+
+    /**
+     * Creates the appender.
+     * @param name appender name.
+     * @param filter filter of the events, or null.
+     * @param layout layout formatting the messages, or null for the formatted messages.
+     *        The builder defaults to the pattern {@code %level %logger - %msg%n%ex}.
+     * @param ignoreExceptions if false, exceptions are propagated to the logger.
+     * @param properties appender properties.
+     * @param support configuration and pipeline of the appender.
+     */
+    protected LMLogsLog4j2Appender(String name, Filter filter,
+            Layout<? extends Serializable> layout, boolean ignoreExceptions,
+            Property[] properties, LMLogsAppenderSupport support) {
+        super(name, filter, layout, ignoreExceptions, properties);
+        this.support = support;
+    }
+
+    @Override
+    public void start() {
+        support.start();
+        super.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        boolean stopped = super.stop(timeout, timeUnit, false);
+        support.stop();
+        setStopped();
+        return stopped;
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        Layout<? extends Serializable> layout = getLayout();
+        String message = layout instanceof StringLayout
+                ? ((StringLayout) layout).toSerializable(event)
+                : event.getMessage().getFormattedMessage();
+        support.append(event.getThreadName(), message, event.getTimeMillis(), key -> {
+            Object value = event.getContextData().getValue(key);
+            return value != null ? value.toString() : null;
+        });
+    }
+
+    /**
+     * Gets the number of the events dropped because the buffer was full.
+     * @return number of dropped events.
+     */
+    public long getDroppedCount() {
+        return support.getDroppedCount();
+    }
+
+    /**
+     * Creates a builder of the appender, used by the configuration.
+     * @param <B> type of the builder.
+     * @return new builder.
+     */
+    @PluginBuilderFactory
+    public static <B extends Builder<B>> B newBuilder() {
+        return new Builder<B>().asBuilder();
+    }
+
+    /**
+     * Builder of the appender.
+     * @param <B> type of the builder.
+     */
+    public static class Builder<B extends Builder<B>> extends AbstractAppender.Builder<B>
+            implements org.apache.logging.log4j.core.util.Builder<LMLogsLog4j2Appender> {
+
+        /**
+         * LogicMonitor account name.
+         */
+        @PluginBuilderAttribute
+        @Required(message = "No company provided for the LMLogs appender")
+        private String company;
+        /**
+         * LogicMonitor access ID.
+         */
+        @PluginBuilderAttribute
+        @Required(message = "No access ID provided for the LMLogs appender")
+        private String accessId;
+        /**
+         * LogicMonitor access key.
+         */
+        @PluginBuilderAttribute(sensitive = true)
+        @Required(message = "No access key provided for the LMLogs appender")
+        private String accessKey;
+        /**
+         * User agent header.
+         */
+        @PluginBuilderAttribute
+        private String userAgent;
+        /**
+         * Resource ID properties of all the events.
+         */
+        @PluginBuilderAttribute
+        private String resourceId;
+        /**
+         * Resource ID properties taken from the context data of the events.
+         */
+        @PluginBuilderAttribute
+        private String mdcResourceId;
+        /**
+         * Capacity of the buffer.
+         */
+        @PluginBuilderAttribute
+        private int capacity = LMLogsRingBuffer.DEFAULT_CAPACITY;
+        /**
+         * Maximum number of events in a batch.
+         */
+        @PluginBuilderAttribute
+        private int batchSize = LMLogsRingBuffer.DEFAULT_BATCH_SIZE;
+        /**
+         * Linger time in milliseconds.
+         */
+        @PluginBuilderAttribute
+        private long lingerMillis = LMLogsRingBuffer.DEFAULT_LINGER_MILLIS;
+        /**
+         * Policy applied when the buffer is full.
+         */
+        @PluginBuilderAttribute
+        private String overflowPolicy = LMLogsRingBuffer.OverflowPolicy.DROP.name();
+        /**
+         * Strategy of the sending thread waiting for the events.
+         */
+        @PluginBuilderAttribute
+        private String waitStrategy = LMLogsWaitStrategy.BLOCKING.name();
+        /**
+         * API used to send the events instead of creating it on start.
+         */
+        private LMLogsApi api;
+
+        /**
+         * Sets the LogicMonitor account name.
+         * @param company company name.
+         * @return this builder.
+         */
+        public B withCompany(String company) {
+            this.company = company;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the LogicMonitor access ID.
+         * @param accessId access ID.
+         * @return this builder.
+         */
+        public B withAccessId(String accessId) {
+            this.accessId = accessId;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the LogicMonitor access key.
+         * @param accessKey access key.
+         * @return this builder.
+         */
+        public B withAccessKey(String accessKey) {
+            this.accessKey = accessKey;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the user agent header.
+         * @param userAgent user agent.
+         * @return this builder.
+         */
+        public B withUserAgent(String userAgent) {
+            this.userAgent = userAgent;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the resource ID properties of all the events.
+         * @param resourceId properties of the form {@code key1=value1,key2=value2}.
+         * @return this builder.
+         */
+        public B withResourceId(String resourceId) {
+            this.resourceId = resourceId;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the resource ID properties taken from the context data of the events.
+         * @param mdcResourceId properties of the form {@code mdcKey1=key1,mdcKey2=key2}.
+         * @return this builder.
+         */
+        public B withMdcResourceId(String mdcResourceId) {
+            this.mdcResourceId = mdcResourceId;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the capacity of the buffer.
+         * @param capacity power of two.
+         * @return this builder.
+         */
+        public B withCapacity(int capacity) {
+            this.capacity = capacity;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the maximum number of events in a batch.
+         * @param batchSize batch size.
+         * @return this builder.
+         */
+        public B withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the time to wait for more events before sending an incomplete batch.
+         * @param lingerMillis linger time in milliseconds.
+         * @return this builder.
+         */
+        public B withLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the policy applied when the buffer is full, {@code DROP} (default) or
+         * {@code BLOCK}.
+         * @param overflowPolicy name of the policy.
+         * @return this builder.
+         */
+        public B withOverflowPolicy(String overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the strategy of the sending thread waiting for the events.
+         * @param waitStrategy name of the strategy.
+         * @return this builder.
+         */
+        public B withWaitStrategy(String waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return asBuilder();
+        }
+
+        /**
+         * Sets the API used to send the events instead of creating it on start.
+         * @param api API instance.
+         * @return this builder.
+         */
+        B withApi(LMLogsApi api) {
+            this.api = api;
+            return asBuilder();
+        }
+
+        /**
+         * Builds the appender.
+         * @return new appender, not started yet.
+         * @throws IllegalArgumentException if the configuration is invalid.
+         */
+        @Override
+        public LMLogsLog4j2Appender build() {
+            LMLogsAppenderSupport support = new LMLogsAppenderSupport();
+            support.setCompany(company);
+            support.setAccessId(accessId);
+            support.setAccessKey(accessKey);
+            support.setUserAgent(userAgent);
+            support.setResourceId(resourceId);
+            support.setMdcResourceId(mdcResourceId);
+            support.setCapacity(capacity);
+            support.setBatchSize(batchSize);
+            support.setLingerMillis(lingerMillis);
+            support.setOverflowPolicy(overflowPolicy);
+            support.setWaitStrategy(waitStrategy);
+            support.setApi(api);
+            Layout<? extends Serializable> layout = getLayout();
+            if (layout == null) {
+                layout = PatternLayout.newBuilder()
+                    .withPattern(LMLogsAppenderSupport.DEFAULT_PATTERN)
+                    .withConfiguration(getConfiguration())
+                    .build();
+            }
+            return new LMLogsLog4j2Appender(getName(), getFilter(), layout,
+                    isIgnoreExceptions(), getPropertyArray(), support);
+        }
+
+    }
+
+}
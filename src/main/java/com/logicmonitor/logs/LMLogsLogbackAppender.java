@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Logback appender sending the events to LogicMonitor.
+ * <p>
+ * The events are queued in a bounded ring buffer and sent in batches by a background thread,
+ * so the logging threads never wait for the network:
+ * <pre>
+ * &lt;appender name="LM" class="com.logicmonitor.logs.LMLogsLogbackAppender"&gt;
+ *     &lt;company&gt;company&lt;/company&gt;
+ *     &lt;accessId&gt;accessId&lt;/accessId&gt;
+ *     &lt;accessKey&gt;accessKey&lt;/accessKey&gt;
+ *     &lt;resourceId&gt;system.hostname=host&lt;/resourceId&gt;
+ *     &lt;mdcResourceId&gt;device=system.deviceId&lt;/mdcResourceId&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class LMLogsLogbackAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    /**
+     * Configuration and pipeline of the appender.
+     */
+    private final LMLogsAppenderSupport support = new LMLogsAppenderSupport();
+    /**
+     * Layout formatting the messages, or null for the default pattern
+     * {@code %level %logger - %msg%n%ex}.
+     */
+    private Layout<ILoggingEvent> layout;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (layout == null) {
+            PatternLayout defaultLayout = new PatternLayout();
+            defaultLayout.setContext(getContext());
+            defaultLayout.setPattern(LMLogsAppenderSupport.DEFAULT_PATTERN);
+            defaultLayout.start();
+            layout = defaultLayout;
+        }
+        try {
+            support.start();
+        } catch (RuntimeException e) {
+            addError("Failed to start the LogicMonitor appender " + getName(), e);
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        support.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        String message = layout.doLayout(event);
+        support.append(event.getThreadName(), message, event.getTimeStamp(),
+                event.getMDCPropertyMap()::get);
+    }
+
+    /**
+     * Gets the number of the events dropped because the buffer was full.
+     * @return number of dropped events.
+     */
+    public long getDroppedCount() {
+        return support.getDroppedCount();
+    }
+
+    /**
+     * Sets the LogicMonitor account name.
+     * @param company company name.
+     */
+    public void setCompany(String company) {
+        support.setCompany(company);
+    }
+
+    /**
+     * Sets the LogicMonitor access ID.
+     * @param accessId access ID.
+     */
+    public void setAccessId(String accessId) {
+        support.setAccessId(accessId);
+    }
+
+    /**
+     * Sets the LogicMonitor access key.
+     * @param accessKey access key.
+     */
+    public void setAccessKey(String accessKey) {
+        support.setAccessKey(accessKey);
+    }
+
+    /**
+     * Sets the user agent header.
+     * @param userAgent user agent.
+     */
+    public void setUserAgent(String userAgent) {
+        support.setUserAgent(userAgent);
+    }
+
+    /**
+     * Sets the resource ID properties of all the events.
+     * @param resourceId properties of the form {@code key1=value1,key2=value2}.
+     */
+    public void setResourceId(String resourceId) {
+        support.setResourceId(resourceId);
+    }
+
+    /**
+     * Sets the resource ID properties taken from the MDC of the events.
+     * @param mdcResourceId properties of the form {@code mdcKey1=key1,mdcKey2=key2}.
+     */
+    public void setMdcResourceId(String mdcResourceId) {
+        support.setMdcResourceId(mdcResourceId);
+    }
+
+    /**
+     * Sets the capacity of the buffer.
+     * @param capacity power of two.
+     */
+    public void setCapacity(int capacity) {
+        support.setCapacity(capacity);
+    }
+
+    /**
+     * Sets the maximum number of events in a batch.
+     * @param batchSize batch size.
+     */
+    public void setBatchSize(int batchSize) {
+        support.setBatchSize(batchSize);
+    }
+
+    /**
+     * Sets the time to wait for more events before sending an incomplete batch.
+     * @param lingerMillis linger time in milliseconds.
+     */
+    public void setLingerMillis(long lingerMillis) {
+        support.setLingerMillis(lingerMillis);
+    }
+
+    /**
+     * Sets the policy applied when the buffer is full, {@code DROP} (default) or {@code BLOCK}.
+     * @param overflowPolicy name of the policy.
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        support.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * Sets the strategy of the sending thread waiting for the events.
+     * @param waitStrategy name of the strategy.
+     */
+    public void setWaitStrategy(String waitStrategy) {
+        support.setWaitStrategy(waitStrategy);
+    }
+
+    /**
+     * Sets the layout formatting the messages.
+     * @param layout layout, or null for the default pattern {@code %level %logger - %msg%n%ex}.
+     */
+    public void setLayout(Layout<ILoggingEvent> layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Sets the API used to send the events instead of creating it on start.
+     * @param api API instance.
+     */
+    void setApi(LMLogsApi api) {
+        support.setApi(api);
+    }
+
+}
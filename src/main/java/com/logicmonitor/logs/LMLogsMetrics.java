@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Instrumentation of the ingestion, notified by the client about the requests and by
+ * the batchers about the queued and dropped entries.
+ * <p>
+ * The methods are called on the sending threads, so the implementations should record
+ * the values with non-blocking primitives. {@link LMLogsClientMetrics} is the default
+ * implementation exposed through JMX and Micrometer.
+ */
+public interface LMLogsMetrics {
+
+    /**
+     * Instrumentation recording nothing.
+     */
+    LMLogsMetrics NONE = new LMLogsMetrics() {
+        @Override
+        public String toString() {
+            return "LMLogsMetrics.NONE";
+        }
+    };
+
+    /**
+     * Called when an attempt of a request completes.
+     * @param statusCode response status, 0 for requests failed without response.
+     * @param payloadBytes size of the uncompressed payload.
+     * @param latencyNanos time from sending the request to receiving the response or failure.
+     */
+    default void onRequest(int statusCode, int payloadBytes, long latencyNanos) {
+    }
+
+    /**
+     * Called when a failed attempt is going to be retried.
+     * @param statusCode response status of the failed attempt, 0 for requests failed
+     *        without response.
+     */
+    default void onRetry(int statusCode) {
+    }
+
+    /**
+     * Called when the entries of a request have been accepted.
+     * @param entries number of the entries.
+     */
+    default void onEntriesSent(int entries) {
+    }
+
+    /**
+     * Called when the entries of a request have been rejected or couldn't be sent,
+     * after the last attempt.
+     * @param entries number of the entries.
+     */
+    default void onEntriesFailed(int entries) {
+    }
+
+    /**
+     * Called when the entries have been dropped before sending, e.g. because a queue is full.
+     * @param entries number of the entries.
+     */
+    default void onEntriesDropped(int entries) {
+    }
+
+    /**
+     * Registers a queue of the entries waiting to be sent.
+     * @param size supplier of the number of the queued entries.
+     */
+    default void registerQueue(IntSupplier size) {
+    }
+
+    /**
+     * Unregisters a queue registered by {@link #registerQueue(IntSupplier)}.
+     * @param size supplier of the number of the queued entries.
+     */
+    default void unregisterQueue(IntSupplier size) {
+    }
+
+}
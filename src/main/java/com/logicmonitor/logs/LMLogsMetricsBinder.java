@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.ToDoubleFunction;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Binds {@link LMLogsClientMetrics} to a Micrometer registry. The meters read the counters
+ * of the metrics, so nothing is recorded twice. The request latencies are the exception:
+ * they are recorded into a Micrometer {@link Timer}, whose percentiles and maximum decay with
+ * the distribution expiry of the registry, rather than exported from the histograms of the
+ * metrics.
+ * <p>
+ * Binding to a registry the binder is already bound to does nothing, so each request is recorded
+ * once per registry; {@link #unbindFrom(MeterRegistry)} removes the meters and stops recording.
+ * <p>
+ * Micrometer is an optional dependency of the SDK; this class can be used only when
+ * micrometer-core is on the classpath.
+ */
+public class LMLogsMetricsBinder implements MeterBinder {
+
+    /**
+     * Prefix of the meter names.
+     */
+    public static final String PREFIX = "lm.logs.";
+    /**
+     * Percentiles of the request latency published by the timer.
+     */
+    static final double[] LATENCY_PERCENTILES = {0.5, 0.99};
+
+    /**
+     * Metrics read by the meters.
+     */
+    protected final LMLogsClientMetrics metrics;
+    /**
+     * Tags added to all the meters.
+     */
+    protected final Iterable<Tag> tags;
+    /**
+     * Meters and latency recorders by the registries the metrics are bound to.
+     */
+    private final Map<MeterRegistry, Binding> bindings = new IdentityHashMap<>();
+
+    /**
+     * Initializes LMLogsMetricsBinder instance.
+     * @param metrics metrics read by the meters.
+     * @param tags tags added to all the meters.
+     * @throws NullPointerException if any of the parameters is null.
+     */
+    public LMLogsMetricsBinder(LMLogsClientMetrics metrics, Iterable<Tag> tags) {
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+        this.tags = Objects.requireNonNull(tags, "Tags must not be null");
+    }
+
+    /**
+     * Initializes LMLogsMetricsBinder instance without tags.
+     * @param metrics metrics read by the meters.
+     * @throws NullPointerException if the metrics is null.
+     */
+    public LMLogsMetricsBinder(LMLogsClientMetrics metrics) {
+        this(metrics, Tags.empty());
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        if (bindings.containsKey(registry)) {
+            return;
+        }
+        List<Meter> meters = new ArrayList<>();
+        meters.add(bindRequests(registry, "202", LMLogsClientMetrics::getAcceptedRequests));
+        meters.add(bindRequests(registry, "207", LMLogsClientMetrics::getPartialRequests));
+        meters.add(bindRequests(registry, "4xx", LMLogsClientMetrics::getClientErrorRequests));
+        meters.add(bindRequests(registry, "429", LMLogsClientMetrics::getThrottledRequests));
+        meters.add(bindRequests(registry, "5xx", LMLogsClientMetrics::getServerErrorRequests));
+        meters.add(bindRequests(registry, "none", LMLogsClientMetrics::getNoResponseRequests));
+        meters.add(bindCounter(registry, "retries", "Retried attempts", null,
+                LMLogsClientMetrics::getRetries));
+        meters.add(bindCounter(registry, "payload", "Uncompressed payload sent", "bytes",
+                LMLogsClientMetrics::getPayloadBytes));
+        meters.add(bindCounter(registry, "entries.sent", "Accepted entries", "entries",
+                LMLogsClientMetrics::getEntriesSent));
+        meters.add(bindCounter(registry, "entries.failed", "Entries failed after the last attempt",
+                "entries", LMLogsClientMetrics::getEntriesFailed));
+        meters.add(bindCounter(registry, "entries.dropped", "Entries dropped before sending",
+                "entries", LMLogsClientMetrics::getEntriesDropped));
+        Gauge depth = Gauge.builder(PREFIX + "queue.depth", metrics,
+                LMLogsClientMetrics::getQueueDepth)
+            .description("Entries waiting to be sent")
+            .baseUnit("entries")
+            .tags(tags)
+            .register(registry);
+        meters.add(depth);
+        Timer latency = Timer.builder(PREFIX + "request.latency")
+            .description("Latency of the request attempts")
+            .tags(tags)
+            .publishPercentiles(LATENCY_PERCENTILES)
+            .register(registry);
+        meters.add(latency);
+        LongConsumer recorder = nanos -> latency.record(nanos, TimeUnit.NANOSECONDS);
+        metrics.addLatencyRecorder(recorder);
+        bindings.put(registry, new Binding(meters, recorder));
+    }
+
+    /**
+     * Removes the meters from a registry and stops recording the latencies into its timer.
+     * Does nothing if the metrics are not bound to the registry.
+     * @param registry meter registry.
+     */
+    public synchronized void unbindFrom(MeterRegistry registry) {
+        Binding binding = bindings.remove(registry);
+        if (binding == null) {
+            return;
+        }
+        metrics.removeLatencyRecorder(binding.recorder);
+        for (Meter meter : binding.meters) {
+            registry.remove(meter);
+        }
+    }
+
+    /**
+     * Binds the number of the requests with the status.
+     * @param registry meter registry.
+     * @param status value of the status tag.
+     * @param count function reading the number of the requests.
+     * @return registered meter.
+     */
+    private Meter bindRequests(MeterRegistry registry, String status,
+            ToDoubleFunction<LMLogsClientMetrics> count) {
+        return FunctionCounter.builder(PREFIX + "requests", metrics, count)
+            .description("Request attempts by response status")
+            .tags(tags)
+            .tag("status", status)
+            .register(registry);
+    }
+
+    /**
+     * Binds a counter.
+     * @param registry meter registry.
+     * @param name name of the meter without prefix.
+     * @param description description of the meter.
+     * @param baseUnit base unit of the meter or null.
+     * @param count function reading the counter.
+     * @return registered meter.
+     */
+    private Meter bindCounter(MeterRegistry registry, String name, String description,
+            String baseUnit, ToDoubleFunction<LMLogsClientMetrics> count) {
+        return FunctionCounter.builder(PREFIX + name, metrics, count)
+            .description(description)
+            .baseUnit(baseUnit)
+            .tags(tags)
+            .register(registry);
+    }
+
+    /**
+     * Meters registered to a registry and the recorder of their timer.
+     */
+    private static final class Binding {
+
+        /**
+         * Registered meters.
+         */
+        final List<Meter> meters;
+        /**
+         * Recorder of the latencies into the timer.
+         */
+        final LongConsumer recorder;
+
+        /**
+         * Initializes Binding instance.
+         * @param meters registered meters.
+         * @param recorder recorder of the latencies into the timer.
+         */
+        Binding(List<Meter> meters, LongConsumer recorder) {
+            this.meters = meters;
+            this.recorder = recorder;
+        }
+    }
+
+}
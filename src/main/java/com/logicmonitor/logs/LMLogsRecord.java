@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Mutable log record for high-volume producers, sent by
+ * {@link LMLogsApi#logIngestPostRecords(java.util.List)} without creating {@link LogEntry}
+ * objects.
+ * <p>
+ * The timestamp is a primitive and the resource ID map is shared rather than copied, so
+ * the records can be allocated once and refilled with {@link #set(String, long, Map)} for
+ * every line. The map must not be modified while a record referencing it is being sent.
+ * Records are not thread-safe.
+ */
+public final class LMLogsRecord {
+
+    /**
+     * Value of the timestamp when the record has no timestamp and the time of ingestion is used.
+     */
+    public static final long NO_TIMESTAMP = -1;
+
+    /**
+     * Log message.
+     */
+    private String message;
+    /**
+     * Timestamp in milliseconds since the epoch, or {@link #NO_TIMESTAMP}.
+     */
+    private long timestamp = NO_TIMESTAMP;
+    /**
+     * Shared resource ID map.
+     */
+    private Map<String, String> resourceId = Collections.emptyMap();
+
+    /**
+     * Initializes empty LMLogsRecord instance.
+     */
+    public LMLogsRecord() {
+    }
+
+    /**
+     * Initializes LMLogsRecord instance.
+     * @param message log message.
+     * @param timestamp timestamp in milliseconds since the epoch, or {@link #NO_TIMESTAMP}.
+     * @param resourceId resource ID map, shared by the record.
+     * @throws NullPointerException if the resource ID is null.
+     */
+    public LMLogsRecord(String message, long timestamp, Map<String, String> resourceId) {
+        set(message, timestamp, resourceId);
+    }
+
+    /**
+     * Replaces all the values of the record.
+     * @param message log message.
+     * @param timestamp timestamp in milliseconds since the epoch, or {@link #NO_TIMESTAMP}.
+     * @param resourceId resource ID map, shared by the record.
+     * @return itself.
+     * @throws NullPointerException if the resource ID is null.
+     */
+    public LMLogsRecord set(String message, long timestamp, Map<String, String> resourceId) {
+        this.message = message;
+        this.timestamp = timestamp;
+        this.resourceId = Objects.requireNonNull(resourceId, "Resource ID must not be null");
+        return this;
+    }
+
+    /**
+     * Clears the record, so it doesn't hold the message and the map.
+     * @return itself.
+     */
+    public LMLogsRecord clear() {
+        message = null;
+        timestamp = NO_TIMESTAMP;
+        resourceId = Collections.emptyMap();
+        return this;
+    }
+
+    /**
+     * Sets the log message.
+     * @param message log message.
+     * @return itself.
+     */
+    public LMLogsRecord message(String message) {
+        this.message = message;
+        return this;
+    }
+
+    /**
+     * Gets the log message.
+     * @return log message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Sets the timestamp.
+     * @param timestamp timestamp in milliseconds since the epoch, or {@link #NO_TIMESTAMP}.
+     * @return itself.
+     */
+    public LMLogsRecord timestamp(long timestamp) {
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    /**
+     * Gets the timestamp.
+     * @return timestamp in milliseconds since the epoch, or {@link #NO_TIMESTAMP}.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Checks if the record has a timestamp.
+     * @return true if the timestamp is set.
+     */
+    public boolean hasTimestamp() {
+        return timestamp != NO_TIMESTAMP;
+    }
+
+    /**
+     * Sets the resource ID map, shared by the record.
+     * @param resourceId resource ID map.
+     * @return itself.
+     * @throws NullPointerException if the resource ID is null.
+     */
+    public LMLogsRecord resourceId(Map<String, String> resourceId) {
+        this.resourceId = Objects.requireNonNull(resourceId, "Resource ID must not be null");
+        return this;
+    }
+
+    /**
+     * Gets the resource ID map shared by the record.
+     * @return resource ID map.
+     */
+    public Map<String, String> getResourceId() {
+        return resourceId;
+    }
+
+    /**
+     * Converts the record to a log entry with a copy of the resource ID map.
+     * @return new log entry.
+     */
+    public LogEntry toLogEntry() {
+        LogEntry entry = new LogEntry().message(message);
+        if (hasTimestamp()) {
+            entry.timestamp(timestamp);
+        }
+        resourceId.forEach(entry::putLmResourceIdItem);
+        return entry;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LMLogsRecord record = (LMLogsRecord) o;
+        return timestamp == record.timestamp && Objects.equals(message, record.message)
+                && resourceId.equals(record.resourceId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(message, timestamp, resourceId);
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsRecord [message=" + message + ", timestamp=" + timestamp
+                + ", resourceId=" + resourceId + "]";
+    }
+
+}
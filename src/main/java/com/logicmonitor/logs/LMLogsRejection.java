@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import com.logicmonitor.logs.invoker.ApiResponse;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogError;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Log entry rejected by the server in a partially accepted request (status 207).
+ * <p>
+ * The errors of the response echo the rejected events, which are correlated back to the
+ * submitted entries by hashing, in time linear in the number of the entries and errors.
+ * An event is matched to an entry with the same message, timestamp and resource ID, or if there
+ * is none, to an entry with the same message. Identical entries are matched in their order.
+ */
+public final class LMLogsRejection {
+
+    /**
+     * Index of the rejected entry in the submitted list, or -1 if it is not found.
+     */
+    private final int index;
+    /**
+     * Submitted log entry, or null if it is not found.
+     */
+    private final LogEntry entry;
+    /**
+     * Error returned by the server.
+     */
+    private final LogError error;
+
+    /**
+     * Initializes LMLogsRejection instance.
+     * @param index index of the rejected entry, or -1 if it is not found.
+     * @param entry submitted log entry, or null if it is not found.
+     * @param error error returned by the server.
+     */
+    LMLogsRejection(int index, LogEntry entry, LogError error) {
+        this.index = index;
+        this.entry = entry;
+        this.error = error;
+    }
+
+    /**
+     * Gets the index of the rejected entry in the submitted list.
+     * @return index of the entry, or -1 if the event doesn't match any entry.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the submitted log entry.
+     * @return log entry, or null if the event doesn't match any entry.
+     */
+    public LogEntry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Gets the error returned by the server.
+     * @return log error.
+     */
+    public LogError getError() {
+        return error;
+    }
+
+    /**
+     * Gets the reason of the rejection.
+     * @return error message or null.
+     */
+    public String getReason() {
+        return error.getError();
+    }
+
+    /**
+     * Correlates the errors of the response with the submitted entries.
+     * @param entries submitted log entries.
+     * @param response API response.
+     * @return list of the rejections in the order of the errors, empty if there are no errors.
+     * @throws NullPointerException if the entries or the response is null.
+     */
+    public static List<LMLogsRejection> correlate(List<LogEntry> entries,
+            ApiResponse<LogResponse> response) {
+        Objects.requireNonNull(response, "Response must not be null");
+        LogResponse data = response.getData();
+        return correlate(entries, data != null ? data.getErrors() : null);
+    }
+
+    /**
+     * Correlates the errors with the submitted entries.
+     * @param entries submitted log entries.
+     * @param errors errors returned by the server, or null.
+     * @return list of the rejections in the order of the errors, empty if there are no errors.
+     * @throws NullPointerException if the entries are null.
+     */
+    public static List<LMLogsRejection> correlate(List<LogEntry> entries, List<LogError> errors) {
+        Objects.requireNonNull(entries, "Log entries must not be null");
+        if (errors == null || errors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        boolean[] matched = new boolean[entries.size()];
+        Index exact = new Index(entries, true);
+        Index byMessage = null;
+        List<LMLogsRejection> rejections = new ArrayList<>(errors.size());
+        for (LogError error : errors) {
+            LogEntry event = error != null ? error.getEvent() : null;
+            int index = -1;
+            if (event != null) {
+                index = exact.claim(event, matched);
+                if (index < 0) {
+                    // the echoed event may differ from the submitted one, e.g. without timestamp
+                    if (byMessage == null) {
+                        byMessage = new Index(entries, false);
+                    }
+                    index = byMessage.claim(event, matched);
+                }
+            }
+            rejections.add(new LMLogsRejection(index, index >= 0 ? entries.get(index) : null,
+                    error != null ? error : new LogError()));
+        }
+        return rejections;
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsRejection [index=" + index + ", reason=" + getReason() + "]";
+    }
+
+    /**
+     * Hash index of the entries, chaining the indices of the entries with the same key.
+     */
+    private static final class Index {
+
+        /**
+         * Flag set if the key includes the timestamp and resource ID.
+         */
+        private final boolean exact;
+        /**
+         * Position of the next candidate in the chain of each key.
+         */
+        private final Map<List<Object>, int[]> heads;
+        /**
+         * Next index with the same key, -1 at the end of the chain.
+         */
+        private final int[] next;
+
+        /**
+         * Initializes Index instance.
+         * @param entries submitted log entries.
+         * @param exact true to include the timestamp and resource ID in the key.
+         */
+        Index(List<LogEntry> entries, boolean exact) {
+            this.exact = exact;
+            heads = new HashMap<>();
+            next = new int[entries.size()];
+            Arrays.fill(next, -1);
+            Map<List<Object>, int[]> tails = new HashMap<>();
+            int i = 0;
+            for (LogEntry entry : entries) {
+                if (entry != null) {
+                    List<Object> key = key(entry);
+                    int[] tail = tails.get(key);
+                    if (tail == null) {
+                        heads.put(key, new int[] {i});
+                        tails.put(key, new int[] {i});
+                    } else {
+                        next[tail[0]] = i;
+                        tail[0] = i;
+                    }
+                }
+                i++;
+            }
+        }
+
+        /**
+         * Finds the first entry with the key of the event not matched yet and marks it matched.
+         * @param event echoed event.
+         * @param matched flags of the matched entries.
+         * @return index of the entry, or -1 if not found.
+         */
+        int claim(LogEntry event, boolean[] matched) {
+            int[] head = heads.get(key(event));
+            if (head == null) {
+                return -1;
+            }
+            int index = head[0];
+            while (index >= 0 && matched[index]) {
+                index = next[index];
+            }
+            if (index < 0) {
+                head[0] = -1;
+                return -1;
+            }
+            matched[index] = true;
+            head[0] = next[index];
+            return index;
+        }
+
+        /**
+         * Gets the key of the entry.
+         * @param entry log entry.
+         * @return list of the values compared.
+         */
+        private List<Object> key(LogEntry entry) {
+            if (!exact) {
+                return Collections.singletonList(entry.getMessage());
+            }
+            Map<String, String> resourceId = entry.getLmResourceId();
+            return Arrays.asList(entry.getMessage(), entry.getTimestamp(),
+                    resourceId == null || resourceId.isEmpty() ? null : resourceId);
+        }
+    }
+
+}
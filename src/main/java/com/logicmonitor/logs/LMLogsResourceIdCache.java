@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Bounded LRU cache of the resource ID maps serialized to JSON objects.
+ * <p>
+ * The agents usually send a handful of distinct resource IDs, one per host or container, so
+ * the maps equal to a cached one are not serialized again and the cached bytes are spliced
+ * into the payload instead. The cached maps are interned as immutable copies, which stay
+ * valid when the maps of the log entries are modified later. The cache is not thread-safe.
+ */
+class LMLogsResourceIdCache {
+
+    /**
+     * Default maximum number of the cached maps.
+     */
+    static final int DEFAULT_MAX_ENTRIES = 1024;
+    /**
+     * Maximum size of a cached JSON object, the larger ones are returned without caching (1 KB).
+     */
+    static final int MAX_FRAGMENT_BYTES = 1024;
+
+    /**
+     * Factory of the generators writing the JSON objects.
+     */
+    private final JsonFactory factory;
+    /**
+     * Buffer of the JSON objects being serialized.
+     */
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(MAX_FRAGMENT_BYTES);
+    /**
+     * Cached JSON objects by the interned maps, in the order of access.
+     */
+    private final Map<Map<String, String>, SerializableString> fragments;
+
+    /**
+     * Initializes LMLogsResourceIdCache instance.
+     * @param factory factory of the generators writing the payload.
+     * @param maxEntries maximum number of the cached maps.
+     * @throws IllegalArgumentException if the maximum number is not positive.
+     */
+    LMLogsResourceIdCache(JsonFactory factory, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.factory = factory;
+        fragments = new LinkedHashMap<Map<String, String>, SerializableString>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Map<String, String>, SerializableString> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the JSON object of the map, serializing and caching it if it's not cached yet.
+     * The maps too large to be cached are serialized on every call, but only once per call.
+     * @param resourceId resource ID map.
+     * @return serialized JSON object.
+     * @throws IOException if the map can't be serialized.
+     */
+    SerializableString get(Map<String, String> resourceId) throws IOException {
+        SerializableString fragment = fragments.get(resourceId);
+        if (fragment != null) {
+            return fragment;
+        }
+        buffer.reset();
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            LMLogsEntryWriter.writeResourceIdObject(generator, resourceId);
+        }
+        fragment = new SerializedString(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        if (buffer.size() > MAX_FRAGMENT_BYTES) {
+            return fragment;
+        }
+        fragments.put(Collections.unmodifiableMap(new LinkedHashMap<>(resourceId)), fragment);
+        return fragment;
+    }
+
+    /**
+     * Gets the number of the cached maps.
+     * @return number of the maps.
+     */
+    int size() {
+        return fragments.size();
+    }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy retrying the ingestion requests which failed with a transient error.
+ * <p>
+ * The delay before a retry is drawn uniformly from zero to the exponential backoff
+ * ('full jitter'), so the clients failed at the same time don't retry at the same time.
+ * If the response contains Retry-After header, the jittered backoff is added to the delay
+ * requested by the server. The same payload is sent again and signed with a fresh timestamp.
+ */
+public class LMLogsRetryPolicy {
+
+    /**
+     * Name of the response header containing the delay requested by the server.
+     */
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    /**
+     * Status code of the requests failed without response.
+     */
+    public static final int NO_RESPONSE = 0;
+    /**
+     * Default maximum number of the attempts including the first one.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    /**
+     * Default backoff of the first retry (100 milliseconds).
+     */
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+    /**
+     * Default maximum delay of a retry (30 seconds).
+     */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Default statuses of the retried responses.
+     */
+    public static final Set<Integer> DEFAULT_RETRYABLE_STATUSES = Collections.unmodifiableSet(
+            new TreeSet<>(Arrays.asList(NO_RESPONSE, 429, 500, 502, 503, 504)));
+
+    /**
+     * Policy sending each request once.
+     */
+    public static final LMLogsRetryPolicy NONE = new LMLogsRetryPolicy(1, 0, 0, Collections.emptySet());
+
+    /**
+     * Maximum number of the attempts including the first one.
+     */
+    protected final int maxAttempts;
+    /**
+     * Backoff of the first retry.
+     */
+    protected final long baseDelayMillis;
+    /**
+     * Maximum delay of a retry.
+     */
+    protected final long maxDelayMillis;
+    /**
+     * Statuses of the retried responses.
+     */
+    protected final Set<Integer> retryableStatuses;
+
+    /**
+     * Initializes LMLogsRetryPolicy instance.
+     * @param maxAttempts maximum number of the attempts including the first one.
+     * @param baseDelayMillis backoff of the first retry, doubled by each next retry.
+     * @param maxDelayMillis maximum delay of a retry.
+     * @param retryableStatuses statuses of the retried responses, 0 for requests failed
+     *        without response.
+     */
+    protected LMLogsRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+            Set<Integer> retryableStatuses) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryableStatuses = Collections.unmodifiableSet(new TreeSet<>(retryableStatuses));
+    }
+
+    /**
+     * Gets the maximum number of the attempts including the first one.
+     * @return maximum number of the attempts.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the backoff of the first retry.
+     * @return delay in milliseconds.
+     */
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    /**
+     * Gets the maximum delay of a retry.
+     * @return delay in milliseconds.
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Gets the statuses of the retried responses.
+     * @return status codes, 0 for requests failed without response.
+     */
+    public Set<Integer> getRetryableStatuses() {
+        return retryableStatuses;
+    }
+
+    /**
+     * Checks if the request failed with the status should be retried.
+     * @param statusCode response status, 0 for requests failed without response.
+     * @return true if the status is retryable.
+     */
+    public boolean isRetryable(int statusCode) {
+        return retryableStatuses.contains(statusCode);
+    }
+
+    /**
+     * Computes the delay before the next attempt of a failed request.
+     * @param attempt number of the failed attempt, starting from 1.
+     * @param statusCode response status, 0 for requests failed without response.
+     * @param headers response headers or null.
+     * @return delay in milliseconds, or -1 if the request should not be retried.
+     */
+    public long getDelayMillis(int attempt, int statusCode, Map<String, List<String>> headers) {
+        if (attempt >= maxAttempts || !isRetryable(statusCode)) {
+            return -1;
+        }
+        int shift = Math.min(attempt - 1, Long.SIZE - 2);
+        long backoff = baseDelayMillis > maxDelayMillis >> shift
+                ? maxDelayMillis : baseDelayMillis << shift;
+        long delay = backoff > 0 ? ThreadLocalRandom.current().nextLong(backoff) : 0;
+        long retryAfter = getRetryAfterMillis(headers);
+        if (retryAfter > maxDelayMillis) {
+            // the server asks to wait longer than the caller accepts
+            return -1;
+        }
+        return Math.max(retryAfter, 0) > maxDelayMillis - delay
+                ? maxDelayMillis : Math.max(retryAfter, 0) + delay;
+    }
+
+    /**
+     * Gets the delay requested by Retry-After header in seconds or HTTP-date format.
+     * @param headers response headers or null.
+     * @return delay in milliseconds, or -1 if the header is missing or invalid.
+     */
+    static long getRetryAfterMillis(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return -1;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!RETRY_AFTER_HEADER.equalsIgnoreCase(header.getKey())
+                    || header.getValue() == null || header.getValue().isEmpty()) {
+                continue;
+            }
+            String value = header.getValue().get(0).trim();
+            try {
+                return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+            } catch (NumberFormatException e) {
+                // not in seconds
+            }
+            try {
+                Instant date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant();
+                return Math.max(0, date.toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "LMLogsRetryPolicy [maxAttempts=" + maxAttempts + ", baseDelayMillis=" + baseDelayMillis
+                + ", maxDelayMillis=" + maxDelayMillis + ", retryableStatuses=" + retryableStatuses + "]";
+    }
+
+    /**
+     * A builder for creating retry policies.
+     */
+    public static class Builder {
+
+        /**
+         * Maximum number of the attempts including the first one.
+         */
+        private Integer maxAttempts;
+        /**
+         * Backoff of the first retry.
+         */
+        private Long baseDelayMillis;
+        /**
+         * Maximum delay of a retry.
+         */
+        private Long maxDelayMillis;
+        /**
+         * Statuses of the retried responses.
+         */
+        private Set<Integer> retryableStatuses;
+
+        /**
+         * Configures maximum number of the attempts including the first one.
+         * @param maxAttempts
+         * @return this builder object
+         */
+        public Builder withMaxAttempts(Integer maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Configures backoff of the first retry, doubled by each next retry.
+         * @param baseDelayMillis
+         * @return this builder object
+         */
+        public Builder withBaseDelayMillis(Long baseDelayMillis) {
+            this.baseDelayMillis = baseDelayMillis;
+            return this;
+        }
+
+        /**
+         * Configures maximum delay of a retry. A request is not retried if the server
+         * asks to wait longer.
+         * @param maxDelayMillis
+         * @return this builder object
+         */
+        public Builder withMaxDelayMillis(Long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * Configures statuses of the retried responses, 0 for requests failed without response.
+         * @param retryableStatuses
+         * @return this builder object
+         */
+        public Builder withRetryableStatuses(Set<Integer> retryableStatuses) {
+            this.retryableStatuses = retryableStatuses;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsRetryPolicy based on the contents of the builder.
+         * @return new LMLogsRetryPolicy instance
+         * @throws IllegalArgumentException if maxAttempts is not positive, or baseDelayMillis
+         *         or maxDelayMillis is negative.
+         */
+        public LMLogsRetryPolicy build() {
+            int maxAttempts = this.maxAttempts != null ? this.maxAttempts : DEFAULT_MAX_ATTEMPTS;
+            long baseDelayMillis = this.baseDelayMillis != null
+                    ? this.baseDelayMillis : DEFAULT_BASE_DELAY_MILLIS;
+            long maxDelayMillis = this.maxDelayMillis != null
+                    ? this.maxDelayMillis : DEFAULT_MAX_DELAY_MILLIS;
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("Max attempts must be positive");
+            }
+            if (baseDelayMillis < 0) {
+                throw new IllegalArgumentException("Base delay must not be negative");
+            }
+            if (maxDelayMillis < 0) {
+                throw new IllegalArgumentException("Max delay must not be negative");
+            }
+            return new LMLogsRetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis,
+                    retryableStatuses != null ? retryableStatuses : DEFAULT_RETRYABLE_STATUSES);
+        }
+    }
+
+}
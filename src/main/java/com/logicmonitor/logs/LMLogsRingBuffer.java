@@ -0,0 +1,596 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Asynchronous sender handing off log records through a pre-allocated ring buffer.
+ * <p>
+ * The slots of the ring are {@link LMLogsRecord}s allocated once. A producer claims the next
+ * sequence with a single CAS, copies the values into the slot and publishes it, so the
+ * application threads don't take any lock and don't allocate. A single consumer thread
+ * collects the published records into batches up to the batch size, waiting at most the linger
+ * time for the batch to fill, and sends them by {@link LMLogsApi#logIngestPostRecords(List)}.
+ * <p>
+ * The waiting threads follow the {@link LMLogsWaitStrategy}. When the ring is full, the records
+ * are dropped or the producers wait for free slots, depending on the {@link OverflowPolicy}.
+ */
+public class LMLogsRingBuffer implements AutoCloseable {
+
+    /**
+     * Default number of the slots.
+     */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    /**
+     * Default maximum number of records in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * Default linger time (200 milliseconds).
+     */
+    public static final long DEFAULT_LINGER_MILLIS = 200;
+    /**
+     * Default time to wait for the consumer when closing (10 seconds).
+     */
+    public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Time the idle consumer is parked before checking the closed flag.
+     */
+    static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /**
+     * Value of the wake-up sequence when the consumer is not parked.
+     */
+    private static final long NOT_PARKED = Long.MAX_VALUE;
+
+    /**
+     * Counter used to name the consumer threads.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * API used to send the batches.
+     */
+    protected final LMLogsApi api;
+    /**
+     * Maximum number of records in a batch.
+     */
+    protected final int batchSize;
+    /**
+     * Linger time in nanoseconds.
+     */
+    protected final long lingerNanos;
+    /**
+     * Strategy of the waiting threads.
+     */
+    protected final LMLogsWaitStrategy waitStrategy;
+    /**
+     * Policy applied when the ring is full.
+     */
+    protected final OverflowPolicy overflowPolicy;
+    /**
+     * Time to wait for the consumer when closing in milliseconds.
+     */
+    protected final long closeTimeoutMillis;
+    /**
+     * Instrumentation notified about the ring and the dropped records.
+     */
+    protected final LMLogsMetrics metrics;
+    /**
+     * Records of the slots.
+     */
+    private final LMLogsRecord[] slots;
+    /**
+     * Flags of the slots claimed after the ring was closed, skipped by the consumer.
+     * Written before the slot is published.
+     */
+    private final boolean[] cancelled;
+    /**
+     * Round of the sequence last published in each slot.
+     */
+    private final AtomicIntegerArray published;
+    /**
+     * Mask of the slot index in a sequence.
+     */
+    private final int mask;
+    /**
+     * Shift of the round in a sequence.
+     */
+    private final int roundShift;
+    /**
+     * Last claimed sequence.
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * Last sequence sent by the consumer, whose slots can be claimed again.
+     */
+    private final AtomicLong consumed = new AtomicLong(-1);
+    /**
+     * Sequence whose publication unparks the consumer, or {@link #NOT_PARKED}.
+     */
+    private final AtomicLong wakeSequence = new AtomicLong(NOT_PARKED);
+    /**
+     * Records of the batch being sent, used by the consumer only.
+     */
+    private final List<LMLogsRecord> batch;
+    /**
+     * Number of records in the ring registered in the metrics.
+     */
+    private final IntSupplier queueSize;
+    /**
+     * Consumer thread.
+     */
+    private final Thread consumer;
+    /**
+     * Number of records rejected because the ring was full or closed.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Number of records whose requests failed.
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * Closed flag.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Initializes LMLogsRingBuffer instance and starts the consumer.
+     * @param builder builder containing the configuration.
+     */
+    protected LMLogsRingBuffer(Builder builder) {
+        api = builder.api;
+        batchSize = builder.batchSize;
+        lingerNanos = TimeUnit.MILLISECONDS.toNanos(builder.lingerMillis);
+        waitStrategy = builder.waitStrategy;
+        overflowPolicy = builder.overflowPolicy;
+        closeTimeoutMillis = builder.closeTimeoutMillis;
+        metrics = builder.metrics;
+
+        slots = new LMLogsRecord[builder.capacity];
+        cancelled = new boolean[builder.capacity];
+        published = new AtomicIntegerArray(builder.capacity);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new LMLogsRecord();
+            published.set(i, -1);
+        }
+        mask = builder.capacity - 1;
+        roundShift = Integer.numberOfTrailingZeros(builder.capacity);
+        batch = new ArrayList<>(batchSize);
+        queueSize = this::getQueueSize;
+        metrics.registerQueue(queueSize);
+
+        consumer = new Thread(this::consume, "lm-logs-ring-" + INSTANCES.incrementAndGet());
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Offers the record to be sent, copying its values into a slot.
+     * @param message log message.
+     * @param timestamp timestamp in milliseconds since the epoch, or
+     *        {@link LMLogsRecord#NO_TIMESTAMP}.
+     * @param resourceId resource ID map, shared until the record is sent.
+     * @return true if the record was queued, false if the ring is full and the overflow policy
+     *         is {@link OverflowPolicy#DROP}, or the ring is closed, or the waiting thread
+     *         is interrupted.
+     * @throws NullPointerException if the resource ID is null.
+     */
+    public boolean offer(String message, long timestamp, Map<String, String> resourceId) {
+        Objects.requireNonNull(resourceId, "Resource ID must not be null");
+        long sequence = closed ? -1 : claim();
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+            metrics.onEntriesDropped(1);
+            return false;
+        }
+        int index = (int) sequence & mask;
+        // the consumer may have seen the ring closed and empty before the slot was claimed,
+        // so the slot is still published to keep the sequence, but the record is dropped
+        boolean accepted = !closed;
+        if (accepted) {
+            slots[index].set(message, timestamp, resourceId);
+        }
+        cancelled[index] = !accepted;
+        int round = (int) (sequence >>> roundShift);
+        if (waitStrategy == LMLogsWaitStrategy.BLOCKING) {
+            // the full fence orders the publication before reading the wake-up sequence
+            published.set(index, round);
+            if (sequence >= wakeSequence.get()) {
+                LockSupport.unpark(consumer);
+            }
+        } else {
+            published.lazySet(index, round);
+        }
+        if (!accepted) {
+            dropped.incrementAndGet();
+            metrics.onEntriesDropped(1);
+        }
+        return accepted;
+    }
+
+    /**
+     * Offers the record to be sent, copying its values into a slot.
+     * The record can be reused as soon as the method returns.
+     * @param record log record.
+     * @return true if the record was queued, false if it was dropped.
+     * @throws NullPointerException if the record is null.
+     * @see #offer(String, long, Map)
+     */
+    public boolean offer(LMLogsRecord record) {
+        Objects.requireNonNull(record, "Log record must not be null");
+        return offer(record.getMessage(), record.getTimestamp(), record.getResourceId());
+    }
+
+    /**
+     * Stops accepting new records and waits for the consumer to send the published ones.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            if (closeTimeoutMillis > 0) {
+                consumer.join(closeTimeoutMillis);
+            }
+            if (consumer.isAlive()) {
+                consumer.interrupt();
+            }
+        } catch (InterruptedException e) {
+            consumer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        metrics.unregisterQueue(queueSize);
+    }
+
+    /**
+     * Checks if the ring buffer is closed.
+     * @return true if closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the number of the slots.
+     * @return capacity of the ring.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Gets the number of records claimed and not sent yet.
+     * @return number of queued records.
+     */
+    public int getQueueSize() {
+        return (int) Math.max(0, cursor.get() - consumed.get());
+    }
+
+    /**
+     * Gets the number of records rejected because the ring was full or closed.
+     * @return number of dropped records.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of records whose requests failed.
+     * @return number of failed records.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Claims the next sequence, waiting for a free slot if the overflow policy says so.
+     * @return claimed sequence, or -1 if the record should be dropped.
+     */
+    private long claim() {
+        int iteration = 0;
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            if (next - slots.length > consumed.get()) {
+                if (overflowPolicy == OverflowPolicy.DROP || closed
+                        || Thread.currentThread().isInterrupted()) {
+                    return -1;
+                }
+                waitStrategy.idle(iteration, LMLogsWaitStrategy.PRODUCER_PARK_NANOS);
+                iteration = Math.min(iteration + 1, LMLogsWaitStrategy.SPIN_TRIES);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Counts the consecutive published records starting from the sequence.
+     * @param next first sequence not sent yet.
+     * @return number of the records available for the batch.
+     */
+    private int countPublished(long next) {
+        int count = 0;
+        while (count < batchSize) {
+            long sequence = next + count;
+            if (published.get((int) sequence & mask) != (int) (sequence >>> roundShift)) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Consumer loop sending the batches until the ring buffer is closed and all the claimed
+     * records are sent.
+     */
+    private void consume() {
+        long next = 0;
+        long deadline = 0;
+        boolean lingering = false;
+        int iteration = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int count = countPublished(next);
+            long now = System.nanoTime();
+            if (count > 0 && !lingering) {
+                // the first record of the batch starts the linger time
+                lingering = true;
+                deadline = now + lingerNanos;
+            }
+            if (count >= batchSize || (count > 0 && (closed || now - deadline >= 0))) {
+                send(next, count);
+                next += count;
+                lingering = false;
+                iteration = 0;
+                continue;
+            }
+            if (count == 0 && closed && cursor.get() < next) {
+                break;
+            }
+            long parkNanos = lingering ? deadline - now : IDLE_PARK_NANOS;
+            if (waitStrategy == LMLogsWaitStrategy.BLOCKING) {
+                // unparked by the producer of the first record, or of the record filling the batch
+                wakeSequence.set(lingering ? next + batchSize - 1 : next);
+                if (countPublished(next) == count && !closed) {
+                    LockSupport.parkNanos(this, parkNanos);
+                }
+                wakeSequence.set(NOT_PARKED);
+            } else {
+                waitStrategy.idle(iteration, parkNanos);
+                iteration = Math.min(iteration + 1, LMLogsWaitStrategy.SPIN_TRIES);
+            }
+        }
+    }
+
+    /**
+     * Sends the published records and releases their slots.
+     * @param next first sequence of the batch.
+     * @param count number of the records.
+     */
+    private void send(long next, int count) {
+        for (int i = 0; i < count; i++) {
+            int index = (int) (next + i) & mask;
+            if (!cancelled[index]) {
+                batch.add(slots[index]);
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+        for (LMLogsRecord record : batch) {
+            record.clear();
+        }
+        batch.clear();
+        consumed.set(next + count - 1);
+    }
+
+    /**
+     * Sends the records, splitting them in halves if they exceed the maximum payload size.
+     * @param records list of the log records.
+     */
+    protected void send(List<LMLogsRecord> records) {
+        try {
+            api.logIngestPostRecords(records);
+        } catch (LMLogsApiException e) {
+            if (e.getResponse().getStatusCode() == Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode()
+                    && records.size() > 1) {
+                int half = records.size() / 2;
+                send(records.subList(0, half));
+                send(records.subList(half, records.size()));
+            } else {
+                failed.addAndGet(records.size());
+            }
+        } catch (RuntimeException e) {
+            failed.addAndGet(records.size());
+        }
+    }
+
+    /**
+     * Policy applied when a record is offered to a full ring.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Drops the record without waiting.
+         */
+        DROP,
+        /**
+         * Waits for a free slot following the wait strategy.
+         */
+        BLOCK
+    }
+
+    /**
+     * A builder for creating LogicMonitor Logs ring buffers.
+     */
+    public static class Builder {
+
+        /**
+         * API used to send the batches.
+         */
+        private final LMLogsApi api;
+        /**
+         * Number of the slots.
+         */
+        private int capacity = DEFAULT_CAPACITY;
+        /**
+         * Maximum number of records in a batch.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        /**
+         * Linger time in milliseconds.
+         */
+        private long lingerMillis = DEFAULT_LINGER_MILLIS;
+        /**
+         * Strategy of the waiting threads.
+         */
+        private LMLogsWaitStrategy waitStrategy = LMLogsWaitStrategy.BLOCKING;
+        /**
+         * Policy applied when the ring is full.
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+        /**
+         * Time to wait for the consumer when closing in milliseconds.
+         */
+        private long closeTimeoutMillis = DEFAULT_CLOSE_TIMEOUT_MILLIS;
+        /**
+         * Instrumentation notified about the ring and the dropped records.
+         */
+        private LMLogsMetrics metrics = LMLogsMetrics.NONE;
+
+        /**
+         * Initializes the builder.
+         * @param api API used to send the batches.
+         * @throws NullPointerException if the API is null.
+         */
+        public Builder(LMLogsApi api) {
+            this.api = Objects.requireNonNull(api, "API must not be null");
+        }
+
+        /**
+         * Configures the number of the slots, a power of two.
+         * @param capacity
+         * @return this builder object
+         */
+        public Builder withCapacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of records in a batch.
+         * @param batchSize
+         * @return this builder object
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Configures the linger time in milliseconds.
+         * @param lingerMillis
+         * @return this builder object
+         */
+        public Builder withLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        /**
+         * Configures the strategy of the waiting threads.
+         * @param waitStrategy
+         * @return this builder object
+         */
+        public Builder withWaitStrategy(LMLogsWaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * Configures the policy applied when the ring is full.
+         * @param overflowPolicy
+         * @return this builder object
+         */
+        public Builder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Configures the time to wait for the consumer when closing in milliseconds.
+         * @param closeTimeoutMillis
+         * @return this builder object
+         */
+        public Builder withCloseTimeoutMillis(long closeTimeoutMillis) {
+            this.closeTimeoutMillis = closeTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Configures the instrumentation notified about the ring and the dropped records,
+         * usually the same as the metrics of the API.
+         * @param metrics
+         * @return this builder object
+         */
+        public Builder withMetrics(LMLogsMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsRingBuffer based on the contents of the builder.
+         * @return new LMLogsRingBuffer instance
+         * @throws IllegalArgumentException if the capacity is not a power of two, or the batch
+         *         size is not positive or exceeds the capacity, or the linger or close timeout
+         *         is negative.
+         * @throws NullPointerException if the wait strategy, the overflow policy or the metrics
+         *         is null.
+         */
+        public LMLogsRingBuffer build() {
+            if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("Capacity must be a power of two");
+            }
+            if (batchSize <= 0 || batchSize > capacity) {
+                throw new IllegalArgumentException(
+                        "Batch size must be positive and not greater than capacity");
+            }
+            if (lingerMillis < 0 || closeTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Linger and close timeout must not be negative");
+            }
+            Objects.requireNonNull(waitStrategy, "Wait strategy must not be null");
+            Objects.requireNonNull(overflowPolicy, "Overflow policy must not be null");
+            Objects.requireNonNull(metrics, "Metrics must not be null");
+            return new LMLogsRingBuffer(this);
+        }
+    }
+
+}
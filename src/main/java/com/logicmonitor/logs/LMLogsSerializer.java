@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Serializes lists of log entries to JSON exactly once per request.
+ * <p>
+ * The same bytes are used to compute the LMv1 signature and written to the wire, so the
+ * payload is never converted to a String. The entries are written by the streaming
+ * {@link LMLogsEntryWriter} into buffers reused by the threads.
+ */
+class LMLogsSerializer {
+
+    /**
+     * Initial capacity of the buffers (64 KB).
+     */
+    static final int INITIAL_CAPACITY = 64 * 1024;
+    /**
+     * Maximum capacity of the buffer kept for reuse by a thread (16 MB).
+     */
+    static final int MAX_RETAINED_CAPACITY = 16 * 1024 * 1024;
+
+    /**
+     * Initial capacity per entry of the buffers which are not reused (256 bytes).
+     */
+    static final int DETACHED_ENTRY_CAPACITY = 256;
+
+    /**
+     * Buffers reused by the threads sending the requests synchronously.
+     */
+    private static final ThreadLocal<PayloadBuffer> BUFFERS = new ThreadLocal<>();
+
+    /**
+     * Factory of the generators configured by the object mapper.
+     */
+    private final JsonFactory factory;
+    /**
+     * Writer of the log entries.
+     */
+    private final LMLogsEntryWriter entryWriter;
+
+    /**
+     * Initializes LMLogsSerializer instance.
+     * @param mapper object mapper used to serialize the entries.
+     * @throws NullPointerException if the mapper is null.
+     */
+    LMLogsSerializer(ObjectMapper mapper) {
+        factory = Objects.requireNonNull(mapper, "Object mapper must not be null").getFactory();
+        entryWriter = new LMLogsEntryWriter(factory, mapper.writerFor(LogEntry.class));
+    }
+
+    /**
+     * Serializes the entries into the buffer owned by the calling thread.
+     * The returned buffer is valid until the next call on the same thread.
+     * @param entries list of the log entries.
+     * @return view of the serialized entries.
+     * @throws IOException if the entries can't be serialized.
+     */
+    ByteBuffer serialize(List<LogEntry> entries) throws IOException {
+        return serialize(entries, threadBuffer());
+    }
+
+    /**
+     * Serializes the entries into a new buffer, which stays valid after the calling thread
+     * serializes other entries, e.g. until an asynchronous request is written.
+     * @param entries list of the log entries.
+     * @return view of the serialized entries.
+     * @throws IOException if the entries can't be serialized.
+     */
+    ByteBuffer serializeDetached(List<LogEntry> entries) throws IOException {
+        return serialize(entries, new PayloadBuffer(
+                Math.min(INITIAL_CAPACITY, DETACHED_ENTRY_CAPACITY * (entries.size() + 1))));
+    }
+
+    /**
+     * Serializes the records into the buffer owned by the calling thread.
+     * The returned buffer is valid until the next call on the same thread, while the records
+     * can be reused as soon as the method returns.
+     * @param records list of the log records.
+     * @return view of the serialized records.
+     * @throws IOException if the records can't be serialized.
+     */
+    ByteBuffer serializeRecords(List<LMLogsRecord> records) throws IOException {
+        PayloadBuffer buffer = threadBuffer();
+        buffer.reset();
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            entryWriter.writeRecords(generator, records);
+        }
+        return buffer.toByteBuffer();
+    }
+
+    /**
+     * Serializes the entries into the minimum number of consecutive chunks, each of them
+     * a JSON array not larger than the limit, unless it contains a single entry exceeding it.
+     * The returned chunks are valid until the next call on the same thread.
+     * @param entries list of the log entries.
+     * @param maxBytes maximum size of a chunk.
+     * @return list of the chunks.
+     * @throws IOException if the entries can't be serialized.
+     */
+    List<Chunk> split(List<LogEntry> entries, int maxBytes) throws IOException {
+        PayloadBuffer buffer = threadBuffer();
+        buffer.reset();
+        List<int[]> bounds = new ArrayList<>();
+        int chunkStart = 0;
+        int from = 0;
+
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.setRootValueSeparator(null);
+            buffer.write('[');
+            for (int i = 0; i < entries.size(); i++) {
+                int entryStart = buffer.size();
+                if (i > from) {
+                    buffer.write(',');
+                }
+                int valueStart = buffer.size();
+                entryWriter.writeEntry(generator, entries.get(i));
+                generator.flush();
+
+                // +1 for the closing bracket
+                if (i > from && buffer.size() - chunkStart + 1 > maxBytes) {
+                    // replace the separator with the closing bracket and move the entry
+                    // to the next chunk
+                    buffer.set(entryStart, ']');
+                    buffer.insert(valueStart, '[');
+                    bounds.add(new int[] {chunkStart, entryStart + 1, from, i});
+                    chunkStart = entryStart + 1;
+                    from = i;
+                }
+            }
+        }
+        buffer.write(']');
+        if (from < entries.size()) {
+            bounds.add(new int[] {chunkStart, buffer.size(), from, entries.size()});
+        }
+
+        List<Chunk> chunks = new ArrayList<>(bounds.size());
+        for (int[] bound : bounds) {
+            chunks.add(new Chunk(bound[2], bound[3], buffer.slice(bound[0], bound[1])));
+        }
+        return chunks;
+    }
+
+    /**
+     * Gets the buffer owned by the calling thread.
+     * @return reusable buffer.
+     */
+    private static PayloadBuffer threadBuffer() {
+        PayloadBuffer buffer = BUFFERS.get();
+        if (buffer == null || buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new PayloadBuffer(INITIAL_CAPACITY);
+            BUFFERS.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Serializes the entries into the buffer.
+     * @param entries list of the log entries.
+     * @param buffer target buffer.
+     * @return view of the serialized entries.
+     * @throws IOException if the entries can't be serialized.
+     */
+    private ByteBuffer serialize(List<LogEntry> entries, PayloadBuffer buffer) throws IOException {
+        buffer.reset();
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            entryWriter.writeEntries(generator, entries);
+        }
+        return buffer.toByteBuffer();
+    }
+
+    /**
+     * Byte array output stream exposing its content without copying.
+     */
+    static class PayloadBuffer extends ByteArrayOutputStream {
+
+        /**
+         * Initializes PayloadBuffer instance.
+         * @param capacity initial capacity.
+         */
+        PayloadBuffer(int capacity) {
+            super(capacity);
+        }
+
+        /**
+         * Gets the capacity of the buffer.
+         * @return capacity in bytes.
+         */
+        int capacity() {
+            return buf.length;
+        }
+
+        /**
+         * Gets the content of the buffer without copying.
+         * @return view of the content.
+         */
+        ByteBuffer toByteBuffer() {
+            return slice(0, count);
+        }
+
+        /**
+         * Gets the part of the content without copying.
+         * @param start index of the first byte.
+         * @param end index after the last byte.
+         * @return view of the part of the content.
+         */
+        ByteBuffer slice(int start, int end) {
+            return ByteBuffer.wrap(buf, start, end - start).slice();
+        }
+
+        /**
+         * Replaces the byte at the position.
+         * @param position index of the byte.
+         * @param value new value.
+         */
+        void set(int position, char value) {
+            buf[position] = (byte) value;
+        }
+
+        /**
+         * Inserts the byte at the position moving the following bytes.
+         * @param position index of the byte.
+         * @param value inserted value.
+         */
+        void insert(int position, char value) {
+            int end = count;
+            write(0);
+            System.arraycopy(buf, position, buf, position + 1, end - position);
+            buf[position] = (byte) value;
+        }
+    }
+
+    /**
+     * Part of the log entries serialized to a JSON array.
+     */
+    static class Chunk {
+
+        /**
+         * Index of the first entry.
+         */
+        final int fromIndex;
+        /**
+         * Index after the last entry.
+         */
+        final int toIndex;
+        /**
+         * Entries serialized to JSON.
+         */
+        final ByteBuffer payload;
+
+        /**
+         * Initializes Chunk instance.
+         * @param fromIndex index of the first entry.
+         * @param toIndex index after the last entry.
+         * @param payload entries serialized to JSON.
+         */
+        Chunk(int fromIndex, int toIndex, ByteBuffer payload) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.payload = payload;
+        }
+
+        /**
+         * Copies the payload out of the buffer owned by the serializing thread, so it stays
+         * valid when the chunk is sent by another thread, which may outlive the call.
+         * @return chunk with a payload of its own.
+         */
+        Chunk detach() {
+            ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+            copy.put(payload.duplicate());
+            copy.flip();
+            return new Chunk(fromIndex, toIndex, copy);
+        }
+    }
+
+}
@@ -0,0 +1,729 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Persistent FIFO queue of log entry batches buffering them on disk while the endpoint
+ * is unreachable.
+ * <p>
+ * The batches are appended as records (length, CRC32, JSON) to memory-mapped segment files
+ * of a directory. Appending only copies the record to the mapped memory; the segments are
+ * forced to disk periodically, on rotation and on close, so a crash of the JVM loses nothing
+ * and a crash of the OS loses at most the last force interval. The read position is kept in
+ * a checkpoint file, so the queue survives restarts. A torn record at the end of a segment is
+ * detected by its checksum and skipped.
+ * <p>
+ * The queue supports concurrent appends and a single consumer at a time.
+ */
+public class LMLogsSpillQueue implements Closeable {
+
+    /**
+     * Default size of a segment file (16 MB).
+     */
+    public static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+    /**
+     * Default maximum size of all the segment files (1 GB).
+     */
+    public static final long DEFAULT_MAX_DISK_BYTES = 1024L * 1024 * 1024;
+    /**
+     * Default interval of forcing the segments to disk (1 second).
+     */
+    public static final long DEFAULT_FORCE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    /**
+     * Default maximum number of the batches sent by a single drain.
+     */
+    public static final int DEFAULT_DRAIN_BATCHES = Integer.MAX_VALUE;
+
+    /**
+     * Prefix of the segment file names.
+     */
+    static final String SEGMENT_PREFIX = "segment-";
+    /**
+     * Suffix of the segment file names.
+     */
+    static final String SEGMENT_SUFFIX = ".log";
+    /**
+     * Name of the checkpoint file.
+     */
+    static final String CHECKPOINT_FILE = "checkpoint";
+    /**
+     * Size of the record header: length and CRC32 of the payload.
+     */
+    static final int RECORD_HEADER_BYTES = 8;
+    /**
+     * Size of the checkpoint: segment sequence, offset and check value.
+     */
+    static final int CHECKPOINT_BYTES = 24;
+    /**
+     * Value mixed into the checkpoint check value.
+     */
+    private static final long CHECKPOINT_MAGIC = 0x4c4d4c6f67735350L;
+
+    /**
+     * Counter used to name the force threads.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * Directory of the segment files.
+     */
+    protected final Path directory;
+    /**
+     * Size of a segment file.
+     */
+    protected final int segmentBytes;
+    /**
+     * Maximum size of all the segment files.
+     */
+    protected final long maxDiskBytes;
+
+    /**
+     * Serializer of the appended batches.
+     */
+    private final LMLogsSerializer serializer;
+    /**
+     * Reader of the batches.
+     */
+    private final ObjectReader reader;
+    /**
+     * Sizes of the segment files by their sequence numbers.
+     */
+    private final TreeMap<Long, Integer> segments = new TreeMap<>();
+    /**
+     * Mapped checkpoint file.
+     */
+    private final MappedByteBuffer checkpoint;
+    /**
+     * Thread forcing the segments to disk periodically.
+     */
+    private final ScheduledExecutorService forcer;
+    /**
+     * Lock held by the consumer.
+     */
+    private final ReentrantLock consumerLock = new ReentrantLock();
+    /**
+     * Number of the batches rejected because the queue was full, or unreadable.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Segment the batches are appended to.
+     */
+    private Segment writeSegment;
+    /**
+     * Segment the batches are read from.
+     */
+    private Segment readSegment;
+    /**
+     * Offset of the next record in the read segment.
+     */
+    private int readOffset;
+    /**
+     * Size of the record returned by the last peek, or 0.
+     */
+    private int peekedBytes;
+    /**
+     * Total size of the segment files.
+     */
+    private long diskBytes;
+    /**
+     * Flag set when the mapped files have changed since the last force.
+     */
+    private boolean dirty;
+    /**
+     * Closed flag.
+     */
+    private boolean closed;
+
+    /**
+     * Opens the queue, recovering the batches left in the directory.
+     * @param builder builder containing the configuration.
+     * @throws IOException if the directory or the files can't be accessed.
+     */
+    protected LMLogsSpillQueue(Builder builder) throws IOException {
+        directory = builder.directory;
+        segmentBytes = builder.segmentBytes;
+        maxDiskBytes = builder.maxDiskBytes;
+        ObjectMapper mapper = builder.mapper != null ? builder.mapper : new JSON().getContext(LogEntry.class);
+        serializer = new LMLogsSerializer(mapper);
+        reader = mapper.readerFor(new TypeReference<List<LogEntry>>() {});
+
+        Files.createDirectories(directory);
+        try (FileChannel channel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHECKPOINT_BYTES);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(sequence, (int) Files.size(file));
+                    diskBytes += Files.size(file);
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        recover();
+
+        forcer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lm-logs-spill-" + INSTANCES.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        forcer.scheduleWithFixedDelay(this::forceQuietly, builder.forceIntervalMillis,
+                builder.forceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Restores the read position from the checkpoint and the write position from the records.
+     * @throws IOException if the files can't be accessed.
+     */
+    private void recover() throws IOException {
+        long sequence = checkpoint.getLong(0);
+        long offset = checkpoint.getLong(8);
+        boolean valid = checkpoint.getLong(16) == (sequence ^ offset ^ CHECKPOINT_MAGIC)
+                && segments.containsKey(sequence) && offset >= 0 && offset <= segments.get(sequence);
+        if (valid) {
+            // the segments before the checkpoint have been consumed
+            while (!segments.isEmpty() && segments.firstKey() < sequence) {
+                deleteSegment(segments.firstKey());
+            }
+        }
+
+        if (segments.isEmpty()) {
+            writeSegment = createSegment(valid ? sequence + 1 : 0, segmentBytes);
+            readSegment = writeSegment;
+            readOffset = 0;
+        } else {
+            writeSegment = openSegment(segments.lastKey());
+            writeSegment.position = 0;
+            while (recordBytes(writeSegment, writeSegment.position, writeSegment.capacity()) > 0) {
+                writeSegment.position += recordBytes(writeSegment, writeSegment.position,
+                        writeSegment.capacity());
+            }
+            readSegment = segments.firstKey() == writeSegment.sequence
+                    ? writeSegment : openSegment(segments.firstKey());
+            readOffset = valid ? (int) offset : 0;
+            if (readSegment == writeSegment && readOffset > writeSegment.position) {
+                // the records before the checkpoint were lost by the OS, don't overwrite it
+                writeSegment.position = readOffset;
+            }
+        }
+        writeCheckpoint();
+    }
+
+    /**
+     * Appends the batch to the queue.
+     * @param batch list of the log entries.
+     * @return true if the batch was appended, false if the queue is full or closed.
+     * @throws IOException if the batch can't be serialized or a new segment can't be created.
+     * @throws NullPointerException if the batch is null.
+     */
+    public boolean append(List<LogEntry> batch) throws IOException {
+        Objects.requireNonNull(batch, "Batch must not be null");
+        ByteBuffer payload = serializer.serialize(batch);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        int length = payload.remaining();
+        int recordBytes = RECORD_HEADER_BYTES + length;
+
+        synchronized (this) {
+            if (closed) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (writeSegment.position + recordBytes > writeSegment.capacity()) {
+                int size = Math.max(segmentBytes, recordBytes);
+                if (diskBytes + size > maxDiskBytes) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                writeSegment.buffer.force();
+                writeSegment = createSegment(writeSegment.sequence + 1, size);
+            }
+            int position = writeSegment.position;
+            ByteBuffer target = writeSegment.buffer.duplicate();
+            target.position(position + RECORD_HEADER_BYTES);
+            target.put(payload);
+            // the record ends with a zero length, so stale bytes after it are never read
+            if (target.remaining() >= Integer.BYTES) {
+                target.putInt(0);
+            }
+            target.putInt(position + Integer.BYTES, (int) crc.getValue());
+            // the length is written last and commits the record
+            target.putInt(position, length);
+            writeSegment.position += recordBytes;
+            dirty = true;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the oldest batch without removing it. Must be followed by {@link #remove()}
+     * to get the next batch.
+     * @return list of the log entries, or null if the queue is empty.
+     * @throws IOException if the consumed segment can't be deleted or the next one opened.
+     */
+    public synchronized List<LogEntry> peek() throws IOException {
+        while (!closed) {
+            int limit = readSegment == writeSegment ? writeSegment.position : readSegment.capacity();
+            int bytes = recordBytes(readSegment, readOffset, limit);
+            if (bytes == 0) {
+                if (readSegment == writeSegment) {
+                    return null;
+                }
+                // the segment is consumed or ends with a torn record
+                Long next = segments.higherKey(readSegment.sequence);
+                deleteSegment(readSegment.sequence);
+                readSegment = next == writeSegment.sequence ? writeSegment : openSegment(next);
+                readOffset = 0;
+                writeCheckpoint();
+                continue;
+            }
+            ByteBuffer record = readSegment.buffer.duplicate();
+            record.position(readOffset + RECORD_HEADER_BYTES);
+            byte[] payload = new byte[bytes - RECORD_HEADER_BYTES];
+            record.get(payload);
+            try {
+                List<LogEntry> batch = reader.readValue(payload);
+                peekedBytes = bytes;
+                return batch;
+            } catch (IOException e) {
+                // the checksum matches, but the record can't be read by this version
+                dropped.incrementAndGet();
+                readOffset += bytes;
+                writeCheckpoint();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the batch returned by the last {@link #peek()}.
+     * @throws IllegalStateException if no batch has been peeked.
+     */
+    public synchronized void remove() {
+        if (peekedBytes == 0) {
+            throw new IllegalStateException("No batch has been peeked");
+        }
+        readOffset += peekedBytes;
+        peekedBytes = 0;
+        writeCheckpoint();
+    }
+
+    /**
+     * Sends the queued batches through the API in order, until the queue is empty or a request
+     * fails with a retryable status ({@link LMLogsRetryPolicy#DEFAULT_RETRYABLE_STATUSES}).
+     * A batch failed as a whole with retryable statuses stays at the head of the queue and is
+     * sent first by the next drain. Of a batch split into several requests, the parts failed
+     * with a retryable status are appended to the end of the queue before the batch is removed,
+     * or dropped if the queue is full; the parts rejected with other statuses are dropped.
+     * If another thread is draining the queue, returns immediately.
+     * @param api API used to send the batches.
+     * @param maxBatches maximum number of the batches to send.
+     * @return number of the batches removed from the queue.
+     * @throws IOException if the queue can't be read or written.
+     */
+    public int drain(LMLogsApi api, int maxBatches) throws IOException {
+        if (!consumerLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int removed = 0;
+            boolean failed = false;
+            List<LogEntry> batch;
+            while (!failed && removed < maxBatches && (batch = peek()) != null) {
+                List<LMLogsBatchResult> results;
+                try {
+                    results = api.logIngestPostSplit(batch);
+                } catch (LMLogsApiException e) {
+                    results = List.of(new LMLogsBatchResult(batch, e));
+                } catch (RuntimeException e) {
+                    // the endpoint is still unreachable, keep the batch at the head
+                    break;
+                }
+                if (results.stream().allMatch(LMLogsSpillQueue::isRetryable)) {
+                    // nothing has been accepted, keep the batch at the head
+                    break;
+                }
+                for (LMLogsBatchResult result : results) {
+                    if (result.isSuccess()) {
+                        continue;
+                    }
+                    if (isRetryable(result)) {
+                        failed = true;
+                        // appended before the batch is removed, so a crash doesn't lose them
+                        appendOrDrop(result.getEntries());
+                    } else {
+                        dropped.incrementAndGet();
+                    }
+                }
+                remove();
+                removed++;
+            }
+            return removed;
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    /**
+     * Sends all the queued batches through the API.
+     * @param api API used to send the batches.
+     * @return number of the batches removed from the queue.
+     * @throws IOException if the queue can't be read or written.
+     * @see #drain(LMLogsApi, int)
+     */
+    public int drain(LMLogsApi api) throws IOException {
+        return drain(api, DEFAULT_DRAIN_BATCHES);
+    }
+
+    /**
+     * Checks if the queue contains no batches.
+     * @return true if the queue is empty.
+     */
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readOffset >= writeSegment.position;
+    }
+
+    /**
+     * Gets the total size of the segment files.
+     * @return size in bytes.
+     */
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Gets the number of the batches rejected because the queue was full or closed,
+     * or dropped because they were rejected by the API or couldn't be read.
+     * @return number of dropped batches.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Forces the changes of the mapped files to disk.
+     */
+    public synchronized void force() {
+        if (dirty && !closed) {
+            writeSegment.buffer.force();
+            if (readSegment != writeSegment) {
+                readSegment.buffer.force();
+            }
+            checkpoint.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Forces the changes to disk and stops the force thread. The files are kept for the next
+     * instance opened on the directory.
+     */
+    @Override
+    public void close() {
+        forcer.shutdown();
+        synchronized (this) {
+            force();
+            closed = true;
+        }
+    }
+
+    /**
+     * Forces the changes to disk, ignoring the failures of the background thread.
+     */
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            // retried on the next run
+        }
+    }
+
+    /**
+     * Checks if the request failed with a retryable status.
+     * @param result result of the request.
+     * @return true if the request can be retried.
+     */
+    private static boolean isRetryable(LMLogsBatchResult result) {
+        return !result.isSuccess() && LMLogsRetryPolicy.DEFAULT_RETRYABLE_STATUSES.contains(
+                result.getException().getResponse().getStatusCode());
+    }
+
+    /**
+     * Appends the entries of a partially accepted batch to the queue, counting them as dropped
+     * if the queue is full or they can't be written.
+     * @param entries list of the log entries.
+     */
+    private void appendOrDrop(List<LogEntry> entries) {
+        try {
+            append(entries);
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the read position to the checkpoint.
+     */
+    private void writeCheckpoint() {
+        checkpoint.putLong(0, readSegment.sequence);
+        checkpoint.putLong(8, readOffset);
+        checkpoint.putLong(16, readSegment.sequence ^ readOffset ^ CHECKPOINT_MAGIC);
+        dirty = true;
+    }
+
+    /**
+     * Gets the size of the valid record at the offset.
+     * @param segment segment containing the record.
+     * @param offset offset of the record.
+     * @param limit end of the readable part of the segment.
+     * @return size of the record including its header, or 0 if there is no valid record.
+     */
+    private static int recordBytes(Segment segment, int offset, int limit) {
+        if (offset + RECORD_HEADER_BYTES > limit) {
+            return 0;
+        }
+        int length = segment.buffer.getInt(offset);
+        if (length <= 0 || length > limit - offset - RECORD_HEADER_BYTES) {
+            return 0;
+        }
+        ByteBuffer payload = segment.buffer.duplicate();
+        payload.position(offset + RECORD_HEADER_BYTES).limit(offset + RECORD_HEADER_BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != segment.buffer.getInt(offset + Integer.BYTES)) {
+            return 0;
+        }
+        return RECORD_HEADER_BYTES + length;
+    }
+
+    /**
+     * Gets the path of the segment file.
+     * @param sequence sequence number of the segment.
+     * @return path of the file.
+     */
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Creates and maps a new segment file.
+     * @param sequence sequence number of the segment.
+     * @param size size of the segment.
+     * @return new segment.
+     * @throws IOException if the file can't be created.
+     */
+    private Segment createSegment(long sequence, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.put(sequence, size);
+            diskBytes += size;
+            return segment;
+        }
+    }
+
+    /**
+     * Maps an existing segment file.
+     * @param sequence sequence number of the segment.
+     * @return segment.
+     * @throws IOException if the file can't be opened.
+     */
+    private Segment openSegment(long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Deletes the segment file. The mapping is released when the segment is garbage collected.
+     * @param sequence sequence number of the segment.
+     * @throws IOException if the file can't be deleted.
+     */
+    private void deleteSegment(long sequence) throws IOException {
+        Integer size = segments.remove(sequence);
+        if (size != null) {
+            diskBytes -= size;
+        }
+        Files.deleteIfExists(segmentPath(sequence));
+    }
+
+    /**
+     * Segment file mapped to memory.
+     */
+    private static class Segment {
+
+        /**
+         * Sequence number of the segment.
+         */
+        final long sequence;
+        /**
+         * Mapped content of the file.
+         */
+        final MappedByteBuffer buffer;
+        /**
+         * End of the records appended to the segment.
+         */
+        int position;
+
+        /**
+         * Initializes Segment instance.
+         * @param sequence sequence number of the segment.
+         * @param buffer mapped content of the file.
+         */
+        Segment(long sequence, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Gets the size of the segment.
+         * @return size in bytes.
+         */
+        int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    /**
+     * A builder for creating spill queues.
+     */
+    public static class Builder {
+
+        /**
+         * Directory of the segment files.
+         */
+        private final Path directory;
+        /**
+         * Size of a segment file.
+         */
+        private int segmentBytes = DEFAULT_SEGMENT_BYTES;
+        /**
+         * Maximum size of all the segment files.
+         */
+        private long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+        /**
+         * Interval of forcing the segments to disk.
+         */
+        private long forceIntervalMillis = DEFAULT_FORCE_INTERVAL_MILLIS;
+        /**
+         * Object mapper used to serialize the entries.
+         */
+        private ObjectMapper mapper;
+
+        /**
+         * Initializes the builder.
+         * @param directory directory of the segment files, created if it doesn't exist.
+         * @throws NullPointerException if the directory is null.
+         */
+        public Builder(Path directory) {
+            this.directory = Objects.requireNonNull(directory, "Directory must not be null");
+        }
+
+        /**
+         * Configures size of a segment file. A batch larger than a segment is stored
+         * in a segment of its size.
+         * @param segmentBytes
+         * @return this builder object
+         */
+        public Builder withSegmentBytes(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * Configures maximum size of all the segment files.
+         * @param maxDiskBytes
+         * @return this builder object
+         */
+        public Builder withMaxDiskBytes(long maxDiskBytes) {
+            this.maxDiskBytes = maxDiskBytes;
+            return this;
+        }
+
+        /**
+         * Configures interval of forcing the segments to disk.
+         * @param forceIntervalMillis
+         * @return this builder object
+         */
+        public Builder withForceIntervalMillis(long forceIntervalMillis) {
+            this.forceIntervalMillis = forceIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Configures object mapper used to serialize the entries, e.g. the mapper of the client.
+         * @param mapper
+         * @return this builder object
+         */
+        public Builder withMapper(ObjectMapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * Opens the queue based on the contents of the builder.
+         * @return new LMLogsSpillQueue instance
+         * @throws IllegalArgumentException if segmentBytes is not larger than a record header,
+         *         maxDiskBytes is smaller than segmentBytes, or forceIntervalMillis is not positive.
+         * @throws IOException if the directory or the files can't be accessed.
+         */
+        public LMLogsSpillQueue build() throws IOException {
+            if (segmentBytes <= RECORD_HEADER_BYTES) {
+                throw new IllegalArgumentException("Segment bytes must be larger than "
+                        + RECORD_HEADER_BYTES);
+            }
+            if (maxDiskBytes < segmentBytes) {
+                throw new IllegalArgumentException("Max disk bytes must not be smaller than segment bytes");
+            }
+            if (forceIntervalMillis <= 0) {
+                throw new IllegalArgumentException("Force interval must be positive");
+            }
+            return new LMLogsSpillQueue(this);
+        }
+    }
+
+}
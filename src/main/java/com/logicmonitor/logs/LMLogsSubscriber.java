@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Reactive sink sending the log entries of a {@link Flow.Publisher} in batches,
+ * with the backpressure of the ingestion endpoint propagated to the publisher.
+ * <p>
+ * At most {@code batchSize * maxInFlightBatches} entries are requested upstream and not yet
+ * acknowledged. A batch is sent asynchronously when it reaches the batch size, or when its first
+ * entry has been waiting longer than the linger time, and its entries are requested again once
+ * the batch is acknowledged, so the publisher is slowed down to the rate of the endpoint without
+ * buffering in between. At most {@code maxInFlightBatches} batches are sent and not yet
+ * acknowledged: meanwhile the full batches wait, and a batch whose linger time has elapsed keeps
+ * collecting entries, until an acknowledgement arrives.
+ * <p>
+ * The sink is also a publisher of the acknowledgements: each batch is acknowledged downstream
+ * with its {@link LMLogsBatchResult}, successful or failed after the retries of the client.
+ * With a downstream subscriber, the entries are requested upstream only after the acknowledgement
+ * is delivered, so a slow subscriber slows down the publisher too. The acknowledgements of the
+ * batches completed while no downstream subscriber is subscribed are discarded, so it should be
+ * subscribed before the sink subscribes to the publisher. Cancelling the downstream subscription
+ * discards the following acknowledgements without stopping the ingestion.
+ * <p>
+ * Reactive Streams publishers, e.g. of Reactor or Akka Streams, can be connected through
+ * {@code org.reactivestreams.FlowAdapters}.
+ */
+public class LMLogsSubscriber implements Flow.Processor<LogEntry, LMLogsBatchResult> {
+
+    /**
+     * Default maximum number of entries in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /**
+     * Default linger time in milliseconds.
+     */
+    public static final long DEFAULT_LINGER_MILLIS = 200;
+    /**
+     * Default maximum number of batches sent and not yet acknowledged.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+
+    /**
+     * API used to send the batches.
+     */
+    protected final LMLogsApi api;
+    /**
+     * Maximum number of entries in a batch.
+     */
+    protected final int batchSize;
+    /**
+     * Linger time in milliseconds.
+     */
+    protected final long lingerMillis;
+    /**
+     * Maximum number of batches sent and not yet acknowledged.
+     */
+    protected final int maxInFlightBatches;
+    /**
+     * Entries of the batch being accumulated, guarded by this.
+     */
+    private List<LogEntry> batch;
+    /**
+     * Number of the batches accumulated so far, identifying the batch of a linger task,
+     * guarded by this.
+     */
+    private long batchNumber;
+    /**
+     * Whether the batch being accumulated should be sent as soon as a batch is acknowledged,
+     * guarded by this.
+     */
+    private boolean batchExpired;
+    /**
+     * Full batches waiting for an acknowledgement to be sent, guarded by this.
+     */
+    private final Queue<List<LogEntry>> readyBatches = new ArrayDeque<>();
+    /**
+     * Subscription to the publisher of the entries.
+     */
+    private volatile Flow.Subscription upstream;
+    /**
+     * Whether the publisher has terminated or the subscription has been cancelled.
+     */
+    private volatile boolean upstreamDone;
+    /**
+     * Whether the subscription should be cancelled by the drain loop.
+     */
+    private volatile boolean cancelRequested;
+    /**
+     * Error signalled by the publisher, passed to the downstream subscriber.
+     */
+    private volatile Throwable upstreamError;
+    /**
+     * Whether a downstream subscriber has been accepted, set before its onSubscribe call.
+     */
+    private volatile boolean downstreamAccepted;
+    /**
+     * Subscriber of the acknowledgements, published after its onSubscribe call returns.
+     */
+    private volatile Flow.Subscriber<? super LMLogsBatchResult> downstream;
+    /**
+     * Whether the downstream subscription has been cancelled.
+     */
+    private volatile boolean downstreamCancelled;
+    /**
+     * Error of the downstream subscriber, e.g. an invalid request.
+     */
+    private volatile Throwable downstreamError;
+    /**
+     * Number of the acknowledgements requested by the downstream subscriber.
+     */
+    private final AtomicLong downstreamDemand = new AtomicLong();
+    /**
+     * Whether the downstream subscriber has been terminated, accessed only by the drain loop.
+     */
+    private boolean downstreamDone;
+    /**
+     * Results of the sent batches not yet acknowledged.
+     */
+    private final Queue<LMLogsBatchResult> results = new ConcurrentLinkedQueue<>();
+    /**
+     * Number of the batches sent and not yet acknowledged.
+     */
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+    /**
+     * Number of the pending runs of the drain loop, which serializes the calls
+     * of the upstream subscription and the downstream subscriber.
+     */
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    /**
+     * Initializes the subscriber.
+     * @param builder builder of the subscriber.
+     */
+    protected LMLogsSubscriber(Builder builder) {
+        api = builder.api;
+        batchSize = builder.batchSize;
+        lingerMillis = builder.lingerMillis;
+        maxInFlightBatches = builder.maxInFlightBatches;
+        batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Requests the entries of the first batches from the publisher.
+     * A subscription after the first one, or after the sink has been cancelled, is cancelled.
+     * @param subscription subscription to the publisher.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription, "Subscription must not be null");
+        synchronized (this) {
+            if (upstream != null || upstreamDone) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        subscription.request((long) batchSize * maxInFlightBatches);
+    }
+
+    /**
+     * Adds the entry to the batch, which is sent if it reaches the batch size.
+     * @param entry log entry.
+     * @throws NullPointerException if the entry is null.
+     */
+    @Override
+    public void onNext(LogEntry entry) {
+        Objects.requireNonNull(entry, "Entry must not be null");
+        synchronized (this) {
+            batch.add(entry);
+            if (batch.size() >= batchSize) {
+                readyBatches.add(takeBatch());
+            } else if (batch.size() == 1 && !batchExpired) {
+                long number = batchNumber;
+                CompletableFuture.delayedExecutor(lingerMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> linger(number));
+            }
+        }
+        sendReady();
+    }
+
+    /**
+     * Sends the last batch and terminates the downstream subscriber with the error
+     * once all the batches are acknowledged.
+     * @param throwable error signalled by the publisher.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        upstreamError = Objects.requireNonNull(throwable, "Error must not be null");
+        terminate();
+    }
+
+    /**
+     * Sends the last batch and completes the downstream subscriber
+     * once all the batches are acknowledged.
+     */
+    @Override
+    public void onComplete() {
+        terminate();
+    }
+
+    /**
+     * Subscribes the subscriber of the acknowledgements. Only one downstream subscriber
+     * is supported, the following ones fail with IllegalStateException.
+     * @param subscriber subscriber of the acknowledgements.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super LMLogsBatchResult> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber must not be null");
+        synchronized (this) {
+            if (downstreamAccepted) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException(
+                        "Acknowledgements have already been subscribed"));
+                return;
+            }
+            downstreamAccepted = true;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    downstreamError = new IllegalArgumentException(
+                            "Requested number of acknowledgements must be positive");
+                } else {
+                    downstreamDemand.accumulateAndGet(n,
+                            (demand, added) -> demand + added < 0 ? Long.MAX_VALUE : demand + added);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                downstreamCancelled = true;
+                drain();
+            }
+        });
+        // no signal can precede onSubscribe, so the drain loop sees the subscriber only now
+        downstream = subscriber;
+        drain();
+    }
+
+    /**
+     * Cancels the subscription to the publisher and sends the entries received so far.
+     * The downstream subscriber is completed once all the batches are acknowledged.
+     */
+    public void cancel() {
+        cancelRequested = true;
+        terminate();
+    }
+
+    /**
+     * Gets the number of the batches sent and not yet acknowledged.
+     * @return number of the batches.
+     */
+    public int getInFlightBatches() {
+        return inFlightBatches.get();
+    }
+
+    /**
+     * Checks if the publisher has terminated or the subscription has been cancelled.
+     * @return true if no more entries are received.
+     */
+    public boolean isDone() {
+        return upstreamDone;
+    }
+
+    /**
+     * Sends the batch when its linger time has elapsed, unless it has already been sent.
+     * @param number number of the batch.
+     */
+    private void linger(long number) {
+        synchronized (this) {
+            if (number != batchNumber || batch.isEmpty()) {
+                return;
+            }
+            batchExpired = true;
+        }
+        sendReady();
+    }
+
+    /**
+     * Replaces the batch being accumulated with a new one, guarded by this.
+     * @return entries of the batch.
+     */
+    private List<LogEntry> takeBatch() {
+        List<LogEntry> taken = batch;
+        batch = new ArrayList<>(batchSize);
+        batchNumber++;
+        batchExpired = false;
+        return taken;
+    }
+
+    /**
+     * Sends the full batches, then the expired one, while fewer than the maximum number
+     * of batches are in flight.
+     */
+    private void sendReady() {
+        while (true) {
+            List<LogEntry> next;
+            synchronized (this) {
+                if (inFlightBatches.get() >= maxInFlightBatches) {
+                    return;
+                }
+                next = readyBatches.poll();
+                if (next == null && batchExpired && !batch.isEmpty()) {
+                    next = takeBatch();
+                }
+                if (next == null) {
+                    return;
+                }
+                // counted in flight at once, so the termination does not overtake the batch
+                inFlightBatches.incrementAndGet();
+            }
+            send(next);
+        }
+    }
+
+    /**
+     * Checks if some entries have not been sent yet.
+     * @return true if a batch is waiting or being accumulated.
+     */
+    private synchronized boolean hasUnsentEntries() {
+        return !readyBatches.isEmpty() || !batch.isEmpty();
+    }
+
+    /**
+     * Sends the last batch after the publisher has terminated.
+     */
+    private void terminate() {
+        synchronized (this) {
+            if (upstreamDone) {
+                return;
+            }
+            batchExpired = true;
+            upstreamDone = true;
+        }
+        sendReady();
+        drain();
+    }
+
+    /**
+     * Sends the batch asynchronously and queues its result for the acknowledgement.
+     * @param entries entries of the batch.
+     */
+    private void send(List<LogEntry> entries) {
+        CompletableFuture<LMLogsApiResponse<LogResponse>> future;
+        try {
+            future = api.logIngestPostAsync(entries);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((response, throwable) -> {
+            results.add(throwable == null
+                    ? new LMLogsBatchResult(entries, response)
+                    : new LMLogsBatchResult(entries, toApiException(throwable)));
+            drain();
+        });
+    }
+
+    /**
+     * Converts the failure of a request to API exception.
+     * @param throwable failure of the request.
+     * @return API exception.
+     */
+    private static LMLogsApiException toApiException(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        return cause instanceof LMLogsApiException
+                ? (LMLogsApiException) cause
+                : new LMLogsApiException(new ApiException(cause));
+    }
+
+    /**
+     * Delivers the acknowledgements requested downstream, requests their entries again
+     * from the publisher and terminates the downstream subscriber after the last batch.
+     * Runs on one thread at a time, the calls arriving meanwhile are handled by the running loop.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            Flow.Subscriber<? super LMLogsBatchResult> subscriber = downstream;
+            // the acknowledgements are kept for the subscriber still in its onSubscribe call
+            boolean subscribing = subscriber == null && downstreamAccepted;
+            Throwable invalidRequest = downstreamError;
+            if (invalidRequest != null && subscriber != null && !downstreamDone) {
+                downstreamDone = true;
+                subscriber.onError(invalidRequest);
+            }
+            boolean deliver = subscriber != null && !downstreamCancelled && !downstreamDone;
+            while (!subscribing && (!deliver || downstreamDemand.get() > 0)) {
+                LMLogsBatchResult result = results.poll();
+                if (result == null) {
+                    break;
+                }
+                if (deliver) {
+                    downstreamDemand.getAndUpdate(
+                            demand -> demand == Long.MAX_VALUE ? demand : demand - 1);
+                    subscriber.onNext(result);
+                }
+                inFlightBatches.decrementAndGet();
+                if (!upstreamDone) {
+                    upstream.request(result.getEntries().size());
+                }
+            }
+            if (cancelRequested && upstream != null) {
+                cancelRequested = false;
+                upstream.cancel();
+            }
+            // the acknowledged batches make room for the waiting ones
+            sendReady();
+            if (upstreamDone && inFlightBatches.get() == 0 && results.isEmpty()
+                    && subscriber != null && !downstreamDone && !hasUnsentEntries()) {
+                downstreamDone = true;
+                if (!downstreamCancelled) {
+                    Throwable error = upstreamError;
+                    if (error == null) {
+                        subscriber.onComplete();
+                    } else {
+                        subscriber.onError(error);
+                    }
+                }
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    /**
+     * A builder for creating LogicMonitor Logs subscribers.
+     */
+    public static class Builder {
+
+        /**
+         * API used to send the batches.
+         */
+        private final LMLogsApi api;
+        /**
+         * Maximum number of entries in a batch.
+         */
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        /**
+         * Linger time in milliseconds.
+         */
+        private long lingerMillis = DEFAULT_LINGER_MILLIS;
+        /**
+         * Maximum number of batches sent and not yet acknowledged.
+         */
+        private int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+
+        /**
+         * Initializes the builder.
+         * @param api API used to send the batches.
+         * @throws NullPointerException if the API is null.
+         */
+        public Builder(LMLogsApi api) {
+            this.api = Objects.requireNonNull(api, "API must not be null");
+        }
+
+        /**
+         * Configures the maximum number of entries in a batch.
+         * @param batchSize
+         * @return this builder object
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Configures the linger time in milliseconds.
+         * @param lingerMillis
+         * @return this builder object
+         */
+        public Builder withLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        /**
+         * Configures the maximum number of batches sent and not yet acknowledged.
+         * @param maxInFlightBatches
+         * @return this builder object
+         */
+        public Builder withMaxInFlightBatches(int maxInFlightBatches) {
+            this.maxInFlightBatches = maxInFlightBatches;
+            return this;
+        }
+
+        /**
+         * Returns a newly-created LMLogsSubscriber based on the contents of the builder.
+         * @return new LMLogsSubscriber instance
+         * @throws IllegalArgumentException if the batch size or the maximum number of batches
+         *         in flight is not positive, or the linger time is negative.
+         */
+        public LMLogsSubscriber build() {
+            if (batchSize <= 0 || maxInFlightBatches <= 0) {
+                throw new IllegalArgumentException(
+                        "Batch size and maximum batches in flight must be positive");
+            }
+            if (lingerMillis < 0) {
+                throw new IllegalArgumentException("Linger must not be negative");
+            }
+            return new LMLogsSubscriber(this);
+        }
+    }
+
+}
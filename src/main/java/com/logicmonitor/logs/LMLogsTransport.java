@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import org.glassfish.jersey.client.ClientConfig;
+
+/**
+ * HTTP transport of LogicMonitor Logs client.
+ * <p>
+ * The transport configures the connector of the Jersey client built by {@link LMLogsClient}.
+ * A transport may be shared by several clients, so it is closed by its owner, not by the clients.
+ */
+public interface LMLogsTransport extends AutoCloseable {
+
+    /**
+     * Transport using the default Jersey connector based on HttpURLConnection.
+     */
+    LMLogsTransport DEFAULT = new LMLogsTransport() {
+
+        @Override
+        public void configure(ClientConfig clientConfig) {
+            // keeps the default connector
+        }
+
+        @Override
+        public String toString() {
+            return "LMLogsTransport.DEFAULT";
+        }
+    };
+
+    /**
+     * Configures the connector before the HTTP client is built.
+     * @param clientConfig configuration of the HTTP client.
+     */
+    void configure(ClientConfig clientConfig);
+
+    /**
+     * Releases the connections held by the transport.
+     */
+    @Override
+    default void close() {
+        // nothing to release by default
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy of the threads waiting for the ring buffer: the consumer waiting for new records
+ * and the producers waiting for free slots, trading the latency of the hand-off for CPU usage.
+ */
+public enum LMLogsWaitStrategy {
+
+    /**
+     * Spins on the CPU, with the lowest latency and a core busy per waiting thread.
+     */
+    BUSY_SPIN,
+    /**
+     * Spins for a while and then yields the CPU to the other threads.
+     */
+    YIELDING,
+    /**
+     * Parks the waiting threads, the consumer is unparked by the producers.
+     * Uses the least CPU at the cost of higher latency.
+     */
+    BLOCKING;
+
+    /**
+     * Number of the iterations spinning before yielding.
+     */
+    static final int SPIN_TRIES = 100;
+    /**
+     * Time the blocked producers are parked before checking the free slots again.
+     */
+    static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Waits for the next check of the condition.
+     * @param iteration number of the checks so far, starting from 0.
+     * @param maxParkNanos maximum time to park the thread.
+     */
+    void idle(int iteration, long maxParkNanos) {
+        switch (this) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELDING:
+                if (iteration < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                break;
+            default:
+                LockSupport.parkNanos(this, maxParkNanos);
+        }
+    }
+
+}
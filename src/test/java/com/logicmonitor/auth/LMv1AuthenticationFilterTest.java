@@ -16,9 +16,14 @@ package com.logicmonitor.auth;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedHashMap;
@@ -71,6 +76,28 @@ public class LMv1AuthenticationFilterTest {
         assertThrows(IOException.class, () -> filter.filter(request));
     }
 
+    @Test
+    public void testSerializedEntity() throws IOException {
+        LMv1AuthenticationFilter filter = new LMv1AuthenticationFilter("/foo", "id", "key");
+        MockClientRequestContext request = (MockClientRequestContext) getRequestContext(
+                URI.create("http://test.com/foo/bar"));
+        String payload = new JSON().getContext(LogEntry.class).writeValueAsString(new LogEntry());
+        ByteBuffer entity = ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+        request.setEntity(entity);
+        // no object mapper is needed for the serialized entity
+        ((MockConfiguration) request.getConfiguration()).setInstances(Set.of());
+        filter.filter(request);
+
+        String token = (String) request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        long timestamp = Long.parseLong(token.substring(token.lastIndexOf(':') + 1));
+        assertAll(
+            () -> assertEquals(
+                    LMv1TokenGenerator.generate("id", "key", "POST", payload, "/bar", timestamp),
+                    token),
+            () -> assertEquals(0, entity.position())
+        );
+    }
+
     @Test
     public void testGetEntityAsString() throws IOException {
         MockConfiguration config = spy(MockConfiguration.class);
@@ -89,6 +116,88 @@ public class LMv1AuthenticationFilterTest {
                 () -> LMv1AuthenticationFilter.getEntityAsString(config, new LogEntry()));
     }
 
+    @Test
+    public void testSetKey() throws IOException {
+        LMv1AuthenticationFilter filter = new LMv1AuthenticationFilter("/foo", "id", "key");
+        LMv1Key key = new LMv1Key("other", "other");
+        filter.setKey(key);
+        ClientRequestContext request = getRequestContext(URI.create("http://test.com/foo/bar"));
+        filter.filter(request);
+
+        String token = (String) request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        long timestamp = Long.parseLong(token.substring(token.lastIndexOf(':') + 1));
+        String payload = new JSON().getContext(LogEntry.class).writeValueAsString(new LogEntry());
+        assertAll(
+            () -> assertSame(key, filter.getKey()),
+            () -> assertEquals(
+                    LMv1TokenGenerator.generate("other", "other", "POST", payload, "/bar",
+                            timestamp),
+                    token),
+            () -> assertThrows(NullPointerException.class, () -> filter.setKey(null)),
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMv1AuthenticationFilter("/foo", (LMv1Key) null))
+        );
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedFields() {
+        LMv1AuthenticationFilter filter = new LMv1AuthenticationFilter("/foo", "id", "k\u00e9y");
+        filter.setKey(new LMv1Key("other", "other"));
+        LMv1AuthenticationFilter empty = new LMv1AuthenticationFilter("/foo", () -> null);
+        assertAll(
+            () -> assertEquals("id", filter.accessId),
+            () -> assertEquals("k\u00e9y", filter.accessKey),
+            () -> assertNull(empty.accessId),
+            () -> assertNull(empty.accessKey)
+        );
+    }
+
+    @Test
+    public void testCredentialsProvider() throws IOException {
+        LMv1Key key = new LMv1Key("id", "key");
+        AtomicReference<LMv1Key> current = new AtomicReference<>(key);
+        LMv1CredentialsProvider provider = current::get;
+        LMv1AuthenticationFilter filter = new LMv1AuthenticationFilter("/foo", provider);
+        ClientRequestContext request = getRequestContext(URI.create("http://test.com/foo/bar"));
+        filter.filter(request);
+        String token = (String) request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        current.set(new LMv1Key("other", "key"));
+        filter.filter(request);
+        String otherToken = (String) request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        current.set(null);
+        assertAll(
+            () -> assertSame(provider, filter.getCredentialsProvider()),
+            () -> assertTrue(token.startsWith("LMv1 id:")),
+            () -> assertTrue(otherToken.startsWith("LMv1 other:")),
+            () -> assertNull(filter.getKey()),
+            () -> assertThrows(IOException.class, () -> filter.filter(request)),
+            () -> assertThrows(NullPointerException.class,
+                    () -> filter.setCredentialsProvider(null))
+        );
+        filter.setCredentialsProvider(LMv1CredentialsProvider.of(key));
+        assertSame(key, filter.getKey());
+    }
+
+    @Test
+    public void testWriteEntityAsString() throws IOException {
+        LMv1AuthenticationFilter filter = new LMv1AuthenticationFilter("/foo", "id", "key");
+        JSON json = new JSON();
+        MockConfiguration config = spy(MockConfiguration.class);
+        config.setInstances(Set.of(new LoggingFeature(), json));
+        LogEntry entity = new LogEntry().message("message");
+        String expected = json.getContext(LogEntry.class).writeValueAsString(entity);
+        assertEquals(expected, filter.writeEntityAsString(config, entity));
+        // the cached writer is used while the resolver is registered
+        assertEquals(expected, filter.writeEntityAsString(config, entity));
+        verify(config, times(2)).getInstances();
+
+        config.setInstances(Set.of(new LoggingFeature()));
+        assertThrows(IOException.class, () -> filter.writeEntityAsString(config, entity));
+    }
+
     protected static ClientRequestContext getRequestContext(URI requestUri) {
         MockConfiguration config = spy(MockConfiguration.class);
         config.setInstances(Set.of(new JSON()));
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.auth;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class LMv1ReloadingCredentialsProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testInvalidParameters() {
+        assertAll(
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMv1ReloadingCredentialsProvider.Builder((Path) null)),
+            () -> assertThrows(IllegalArgumentException.class,
+                    () -> new LMv1ReloadingCredentialsProvider.Builder(() -> null)
+                        .withReloadIntervalMillis(-1)
+                        .build()),
+            () -> assertThrows(IOException.class,
+                    () -> new LMv1ReloadingCredentialsProvider.Builder(() -> null).build()),
+            () -> assertThrows(IOException.class,
+                    () -> new LMv1ReloadingCredentialsProvider.Builder(directory.resolve("none"))
+                        .build())
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "accessId=id", "accessKey=key", "accessId=id\naccessKey="})
+    public void testInvalidFile(String content) throws IOException {
+        Path file = write("credentials", content, 1000);
+        assertThrows(IOException.class,
+                () -> new LMv1ReloadingCredentialsProvider.Builder(file).build());
+    }
+
+    @Test
+    public void testReloadFile() throws IOException {
+        Path file = write("credentials", "accessId=id\naccessKey=key", 1000);
+        try (LMv1ReloadingCredentialsProvider provider =
+                new LMv1ReloadingCredentialsProvider.Builder(file)
+                    .withReloadIntervalMillis(0)
+                    .build()) {
+            LMv1Key key = provider.getKey();
+            assertAll(
+                () -> assertTrue(provider.isClosed()),
+                () -> assertEquals("id", key.getAccessId()),
+                () -> assertEquals(
+                        LMv1TokenGenerator.generate("id", "key", "POST", "", "/path", 1),
+                        LMv1TokenGenerator.generate(key, "POST", "", "/path", 1)),
+                () -> assertFalse(provider.reload())
+            );
+
+            // touched without changing the credentials
+            write("credentials", "accessKey=key\naccessId=id", 2000);
+            assertFalse(provider.reload());
+            assertSame(key, provider.getKey());
+
+            write("credentials", "accessId=id\naccessKey=new", 3000);
+            assertTrue(provider.reload());
+            LMv1Key newKey = provider.getKey();
+            assertEquals(LMv1TokenGenerator.generate("id", "new", "POST", "", "/path", 1),
+                    LMv1TokenGenerator.generate(newKey, "POST", "", "/path", 1));
+
+            // the last loaded key is kept when the file is invalid
+            write("credentials", "accessId=id", 4000);
+            assertThrows(IOException.class, provider::reload);
+            assertAll(
+                () -> assertSame(newKey, provider.getKey()),
+                () -> assertNotNull(provider.getLastFailure())
+            );
+        }
+    }
+
+    @Test
+    public void testPeriodicReload() throws Exception {
+        LMv1Key key = new LMv1Key("id", "key");
+        LMv1Key newKey = new LMv1Key("id", "new");
+        AtomicReference<LMv1Key> source = new AtomicReference<>(key);
+        LMv1ReloadingCredentialsProvider provider =
+                new LMv1ReloadingCredentialsProvider.Builder(source::get)
+                    .withReloadIntervalMillis(10)
+                    .build();
+        try {
+            assertSame(key, provider.getKey());
+            source.set(null);
+            waitFor(() -> provider.getLastFailure() != null);
+            assertSame(key, provider.getKey());
+            source.set(newKey);
+            waitFor(() -> provider.getKey() == newKey);
+            assertNull(provider.getLastFailure());
+        } finally {
+            provider.close();
+        }
+        assertAll(
+            () -> assertTrue(provider.isClosed()),
+            () -> assertSame(newKey, provider.getKey())
+        );
+    }
+
+    private Path write(String name, String content, long modifiedMillis) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+        return file;
+    }
+
+    private static void waitFor(BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+}
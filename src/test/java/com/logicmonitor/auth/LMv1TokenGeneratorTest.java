@@ -14,8 +14,13 @@
 
 package com.logicmonitor.auth;
 
+import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -44,4 +49,111 @@ public class LMv1TokenGeneratorTest {
                 token);
     }
 
+    @ParameterizedTest
+    @CsvSource({
+        ",      key,    post,    payload,    /path",
+        "id,    ,       post,    payload,    /path",
+        "id,    key,    ,        payload,    /path",
+        "id,    key,    post,    ,           /path",
+        "id,    key,    post,    payload,         ",
+    })
+    public void testInvalidGenerateBytesParameters(String accessId, String accessKey,
+            String httpMethod, String payload, String resourcePath) {
+        ByteBuffer payloadBytes = payload != null
+                ? ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8))
+                : null;
+        assertThrows(NullPointerException.class,
+                () -> LMv1TokenGenerator.generate(accessId, accessKey, httpMethod, payloadBytes,
+                        resourcePath, 0));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "some text",
+        "'[{\"message\":\"za\u017c\u00f3\u0142\u0107\"}]'",
+        "''",
+    })
+    public void testGenerateBytes(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payloadBytes = ByteBuffer.wrap(bytes);
+        String token = LMv1TokenGenerator.generate("id", "key", "post", payload, "/path", 12345);
+        assertAll(
+            () -> assertEquals(token,
+                    LMv1TokenGenerator.generate("id", "key", "post", payloadBytes, "/path", 12345)),
+            () -> assertEquals(token,
+                    LMv1TokenGenerator.generate("id", "key", "post", bytes, "/path", 12345)),
+            () -> assertEquals(0, payloadBytes.position())
+        );
+    }
+
+    @Test
+    public void testAccessKeyChange() {
+        String token = LMv1TokenGenerator.generate("id", "key", "post", "some text", "/path", 12345);
+        String otherToken = LMv1TokenGenerator.generate("id", "other", "post", "some text", "/path",
+                12345);
+        assertAll(
+            () -> assertNotEquals(token, otherToken),
+            () -> assertEquals(token,
+                    LMv1TokenGenerator.generate("id", "key", "post", "some text", "/path", 12345))
+        );
+    }
+
+    @Test
+    public void testEmptyAccessKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> LMv1TokenGenerator.generate("id", "", "post", "some text", "/path", 12345));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "some text",
+        "'[{\"message\":\"za\u017c\u00f3\u0142\u0107\"}]'",
+        "''",
+    })
+    public void testGenerateWithKey(String payload) {
+        LMv1Key key = new LMv1Key("id", "key");
+        LMv1Key otherKey = new LMv1Key("other", "other");
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        String token = LMv1TokenGenerator.generate("id", "key", "post", payload, "/path", 12345);
+        assertAll(
+            () -> assertEquals(token,
+                    LMv1TokenGenerator.generate(key, "post", payload, "/path", 12345)),
+            () -> assertEquals(
+                    LMv1TokenGenerator.generate("other", "other", "post", payload, "/path", 12345),
+                    LMv1TokenGenerator.generate(otherKey, "post", payload, "/path", 12345)),
+            () -> assertEquals(token,
+                    LMv1TokenGenerator.generate(key, "post", bytes, "/path", 12345)),
+            () -> assertEquals(token,
+                    LMv1TokenGenerator.generate(key, "post", ByteBuffer.wrap(bytes), "/path",
+                            12345)),
+            () -> assertEquals(token, CompletableFuture.supplyAsync(
+                    () -> LMv1TokenGenerator.generate(key, "post", payload, "/path", 12345))
+                .get())
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "false, post,    payload,    /path",
+        "true,  ,        payload,    /path",
+        "true,  post,    ,           /path",
+        "true,  post,    payload,         ",
+    })
+    public void testInvalidGenerateWithKeyParameters(boolean hasKey, String httpMethod,
+            String payload, String resourcePath) {
+        LMv1Key key = hasKey ? new LMv1Key("id", "key") : null;
+        assertThrows(NullPointerException.class,
+                () -> LMv1TokenGenerator.generate(key, httpMethod, payload, resourcePath, 0));
+    }
+
+    @Test
+    public void testInvalidKeyParameters() {
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> new LMv1Key(null, "key")),
+            () -> assertThrows(NullPointerException.class, () -> new LMv1Key("id", null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> new LMv1Key("id", "")),
+            () -> assertEquals("LMv1Key [accessId=id]", new LMv1Key("id", "key").toString())
+        );
+    }
+
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LMLogsAdaptiveLimiterTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,    1,    1,    0.5,     0,      ,    ",
+        "2,    1,    1,    0.5,     0,      ,    ",
+        "1,    2,    1,    0.5,     0,      ,    ",
+        "1,    1,    1,    1.0,     0,      ,    ",
+        "1,    1,    1,    0.0,     0,      ,    ",
+        "1,    1,    1,    0.5,    -1,      ,    ",
+        "1,    1,    1,    0.5,     0,    0.0,   ",
+        "1,    1,    1,    0.5,     0,   10.0,  5.0",
+    })
+    public void testBuilderInvalidParameters(Integer minLimit, Integer initialLimit,
+            Integer maxLimit, Double backoffRatio, Double latencyTolerance, Double initialRate,
+            Double maxRate) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsAdaptiveLimiter.Builder()
+            .withMinLimit(minLimit)
+            .withInitialLimit(initialLimit)
+            .withMaxLimit(maxLimit)
+            .withBackoffRatio(backoffRatio)
+            .withLatencyTolerance(latencyTolerance)
+            .withInitialRate(initialRate)
+            .withMaxRate(maxRate)
+            .build());
+    }
+
+    @Test
+    public void testDefaults() {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder().build();
+        assertAll(
+            () -> assertEquals(LMLogsAdaptiveLimiter.DEFAULT_INITIAL_LIMIT, limiter.getLimit()),
+            () -> assertEquals(Double.POSITIVE_INFINITY, limiter.getRate()),
+            () -> assertEquals(0, limiter.getInFlight())
+        );
+    }
+
+    @Test
+    public void testWaitForPermit() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(2)
+            .build();
+        LMLogsAdaptiveLimiter.Permit first = limiter.acquire();
+        LMLogsAdaptiveLimiter.Permit second = limiter.acquire();
+        CompletableFuture<LMLogsAdaptiveLimiter.Permit> waiter = limiter.acquireAsync();
+        assertAll(
+            () -> assertNull(limiter.tryAcquire()),
+            () -> assertFalse(waiter.isDone()),
+            () -> assertEquals(1, limiter.getWaiting())
+        );
+        first.release(202);
+        first.release(202);
+        assertAll(
+            () -> assertTrue(waiter.isDone()),
+            () -> assertEquals(2, limiter.getInFlight())
+        );
+        second.release();
+        waiter.join().release();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testCancelledWaiter() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(1)
+            .build();
+        LMLogsAdaptiveLimiter.Permit permit = limiter.acquire();
+        limiter.acquireAsync().cancel(false);
+        permit.release();
+        assertAll(
+            () -> assertEquals(0, limiter.getInFlight()),
+            () -> assertEquals(0, limiter.getWaiting())
+        );
+    }
+
+    @Test
+    public void testAdditiveIncrease() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(2)
+            .withMaxLimit(10)
+            .build();
+        for (int i = 0; i < 1000; i++) {
+            List<LMLogsAdaptiveLimiter.Permit> permits = acquireAll(limiter);
+            permits.forEach(permit -> permit.release(202));
+        }
+        assertEquals(10, limiter.getLimit());
+
+        // the limit doesn't grow while it's not used
+        LMLogsAdaptiveLimiter unused = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(2)
+            .build();
+        for (int i = 0; i < 1000; i++) {
+            unused.acquire().release(202);
+        }
+        assertEquals(2, unused.getLimit());
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(10)
+            .withMinLimit(2)
+            .withBackoffRatio(0.5)
+            .build();
+        TimeUnit.MILLISECONDS.sleep(1);
+        // the failures of the concurrent requests decrease the limit once
+        acquireAll(limiter).forEach(permit -> permit.release(429));
+        assertEquals(5, limiter.getLimit());
+        TimeUnit.MILLISECONDS.sleep(1);
+        acquireAll(limiter).forEach(permit -> permit.release(503));
+        assertEquals(2, limiter.getLimit());
+        TimeUnit.MILLISECONDS.sleep(1);
+        acquireAll(limiter).forEach(permit -> permit.release(LMLogsRetryPolicy.NO_RESPONSE));
+        assertEquals(2, limiter.getLimit());
+        // client errors don't change the limit
+        acquireAll(limiter).forEach(permit -> permit.release(400));
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testLatencyTolerance() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(10)
+            .withBackoffRatio(0.5)
+            .withLatencyTolerance(2.0)
+            .build();
+        TimeUnit.MILLISECONDS.sleep(1);
+        limiter.acquire().release(202);
+        LMLogsAdaptiveLimiter.Permit slow = limiter.acquire();
+        TimeUnit.MILLISECONDS.sleep(50);
+        slow.release(202);
+        assertAll(
+            () -> assertEquals(5, limiter.getLimit()),
+            () -> assertTrue(limiter.getAverageLatencyMillis() > 0)
+        );
+    }
+
+    @Test
+    public void testLatencyBaselineShift() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(64)
+            .withBackoffRatio(0.5)
+            .withLatencyTolerance(2.0)
+            .withMinLatencyWindow(4)
+            .build();
+        TimeUnit.MILLISECONDS.sleep(1);
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire().release(202);
+        }
+        // the slow requests are overloads until the fast window expires
+        for (int i = 0; i < 4; i++) {
+            LMLogsAdaptiveLimiter.Permit permit = limiter.acquire();
+            TimeUnit.MILLISECONDS.sleep(20);
+            permit.release(202);
+        }
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 4; i++) {
+            LMLogsAdaptiveLimiter.Permit permit = limiter.acquire();
+            TimeUnit.MILLISECONDS.sleep(20);
+            permit.release(202);
+        }
+        assertAll(
+            () -> assertEquals(4, limiter.getLimit()),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> new LMLogsAdaptiveLimiter.Builder().withMinLatencyWindow(0).build())
+        );
+    }
+
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+            .withInitialLimit(100)
+            .withMaxLimit(100)
+            .withInitialRate(20.0)
+            .withMaxRate(20.0)
+            .build();
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            limiter.acquire().release(202);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertAll(
+            () -> assertTrue(elapsedMillis >= 450, "elapsed " + elapsedMillis),
+            () -> assertEquals(20.0, limiter.getRate())
+        );
+        TimeUnit.MILLISECONDS.sleep(1);
+        limiter.acquire().release(429);
+        assertEquals(20.0 * LMLogsAdaptiveLimiter.DEFAULT_BACKOFF_RATIO, limiter.getRate(), 1e-9);
+    }
+
+    private static List<LMLogsAdaptiveLimiter.Permit> acquireAll(LMLogsAdaptiveLimiter limiter) {
+        List<LMLogsAdaptiveLimiter.Permit> permits = new ArrayList<>();
+        LMLogsAdaptiveLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import javax.ws.rs.core.Response.Status;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Test;
+import com.logicmonitor.logs.model.LogEntry;
+
+/**
+ * Runs the integration tests over the pooled Apache HttpClient transport.
+ */
+public class LMLogsApacheTransportIntegrationTest extends LMLogsApiIntegrationTest {
+
+    private final LMLogsApacheTransport transport = new LMLogsApacheTransport.Builder()
+        .withMaxConnections(4)
+        .withMaxConnectionsPerRoute(4)
+        .build();
+
+    public LMLogsApacheTransportIntegrationTest() {
+        api.getApiClient().setTransport(transport);
+    }
+
+    @After
+    public void closeTransport() {
+        transport.close();
+    }
+
+    @Test
+    public void testConnectionReuse() throws LMLogsApiException {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Status.ACCEPTED.getStatusCode(),
+                    api.logIngestPostWithHttpInfo(List.of(new LogEntry())).getStatusCode());
+        }
+        PoolStats stats = transport.getConnectionManager().getTotalStats();
+        assertAll(
+            () -> assertEquals(0, stats.getLeased()),
+            () -> assertEquals(1, stats.getAvailable()),
+            () -> assertEquals(10, REQUESTS.get())
+        );
+    }
+
+    @Test
+    public void testSharedTransport() throws LMLogsApiException {
+        api.getApiClient().setDebugging(true);
+        api.logIngestPostWithHttpInfo(List.of(new LogEntry()));
+        api.getApiClient().setDebugging(false);
+        api.logIngestPostWithHttpInfo(List.of(new LogEntry()));
+        assertEquals(1, transport.getConnectionManager().getTotalStats().getAvailable());
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LMLogsApacheTransportTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        ",       ,       ,          ",
+        "1,      1,      0,        0",
+        "100,    10,     60000, 1000",
+    })
+    public void testBuilder(Integer maxConnections, Integer maxConnectionsPerRoute,
+            Long timeToLiveMillis, Integer validateAfterInactivityMillis) {
+        try (LMLogsApacheTransport transport = new LMLogsApacheTransport.Builder()
+                .withMaxConnections(maxConnections)
+                .withMaxConnectionsPerRoute(maxConnectionsPerRoute)
+                .withTimeToLiveMillis(timeToLiveMillis)
+                .withValidateAfterInactivityMillis(validateAfterInactivityMillis)
+                .build()) {
+            PoolingHttpClientConnectionManager connectionManager = transport.getConnectionManager();
+            assertAll(
+                () -> assertEquals(maxConnections != null ? maxConnections
+                        : LMLogsApacheTransport.DEFAULT_MAX_CONNECTIONS,
+                        connectionManager.getMaxTotal()),
+                () -> assertEquals(maxConnectionsPerRoute != null ? maxConnectionsPerRoute
+                        : LMLogsApacheTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+                        connectionManager.getDefaultMaxPerRoute()),
+                () -> assertEquals(validateAfterInactivityMillis == null
+                        ? LMLogsApacheTransport.DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS
+                        : validateAfterInactivityMillis > 0 ? validateAfterInactivityMillis : -1,
+                        connectionManager.getValidateAfterInactivity())
+            );
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,      1,      0,      0",
+        "1,      0,      0,      0",
+        "1,      1,     -1,      0",
+        "1,      1,      0,     -1",
+    })
+    public void testBuilderInvalidParameters(Integer maxConnections, Integer maxConnectionsPerRoute,
+            Long timeToLiveMillis, Integer validateAfterInactivityMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsApacheTransport.Builder()
+            .withMaxConnections(maxConnections)
+            .withMaxConnectionsPerRoute(maxConnectionsPerRoute)
+            .withTimeToLiveMillis(timeToLiveMillis)
+            .withValidateAfterInactivityMillis(validateAfterInactivityMillis)
+            .build());
+    }
+
+    @Test
+    public void testClientTransport() {
+        try (LMLogsApacheTransport transport = new LMLogsApacheTransport()) {
+            LMLogsApi api = new LMLogsApi.Builder()
+                .withAccessId("id")
+                .withAccessKey("key")
+                .withTransport(transport)
+                .build();
+            assertAll(
+                () -> assertSame(transport, api.getApiClient().getTransport()),
+                () -> assertSame(LMLogsTransport.DEFAULT, new LMLogsApi.Builder()
+                    .withAccessId("id")
+                    .withAccessKey("key")
+                    .build()
+                    .getApiClient()
+                    .getTransport()),
+                () -> assertThrows(NullPointerException.class,
+                        () -> api.getApiClient().setTransport(null))
+            );
+        }
+    }
+
+}
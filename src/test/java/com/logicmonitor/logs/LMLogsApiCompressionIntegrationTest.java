@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+import com.logicmonitor.auth.LMv1TokenGenerator;
+import com.logicmonitor.logs.invoker.ServerConfiguration;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsApiCompressionIntegrationTest extends JerseyTest {
+
+    protected static final String COMPRESSED_SIZE_HEADER = "X-Compressed-Size";
+    protected static final String DECOMPRESSED_SIZE_HEADER = "X-Decompressed-Size";
+
+    @Path("/rest")
+    public static class CompressedLogIngestResource {
+        @Path("/log/ingest")
+        @POST
+        @Produces(MediaType.APPLICATION_JSON)
+        @Consumes(MediaType.APPLICATION_JSON)
+        public Response doPost(
+                @HeaderParam(HttpHeaders.CONTENT_ENCODING) String encoding,
+                @HeaderParam(HttpHeaders.AUTHORIZATION) String authorization,
+                byte[] body) throws IOException {
+
+            String payload;
+            try (InputStream input = decode(encoding, new ByteArrayInputStream(body))) {
+                payload = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            if (authorization == null) {
+                return LMLogsApiIntegrationTest.error(Status.UNAUTHORIZED, "Missing authorization");
+            }
+            Matcher matcher = LMLogsApiIntegrationTest.AUTH_PATTERN.matcher(authorization);
+            if (!matcher.matches()) {
+                return LMLogsApiIntegrationTest.error(Status.UNAUTHORIZED,
+                        "Invalid authorization format");
+            }
+            // the signature covers the uncompressed payload
+            String token = LMv1TokenGenerator.generate(LMLogsApiIntegrationTest.TEST_ID,
+                    LMLogsApiIntegrationTest.TEST_KEY, "POST", payload, "/log/ingest",
+                    Long.parseLong(matcher.group(1)));
+            if (!token.equals(authorization)) {
+                return LMLogsApiIntegrationTest.error(Status.UNAUTHORIZED, "Invalid authorization");
+            }
+
+            return Response
+                .status(Status.ACCEPTED)
+                .entity(new LogResponse().success(true))
+                .header(COMPRESSED_SIZE_HEADER, body.length)
+                .header(DECOMPRESSED_SIZE_HEADER, payload.length())
+                .build();
+        }
+
+        private static InputStream decode(String encoding, InputStream input) throws IOException {
+            if (encoding == null) {
+                return input;
+            }
+            switch (encoding) {
+                case "gzip":
+                    return new GZIPInputStream(input);
+                case "deflate":
+                    return new InflaterInputStream(input);
+                default:
+                    throw new IOException("Unsupported encoding " + encoding);
+            }
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        forceSet(TestProperties.CONTAINER_PORT, "0");
+        return new ResourceConfig(CompressedLogIngestResource.class);
+    }
+
+    @Test
+    public void testGzip() throws LMLogsApiException {
+        testCompression(LMLogsCompression.GZIP);
+    }
+
+    @Test
+    public void testDeflate() throws LMLogsApiException {
+        testCompression(LMLogsCompression.DEFLATE);
+    }
+
+    @Test
+    public void testNone() throws LMLogsApiException {
+        LMLogsApiResponse<LogResponse> response = send(LMLogsCompression.NONE);
+        assertEquals(response.getHeaders().get(DECOMPRESSED_SIZE_HEADER),
+                response.getHeaders().get(COMPRESSED_SIZE_HEADER));
+    }
+
+    protected void testCompression(LMLogsCompression compression) throws LMLogsApiException {
+        LMLogsApiResponse<LogResponse> response = send(compression);
+        int compressedSize = Integer.parseInt(
+                response.getHeaders().get(COMPRESSED_SIZE_HEADER).get(0));
+        int decompressedSize = Integer.parseInt(
+                response.getHeaders().get(DECOMPRESSED_SIZE_HEADER).get(0));
+        assertTrue(compressedSize * 5 < decompressedSize);
+    }
+
+    protected LMLogsApiResponse<LogResponse> send(LMLogsCompression compression)
+            throws LMLogsApiException {
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withAccessId(LMLogsApiIntegrationTest.TEST_ID)
+            .withAccessKey(LMLogsApiIntegrationTest.TEST_KEY)
+            .withCompression(compression)
+            .build();
+        URI testBaseUrl = getBaseUri().resolve(
+                URI.create(api.getApiClient().getBasePath()).getPath());
+        api.getApiClient().setServers(List.of(
+                new ServerConfiguration(testBaseUrl.toString(), null, Map.of())));
+
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(new LogEntry()
+                .message("2020-07-01 12:00:00.000 INFO [main] com.example.Service - request " + i)
+                .putLmResourceIdItem("system.hostname", "host"));
+        }
+        LMLogsApiResponse<LogResponse> response = api.logIngestPostWithHttpInfo(entries);
+        assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode());
+        return response;
+    }
+
+}
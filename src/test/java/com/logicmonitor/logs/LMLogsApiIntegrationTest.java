@@ -14,13 +14,19 @@
 
 package com.logicmonitor.logs;
 
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.ws.rs.Consumes;
@@ -51,6 +57,8 @@ public class LMLogsApiIntegrationTest extends JerseyTest {
     protected static final Pattern AUTH_PATTERN = Pattern.compile("\\w+\\s\\w+:[^:]+:(\\d+)");
     protected static final String TEST_REQUEST_ID = "testRequestId";
     protected static final String TEST_USER_AGENT = "Agent/0.1";
+    protected static final int TEST_MAX_PAYLOAD_BYTES = 1000;
+    protected static final AtomicInteger REQUESTS = new AtomicInteger();
 
 
     @Path("/rest")
@@ -65,10 +73,14 @@ public class LMLogsApiIntegrationTest extends JerseyTest {
                 @HeaderParam(HttpHeaders.USER_AGENT) String userAgent,
                 String payload) {
 
+            REQUESTS.incrementAndGet();
+            if (payload.length() > TEST_MAX_PAYLOAD_BYTES) {
+                return error(Status.REQUEST_ENTITY_TOO_LARGE, "Payload too large");
+            }
             if (version == null) {
                 return error(Status.BAD_REQUEST, "Missing version");
             }
-            if (!LMLogsApi.API_VERSION.toString().equals(version)) {
+            if (!List.of("2", "3").contains(version)) {
                 return error(Status.BAD_REQUEST, "Invalid version");
             }
             if (userAgent == null) {
@@ -104,10 +116,11 @@ public class LMLogsApiIntegrationTest extends JerseyTest {
             .build();
     }
 
-    private LMLogsApi api = new LMLogsApi.Builder()
+    protected LMLogsApi api = new LMLogsApi.Builder()
         .withAccessId(TEST_ID)
         .withAccessKey(TEST_KEY)
         .withUserAgentHeader(TEST_USER_AGENT)
+        .withMaxPayloadBytes(TEST_MAX_PAYLOAD_BYTES)
         .build();
 
     @Override
@@ -118,6 +131,7 @@ public class LMLogsApiIntegrationTest extends JerseyTest {
 
     @Before
     public void overrideClientBaseUrl() {
+        REQUESTS.set(0);
         URI testBaseUrl = getBaseUri().resolve(
                 URI.create(api.getApiClient().getBasePath()).getPath());
         api.getApiClient().setServers(List.of(
@@ -146,4 +160,115 @@ public class LMLogsApiIntegrationTest extends JerseyTest {
         }
     }
 
+    @Test
+    public void testAsyncApiCall() throws Exception {
+        LMLogsApiResponse<LogResponse> response = api.logIngestPostAsync(List.of(new LogEntry()))
+            .get(10, TimeUnit.SECONDS);
+        assertAll(
+            () -> assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(List.of(TEST_REQUEST_ID),
+                    response.getHeaders().get(LMLogsApi.REQUEST_ID_HEADER)),
+            () -> assertNotNull(response.getData())
+        );
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+        ExecutionException nullEntries = assertThrows(ExecutionException.class,
+                () -> api.logIngestPostAsync(null).get(10, TimeUnit.SECONDS));
+        ExecutionException tooLarge = assertThrows(ExecutionException.class,
+                () -> api.logIngestPostAsync(entries(100)).get(10, TimeUnit.SECONDS));
+        assertAll(
+            () -> assertEquals(Status.BAD_REQUEST.getStatusCode(),
+                    ((LMLogsApiException) nullEntries.getCause()).getResponse().getStatusCode()),
+            () -> assertEquals(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(),
+                    ((LMLogsApiException) tooLarge.getCause()).getResponse().getStatusCode()),
+            () -> assertEquals(0, REQUESTS.get())
+        );
+    }
+
+    @Test
+    public void testPayloadTooLarge() {
+        List<LogEntry> entries = entries(100);
+        try {
+            api.logIngestPostWithHttpInfo(entries);
+            fail("Payload exceeding the limit must not be sent");
+        } catch (LMLogsApiException e) {
+            assertEquals(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(),
+                    e.getResponse().getStatusCode());
+        }
+        assertEquals(0, REQUESTS.get());
+    }
+
+    @Test
+    public void testSplitApiCall() throws LMLogsApiException {
+        List<LogEntry> entries = entries(100);
+        entries.add(50, new LogEntry()
+            .message(String.join("", Collections.nCopies(TEST_MAX_PAYLOAD_BYTES, "x"))));
+        api.getApiClient().setSendParallelism(4);
+        List<LMLogsBatchResult> results = api.logIngestPostSplit(entries);
+
+        List<LogEntry> sent = new ArrayList<>();
+        results.forEach(result -> sent.addAll(result.getEntries()));
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+        LMLogsBatchResult tooLarge = results.stream()
+            .filter(result -> result.getEntries().contains(entries.get(50)))
+            .findAny()
+            .get();
+        assertAll(
+            () -> assertTrue(results.size() > 2),
+            () -> assertEquals(entries, sent),
+            () -> assertEquals(1, failed),
+            () -> assertEquals(1, tooLarge.getEntries().size()),
+            () -> assertEquals(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(),
+                    tooLarge.getException().getResponse().getStatusCode()),
+            () -> assertEquals(results.size() - 1, REQUESTS.get()),
+            () -> results.stream()
+                .filter(LMLogsBatchResult::isSuccess)
+                .forEach(result -> assertEquals(Status.ACCEPTED.getStatusCode(),
+                        result.getResponse().getStatusCode()))
+        );
+    }
+
+    @Test
+    public void testRecordsApiCall() throws LMLogsApiException {
+        Map<String, String> resourceId = Map.of("system.hostname", "host");
+        List<LMLogsRecord> records = List.of(new LMLogsRecord(), new LMLogsRecord());
+        for (int i = 0; i < 3; i++) {
+            records.get(0).set("message " + i, 1_593_604_800_000L + i, resourceId);
+            records.get(1).set("message " + i, LMLogsRecord.NO_TIMESTAMP, resourceId);
+            LMLogsApiResponse<LogResponse> response = api.logIngestPostRecords(records);
+            assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode());
+        }
+        assertEquals(3, REQUESTS.get());
+        LMLogsApiException exception = assertThrows(LMLogsApiException.class,
+                () -> api.logIngestPostRecords(List.of(new LMLogsRecord(
+                        String.join("", Collections.nCopies(TEST_MAX_PAYLOAD_BYTES, "x")),
+                        LMLogsRecord.NO_TIMESTAMP, resourceId))));
+        assertAll(
+            () -> assertEquals(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(),
+                    exception.getResponse().getStatusCode()),
+            () -> assertEquals(3, REQUESTS.get()),
+            () -> assertThrows(LMLogsApiException.class, () -> api.logIngestPostRecords(null))
+        );
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+        api.getApiClient().setMetrics(metrics);
+        api.logIngestPostWithHttpInfo(entries(2));
+        api.logIngestPostAsync(entries(3)).get(10, TimeUnit.SECONDS);
+        api.logIngestPostSplit(List.of(new LogEntry()
+            .message(String.join("", Collections.nCopies(TEST_MAX_PAYLOAD_BYTES, "x")))));
+        assertAll(
+            () -> assertEquals(2, metrics.getRequests()),
+            () -> assertEquals(2, metrics.getAcceptedRequests()),
+            () -> assertEquals(5, metrics.getEntriesSent()),
+            () -> assertEquals(1, metrics.getEntriesFailed()),
+            () -> assertTrue(metrics.getPayloadBytes() > 0),
+            () -> assertEquals(2, metrics.getLatencyHistogram().getCount())
+        );
+    }
+
 }
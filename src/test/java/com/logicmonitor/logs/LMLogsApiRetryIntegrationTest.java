@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Before;
+import org.junit.Test;
+import com.logicmonitor.auth.LMv1CredentialsProvider;
+import com.logicmonitor.auth.LMv1Key;
+import com.logicmonitor.auth.LMv1TokenGenerator;
+import com.logicmonitor.logs.invoker.ServerConfiguration;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsApiRetryIntegrationTest extends JerseyTest {
+
+    protected static final int TEST_MAX_ATTEMPTS = 3;
+    protected static final AtomicInteger FAILURES = new AtomicInteger();
+    protected static final AtomicInteger FAILURE_STATUS = new AtomicInteger();
+    protected static final List<String> PAYLOADS = new CopyOnWriteArrayList<>();
+
+    @Path("/rest")
+    public static class FailingLogIngestResource {
+        @Path("/log/ingest")
+        @POST
+        @Produces(MediaType.APPLICATION_JSON)
+        @Consumes(MediaType.APPLICATION_JSON)
+        public Response doPost(
+                @HeaderParam(HttpHeaders.AUTHORIZATION) String authorization,
+                String payload) {
+
+            PAYLOADS.add(payload);
+            Matcher matcher = LMLogsApiIntegrationTest.AUTH_PATTERN.matcher(authorization);
+            if (!matcher.matches() || !LMv1TokenGenerator.generate(LMLogsApiIntegrationTest.TEST_ID,
+                    LMLogsApiIntegrationTest.TEST_KEY, "POST", payload, "/log/ingest",
+                    Long.parseLong(matcher.group(1))).equals(authorization)) {
+                return LMLogsApiIntegrationTest.error(Status.UNAUTHORIZED, "Invalid authorization");
+            }
+            if (FAILURES.getAndDecrement() > 0) {
+                return Response
+                    .status(FAILURE_STATUS.get())
+                    .entity(new LogResponse().success(false).message("Try again"))
+                    .header(LMLogsRetryPolicy.RETRY_AFTER_HEADER, 0)
+                    .build();
+            }
+            return Response
+                .status(Status.ACCEPTED)
+                .entity(new LogResponse().success(true))
+                .build();
+        }
+    }
+
+    private final LMLogsAdaptiveLimiter limiter = new LMLogsAdaptiveLimiter.Builder()
+        .withInitialLimit(10)
+        .withBackoffRatio(0.5)
+        .build();
+
+    private final LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+
+    private final LMLogsApi api = new LMLogsApi.Builder()
+        .withAccessId(LMLogsApiIntegrationTest.TEST_ID)
+        .withAccessKey(LMLogsApiIntegrationTest.TEST_KEY)
+        .withLimiter(limiter)
+        .withMetrics(metrics)
+        .withRetryPolicy(new LMLogsRetryPolicy.Builder()
+            .withMaxAttempts(TEST_MAX_ATTEMPTS)
+            .withBaseDelayMillis(10L)
+            .withMaxDelayMillis(100L)
+            .build())
+        .build();
+
+    @Override
+    protected Application configure() {
+        forceSet(TestProperties.CONTAINER_PORT, "0");
+        return new ResourceConfig(FailingLogIngestResource.class);
+    }
+
+    @Before
+    public void overrideClientBaseUrl() {
+        FAILURES.set(0);
+        FAILURE_STATUS.set(Status.SERVICE_UNAVAILABLE.getStatusCode());
+        PAYLOADS.clear();
+        URI testBaseUrl = getBaseUri().resolve(
+                URI.create(api.getApiClient().getBasePath()).getPath());
+        api.getApiClient().setServers(List.of(
+                new ServerConfiguration(testBaseUrl.toString(), null, Map.of())));
+    }
+
+    @Test
+    public void testRetry() throws LMLogsApiException {
+        FAILURES.set(TEST_MAX_ATTEMPTS - 1);
+        FAILURE_STATUS.set(429);
+        LMLogsApiResponse<LogResponse> response = api.logIngestPostWithHttpInfo(entries(10));
+        assertAll(
+            () -> assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(TEST_MAX_ATTEMPTS, PAYLOADS.size()),
+            () -> assertTrue(PAYLOADS.stream().allMatch(PAYLOADS.get(0)::equals)),
+            () -> assertTrue(limiter.getLimit() < 10),
+            () -> assertEquals(0, limiter.getInFlight()),
+            () -> assertEquals(TEST_MAX_ATTEMPTS - 1, metrics.getThrottledRequests()),
+            () -> assertEquals(TEST_MAX_ATTEMPTS - 1, metrics.getRetries()),
+            () -> assertEquals(10, metrics.getEntriesSent())
+        );
+    }
+
+    @Test
+    public void testRetriesExhausted() {
+        FAILURES.set(TEST_MAX_ATTEMPTS);
+        LMLogsApiException exception = assertThrows(LMLogsApiException.class,
+                () -> api.logIngestPostWithHttpInfo(entries(10)));
+        assertAll(
+            () -> assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                    exception.getResponse().getStatusCode()),
+            () -> assertEquals(TEST_MAX_ATTEMPTS, PAYLOADS.size())
+        );
+    }
+
+    @Test
+    public void testNotRetryable() {
+        FAILURES.set(1);
+        FAILURE_STATUS.set(Status.BAD_REQUEST.getStatusCode());
+        assertThrows(LMLogsApiException.class,
+                () -> api.logIngestPostWithHttpInfo(entries(10)));
+        assertEquals(1, PAYLOADS.size());
+    }
+
+    @Test
+    public void testAsyncRetry() throws Exception {
+        FAILURES.set(TEST_MAX_ATTEMPTS - 1);
+        LMLogsApiResponse<LogResponse> response = api.logIngestPostAsync(
+                entries(10)).get(10, TimeUnit.SECONDS);
+        assertAll(
+            () -> assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(TEST_MAX_ATTEMPTS, PAYLOADS.size()),
+            () -> assertTrue(PAYLOADS.stream().allMatch(PAYLOADS.get(0)::equals)),
+            () -> assertTrue(limiter.getLimit() < 10),
+            () -> assertEquals(0, limiter.getInFlight())
+        );
+    }
+
+    @Test
+    public void testAsyncRetriesExhausted() {
+        FAILURES.set(TEST_MAX_ATTEMPTS);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> api.logIngestPostAsync(entries(10))
+                    .get(10, TimeUnit.SECONDS));
+        assertAll(
+            () -> assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                    ((LMLogsApiException) exception.getCause()).getResponse().getStatusCode()),
+            () -> assertEquals(TEST_MAX_ATTEMPTS, PAYLOADS.size())
+        );
+    }
+
+    @Test
+    public void testAsyncClosedClient() {
+        api.getApiClient().close();
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> api.logIngestPostAsync(entries(10))
+                    .get(10, TimeUnit.SECONDS));
+        assertAll(
+            () -> assertTrue(exception.getCause() instanceof LMLogsApiException),
+            () -> assertEquals(0, PAYLOADS.size()),
+            () -> assertEquals(0, limiter.getInFlight()),
+            () -> assertEquals(10, limiter.getLimit())
+        );
+    }
+
+    @Test
+    public void testResendAfterRotation() throws LMLogsApiException {
+        LMv1Key oldKey = new LMv1Key(LMLogsApiIntegrationTest.TEST_ID, "revoked");
+        LMv1Key newKey = new LMv1Key(LMLogsApiIntegrationTest.TEST_ID,
+                LMLogsApiIntegrationTest.TEST_KEY);
+        // the key is rotated after the first request is signed with the revoked one
+        AtomicInteger calls = new AtomicInteger();
+        LMv1CredentialsProvider provider = () -> calls.incrementAndGet() <= 2 ? oldKey : newKey;
+        api.getApiClient().setCredentialsProvider(provider);
+        LMLogsApiResponse<LogResponse> response = api.logIngestPostWithHttpInfo(entries(10));
+        assertAll(
+            () -> assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(2, PAYLOADS.size()),
+            () -> assertEquals(1, metrics.getRetries())
+        );
+    }
+
+    @Test
+    public void testUnauthorizedNotResent() {
+        api.getApiClient().setCredentialsProvider(LMv1CredentialsProvider.of(
+                new LMv1Key(LMLogsApiIntegrationTest.TEST_ID, "revoked")));
+        LMLogsApiException exception = assertThrows(LMLogsApiException.class,
+                () -> api.logIngestPostWithHttpInfo(entries(10)));
+        assertAll(
+            () -> assertEquals(Status.UNAUTHORIZED.getStatusCode(),
+                    exception.getResponse().getStatusCode()),
+            () -> assertEquals(1, PAYLOADS.size())
+        );
+    }
+
+}
@@ -15,8 +15,11 @@
 package com.logicmonitor.logs;
 
 import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.auth.LMv1CredentialsProvider;
+import com.logicmonitor.auth.LMv1Key;
 
 public class LMLogsApiTest {
 
@@ -63,4 +66,98 @@ public class LMLogsApiTest {
         );
     }
 
+    @ParameterizedTest
+    @CsvSource({
+        ",           ",
+        "1000,       ",
+        ",           4",
+        "1,          1",
+    })
+    public void testBuilderSplitParameters(Integer maxPayloadBytes, Integer sendParallelism) {
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withAccessId("id")
+            .withAccessKey("key")
+            .withMaxPayloadBytes(maxPayloadBytes)
+            .withSendParallelism(sendParallelism)
+            .build();
+        LMLogsClient client = api.getApiClient();
+
+        assertAll(
+            () -> assertEquals(maxPayloadBytes != null ? maxPayloadBytes
+                    : LMLogsClient.DEFAULT_MAX_PAYLOAD_BYTES, client.getMaxPayloadBytes()),
+            () -> assertEquals(sendParallelism != null ? sendParallelism
+                    : LMLogsClient.DEFAULT_SEND_PARALLELISM, client.getSendParallelism())
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,          1",
+        "1,          0",
+    })
+    public void testBuilderInvalidSplitParameters(Integer maxPayloadBytes, Integer sendParallelism) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsApi.Builder()
+            .withAccessId("id")
+            .withAccessKey("key")
+            .withMaxPayloadBytes(maxPayloadBytes)
+            .withSendParallelism(sendParallelism)
+            .build());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        ",            NONE",
+        "NONE,        NONE",
+        "GZIP,        GZIP",
+        "DEFLATE,     DEFLATE",
+    })
+    public void testBuilderCompression(LMLogsCompression compression, LMLogsCompression expected) {
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withAccessId("id")
+            .withAccessKey("key")
+            .withCompression(compression)
+            .build();
+        assertEquals(expected, api.getApiClient().getCompression());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        ",     ,      V2, false",
+        "V2,   false, V2, false",
+        "V3,   ,      V3, false",
+        "V3,   true,  V3, true",
+    })
+    public void testBuilderApiVersion(LMLogsApiVersion apiVersion, Boolean negotiation,
+            LMLogsApiVersion expectedVersion, boolean expectedNegotiation) {
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withAccessId("id")
+            .withAccessKey("key")
+            .withApiVersion(apiVersion)
+            .withApiVersionNegotiation(negotiation)
+            .build();
+        assertAll(
+            () -> assertEquals(expectedVersion, api.getApiClient().getApiVersion()),
+            () -> assertEquals(expectedNegotiation, api.getApiClient().isApiVersionNegotiation()),
+            () -> assertThrows(NullPointerException.class,
+                    () -> api.getApiClient().setApiVersion(null))
+        );
+    }
+
+    @Test
+    public void testBuilderCredentialsProvider() {
+        LMv1CredentialsProvider provider = LMv1CredentialsProvider.of(new LMv1Key("id", "key"));
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withCredentialsProvider(provider)
+            .build();
+        LMv1CredentialsProvider otherProvider =
+                LMv1CredentialsProvider.of(new LMv1Key("other", "key"));
+        assertSame(provider, api.getApiClient().getCredentialsProvider());
+        api.getApiClient().setCredentialsProvider(otherProvider);
+        assertAll(
+            () -> assertSame(otherProvider, api.getApiClient().getCredentialsProvider()),
+            () -> assertThrows(NullPointerException.class,
+                    () -> api.getApiClient().setCredentialsProvider(null))
+        );
+    }
+
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Before;
+import org.junit.Test;
+import com.logicmonitor.logs.invoker.ServerConfiguration;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsApiVersionIntegrationTest extends JerseyTest {
+
+    protected static final String REJECTED_MESSAGE = "rejected";
+    protected static volatile Set<String> acceptedVersions;
+    protected static final List<String> VERSIONS = new CopyOnWriteArrayList<>();
+
+    @Path("/rest")
+    public static class VersionedLogIngestResource {
+        @Path("/log/ingest")
+        @POST
+        @Produces(MediaType.APPLICATION_JSON)
+        @Consumes(MediaType.APPLICATION_JSON)
+        public Response doPost(
+                @HeaderParam("X-Version") String version,
+                String payload) {
+
+            VERSIONS.add(version);
+            if (!acceptedVersions.contains(version)) {
+                return LMLogsApiIntegrationTest.error(Status.BAD_REQUEST, "Invalid version");
+            }
+            if (payload.contains(REJECTED_MESSAGE)) {
+                return LMLogsApiIntegrationTest.error(Status.BAD_REQUEST, "Invalid entry");
+            }
+            return Response
+                .status(Status.ACCEPTED)
+                .entity(new LogResponse().success(true))
+                .build();
+        }
+    }
+
+    @Override
+    protected Application configure() {
+        forceSet(TestProperties.CONTAINER_PORT, "0");
+        return new ResourceConfig(VersionedLogIngestResource.class);
+    }
+
+    @Before
+    public void resetServer() {
+        acceptedVersions = Set.of("2", "3");
+        VERSIONS.clear();
+    }
+
+    @Test
+    public void testSelectedVersion() throws Exception {
+        for (LMLogsApiVersion version : LMLogsApiVersion.values()) {
+            VERSIONS.clear();
+            LMLogsApi api = api(version, false);
+            LMLogsApiResponse<LogResponse> response = api.logIngestPostWithHttpInfo(entries(1));
+            LMLogsApiResponse<LogResponse> asyncResponse = api.logIngestPostAsync(
+                    entries(1)).get(10, TimeUnit.SECONDS);
+            String number = String.valueOf(version.getNumber());
+            assertAll(
+                () -> assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode()),
+                () -> assertEquals(Status.ACCEPTED.getStatusCode(), asyncResponse.getStatusCode()),
+                () -> assertEquals(List.of(number, number), VERSIONS)
+            );
+        }
+    }
+
+    @Test
+    public void testVersionRejectedWithoutNegotiation() {
+        acceptedVersions = Set.of("2");
+        LMLogsApi api = api(LMLogsApiVersion.V3, false);
+        LMLogsApiException e = assertThrows(LMLogsApiException.class,
+                () -> api.logIngestPostWithHttpInfo(entries(1)));
+        assertAll(
+            () -> assertEquals(Status.BAD_REQUEST.getStatusCode(), e.getResponse().getStatusCode()),
+            () -> assertEquals(List.of("3"), VERSIONS),
+            () -> assertEquals(LMLogsApiVersion.V3, api.getApiClient().getApiVersion())
+        );
+    }
+
+    @Test
+    public void testNegotiateOlderVersion() throws Exception {
+        acceptedVersions = Set.of("2");
+        LMLogsApi api = api(LMLogsApiVersion.V3, true);
+        api.logIngestPostWithHttpInfo(entries(1));
+        assertEquals(List.of("3", "2"), VERSIONS);
+        assertEquals(LMLogsApiVersion.V2, api.getApiClient().getApiVersion());
+        api.logIngestPostWithHttpInfo(entries(1));
+        api.logIngestPostAsync(entries(1)).get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("3", "2", "2", "2"), VERSIONS);
+    }
+
+    @Test
+    public void testNegotiateOlderVersionAsync() throws Exception {
+        acceptedVersions = Set.of("2");
+        LMLogsApi api = api(LMLogsApiVersion.V3, true);
+        LMLogsApiResponse<LogResponse> response = api.logIngestPostAsync(
+                entries(1)).get(10, TimeUnit.SECONDS);
+        assertAll(
+            () -> assertEquals(Status.ACCEPTED.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(List.of("3", "2"), VERSIONS),
+            () -> assertEquals(LMLogsApiVersion.V2, api.getApiClient().getApiVersion())
+        );
+    }
+
+    @Test
+    public void testNegotiationKeepsAcceptedVersion() throws Exception {
+        LMLogsApi api = api(LMLogsApiVersion.V3, true);
+        api.logIngestPostWithHttpInfo(entries(1));
+        // once the version is accepted, the rejected entries are not sent with another one
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> api.logIngestPostAsync(List.of(new LogEntry().message(REJECTED_MESSAGE)))
+                    .get(10, TimeUnit.SECONDS));
+        assertAll(
+            () -> assertEquals(Status.BAD_REQUEST.getStatusCode(),
+                    ((LMLogsApiException) e.getCause()).getResponse().getStatusCode()),
+            () -> assertEquals(List.of("3", "3"), VERSIONS),
+            () -> assertEquals(LMLogsApiVersion.V3, api.getApiClient().getApiVersion())
+        );
+    }
+
+    @Test
+    public void testNegotiationRejectedByEveryVersion() {
+        LMLogsApi api = api(LMLogsApiVersion.V3, true);
+        LMLogsApiException e = assertThrows(LMLogsApiException.class,
+                () -> api.logIngestPostWithHttpInfo(
+                        List.of(new LogEntry().message(REJECTED_MESSAGE))));
+        assertAll(
+            () -> assertEquals(Status.BAD_REQUEST.getStatusCode(), e.getResponse().getStatusCode()),
+            () -> assertEquals(List.of("3", "2"), VERSIONS),
+            () -> assertEquals(LMLogsApiVersion.V3, api.getApiClient().getApiVersion())
+        );
+    }
+
+    private LMLogsApi api(LMLogsApiVersion version, boolean negotiation) {
+        LMLogsApi api = new LMLogsApi.Builder()
+            .withAccessId(LMLogsApiIntegrationTest.TEST_ID)
+            .withAccessKey(LMLogsApiIntegrationTest.TEST_KEY)
+            .withApiVersion(version)
+            .withApiVersionNegotiation(negotiation)
+            .build();
+        URI testBaseUrl = getBaseUri().resolve(
+                URI.create(api.getApiClient().getBasePath()).getPath());
+        api.getApiClient().setServers(List.of(
+                new ServerConfiguration(testBaseUrl.toString(), null, Map.of())));
+        return api;
+    }
+
+}
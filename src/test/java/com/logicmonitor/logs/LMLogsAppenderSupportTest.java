@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsAppenderSupportTest {
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+    // the records are reused after the request, so they are copied by the mock
+    private final List<LMLogsRecord> records = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void captureRecords() throws LMLogsApiException {
+        doAnswer(invocation -> {
+            for (LMLogsRecord record : invocation.<List<LMLogsRecord>>getArgument(0)) {
+                records.add(new LMLogsRecord(record.getMessage(), record.getTimestamp(),
+                        record.getResourceId()));
+            }
+            return new LMLogsApiResponse<>(202, Collections.emptyMap(), new LogResponse());
+        }).when(api).logIngestPostRecords(anyList());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "                    | {}",
+        "' '                 | {}",
+        "a=1                 | {a=1}",
+        "' a = 1 , b=2=3 '   | {a=1, b=2=3}",
+    })
+    public void testParseProperties(String properties, String expected) {
+        assertEquals(expected, LMLogsAppenderSupport.parseProperties(properties).toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"a", "a=", "=1", "a=1,", "a=1,,b=2"})
+    public void testParseInvalidProperties(String properties) {
+        assertThrows(IllegalArgumentException.class,
+                () -> LMLogsAppenderSupport.parseProperties(properties));
+    }
+
+    @Test
+    public void testInvalidPolicies() {
+        LMLogsAppenderSupport support = new LMLogsAppenderSupport();
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class,
+                    () -> support.setOverflowPolicy("wait")),
+            () -> assertThrows(IllegalArgumentException.class,
+                    () -> support.setWaitStrategy("sleep")),
+            () -> assertThrows(NullPointerException.class,
+                    () -> support.setOverflowPolicy(null))
+        );
+    }
+
+    @Test
+    public void testAppend() {
+        LMLogsAppenderSupport support = new LMLogsAppenderSupport();
+        support.setApi(api);
+        support.setResourceId("system.hostname=host");
+        support.setMdcResourceId("device=system.deviceId");
+        support.setOverflowPolicy("block");
+        support.setWaitStrategy("yielding");
+        assertFalse(support.append("main", "not started", 1, null));
+        support.start();
+        assertAll(
+            () -> assertTrue(support.isStarted()),
+            () -> assertTrue(support.append("main", "static", 2, null)),
+            () -> assertTrue(support.append("main", "no device", 3, key -> null)),
+            () -> assertTrue(support.append("main", "device", 4,
+                    key -> key.equals("device") ? "42" : null)),
+            () -> assertFalse(support.append("lm-logs-ring-buffer-1", "internal", 5, null))
+        );
+        support.stop();
+        assertAll(
+            () -> assertFalse(support.isStarted()),
+            () -> assertFalse(support.append("main", "stopped", 6, null)),
+            () -> assertEquals(3, records.size()),
+            () -> assertEquals("static", records.get(0).getMessage()),
+            () -> assertEquals(2, records.get(0).getTimestamp()),
+            () -> assertEquals(Map.of("system.hostname", "host"),
+                    records.get(1).getResourceId()),
+            () -> assertEquals(Map.of("system.hostname", "host", "system.deviceId", "42"),
+                    records.get(2).getResourceId())
+        );
+    }
+
+    @Test
+    public void testStartWithoutCredentials() {
+        LMLogsAppenderSupport support = new LMLogsAppenderSupport();
+        assertThrows(NullPointerException.class, support::start);
+        assertFalse(support.isStarted());
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogError;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsBatcherTest {
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,    1,    1,    1,    0",
+        "1,    0,    1,    1,    0",
+        "1,    1,    0,    1,    0",
+        "1,    1,    1,    0,    0",
+        "1,    1,    1,    1,   -1",
+    })
+    public void testBuilderInvalidParameters(int queueCapacity, int batchSize, int batchBytes,
+            int workers, long lingerMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsBatcher.Builder(api)
+            .withQueueCapacity(queueCapacity)
+            .withBatchSize(batchSize)
+            .withBatchBytes(batchBytes)
+            .withWorkers(workers)
+            .withLingerMillis(lingerMillis)
+            .build());
+    }
+
+    @Test
+    public void testNullApi() {
+        assertThrows(NullPointerException.class, () -> new LMLogsBatcher.Builder(null));
+    }
+
+    @Test
+    public void testSendOnBatchSize() throws LMLogsApiException {
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withBatchSize(3)
+                .withLingerMillis(60_000)
+                .build()) {
+            List<LogEntry> entries = entries(3);
+            entries.forEach(batcher::offer);
+            verify(api, timeout(5000)).logIngestPostSplit(entries);
+        }
+    }
+
+    @Test
+    public void testSendOnBatchBytes() throws LMLogsApiException {
+        List<LogEntry> entries = entries(4);
+        int entrySize = LMLogsBatcher.estimateSize(entries.get(0));
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withBatchBytes(2 * entrySize)
+                .withLingerMillis(60_000)
+                .build()) {
+            entries.forEach(batcher::offer);
+            verify(api, timeout(5000)).logIngestPostSplit(entries.subList(0, 2));
+        }
+    }
+
+    @Test
+    public void testSendOnLinger() throws LMLogsApiException {
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withLingerMillis(10)
+                .build()) {
+            List<LogEntry> entries = entries(1);
+            batcher.offer(entries.get(0));
+            verify(api, timeout(5000)).logIngestPostSplit(entries);
+        }
+    }
+
+    @Test
+    public void testNoSendBeforeThreshold() throws LMLogsApiException {
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withLingerMillis(60_000)
+                .withCloseTimeoutMillis(0)
+                .build()) {
+            entries(2).forEach(batcher::offer);
+            verify(api, after(500).never()).logIngestPostSplit(anyList());
+        }
+    }
+
+    @Test
+    public void testCloseSendsQueuedEntries() throws LMLogsApiException {
+        List<LogEntry> entries = entries(5);
+        LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+            .withLingerMillis(60_000)
+            .build();
+        entries.forEach(batcher::offer);
+        batcher.close();
+
+        List<LogEntry> sent = new ArrayList<>();
+        verify(api, timeout(5000).atLeastOnce()).logIngestPostSplit(anyList());
+        mockingDetails(api).getInvocations().forEach(invocation -> {
+            List<LogEntry> batch = invocation.getArgument(0);
+            sent.addAll(batch);
+        });
+        assertAll(
+            () -> assertTrue(batcher.isClosed()),
+            () -> assertEquals(entries, sent),
+            () -> assertEquals(0, batcher.getQueueSize())
+        );
+    }
+
+    @Test
+    public void testOfferWhenFullOrClosed() throws LMLogsApiException {
+        LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+            .withQueueCapacity(1)
+            .withLingerMillis(60_000)
+            .build();
+        batcher.close();
+        assertAll(
+            () -> assertFalse(batcher.offer(new LogEntry())),
+            () -> assertEquals(1, batcher.getDroppedCount()),
+            () -> assertThrows(NullPointerException.class, () -> batcher.offer(null))
+        );
+        verify(api, never()).logIngestPostSplit(anyList());
+    }
+
+    @Test
+    public void testMetrics() {
+        LMLogsMetrics metrics = mock(LMLogsMetrics.class);
+        LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+            .withMetrics(metrics)
+            .build();
+        ArgumentCaptor<IntSupplier> queueSize = ArgumentCaptor.forClass(IntSupplier.class);
+        verify(metrics).registerQueue(queueSize.capture());
+        batcher.close();
+        assertAll(
+            () -> assertFalse(batcher.offer(new LogEntry())),
+            () -> assertEquals(0, queueSize.getValue().getAsInt())
+        );
+        verify(metrics).onEntriesDropped(1);
+        verify(metrics).unregisterQueue(queueSize.getValue());
+    }
+
+    @Test
+    public void testListener() throws LMLogsApiException {
+        List<LogEntry> entries = entries(1);
+        LMLogsApiException exception = new LMLogsApiException(new ApiException(500, "error"));
+        when(api.logIngestPostSplit(entries))
+            .thenReturn(List.of(new LMLogsBatchResult(entries, exception)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withLingerMillis(0)
+                .withListener(listener)
+                .build()) {
+            batcher.offer(entries.get(0));
+            verify(listener, timeout(5000)).onFailure(entries, exception);
+        }
+    }
+
+    @Test
+    public void testListenerExceptionIgnored() throws LMLogsApiException {
+        List<LogEntry> entries = entries(2);
+        LMLogsApiException exception = new LMLogsApiException(new ApiException(500, "error"));
+        when(api.logIngestPostSplit(anyList())).thenAnswer(invocation -> List.of(
+                new LMLogsBatchResult(invocation.getArgument(0), exception)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        doThrow(new IllegalStateException("listener")).when(listener)
+            .onFailure(anyList(), eq(exception));
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withBatchSize(1)
+                .withLingerMillis(0)
+                .withListener(listener)
+                .build()) {
+            batcher.offer(entries.get(0));
+            verify(listener, timeout(5000)).onFailure(entries.subList(0, 1), exception);
+            // the worker survives the failing listener
+            batcher.offer(entries.get(1));
+            verify(listener, timeout(5000)).onFailure(entries.subList(1, 2), exception);
+        }
+    }
+
+    @Test
+    public void testListenerOnSplitBatch() throws LMLogsApiException {
+        List<LogEntry> entries = entries(3);
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        LMLogsApiException exception = new LMLogsApiException(new ApiException(413, "error"));
+        when(api.logIngestPostSplit(entries)).thenReturn(List.of(
+                new LMLogsBatchResult(entries.subList(0, 2), response),
+                new LMLogsBatchResult(entries.subList(2, 3), exception)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        try (LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withBatchSize(3)
+                .withLingerMillis(60_000)
+                .withListener(listener)
+                .build()) {
+            entries.forEach(batcher::offer);
+            verify(listener, timeout(5000)).onSuccess(entries.subList(0, 2), response);
+            verify(listener, timeout(5000)).onFailure(entries.subList(2, 3), exception);
+        }
+    }
+
+    @Test
+    public void testFlush() throws LMLogsApiException {
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        when(api.logIngestPostSplit(anyList())).thenAnswer(invocation -> List.of(
+                new LMLogsBatchResult(invocation.getArgument(0), response)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+            .withBatchSize(2)
+            .withListener(listener)
+            .build();
+        batcher.close();
+        batcher.queue.addAll(entries(3));
+        batcher.flush();
+        verify(listener, times(2)).onSuccess(anyList(), eq(response));
+    }
+
+    @Test
+    public void testSpillQueue(@TempDir Path directory) throws LMLogsApiException, IOException {
+        List<LogEntry> entries = entries(2);
+        List<LogEntry> failed = entries.subList(0, 1);
+        List<LogEntry> sent = entries.subList(1, 2);
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        LMLogsApiException exception = new LMLogsApiException(new ApiException(503, "error"));
+        when(api.logIngestPostSplit(failed))
+            .thenReturn(List.of(new LMLogsBatchResult(failed, exception)))
+            .thenReturn(List.of(new LMLogsBatchResult(failed, response)));
+        when(api.logIngestPostSplit(sent))
+            .thenReturn(List.of(new LMLogsBatchResult(sent, response)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        try (LMLogsSpillQueue spillQueue = new LMLogsSpillQueue.Builder(directory).build()) {
+            LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withBatchSize(1)
+                .withListener(listener)
+                .withSpillQueue(spillQueue)
+                .build();
+            batcher.close();
+            batcher.queue.add(failed.get(0));
+            batcher.flush();
+            verify(listener).onSpilled(failed);
+            verify(listener, never()).onFailure(anyList(), eq(exception));
+            assertFalse(spillQueue.isEmpty());
+
+            batcher.queue.add(sent.get(0));
+            batcher.flush();
+            verify(api, times(2)).logIngestPostSplit(failed);
+            assertTrue(spillQueue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testAcceptedNotSpilledOnListenerException(@TempDir Path directory)
+            throws LMLogsApiException, IOException {
+        List<LogEntry> entries = entries(1);
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        when(api.logIngestPostSplit(entries))
+            .thenReturn(List.of(new LMLogsBatchResult(entries, response)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        doThrow(new IllegalStateException("listener")).when(listener).onSuccess(entries, response);
+        try (LMLogsSpillQueue spillQueue = new LMLogsSpillQueue.Builder(directory).build()) {
+            LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+                .withListener(listener)
+                .withSpillQueue(spillQueue)
+                .build();
+            batcher.close();
+            batcher.queue.add(entries.get(0));
+            batcher.flush();
+            verify(listener, never()).onSpilled(anyList());
+            verify(listener, never()).onError(anyList(), any());
+            assertTrue(spillQueue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testRejected() throws LMLogsApiException {
+        List<LogEntry> entries = entries(3);
+        LMLogsApiResponse<LogResponse> response = partialResponse(entries.get(1));
+        when(api.logIngestPostSplit(entries))
+            .thenReturn(List.of(new LMLogsBatchResult(entries, response)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+            .withBatchSize(3)
+            .withListener(listener)
+            .build();
+        batcher.close();
+        batcher.queue.addAll(entries);
+        batcher.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LMLogsRejection>> rejections = ArgumentCaptor.forClass(List.class);
+        verify(listener).onSuccess(entries, response);
+        verify(listener).onRejected(rejections.capture(), eq(response));
+        assertAll(
+            () -> assertEquals(1, rejections.getValue().size()),
+            () -> assertEquals(1, rejections.getValue().get(0).getIndex())
+        );
+        verify(api, times(1)).logIngestPostSplit(anyList());
+    }
+
+    @Test
+    public void testRejectionRetry() throws LMLogsApiException {
+        List<LogEntry> entries = entries(3);
+        List<LogEntry> rejected = entries.subList(1, 2);
+        LMLogsApiResponse<LogResponse> response = partialResponse(entries.get(1));
+        LMLogsApiResponse<LogResponse> retryResponse = partialResponse(entries.get(1));
+        when(api.logIngestPostSplit(entries))
+            .thenReturn(List.of(new LMLogsBatchResult(entries, response)));
+        when(api.logIngestPostSplit(rejected))
+            .thenReturn(List.of(new LMLogsBatchResult(rejected, retryResponse)));
+        LMLogsBatcher.Listener listener = mock(LMLogsBatcher.Listener.class);
+        LMLogsBatcher batcher = new LMLogsBatcher.Builder(api)
+            .withBatchSize(3)
+            .withListener(listener)
+            .withRejectionRetry(rejection -> "Try again".equals(rejection.getReason()))
+            .build();
+        batcher.close();
+        batcher.queue.addAll(entries);
+        batcher.flush();
+
+        // the entry is sent again once and reported when rejected again
+        verify(api).logIngestPostSplit(rejected);
+        verify(listener, never()).onRejected(anyList(), eq(response));
+        verify(listener).onRejected(anyList(), eq(retryResponse));
+    }
+
+    private static LMLogsApiResponse<LogResponse> partialResponse(LogEntry... rejected) {
+        LogResponse data = new LogResponse().success(false);
+        for (LogEntry entry : rejected) {
+            data.addErrorsItem(new LogError().error("Try again").event(entry));
+        }
+        return new LMLogsApiResponse<>(207, Collections.emptyMap(), data);
+    }
+
+}
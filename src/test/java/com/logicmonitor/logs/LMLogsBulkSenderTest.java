@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsBulkSenderTest {
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+
+    @ParameterizedTest
+    @CsvSource({
+        "0, 1, 1",
+        "1, 0, 1",
+        "1, 1, 0",
+    })
+    public void testBuilderInvalidParameters(int batchSize, int batchBytes, int concurrency) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsBulkSender.Builder(api)
+            .withBatchSize(batchSize)
+            .withBatchBytes(batchBytes)
+            .withConcurrency(concurrency)
+            .build());
+    }
+
+    @Test
+    public void testNullApi() {
+        assertThrows(NullPointerException.class, () -> new LMLogsBulkSender.Builder(null));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "true",
+        "false",
+    })
+    public void testSendAllOrdered(boolean virtualThreads) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(api.logIngestPostSplit(anyList())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(ThreadLocalRandom.current().nextInt(10));
+            inFlight.decrementAndGet();
+            return List.of(new LMLogsBatchResult(invocation.getArgument(0),
+                    new LMLogsApiResponse<>(202, Collections.emptyMap(), new LogResponse())));
+        });
+        List<LogEntry> entries = entries(1005);
+        List<LogEntry> reported = new ArrayList<>();
+        try (LMLogsBulkSender sender = new LMLogsBulkSender.Builder(api)
+                .withBatchSize(10)
+                .withConcurrency(4)
+                .withVirtualThreads(virtualThreads)
+                .build()) {
+            LMLogsBulkSender.Summary summary = sender.sendAll(entries.stream(),
+                    result -> reported.addAll(result.getEntries()));
+            assertAll(
+                () -> assertEquals(entries, reported),
+                () -> assertEquals(101, summary.getRequests()),
+                () -> assertEquals(1005, summary.getSent()),
+                () -> assertEquals(0, summary.getFailed()),
+                () -> assertTrue(maxInFlight.get() <= 4)
+            );
+        }
+    }
+
+    @Test
+    public void testSendAllFailures() throws Exception {
+        List<LogEntry> entries = entries(3);
+        LMLogsApiException exception = new LMLogsApiException(new ApiException(400, "error"));
+        when(api.logIngestPostSplit(entries.subList(0, 2))).thenThrow(exception);
+        when(api.logIngestPostSplit(entries.subList(2, 3)))
+            .thenThrow(new IllegalStateException("error"));
+        List<LMLogsBatchResult> results = new ArrayList<>();
+        try (LMLogsBulkSender sender = new LMLogsBulkSender.Builder(api)
+                .withBatchSize(2)
+                .build()) {
+            LMLogsBulkSender.Summary summary = sender.sendAll(entries.iterator(), results::add);
+            assertAll(
+                () -> assertEquals(2, results.size()),
+                () -> assertSame(exception, results.get(0).getException()),
+                () -> assertFalse(results.get(1).isSuccess()),
+                () -> assertEquals(0, summary.getSent()),
+                () -> assertEquals(3, summary.getFailed())
+            );
+        }
+    }
+
+    @Test
+    public void testSendAllBatchBytes() throws Exception {
+        when(api.logIngestPostSplit(anyList())).thenAnswer(invocation -> List.of(
+                new LMLogsBatchResult(invocation.getArgument(0),
+                        new LMLogsApiResponse<>(202, Collections.emptyMap(), new LogResponse()))));
+        List<LogEntry> entries = entries(4);
+        int entrySize = LMLogsBatcher.estimateSize(entries.get(0));
+        List<Integer> sizes = new ArrayList<>();
+        try (LMLogsBulkSender sender = new LMLogsBulkSender.Builder(api)
+                .withBatchBytes(2 * entrySize)
+                .build()) {
+            sender.sendAll(entries.stream(), result -> sizes.add(result.getEntries().size()));
+        }
+        assertEquals(List.of(2, 2), sizes);
+    }
+
+    @Test
+    public void testClosed() {
+        LMLogsBulkSender sender = new LMLogsBulkSender.Builder(api).build();
+        sender.close();
+        assertAll(
+            () -> assertFalse(sender.isVirtual()),
+            () -> assertTrue(sender.isClosed()),
+            () -> assertThrows(IllegalStateException.class,
+                    () -> sender.sendAll(Stream.empty(), result -> { })),
+            () -> assertThrows(NullPointerException.class,
+                    () -> sender.sendAll(entries(1).stream(), null))
+        );
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LMLogsClientMetricsTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "202, 1, 0, 0, 0, 0, 0",
+        "207, 0, 1, 0, 0, 0, 0",
+        "400, 0, 0, 1, 0, 0, 0",
+        "413, 0, 0, 1, 0, 0, 0",
+        "429, 0, 0, 0, 1, 0, 0",
+        "500, 0, 0, 0, 0, 1, 0",
+        "503, 0, 0, 0, 0, 1, 0",
+        "0,   0, 0, 0, 0, 0, 1",
+        "200, 0, 0, 0, 0, 0, 0",
+    })
+    public void testRequestStatus(int statusCode, long accepted, long partial, long clientErrors,
+            long throttled, long serverErrors, long noResponse) {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+        metrics.onRequest(statusCode, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertAll(
+            () -> assertEquals(1, metrics.getRequests()),
+            () -> assertEquals(100, metrics.getPayloadBytes()),
+            () -> assertEquals(accepted, metrics.getAcceptedRequests()),
+            () -> assertEquals(partial, metrics.getPartialRequests()),
+            () -> assertEquals(clientErrors, metrics.getClientErrorRequests()),
+            () -> assertEquals(throttled, metrics.getThrottledRequests()),
+            () -> assertEquals(serverErrors, metrics.getServerErrorRequests()),
+            () -> assertEquals(noResponse, metrics.getNoResponseRequests()),
+            () -> assertEquals(10, metrics.getLatencyMaxMillis(), 0.001)
+        );
+    }
+
+    @Test
+    public void testLatencyWindow() throws InterruptedException {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics(200);
+        metrics.onRequest(202, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(10, metrics.getLatencyMaxMillis(), 0.001);
+        // the first window is the previous one
+        Thread.sleep(300);
+        metrics.onRequest(202, 100, TimeUnit.MILLISECONDS.toNanos(20));
+        assertAll(
+            () -> assertEquals(20, metrics.getLatencyMaxMillis(), 0.001),
+            () -> assertEquals(15, metrics.getLatencyMeanMillis(), 0.1)
+        );
+        // both windows have elapsed
+        Thread.sleep(600);
+        assertAll(
+            () -> assertEquals(0, metrics.getLatencyMaxMillis(), 0.001),
+            () -> assertEquals(0, metrics.getRecentLatencyHistogram().getCount()),
+            () -> assertEquals(2, metrics.getLatencyHistogram().getCount()),
+            () -> assertEquals(20, metrics.getLatencyHistogram().getMaxMillis(), 0.001),
+            () -> assertThrows(IllegalArgumentException.class, () -> new LMLogsClientMetrics(0))
+        );
+    }
+
+    @Test
+    public void testEntriesAndQueues() {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+        IntSupplier first = () -> 3;
+        IntSupplier second = () -> 4;
+        metrics.registerQueue(first);
+        metrics.registerQueue(second);
+        metrics.onEntriesSent(10);
+        metrics.onEntriesFailed(2);
+        metrics.onEntriesDropped(1);
+        metrics.onRetry(503);
+        assertAll(
+            () -> assertEquals(10, metrics.getEntriesSent()),
+            () -> assertEquals(2, metrics.getEntriesFailed()),
+            () -> assertEquals(1, metrics.getEntriesDropped()),
+            () -> assertEquals(1, metrics.getRetries()),
+            () -> assertEquals(7, metrics.getQueueDepth())
+        );
+        metrics.unregisterQueue(first);
+        assertEquals(4, metrics.getQueueDepth());
+    }
+
+    @Test
+    public void testRegisterMBean() throws JMException {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            metrics.onEntriesSent(5);
+            assertAll(
+                () -> assertTrue(server.isRegistered(name)),
+                () -> assertEquals(5L, server.getAttribute(name, "EntriesSent")),
+                () -> assertThrows(IllegalStateException.class, () -> metrics.registerMBean("test"))
+            );
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testMicrometerBinder() {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new LMLogsMetricsBinder(metrics, Tags.of("company", "test")).bindTo(registry);
+        metrics.onRequest(202, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.onRequest(429, 100, TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.onEntriesSent(5);
+        metrics.registerQueue(() -> 3);
+        assertAll(
+            () -> assertEquals(1, registry.get("lm.logs.requests").tag("status", "202")
+                .functionCounter().count()),
+            () -> assertEquals(1, registry.get("lm.logs.requests").tag("status", "429")
+                .functionCounter().count()),
+            () -> assertEquals(5, registry.get("lm.logs.entries.sent").tag("company", "test")
+                .functionCounter().count()),
+            () -> assertEquals(3, registry.get("lm.logs.queue.depth").gauge().value()),
+            () -> assertEquals(2, registry.get("lm.logs.request.latency").timer().count()),
+            () -> assertEquals(20, registry.get("lm.logs.request.latency").timer()
+                .max(TimeUnit.MILLISECONDS), 0.001)
+        );
+    }
+
+    @Test
+    public void testMicrometerUnbind() {
+        LMLogsClientMetrics metrics = new LMLogsClientMetrics();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LMLogsMetricsBinder binder = new LMLogsMetricsBinder(metrics);
+        binder.bindTo(registry);
+        binder.bindTo(registry);
+        metrics.onRequest(202, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1, registry.get("lm.logs.request.latency").timer().count());
+
+        binder.unbindFrom(registry);
+        metrics.onRequest(202, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertAll(
+            () -> assertTrue(registry.getMeters().isEmpty()),
+            () -> assertEquals(2, metrics.getLatencyHistogram().getCount())
+        );
+
+        binder.bindTo(registry);
+        metrics.onRequest(202, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1, registry.get("lm.logs.request.latency").timer().count());
+    }
+
+}
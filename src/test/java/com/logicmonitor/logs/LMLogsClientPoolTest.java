@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LMLogsClientPoolTest {
+
+    private final LMLogsTransport transport = mock(LMLogsTransport.class);
+
+    @ParameterizedTest
+    @CsvSource({
+        "-1, 1, 1",
+        "0,  0, 1",
+        "0,  1, 0",
+    })
+    public void testBuilderInvalidParameters(long idleTimeoutMillis, int maxClients,
+            int maxConnections) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsClientPool.Builder()
+            .withIdleTimeoutMillis(idleTimeoutMillis)
+            .withMaxClients(maxClients)
+            .withMaxConnections(maxConnections)
+            .build());
+    }
+
+    @Test
+    public void testNullParameters() {
+        try (LMLogsClientPool pool = new LMLogsClientPool.Builder().build()) {
+            assertAll(
+                () -> assertThrows(NullPointerException.class,
+                        () -> new LMLogsClientPool.Builder().withConfigurer(null).build()),
+                () -> assertThrows(NullPointerException.class,
+                        () -> pool.lease(null, "id", "key")),
+                () -> assertThrows(NullPointerException.class,
+                        () -> pool.lease("company", null, "key")),
+                () -> assertThrows(NullPointerException.class,
+                        () -> pool.lease("company", "id", null))
+            );
+        }
+    }
+
+    @Test
+    public void testSharedTransport() {
+        try (LMLogsClientPool pool = new LMLogsClientPool.Builder()
+                .withTransport(transport)
+                .withConfigurer(builder -> builder.withCompression(LMLogsCompression.GZIP))
+                .build()) {
+            LMLogsApi first = get(pool, "first", "id", "key");
+            LMLogsApi second = get(pool, "second", "id", "key");
+            assertAll(
+                () -> assertSame(first, get(pool, "first", "id", "key")),
+                () -> assertNotSame(first, get(pool, "first", "id", "other")),
+                () -> assertNotSame(first, second),
+                () -> assertEquals(3, pool.size()),
+                () -> assertEquals("first", first.getApiClient().getCompany()),
+                () -> assertEquals("second", second.getApiClient().getCompany()),
+                () -> assertSame(transport, first.getApiClient().getTransport()),
+                () -> assertSame(transport, second.getApiClient().getTransport()),
+                () -> assertEquals(LMLogsCompression.GZIP, first.getApiClient().getCompression())
+            );
+        }
+        verify(transport, never()).close();
+    }
+
+    @Test
+    public void testOwnedTransport() {
+        LMLogsClientPool pool = new LMLogsClientPool.Builder().build();
+        LMLogsApi api = get(pool, "company", "id", "key");
+        assertSame(pool.getTransport(), api.getApiClient().getTransport());
+        pool.close();
+        assertAll(
+            () -> assertTrue(pool.isClosed()),
+            () -> assertEquals(0, pool.size()),
+            () -> assertThrows(IllegalStateException.class,
+                    () -> pool.lease("company", "id", "key"))
+        );
+    }
+
+    @Test
+    public void testMaxClients() {
+        try (LMLogsClientPool pool = new LMLogsClientPool.Builder()
+                .withTransport(transport)
+                .withMaxClients(2)
+                .build()) {
+            LMLogsApi first = get(pool, "first", "id", "key");
+            LMLogsApi second = get(pool, "second", "id", "key");
+            assertSame(first, get(pool, "first", "id", "key"));
+            get(pool, "third", "id", "key");
+            assertAll(
+                () -> assertEquals(2, pool.size()),
+                () -> assertSame(first, get(pool, "first", "id", "key")),
+                () -> assertNotSame(second, get(pool, "second", "id", "key"))
+            );
+        }
+    }
+
+    @Test
+    public void testEvictIdle() throws InterruptedException {
+        try (LMLogsClientPool pool = new LMLogsClientPool.Builder()
+                .withTransport(transport)
+                .withIdleTimeoutMillis(50)
+                .build()) {
+            LMLogsApi api = get(pool, "company", "id", "key");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertAll(
+                () -> assertEquals(0, pool.size()),
+                () -> assertNotSame(api, get(pool, "company", "id", "key"))
+            );
+        }
+    }
+
+    @Test
+    public void testLeasedClientClosedOnRelease() {
+        LMLogsClient client = mock(LMLogsClient.class);
+        try (LMLogsClientPool pool = mockClients(client, mock(LMLogsClient.class))) {
+            LMLogsClientPool.Lease lease = pool.lease("first", "id", "key");
+            get(pool, "second", "id", "key");
+            assertEquals(1, pool.size());
+            verify(client, never()).close();
+            lease.close();
+            lease.close();
+            verify(client, times(1)).close();
+        }
+    }
+
+    @Test
+    public void testIdleClientClosedOnEviction() {
+        LMLogsClient client = mock(LMLogsClient.class);
+        try (LMLogsClientPool pool = mockClients(client, mock(LMLogsClient.class))) {
+            get(pool, "first", "id", "key");
+            get(pool, "second", "id", "key");
+            verify(client, times(1)).close();
+        }
+    }
+
+    @Test
+    public void testNoIdleTimeout() throws InterruptedException {
+        try (LMLogsClientPool pool = new LMLogsClientPool.Builder()
+                .withTransport(transport)
+                .withIdleTimeoutMillis(0)
+                .build()) {
+            LMLogsApi api = get(pool, "company", "id", "key");
+            Thread.sleep(10);
+            assertAll(
+                () -> assertEquals(0, pool.evictIdle()),
+                () -> assertSame(api, get(pool, "company", "id", "key"))
+            );
+        }
+    }
+
+    @Test
+    public void testCreateOutsideLock() {
+        LMLogsClient first = mock(LMLogsClient.class);
+        LMLogsClient second = mock(LMLogsClient.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicInteger created = new AtomicInteger();
+        LMLogsClientPool.Builder builder = new LMLogsClientPool.Builder().withTransport(transport);
+        try (LMLogsClientPool pool = new LMLogsClientPool(builder) {
+            @Override
+            protected LMLogsApi create(Tenant tenant) {
+                LMLogsApi api = mock(LMLogsApi.class);
+                if (created.getAndIncrement() > 0) {
+                    when(api.getApiClient()).thenReturn(second);
+                    return api;
+                }
+                when(api.getApiClient()).thenReturn(first);
+                // a concurrent lease of the tenant is not blocked by the creation
+                try {
+                    executor.submit(() -> get(this, "company", "id", "key"))
+                        .get(1, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+                return api;
+            }
+        }) {
+            LMLogsApi api = get(pool, "company", "id", "key");
+            assertAll(
+                () -> assertSame(second, api.getApiClient()),
+                () -> assertEquals(1, pool.size())
+            );
+            verify(first, times(1)).close();
+            verify(second, never()).close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeaseWhileClosing() {
+        LMLogsClient client = mock(LMLogsClient.class);
+        LMLogsClientPool.Builder builder = new LMLogsClientPool.Builder().withTransport(transport);
+        LMLogsClientPool pool = new LMLogsClientPool(builder) {
+            @Override
+            protected LMLogsApi create(Tenant tenant) {
+                LMLogsApi api = mock(LMLogsApi.class);
+                when(api.getApiClient()).thenReturn(client);
+                close();
+                return api;
+            }
+        };
+        assertAll(
+            () -> assertThrows(IllegalStateException.class,
+                    () -> pool.lease("company", "id", "key")),
+            () -> assertEquals(0, pool.size())
+        );
+        verify(client, times(1)).close();
+    }
+
+    private static LMLogsApi get(LMLogsClientPool pool, String company, String accessId,
+            String accessKey) {
+        try (LMLogsClientPool.Lease lease = pool.lease(company, accessId, accessKey)) {
+            return lease.getApi();
+        }
+    }
+
+    // a pool of one client, creating the API instances of the given clients in turn
+    private LMLogsClientPool mockClients(LMLogsClient... clients) {
+        LMLogsClientPool.Builder builder = new LMLogsClientPool.Builder()
+            .withTransport(transport)
+            .withMaxClients(1);
+        int[] created = new int[1];
+        return new LMLogsClientPool(builder) {
+            @Override
+            protected LMLogsApi create(Tenant tenant) {
+                LMLogsApi api = mock(LMLogsApi.class);
+                when(api.getApiClient()).thenReturn(clients[created[0]++]);
+                return api;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.logs.invoker.ApiException;
+
+public class LMLogsFileTailerTest {
+
+    private static final Map<String, String> RESOURCE_ID = Map.of("system.hostname", "host");
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    @BeforeEach
+    public void mockApi() throws LMLogsApiException {
+        file = directory.resolve("app.log");
+        // the records are reused, so the messages are copied when sent
+        when(api.logIngestPostRecords(anyList())).thenAnswer(invocation -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new LMLogsApiException(new ApiException(503, "error"));
+            }
+            List<LMLogsRecord> records = invocation.getArgument(0);
+            records.forEach(record -> {
+                assertSame(RESOURCE_ID, record.getResourceId());
+                sent.add(record.getMessage());
+            });
+            return null;
+        });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0, 1, 1, 1",
+        "1, 0, 1, 1",
+        "1, 1, 0, 1",
+        "1, 1, 1, 0",
+    })
+    public void testBuilderInvalidParameters(int batchSize, int batchBytes, int maxLineBytes,
+            long pollIntervalMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsFileTailer.Builder(file, api)
+            .withBatchSize(batchSize)
+            .withBatchBytes(batchBytes)
+            .withMaxLineBytes(maxLineBytes)
+            .withPollIntervalMillis(pollIntervalMillis)
+            .build());
+    }
+
+    @Test
+    public void testNullParameters() {
+        assertAll(
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsFileTailer.Builder(null, api)),
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsFileTailer.Builder(file, null))
+        );
+    }
+
+    @Test
+    public void testTail() throws IOException {
+        append(file, "first\r\nsecond\nthird\ninc");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+            assertEquals(List.of("first", "second", "third"), sent);
+            assertEquals(20, tailer.getPosition());
+
+            append(file, " line\n0123456789abcdefghij\n");
+            tailer.poll();
+            assertEquals(List.of("first", "second", "third", "inc line", "0123456789",
+                    "abcdefghij"), sent);
+            assertEquals(Files.size(file), tailer.getPosition());
+        }
+    }
+
+    @Test
+    public void testSplitLongLineUtf8() throws IOException {
+        // the 10th byte is the second byte of the umlaut
+        append(file, "012345678\u00fc\n");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+            assertEquals(List.of("012345678", "\u00fc"), sent);
+        }
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws IOException {
+        append(file, "first\n");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+        }
+        append(file, "second\n");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+            assertAll(
+                () -> assertEquals(List.of("first", "second"), sent),
+                () -> assertTrue(Files.exists(
+                        directory.resolve("app.log" + LMLogsFileTailer.CHECKPOINT_SUFFIX)))
+            );
+        }
+    }
+
+    @Test
+    public void testRotation() throws IOException {
+        append(file, "first\n");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+            Path rotated = directory.resolve("app.log.1");
+            Files.move(file, rotated);
+            append(rotated, "last");
+            append(file, "new\n");
+            tailer.poll();
+            assertAll(
+                () -> assertEquals(List.of("first", "last", "new"), sent),
+                () -> assertEquals(4, tailer.getPosition())
+            );
+        }
+    }
+
+    @Test
+    public void testTruncation() throws IOException {
+        append(file, "first\nsecond\n");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+            Files.write(file, "new\n".getBytes(StandardCharsets.UTF_8));
+            tailer.poll();
+            assertEquals(List.of("first", "second", "new"), sent);
+        }
+    }
+
+    @Test
+    public void testRetryableFailure() throws IOException {
+        append(file, "first\nsecond\n");
+        try (LMLogsFileTailer tailer = tailer()) {
+            tailer.poll();
+            failures.set(1);
+            append(file, "third\n");
+            tailer.poll();
+            assertAll(
+                () -> assertEquals(List.of("first", "second"), sent),
+                () -> assertEquals(13, tailer.getPosition())
+            );
+            tailer.poll();
+            assertEquals(List.of("first", "second", "third"), sent);
+        }
+    }
+
+    private LMLogsFileTailer tailer() throws IOException {
+        return new LMLogsFileTailer.Builder(file, api)
+            .withResourceId(RESOURCE_ID)
+            .withBatchSize(2)
+            .withMaxLineBytes(10)
+            .withPollIntervalMillis(60_000)
+            .build();
+    }
+
+    private static void append(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+}
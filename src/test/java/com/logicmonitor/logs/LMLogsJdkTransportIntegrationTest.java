@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.Response.Status;
+import org.junit.Test;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+/**
+ * Runs the integration tests over the non-blocking NIO transport.
+ */
+public class LMLogsJdkTransportIntegrationTest extends LMLogsApiIntegrationTest {
+
+    public LMLogsJdkTransportIntegrationTest() {
+        api.getApiClient().setTransport(new LMLogsJdkTransport());
+    }
+
+    @Test
+    public void testConcurrentAsyncApiCalls() throws Exception {
+        List<CompletableFuture<LMLogsApiResponse<LogResponse>>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(api.logIngestPostAsync(entries(1)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .get(30, TimeUnit.SECONDS);
+        for (CompletableFuture<LMLogsApiResponse<LogResponse>> future : futures) {
+            assertEquals(Status.ACCEPTED.getStatusCode(), future.get().getStatusCode());
+        }
+        assertEquals(futures.size(), REQUESTS.get());
+    }
+
+}
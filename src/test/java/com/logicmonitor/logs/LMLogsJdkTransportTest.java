@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LMLogsJdkTransportTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        ",       ",
+        "1,      1",
+        "100,    60000",
+    })
+    public void testBuilder(Integer maxConnectionsPerDestination, Integer idleTimeoutMillis) {
+        LMLogsJdkTransport transport = new LMLogsJdkTransport.Builder()
+            .withMaxConnectionsPerDestination(maxConnectionsPerDestination)
+            .withIdleTimeoutMillis(idleTimeoutMillis)
+            .build();
+        assertAll(
+            () -> assertEquals(maxConnectionsPerDestination != null ? maxConnectionsPerDestination
+                    : LMLogsJdkTransport.DEFAULT_MAX_CONNECTIONS_PER_DESTINATION,
+                    transport.getMaxConnectionsPerDestination()),
+            () -> assertEquals(idleTimeoutMillis != null ? idleTimeoutMillis
+                    : LMLogsJdkTransport.DEFAULT_IDLE_TIMEOUT_MILLIS,
+                    transport.getIdleTimeoutMillis())
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,      1",
+        "1,      0",
+    })
+    public void testBuilderInvalidParameters(Integer maxConnectionsPerDestination,
+            Integer idleTimeoutMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsJdkTransport.Builder()
+            .withMaxConnectionsPerDestination(maxConnectionsPerDestination)
+            .withIdleTimeoutMillis(idleTimeoutMillis)
+            .build());
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LMLogsLatencyHistogramTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,           0,   0",
+        "7,           7,   7",
+        "8,           8,   8",
+        "17,          16,  17",
+        "100,         36,  103",
+        "1000,        63,  1023",
+        "68719476735, 271, 68719476735",
+        "68719476736, 271, 68719476735",
+    })
+    public void testBucket(long micros, int bucket, long upperBound) {
+        assertAll(
+            () -> assertEquals(bucket, LMLogsLatencyHistogram.bucket(micros)),
+            () -> assertEquals(upperBound, LMLogsLatencyHistogram.upperBound(bucket)),
+            () -> assertTrue(bucket == 0
+                    || LMLogsLatencyHistogram.upperBound(bucket - 1) < Math.min(micros, upperBound))
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,    1",
+        "0.5,  500",
+        "0.9,  900",
+        "0.99, 990",
+        "1,    1000",
+    })
+    public void testPercentile(double percentile, double expectedMillis) {
+        LMLogsLatencyHistogram histogram = new LMLogsLatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        double millis = histogram.getPercentileMillis(percentile);
+        assertAll(
+            () -> assertTrue(millis >= expectedMillis, () -> "Percentile " + millis),
+            () -> assertTrue(millis <= expectedMillis * 1.125, () -> "Percentile " + millis),
+            () -> assertEquals(1000, histogram.getCount()),
+            () -> assertEquals(500.5, histogram.getMeanMillis(), 0.001),
+            () -> assertEquals(1000, histogram.getMaxMillis(), 0.001)
+        );
+    }
+
+    @Test
+    public void testEmpty() {
+        LMLogsLatencyHistogram histogram = new LMLogsLatencyHistogram();
+        assertAll(
+            () -> assertEquals(0, histogram.getCount()),
+            () -> assertEquals(0, histogram.getMeanMillis()),
+            () -> assertEquals(0, histogram.getPercentileMillis(0.99)),
+            () -> assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileMillis(2)),
+            () -> assertThrows(IllegalArgumentException.class,
+                    () -> histogram.getPercentileMillis(Double.NaN))
+        );
+    }
+
+    @Test
+    public void testLatencyAboveRange() {
+        LMLogsLatencyHistogram histogram = new LMLogsLatencyHistogram();
+        histogram.record(TimeUnit.DAYS.toNanos(2));
+        assertEquals(TimeUnit.DAYS.toMillis(2), histogram.getPercentileMillis(1), 0.001);
+    }
+
+}
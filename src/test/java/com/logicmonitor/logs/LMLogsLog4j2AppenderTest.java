@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.ContextDataFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.StringMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsLog4j2AppenderTest {
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+    // the records are reused after the request, so they are copied by the mock
+    private final List<LMLogsRecord> records = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void captureRecords() throws LMLogsApiException {
+        doAnswer(invocation -> {
+            for (LMLogsRecord record : invocation.<List<LMLogsRecord>>getArgument(0)) {
+                records.add(new LMLogsRecord(record.getMessage(), record.getTimestamp(),
+                        record.getResourceId()));
+            }
+            return new LMLogsApiResponse<>(202, Collections.emptyMap(), new LogResponse());
+        }).when(api).logIngestPostRecords(anyList());
+    }
+
+    @Test
+    public void testAppend() {
+        LMLogsLog4j2Appender appender = LMLogsLog4j2Appender.newBuilder()
+            .setName("LM")
+            .withApi(api)
+            .withResourceId("system.hostname=host")
+            .withMdcResourceId("device=system.deviceId")
+            .withLingerMillis(60_000)
+            .build();
+        appender.start();
+        assertTrue(appender.isStarted());
+        appender.append(event("message {}", 1000, Map.of()));
+        appender.append(event("device {}", 2000, Map.of("device", "42")));
+        appender.append(event("internal", 3000, Map.of()).asBuilder()
+            .setThreadName("lm-logs-ring-buffer-1").build());
+        appender.stop();
+        assertAll(
+            () -> assertTrue(appender.isStopped()),
+            () -> assertEquals(2, records.size()),
+            () -> assertEquals("INFO test - message arg" + System.lineSeparator(),
+                    records.get(0).getMessage()),
+            () -> assertEquals(1000, records.get(0).getTimestamp()),
+            () -> assertEquals(Map.of("system.hostname", "host"),
+                    records.get(0).getResourceId()),
+            () -> assertEquals("INFO test - device arg" + System.lineSeparator(),
+                    records.get(1).getMessage()),
+            () -> assertEquals(Map.of("system.hostname", "host", "system.deviceId", "42"),
+                    records.get(1).getResourceId())
+        );
+    }
+
+    @Test
+    public void testLayout() {
+        LMLogsLog4j2Appender appender = LMLogsLog4j2Appender.newBuilder()
+            .setName("LM")
+            .setLayout(PatternLayout.newBuilder().withPattern("%level %msg").build())
+            .withApi(api)
+            .withLingerMillis(60_000)
+            .build();
+        appender.start();
+        appender.append(event("message {}", 1000, Map.of()));
+        appender.stop();
+        assertEquals("INFO message arg", records.get(0).getMessage());
+    }
+
+    @Test
+    public void testException() {
+        LMLogsLog4j2Appender appender = LMLogsLog4j2Appender.newBuilder()
+            .setName("LM")
+            .withApi(api)
+            .withLingerMillis(60_000)
+            .build();
+        appender.start();
+        appender.append(event("failed", 1000, Map.of()).asBuilder()
+            .setLevel(Level.ERROR)
+            .setThrown(new IllegalStateException("error"))
+            .build());
+        appender.stop();
+        String message = records.get(0).getMessage();
+        assertAll(
+            () -> assertTrue(message.startsWith("ERROR test - failed" + System.lineSeparator()
+                    + IllegalStateException.class.getName() + ": error")),
+            () -> assertTrue(message.contains("at " + getClass().getName() + ".testException"))
+        );
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class,
+                    () -> LMLogsLog4j2Appender.newBuilder()
+                        .setName("LM")
+                        .withOverflowPolicy("wait")
+                        .build()),
+            () -> assertThrows(IllegalArgumentException.class,
+                    () -> LMLogsLog4j2Appender.newBuilder()
+                        .setName("LM")
+                        .withResourceId("host")
+                        .build())
+        );
+    }
+
+    private static Log4jLogEvent event(String message, long timestamp, Map<String, String> mdc) {
+        StringMap contextData = ContextDataFactory.createContextData();
+        mdc.forEach(contextData::putValue);
+        return Log4jLogEvent.newBuilder()
+            .setLoggerName("test")
+            .setLevel(Level.INFO)
+            .setMessage(new ParameterizedMessage(message, "arg"))
+            .setTimeMillis(timestamp)
+            .setThreadName("main")
+            .setContextData(contextData)
+            .build();
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.logicmonitor.logs.model.LogResponse;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+public class LMLogsLogbackAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("test");
+    private final LMLogsApi api = mock(LMLogsApi.class);
+    // the records are reused after the request, so they are copied by the mock
+    private final List<LMLogsRecord> records = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void captureRecords() throws LMLogsApiException {
+        doAnswer(invocation -> {
+            for (LMLogsRecord record : invocation.<List<LMLogsRecord>>getArgument(0)) {
+                records.add(new LMLogsRecord(record.getMessage(), record.getTimestamp(),
+                        record.getResourceId()));
+            }
+            return new LMLogsApiResponse<>(202, Collections.emptyMap(), new LogResponse());
+        }).when(api).logIngestPostRecords(anyList());
+    }
+
+    @Test
+    public void testAppend() {
+        LMLogsLogbackAppender appender = createAppender();
+        appender.start();
+        assertTrue(appender.isStarted());
+        appender.doAppend(event("message {}", 1000, Map.of()));
+        appender.doAppend(event("device {}", 2000, Map.of("device", "42")));
+        appender.stop();
+        assertAll(
+            () -> assertFalse(appender.isStarted()),
+            () -> assertEquals(2, records.size()),
+            () -> assertEquals("INFO test - message arg" + System.lineSeparator(),
+                    records.get(0).getMessage()),
+            () -> assertEquals(1000, records.get(0).getTimestamp()),
+            () -> assertEquals(Map.of("system.hostname", "host"),
+                    records.get(0).getResourceId()),
+            () -> assertEquals("INFO test - device arg" + System.lineSeparator(),
+                    records.get(1).getMessage()),
+            () -> assertEquals(Map.of("system.hostname", "host", "system.deviceId", "42"),
+                    records.get(1).getResourceId())
+        );
+    }
+
+    @Test
+    public void testLayout() {
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(context);
+        layout.setPattern("%level %msg");
+        layout.start();
+        LMLogsLogbackAppender appender = createAppender();
+        appender.setLayout(layout);
+        appender.start();
+        appender.doAppend(event("message {}", 1000, Map.of()));
+        appender.stop();
+        assertEquals("INFO message arg", records.get(0).getMessage());
+    }
+
+    @Test
+    public void testException() {
+        LMLogsLogbackAppender appender = createAppender();
+        appender.start();
+        appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.ERROR,
+                "failed", new IllegalStateException("error"), null));
+        appender.stop();
+        String message = records.get(0).getMessage();
+        assertAll(
+            () -> assertTrue(message.startsWith("ERROR test - failed" + System.lineSeparator()
+                    + IllegalStateException.class.getName() + ": error")),
+            () -> assertTrue(message.contains("at " + getClass().getName() + ".testException"))
+        );
+    }
+
+    @Test
+    public void testStartFailure() {
+        LMLogsLogbackAppender appender = new LMLogsLogbackAppender();
+        appender.setContext(context);
+        appender.start();
+        assertAll(
+            () -> assertFalse(appender.isStarted()),
+            () -> assertFalse(context.getStatusManager().getCopyOfStatusList().isEmpty())
+        );
+    }
+
+    private LMLogsLogbackAppender createAppender() {
+        LMLogsLogbackAppender appender = new LMLogsLogbackAppender();
+        appender.setContext(context);
+        appender.setName("LM");
+        appender.setApi(api);
+        appender.setResourceId("system.hostname=host");
+        appender.setMdcResourceId("device=system.deviceId");
+        appender.setLingerMillis(60_000);
+        return appender;
+    }
+
+    private LoggingEvent event(String message, long timestamp, Map<String, String> mdc) {
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+                message, null, new Object[] {"arg"});
+        event.setTimeStamp(timestamp);
+        event.setThreadName("main");
+        event.setMDCPropertyMap(mdc);
+        return event;
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.logs.model.LogEntry;
+
+public class LMLogsRecordTest {
+
+    private static final Map<String, String> RESOURCE_ID = Map.of("system.hostname", "host");
+
+    @Test
+    public void testNullResourceId() {
+        assertAll(
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsRecord("message", LMLogsRecord.NO_TIMESTAMP, null)),
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsRecord().resourceId(null))
+        );
+    }
+
+    @Test
+    public void testReuse() {
+        LMLogsRecord record = new LMLogsRecord("first", 1L, RESOURCE_ID);
+        assertSame(record, record.set("second", 2L, RESOURCE_ID));
+        assertAll(
+            () -> assertEquals("second", record.getMessage()),
+            () -> assertEquals(2L, record.getTimestamp()),
+            () -> assertSame(RESOURCE_ID, record.getResourceId())
+        );
+        record.clear();
+        assertAll(
+            () -> assertNull(record.getMessage()),
+            () -> assertFalse(record.hasTimestamp()),
+            () -> assertTrue(record.getResourceId().isEmpty()),
+            () -> assertEquals(new LMLogsRecord(), record)
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "message, 1593604800000, true",
+        "message, 0,             true",
+        "message, -1,            false",
+        ",        -1,            false",
+    })
+    public void testToLogEntry(String message, long timestamp, boolean hasTimestamp) {
+        LMLogsRecord record = new LMLogsRecord()
+            .message(message)
+            .timestamp(timestamp)
+            .resourceId(RESOURCE_ID);
+        LogEntry entry = record.toLogEntry();
+        assertAll(
+            () -> assertEquals(hasTimestamp, record.hasTimestamp()),
+            () -> assertEquals(message, entry.getMessage()),
+            () -> assertEquals(hasTimestamp ? Long.valueOf(timestamp) : null, entry.getTimestamp()),
+            () -> assertEquals(RESOURCE_ID, entry.getLmResourceId()),
+            () -> assertNotSame(RESOURCE_ID, entry.getLmResourceId())
+        );
+    }
+
+    @Test
+    public void testEquals() {
+        LMLogsRecord record = new LMLogsRecord("message", 1L, RESOURCE_ID);
+        assertAll(
+            () -> assertEquals(new LMLogsRecord("message", 1L, Map.of("system.hostname", "host")),
+                    record),
+            () -> assertEquals(new LMLogsRecord("message", 1L, RESOURCE_ID).hashCode(),
+                    record.hashCode()),
+            () -> assertNotEquals(new LMLogsRecord("message", 2L, RESOURCE_ID), record),
+            () -> assertNotEquals(new LMLogsRecord("other", 1L, RESOURCE_ID), record),
+            () -> assertNotEquals(new LMLogsRecord("message", 1L, Map.of()), record)
+        );
+    }
+
+}
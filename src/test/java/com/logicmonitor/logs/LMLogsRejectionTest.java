@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogError;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsRejectionTest {
+
+    @Test
+    public void testNoErrors() {
+        List<LogEntry> entries = entries(3);
+        assertAll(
+            () -> assertTrue(LMLogsRejection.correlate(entries, (List<LogError>) null).isEmpty()),
+            () -> assertTrue(LMLogsRejection.correlate(entries, Collections.emptyList()).isEmpty()),
+            () -> assertTrue(LMLogsRejection.correlate(entries, new LMLogsApiResponse<>(202,
+                    Collections.emptyMap(), new LogResponse().success(true))).isEmpty()),
+            () -> assertThrows(NullPointerException.class,
+                    () -> LMLogsRejection.correlate(null, Collections.emptyList()))
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "message 2, 1593604800002, 2",
+        "message 2,              , 2",
+        "message 9, 1593604800002, -1",
+        "         , 1593604800002, -1",
+    })
+    public void testCorrelate(String message, Long timestamp, int index) {
+        List<LogEntry> entries = entries(5);
+        LogError error = new LogError()
+            .error("Rejected")
+            .event(new LogEntry().message(message).timestamp(timestamp));
+        List<LMLogsRejection> rejections = LMLogsRejection.correlate(entries, List.of(error));
+        assertEquals(1, rejections.size());
+        LMLogsRejection rejection = rejections.get(0);
+        assertAll(
+            () -> assertEquals(index, rejection.getIndex()),
+            () -> assertEquals(index >= 0 ? entries.get(index) : null, rejection.getEntry()),
+            () -> assertSame(error, rejection.getError()),
+            () -> assertEquals("Rejected", rejection.getReason())
+        );
+    }
+
+    @Test
+    public void testCorrelateDuplicates() {
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            entries.add(new LogEntry().message("duplicate").timestamp(1L));
+        }
+        entries.add(1, new LogEntry().message("other"));
+        List<LogError> errors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            errors.add(new LogError().event(new LogEntry().message("duplicate").timestamp(1L)));
+        }
+        errors.add(new LogError());
+        List<Integer> indices = LMLogsRejection.correlate(entries, errors).stream()
+            .map(LMLogsRejection::getIndex)
+            .collect(Collectors.toList());
+        assertEquals(List.of(0, 2, 3, 4, -1, -1), indices);
+    }
+
+    @Test
+    public void testCorrelateLargeBatch() {
+        int count = 100_000;
+        List<LogEntry> entries = entries(count);
+        List<LogError> errors = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i -= 2) {
+            errors.add(new LogError().event(entries.get(i)));
+        }
+        List<LMLogsRejection> rejections = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> LMLogsRejection.correlate(entries, errors));
+        for (int i = 0; i < rejections.size(); i++) {
+            assertEquals(count - 1 - 2 * i, rejections.get(i).getIndex());
+        }
+    }
+
+    @Test
+    public void testBatchResult() {
+        List<LogEntry> entries = entries(3);
+        LogResponse data = new LogResponse()
+            .success(false)
+            .addErrorsItem(new LogError().error("Too old").event(entries.get(1)));
+        LMLogsBatchResult result = new LMLogsBatchResult(entries,
+                new LMLogsApiResponse<>(207, Collections.emptyMap(), data));
+        assertAll(
+            () -> assertTrue(result.isSuccess()),
+            () -> assertTrue(result.isPartialSuccess()),
+            () -> assertEquals(1, result.getRejections().size()),
+            () -> assertSame(entries.get(1), result.getRejections().get(0).getEntry()),
+            () -> assertSame(result.getRejections(), result.getRejections())
+        );
+    }
+
+}
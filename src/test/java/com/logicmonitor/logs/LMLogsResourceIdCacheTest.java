@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+
+public class LMLogsResourceIdCacheTest {
+
+    private final ObjectMapper mapper = new JSON().getContext(LogEntry.class);
+    private final JsonFactory factory = mapper.getFactory();
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    public void testInvalidMaxEntries(int maxEntries) {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LMLogsResourceIdCache(factory, maxEntries));
+    }
+
+    @Test
+    public void testFragment() throws IOException {
+        LMLogsResourceIdCache cache = new LMLogsResourceIdCache(factory, 10);
+        Map<String, String> resourceId = Map.of("system.\"hostname\"", "host \u00fc\n");
+        SerializableString fragment = cache.get(resourceId);
+        assertAll(
+            () -> assertArrayEquals(mapper.writeValueAsBytes(resourceId),
+                    fragment.getValue().getBytes(StandardCharsets.UTF_8)),
+            () -> assertSame(fragment, cache.get(new HashMap<>(resourceId))),
+            () -> assertEquals(1, cache.size())
+        );
+    }
+
+    @Test
+    public void testModifiedMap() throws IOException {
+        LMLogsResourceIdCache cache = new LMLogsResourceIdCache(factory, 10);
+        Map<String, String> resourceId = new HashMap<>();
+        resourceId.put("system.hostname", "first");
+        SerializableString first = cache.get(resourceId);
+        resourceId.put("system.hostname", "second");
+        SerializableString second = cache.get(resourceId);
+        assertAll(
+            () -> assertNotSame(first, second),
+            () -> assertSame(first, cache.get(Map.of("system.hostname", "first"))),
+            () -> assertEquals("{\"system.hostname\":\"second\"}", second.getValue())
+        );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        LMLogsResourceIdCache cache = new LMLogsResourceIdCache(factory, 2);
+        SerializableString first = cache.get(Map.of("system.hostname", "first"));
+        SerializableString second = cache.get(Map.of("system.hostname", "second"));
+        assertSame(first, cache.get(Map.of("system.hostname", "first")));
+        cache.get(Map.of("system.hostname", "third"));
+        assertAll(
+            () -> assertEquals(2, cache.size()),
+            () -> assertSame(first, cache.get(Map.of("system.hostname", "first"))),
+            () -> assertNotSame(second, cache.get(Map.of("system.hostname", "second")))
+        );
+    }
+
+    @Test
+    public void testLargeMapNotCached() throws IOException {
+        LMLogsResourceIdCache cache = new LMLogsResourceIdCache(factory, 10);
+        String hostname = String.join("",
+                Collections.nCopies(LMLogsResourceIdCache.MAX_FRAGMENT_BYTES, "x"));
+        Map<String, String> resourceId = Map.of("system.hostname", hostname);
+        assertAll(
+            () -> assertEquals("{\"system.hostname\":\"" + hostname + "\"}",
+                cache.get(resourceId).getValue()),
+            () -> assertEquals(0, cache.size())
+        );
+    }
+
+}
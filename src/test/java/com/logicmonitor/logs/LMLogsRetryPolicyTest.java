@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class LMLogsRetryPolicyTest {
+
+    @ParameterizedTest
+    @CsvSource({
+        ",      ,       ",
+        "1,     0,     0",
+        "10,    50,    5000",
+    })
+    public void testBuilder(Integer maxAttempts, Long baseDelayMillis, Long maxDelayMillis) {
+        LMLogsRetryPolicy policy = new LMLogsRetryPolicy.Builder()
+            .withMaxAttempts(maxAttempts)
+            .withBaseDelayMillis(baseDelayMillis)
+            .withMaxDelayMillis(maxDelayMillis)
+            .build();
+        assertAll(
+            () -> assertEquals(maxAttempts != null ? maxAttempts
+                    : LMLogsRetryPolicy.DEFAULT_MAX_ATTEMPTS, policy.getMaxAttempts()),
+            () -> assertEquals(baseDelayMillis != null ? baseDelayMillis
+                    : LMLogsRetryPolicy.DEFAULT_BASE_DELAY_MILLIS, policy.getBaseDelayMillis()),
+            () -> assertEquals(maxDelayMillis != null ? maxDelayMillis
+                    : LMLogsRetryPolicy.DEFAULT_MAX_DELAY_MILLIS, policy.getMaxDelayMillis()),
+            () -> assertEquals(LMLogsRetryPolicy.DEFAULT_RETRYABLE_STATUSES,
+                    policy.getRetryableStatuses())
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,     0,     0",
+        "1,    -1,     0",
+        "1,     0,    -1",
+    })
+    public void testBuilderInvalidParameters(Integer maxAttempts, Long baseDelayMillis,
+            Long maxDelayMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsRetryPolicy.Builder()
+            .withMaxAttempts(maxAttempts)
+            .withBaseDelayMillis(baseDelayMillis)
+            .withMaxDelayMillis(maxDelayMillis)
+            .build());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,       true",
+        "429,     true",
+        "500,     true",
+        "503,     true",
+        "400,     false",
+        "401,     false",
+        "413,     false",
+    })
+    public void testRetryableStatus(int statusCode, boolean retryable) {
+        LMLogsRetryPolicy policy = new LMLogsRetryPolicy.Builder().build();
+        assertAll(
+            () -> assertEquals(retryable, policy.isRetryable(statusCode)),
+            () -> assertEquals(retryable, policy.getDelayMillis(1, statusCode, null) >= 0),
+            () -> assertFalse(LMLogsRetryPolicy.NONE.isRetryable(statusCode)),
+            () -> assertEquals(-1, LMLogsRetryPolicy.NONE.getDelayMillis(1, statusCode, null))
+        );
+    }
+
+    @Test
+    public void testFullJitterBackoff() {
+        LMLogsRetryPolicy policy = new LMLogsRetryPolicy.Builder()
+            .withMaxAttempts(20)
+            .withBaseDelayMillis(100L)
+            .withMaxDelayMillis(1000L)
+            .build();
+        for (int attempt = 1; attempt < 20; attempt++) {
+            long backoff = Math.min(1000, 100L << (attempt - 1));
+            for (int i = 0; i < 100; i++) {
+                long delay = policy.getDelayMillis(attempt, 503, null);
+                assertTrue(delay >= 0 && delay < backoff, "delay " + delay + " of attempt " + attempt);
+            }
+        }
+        assertEquals(-1, policy.getDelayMillis(20, 503, null));
+    }
+
+    @Test
+    public void testRetryAfter() {
+        LMLogsRetryPolicy policy = new LMLogsRetryPolicy.Builder()
+            .withBaseDelayMillis(0L)
+            .withMaxDelayMillis(10_000L)
+            .build();
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+        assertAll(
+            () -> assertEquals(3000, policy.getDelayMillis(1, 429,
+                    Map.of("retry-after", List.of("3")))),
+            () -> assertEquals(-1, policy.getDelayMillis(1, 429,
+                    Map.of(LMLogsRetryPolicy.RETRY_AFTER_HEADER, List.of("11")))),
+            () -> assertEquals(0, policy.getDelayMillis(1, 429,
+                    Map.of(LMLogsRetryPolicy.RETRY_AFTER_HEADER, List.of("invalid")))),
+            () -> assertTrue(LMLogsRetryPolicy.getRetryAfterMillis(
+                    Map.of(LMLogsRetryPolicy.RETRY_AFTER_HEADER, List.of(date))) > 50_000),
+            () -> assertEquals(-1, LMLogsRetryPolicy.getRetryAfterMillis(null))
+        );
+    }
+
+    @Test
+    public void testRetryableStatuses() {
+        LMLogsRetryPolicy policy = new LMLogsRetryPolicy.Builder()
+            .withRetryableStatuses(Set.of(418))
+            .build();
+        assertAll(
+            () -> assertTrue(policy.isRetryable(418)),
+            () -> assertFalse(policy.isRetryable(503))
+        );
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsRingBufferTest {
+
+    private static final Map<String, String> RESOURCE_ID = Map.of("system.hostname", "host");
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+    private final LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+            Collections.emptyMap(), new LogResponse());
+    // the records are reused after the request, so their messages are copied by the mock
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void captureBatches() throws LMLogsApiException {
+        when(api.logIngestPostRecords(anyList())).thenAnswer(invocation -> {
+            batches.add(messages(invocation.getArgument(0)));
+            return response;
+        });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0,  1, 0",
+        "3,  1, 0",
+        "4,  0, 0",
+        "4,  5, 0",
+        "4,  1, -1",
+    })
+    public void testBuilderInvalidParameters(int capacity, int batchSize, long lingerMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsRingBuffer.Builder(api)
+            .withCapacity(capacity)
+            .withBatchSize(batchSize)
+            .withLingerMillis(lingerMillis)
+            .build());
+    }
+
+    @Test
+    public void testNullParameters() {
+        assertAll(
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsRingBuffer.Builder(null)),
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsRingBuffer.Builder(api).withWaitStrategy(null).build()),
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsRingBuffer.Builder(api).withOverflowPolicy(null).build())
+        );
+    }
+
+    @ParameterizedTest
+    @EnumSource(LMLogsWaitStrategy.class)
+    public void testSendOnBatchSize(LMLogsWaitStrategy waitStrategy) throws LMLogsApiException {
+        try (LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+                .withBatchSize(3)
+                .withLingerMillis(60_000)
+                .withWaitStrategy(waitStrategy)
+                .build()) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(ringBuffer.offer("message " + i, i, RESOURCE_ID));
+            }
+            verify(api, timeout(5000)).logIngestPostRecords(anyList());
+            assertEquals(List.of(List.of("message 0", "message 1", "message 2")), batches);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(LMLogsWaitStrategy.class)
+    public void testSendOnLinger(LMLogsWaitStrategy waitStrategy) throws LMLogsApiException {
+        try (LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+                .withLingerMillis(10)
+                .withWaitStrategy(waitStrategy)
+                .build()) {
+            ringBuffer.offer(new LMLogsRecord("message", LMLogsRecord.NO_TIMESTAMP, RESOURCE_ID));
+            verify(api, timeout(5000)).logIngestPostRecords(anyList());
+            assertEquals(List.of(List.of("message")), batches);
+        }
+    }
+
+    @Test
+    public void testCloseSendsPublishedRecords() {
+        LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+            .withLingerMillis(60_000)
+            .build();
+        for (int i = 0; i < 5; i++) {
+            ringBuffer.offer("message " + i, i, RESOURCE_ID);
+        }
+        ringBuffer.close();
+        assertAll(
+            () -> assertTrue(ringBuffer.isClosed()),
+            () -> assertEquals(1, batches.size()),
+            () -> assertEquals(5, batches.get(0).size()),
+            () -> assertEquals(0, ringBuffer.getQueueSize()),
+            () -> assertFalse(ringBuffer.offer("closed", 0, RESOURCE_ID)),
+            () -> assertEquals(1, ringBuffer.getDroppedCount())
+        );
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        LMLogsMetrics metrics = mock(LMLogsMetrics.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockFirstRequest(sending, release);
+        try (LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+                .withCapacity(4)
+                .withBatchSize(1)
+                .withLingerMillis(0)
+                .withMetrics(metrics)
+                .build()) {
+            ringBuffer.offer("message 0", 0, RESOURCE_ID);
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            // the slot of the record being sent is not free yet
+            for (int i = 1; i < 4; i++) {
+                assertTrue(ringBuffer.offer("message " + i, i, RESOURCE_ID));
+            }
+            assertAll(
+                () -> assertFalse(ringBuffer.offer("dropped", 0, RESOURCE_ID)),
+                () -> assertEquals(1, ringBuffer.getDroppedCount()),
+                () -> assertEquals(4, ringBuffer.getQueueSize())
+            );
+            verify(metrics).onEntriesDropped(1);
+            release.countDown();
+        }
+        assertEquals(4, batches.size());
+    }
+
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockFirstRequest(sending, release);
+        try (LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+                .withCapacity(2)
+                .withBatchSize(1)
+                .withLingerMillis(0)
+                .withOverflowPolicy(LMLogsRingBuffer.OverflowPolicy.BLOCK)
+                .build()) {
+            ringBuffer.offer("message 0", 0, RESOURCE_ID);
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            ringBuffer.offer("message 1", 1, RESOURCE_ID);
+            CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(
+                    () -> ringBuffer.offer("message 2", 2, RESOURCE_ID));
+            Thread.sleep(200);
+            assertFalse(blocked.isDone());
+            release.countDown();
+            assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(List.of("message 0"), List.of("message 1"), List.of("message 2")),
+                batches);
+    }
+
+    @Test
+    public void testSplitPayloadTooLarge() throws Exception {
+        LMLogsApiException tooLarge = new LMLogsApiException(new ApiException(413, "error"));
+        doAnswer(invocation -> {
+            List<LMLogsRecord> records = invocation.getArgument(0);
+            if (records.size() > 1) {
+                throw tooLarge;
+            }
+            batches.add(messages(records));
+            return response;
+        }).when(api).logIngestPostRecords(anyList());
+        try (LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+                .withBatchSize(3)
+                .withLingerMillis(60_000)
+                .build()) {
+            for (int i = 0; i < 3; i++) {
+                ringBuffer.offer("message " + i, i, RESOURCE_ID);
+            }
+        }
+        assertEquals(List.of(List.of("message 0"), List.of("message 1"), List.of("message 2")),
+                batches);
+    }
+
+    @Test
+    public void testFailedCount() throws Exception {
+        doThrow(new LMLogsApiException(new ApiException(503, "error")))
+            .doThrow(new IllegalStateException("error"))
+            .when(api).logIngestPostRecords(anyList());
+        LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+            .withBatchSize(2)
+            .withLingerMillis(60_000)
+            .build();
+        for (int i = 0; i < 4; i++) {
+            ringBuffer.offer("message " + i, i, RESOURCE_ID);
+        }
+        ringBuffer.close();
+        assertEquals(4, ringBuffer.getFailedCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(LMLogsWaitStrategy.class)
+    public void testConcurrentProducers(LMLogsWaitStrategy waitStrategy) throws Exception {
+        int producers = 8;
+        int records = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try (LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+                .withCapacity(256)
+                .withBatchSize(100)
+                .withLingerMillis(1)
+                .withWaitStrategy(waitStrategy)
+                .withOverflowPolicy(LMLogsRingBuffer.OverflowPolicy.BLOCK)
+                .build()) {
+            for (int p = 0; p < producers; p++) {
+                String prefix = "producer " + p + " message ";
+                executor.execute(() -> {
+                    for (int i = 0; i < records; i++) {
+                        ringBuffer.offer(prefix + i, i, RESOURCE_ID);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        }
+        List<String> sent = new ArrayList<>();
+        batches.forEach(sent::addAll);
+        assertAll(
+            () -> assertEquals(producers * records, sent.size()),
+            () -> assertEquals(producers * records, new HashSet<>(sent).size()),
+            () -> assertTrue(batches.stream().allMatch(batch -> batch.size() <= 100))
+        );
+    }
+
+    @ParameterizedTest
+    @EnumSource(LMLogsWaitStrategy.class)
+    public void testCloseWhileOffering(LMLogsWaitStrategy waitStrategy) throws Exception {
+        int producers = 8;
+        int records = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(producers);
+        LMLogsRingBuffer ringBuffer = new LMLogsRingBuffer.Builder(api)
+            .withCapacity(256)
+            .withBatchSize(100)
+            .withLingerMillis(1)
+            .withWaitStrategy(waitStrategy)
+            .withOverflowPolicy(LMLogsRingBuffer.OverflowPolicy.BLOCK)
+            .build();
+        for (int p = 0; p < producers; p++) {
+            String prefix = "producer " + p + " message ";
+            executor.execute(() -> {
+                started.countDown();
+                for (int i = 0; i < records; i++) {
+                    if (ringBuffer.offer(prefix + i, i, RESOURCE_ID)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        started.await(5, TimeUnit.SECONDS);
+        ringBuffer.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        List<String> sent = new ArrayList<>();
+        batches.forEach(sent::addAll);
+        assertAll(
+            () -> assertEquals(accepted.get(), sent.size()),
+            () -> assertEquals(producers * records, accepted.get()
+                    + ringBuffer.getDroppedCount()),
+            () -> assertFalse(sent.contains(null))
+        );
+    }
+
+    private void blockFirstRequest(CountDownLatch sending, CountDownLatch release)
+            throws LMLogsApiException {
+        // stubbed without calling the method, which would record an empty batch
+        doAnswer(invocation -> {
+            batches.add(messages(invocation.getArgument(0)));
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return response;
+        }).when(api).logIngestPostRecords(anyList());
+    }
+
+    private static List<String> messages(List<LMLogsRecord> records) {
+        List<String> messages = new ArrayList<>();
+        for (LMLogsRecord record : records) {
+            messages.add(record.getMessage());
+        }
+        return messages;
+    }
+
+}
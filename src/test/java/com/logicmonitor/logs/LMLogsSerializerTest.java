@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+
+public class LMLogsSerializerTest {
+
+    private final ObjectMapper mapper = new JSON().getContext(LogEntry.class);
+    private final LMLogsSerializer serializer = new LMLogsSerializer(mapper);
+
+    @Test
+    public void testNullMapper() {
+        assertThrows(NullPointerException.class, () -> new LMLogsSerializer(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 10, 10_000})
+    public void testSerialize(int count) throws IOException {
+        List<LogEntry> entries = entries(count);
+        ByteBuffer payload = serializer.serialize(entries);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        assertArrayEquals(mapper.writeValueAsBytes(entries), bytes);
+    }
+
+    @Test
+    public void testSerializeAsDataBinding() throws IOException {
+        Map<String, String> nullValue = new HashMap<>();
+        nullValue.put("system.hostname", null);
+        List<LogEntry> entries = Arrays.asList(
+            new LogEntry()
+                .message("quote \" backslash \\ control \n\t\u0001 unicode \u00fc\u65e5\ud83d\ude00")
+                .timestamp(1_593_604_800_000L)
+                .putLmResourceIdItem("system.\"hostname\"", "host"),
+            new LogEntry().message("empty resource id"),
+            new LogEntry(),
+            new LogEntry().message("null value").lmResourceId(nullValue),
+            new LogEntry().message("null resource id").lmResourceId(null),
+            null,
+            new LogEntry() {}.message("subclass"));
+        ByteBuffer payload = serializer.serialize(entries);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        assertArrayEquals(mapper.writeValueAsBytes(entries), bytes);
+    }
+
+    @Test
+    public void testSerializeRecords() throws IOException {
+        Map<String, String> resourceId = Map.of("system.\"hostname\"", "host");
+        List<LMLogsRecord> records = Arrays.asList(
+            new LMLogsRecord("quote \" control \n unicode \u00fc", 1_593_604_800_000L, resourceId),
+            new LMLogsRecord("no timestamp", LMLogsRecord.NO_TIMESTAMP, resourceId),
+            new LMLogsRecord("epoch", 0, Map.of()),
+            null);
+        List<LogEntry> entries = new ArrayList<>();
+        for (LMLogsRecord record : records) {
+            entries.add(record == null ? null : record.toLogEntry());
+        }
+        ByteBuffer payload = serializer.serializeRecords(records);
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        assertArrayEquals(mapper.writeValueAsBytes(entries), bytes);
+    }
+
+    @Test
+    public void testBufferReuse() throws IOException {
+        ByteBuffer first = serializer.serialize(entries(10));
+        ByteBuffer second = serializer.serialize(entries(1));
+        assertAll(
+            () -> assertSame(first.array(), second.array()),
+            () -> assertTrue(second.remaining() < first.remaining())
+        );
+    }
+
+    @Test
+    public void testSerializeDetached() throws IOException {
+        List<LogEntry> entries = entries(10);
+        ByteBuffer detached = serializer.serializeDetached(entries);
+        ByteBuffer reused = serializer.serialize(entries(20));
+        byte[] bytes = new byte[detached.remaining()];
+        detached.duplicate().get(bytes);
+        assertAll(
+            () -> assertNotSame(reused.array(), detached.array()),
+            () -> assertArrayEquals(mapper.writeValueAsBytes(entries), bytes)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {2, 100, 1000, 100_000})
+    public void testSplit(int maxBytes) throws IOException {
+        List<LogEntry> entries = entries(100);
+        List<LMLogsSerializer.Chunk> chunks = serializer.split(entries, maxBytes);
+        int fromIndex = 0;
+        for (LMLogsSerializer.Chunk chunk : chunks) {
+            List<LogEntry> part = entries.subList(chunk.fromIndex, chunk.toIndex);
+            byte[] bytes = new byte[chunk.payload.remaining()];
+            chunk.payload.duplicate().get(bytes);
+            assertEquals(fromIndex, chunk.fromIndex);
+            assertArrayEquals(mapper.writeValueAsBytes(part), bytes);
+            assertTrue(bytes.length <= maxBytes || part.size() == 1);
+            if (chunk.toIndex < entries.size()) {
+                // the next entry doesn't fit in the chunk
+                assertTrue(mapper.writeValueAsBytes(
+                        entries.subList(chunk.fromIndex, chunk.toIndex + 1)).length > maxBytes);
+            }
+            fromIndex = chunk.toIndex;
+        }
+        assertEquals(entries.size(), fromIndex);
+    }
+
+    @Test
+    public void testSplitDetached() throws IOException {
+        List<LogEntry> entries = entries(10);
+        LMLogsSerializer.Chunk chunk = serializer.split(entries, 100).get(0);
+        LMLogsSerializer.Chunk detached = chunk.detach();
+        byte[] expected = new byte[chunk.payload.remaining()];
+        chunk.payload.duplicate().get(expected);
+        // the buffer of the thread is overwritten by the next call
+        serializer.split(entries(10).subList(5, 10), 100);
+        byte[] bytes = new byte[detached.payload.remaining()];
+        detached.payload.duplicate().get(bytes);
+        assertAll(
+            () -> assertEquals(chunk.fromIndex, detached.fromIndex),
+            () -> assertEquals(chunk.toIndex, detached.toIndex),
+            () -> assertArrayEquals(expected, bytes)
+        );
+    }
+
+    @Test
+    public void testSplitEmpty() throws IOException {
+        assertTrue(serializer.split(List.of(), 100).isEmpty());
+    }
+
+}
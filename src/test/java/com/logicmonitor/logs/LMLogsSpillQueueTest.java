@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static com.logicmonitor.logs.LMLogsTestEntries.entries;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.invoker.JSON;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsSpillQueueTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @CsvSource({
+        "8,     1024, 1",
+        "1024,  512,  1",
+        "1024,  1024, 0",
+    })
+    public void testBuilderInvalidParameters(int segmentBytes, long maxDiskBytes,
+            long forceIntervalMillis) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsSpillQueue.Builder(directory)
+            .withSegmentBytes(segmentBytes)
+            .withMaxDiskBytes(maxDiskBytes)
+            .withForceIntervalMillis(forceIntervalMillis)
+            .build());
+    }
+
+    @Test
+    public void testNullDirectory() {
+        assertThrows(NullPointerException.class, () -> new LMLogsSpillQueue.Builder(null));
+    }
+
+    @Test
+    public void testAppendPeekRemove() throws IOException {
+        List<LogEntry> first = entries(0, 2);
+        List<LogEntry> second = entries(2, 3);
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            assertTrue(queue.isEmpty());
+            assertNull(queue.peek());
+            assertThrows(IllegalStateException.class, queue::remove);
+
+            assertTrue(queue.append(first));
+            assertTrue(queue.append(second));
+            assertAll(
+                () -> assertFalse(queue.isEmpty()),
+                () -> assertEquals(first, queue.peek()),
+                () -> assertEquals(first, queue.peek())
+            );
+            queue.remove();
+            assertEquals(second, queue.peek());
+            queue.remove();
+            assertAll(
+                () -> assertTrue(queue.isEmpty()),
+                () -> assertNull(queue.peek()),
+                () -> assertEquals(LMLogsSpillQueue.DEFAULT_SEGMENT_BYTES, queue.getDiskBytes())
+            );
+        }
+    }
+
+    @Test
+    public void testRecoverAfterReopen() throws IOException {
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            for (int i = 0; i < 3; i++) {
+                queue.append(entries(i, i + 1));
+            }
+            queue.peek();
+            queue.remove();
+        }
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            assertEquals(entries(1, 2), queue.peek());
+            queue.remove();
+            queue.append(entries(3, 4));
+            assertEquals(entries(2, 3), queue.peek());
+            queue.remove();
+            assertEquals(entries(3, 4), queue.peek());
+        }
+    }
+
+    @Test
+    public void testRotation() throws IOException {
+        List<List<LogEntry>> batches = new ArrayList<>();
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory)
+                .withSegmentBytes(256)
+                .build()) {
+            for (int i = 0; i < 20; i++) {
+                batches.add(entries(i, i + 2));
+                assertTrue(queue.append(batches.get(i)));
+            }
+            // a batch larger than a segment is stored in a segment of its size
+            batches.add(entries(100, 120));
+            assertTrue(queue.append(batches.get(20)));
+            assertTrue(segmentFiles().size() > 2);
+            assertTrue(queue.getDiskBytes() > 256 * 2);
+        }
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory)
+                .withSegmentBytes(256)
+                .build()) {
+            for (List<LogEntry> batch : batches) {
+                assertEquals(batch, queue.peek());
+                queue.remove();
+            }
+            assertAll(
+                () -> assertNull(queue.peek()),
+                () -> assertEquals(1, segmentFiles().size())
+            );
+        }
+    }
+
+    @Test
+    public void testMaxDiskBytes() throws IOException {
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory)
+                .withSegmentBytes(256)
+                .withMaxDiskBytes(512)
+                .build()) {
+            int appended = 0;
+            while (queue.append(entries(appended, appended + 1))) {
+                appended++;
+            }
+            assertAll(
+                () -> assertEquals(1, queue.getDroppedCount()),
+                () -> assertEquals(512, queue.getDiskBytes())
+            );
+            // the consumed segments make room for new batches
+            for (int i = 0; i < appended; i++) {
+                queue.peek();
+                queue.remove();
+            }
+            assertNull(queue.peek());
+            assertTrue(queue.append(entries(0, 1)));
+        }
+    }
+
+    @Test
+    public void testCorruptedRecord() throws IOException {
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            queue.append(entries(0, 1));
+            queue.append(entries(1, 2));
+        }
+        Path segment = segmentFiles().get(0);
+        int firstBytes = LMLogsSpillQueue.RECORD_HEADER_BYTES + new LMLogsSerializer(
+                new JSON().getContext(LogEntry.class))
+            .serializeDetached(entries(0, 1)).remaining();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(firstBytes + LMLogsSpillQueue.RECORD_HEADER_BYTES + 1);
+            file.write('X');
+        }
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            assertEquals(entries(0, 1), queue.peek());
+            queue.remove();
+            assertAll(
+                () -> assertNull(queue.peek()),
+                () -> assertTrue(queue.isEmpty())
+            );
+            queue.append(entries(2, 3));
+            assertEquals(entries(2, 3), queue.peek());
+        }
+    }
+
+    @Test
+    public void testDrain() throws IOException, LMLogsApiException {
+        LMLogsApi api = mock(LMLogsApi.class);
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        LMLogsApiException rejected = new LMLogsApiException(new ApiException(400, "error"));
+        LMLogsApiException unavailable = new LMLogsApiException(new ApiException(503, "error"));
+        when(api.logIngestPostSplit(entries(0, 1)))
+            .thenReturn(List.of(new LMLogsBatchResult(entries(0, 1), response)));
+        when(api.logIngestPostSplit(entries(1, 2)))
+            .thenReturn(List.of(new LMLogsBatchResult(entries(1, 2), rejected)));
+        when(api.logIngestPostSplit(entries(2, 3)))
+            .thenReturn(List.of(new LMLogsBatchResult(entries(2, 3), unavailable)));
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            for (int i = 0; i < 4; i++) {
+                queue.append(entries(i, i + 1));
+            }
+            assertAll(
+                () -> assertEquals(2, queue.drain(api)),
+                () -> assertEquals(1, queue.getDroppedCount())
+            );
+            // the unavailable batch stays at the head, in order
+            assertEquals(entries(2, 3), queue.peek());
+            queue.remove();
+            assertEquals(entries(3, 4), queue.peek());
+        }
+        verify(api, never()).logIngestPostSplit(entries(3, 4));
+    }
+
+    @Test
+    public void testDrainPartialFailure() throws IOException, LMLogsApiException {
+        LMLogsApi api = mock(LMLogsApi.class);
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        LMLogsApiException unavailable = new LMLogsApiException(new ApiException(503, "error"));
+        when(api.logIngestPostSplit(entries(0, 2))).thenReturn(List.of(
+                new LMLogsBatchResult(entries(0, 1), response),
+                new LMLogsBatchResult(entries(1, 2), unavailable)));
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            queue.append(entries(0, 2));
+            queue.append(entries(2, 3));
+            assertAll(
+                () -> assertEquals(1, queue.drain(api)),
+                () -> assertEquals(0, queue.getDroppedCount())
+            );
+            // the failed part is sent after the remaining batches
+            assertEquals(entries(2, 3), queue.peek());
+            queue.remove();
+            assertEquals(entries(1, 2), queue.peek());
+        }
+    }
+
+    @Test
+    public void testDrainFullQueue() throws IOException, LMLogsApiException {
+        LMLogsApi api = mock(LMLogsApi.class);
+        LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+                Collections.emptyMap(), new LogResponse());
+        LMLogsApiException unavailable = new LMLogsApiException(new ApiException(503, "error"));
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory)
+                .withSegmentBytes(256)
+                .withMaxDiskBytes(512)
+                .build()) {
+            int appended = 0;
+            while (queue.append(entries(appended, appended + 1))) {
+                appended++;
+            }
+            List<LogEntry> head = entries(0, 1);
+            when(api.logIngestPostSplit(anyList()))
+                .thenReturn(List.of(new LMLogsBatchResult(head, unavailable)));
+            // the durable batch is kept at the head rather than appended to the full queue
+            assertAll(
+                () -> assertEquals(0, queue.drain(api)),
+                () -> assertEquals(1, queue.getDroppedCount()),
+                () -> assertEquals(head, queue.peek())
+            );
+            when(api.logIngestPostSplit(anyList())).thenReturn(List.of(
+                    new LMLogsBatchResult(List.of(head.get(0)), response),
+                    new LMLogsBatchResult(head, unavailable)));
+            // the failed part of a partially accepted batch is dropped when the queue is full
+            assertAll(
+                () -> assertEquals(1, queue.drain(api)),
+                () -> assertEquals(2, queue.getDroppedCount()),
+                () -> assertEquals(entries(1, 2), queue.peek())
+            );
+        }
+    }
+
+    @Test
+    public void testDrainWithoutResponse() throws IOException, LMLogsApiException {
+        LMLogsApi api = mock(LMLogsApi.class);
+        when(api.logIngestPostSplit(anyList())).thenThrow(new IllegalStateException("error"));
+        try (LMLogsSpillQueue queue = new LMLogsSpillQueue.Builder(directory).build()) {
+            queue.append(entries(0, 1));
+            assertAll(
+                () -> assertEquals(0, queue.drain(api)),
+                () -> assertEquals(entries(0, 1), queue.peek())
+            );
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().startsWith(LMLogsSpillQueue.SEGMENT_PREFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import com.logicmonitor.logs.invoker.ApiException;
+import com.logicmonitor.logs.model.LogEntry;
+import com.logicmonitor.logs.model.LogResponse;
+
+public class LMLogsSubscriberTest {
+
+    private final LMLogsApi api = mock(LMLogsApi.class);
+    private final LMLogsApiResponse<LogResponse> response = new LMLogsApiResponse<>(202,
+            Collections.emptyMap(), new LogResponse());
+    // the requests are completed by the tests
+    private final List<CompletableFuture<LMLogsApiResponse<LogResponse>>> requests =
+            new CopyOnWriteArrayList<>();
+    private final List<List<LogEntry>> batches = new CopyOnWriteArrayList<>();
+    private final RecordingSubscription upstream = new RecordingSubscription();
+    private final RecordingSubscriber downstream = new RecordingSubscriber();
+
+    @BeforeEach
+    public void captureRequests() {
+        when(api.logIngestPostAsync(anyList())).thenAnswer(invocation -> {
+            CompletableFuture<LMLogsApiResponse<LogResponse>> request = new CompletableFuture<>();
+            batches.add(invocation.getArgument(0));
+            requests.add(request);
+            return request;
+        });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "0, 0, 1",
+        "1, -1, 1",
+        "1, 0, 0",
+    })
+    public void testBuilderInvalidParameters(int batchSize, long lingerMillis,
+            int maxInFlightBatches) {
+        assertThrows(IllegalArgumentException.class, () -> new LMLogsSubscriber.Builder(api)
+            .withBatchSize(batchSize)
+            .withLingerMillis(lingerMillis)
+            .withMaxInFlightBatches(maxInFlightBatches)
+            .build());
+    }
+
+    @Test
+    public void testNullParameters() {
+        LMLogsSubscriber subscriber = new LMLogsSubscriber.Builder(api).build();
+        assertAll(
+            () -> assertThrows(NullPointerException.class,
+                    () -> new LMLogsSubscriber.Builder(null)),
+            () -> assertThrows(NullPointerException.class, () -> subscriber.onSubscribe(null)),
+            () -> assertThrows(NullPointerException.class, () -> subscriber.onNext(null)),
+            () -> assertThrows(NullPointerException.class, () -> subscriber.onError(null)),
+            () -> assertThrows(NullPointerException.class, () -> subscriber.subscribe(null))
+        );
+    }
+
+    @Test
+    public void testRequestAsBatchesAcknowledged() {
+        LMLogsSubscriber subscriber = subscriber(2, 60_000, 2);
+        downstream.subscription.request(Long.MAX_VALUE);
+        for (int i = 0; i < 4; i++) {
+            subscriber.onNext(entry(i));
+        }
+        assertAll(
+            () -> assertEquals(4, upstream.requested.get()),
+            () -> assertEquals(2, batches.size()),
+            () -> assertEquals(2, subscriber.getInFlightBatches())
+        );
+        requests.get(1).complete(response);
+        assertAll(
+            () -> assertEquals(6, upstream.requested.get()),
+            () -> assertEquals(1, subscriber.getInFlightBatches()),
+            () -> assertEquals(1, downstream.results.size()),
+            () -> assertSame(batches.get(1), downstream.results.get(0).getEntries()),
+            () -> assertTrue(downstream.results.get(0).isSuccess())
+        );
+    }
+
+    @Test
+    public void testSendOnLinger() {
+        LMLogsSubscriber subscriber = subscriber(10, 10, 1);
+        downstream.subscription.request(1);
+        subscriber.onNext(entry(0));
+        verify(api, timeout(5000)).logIngestPostAsync(anyList());
+        requests.get(0).complete(response);
+        assertAll(
+            () -> assertEquals(List.of(List.of(entry(0))), batches),
+            () -> assertEquals(11, upstream.requested.get())
+        );
+    }
+
+    @Test
+    public void testMaxInFlightBatches() throws InterruptedException {
+        LMLogsSubscriber subscriber = subscriber(10, 1, 2);
+        downstream.subscription.request(Long.MAX_VALUE);
+        // a publisher slower than the linger time and an endpoint not responding
+        for (int i = 0; i < 6; i++) {
+            subscriber.onNext(entry(i));
+            Thread.sleep(20);
+        }
+        assertAll(
+            () -> assertEquals(List.of(List.of(entry(0)), List.of(entry(1))), batches),
+            () -> assertEquals(2, subscriber.getInFlightBatches())
+        );
+        // the expired batch has kept collecting the entries, and is sent when one is acknowledged
+        requests.get(0).complete(response);
+        assertAll(
+            () -> assertEquals(3, batches.size()),
+            () -> assertEquals(List.of(entry(2), entry(3), entry(4), entry(5)), batches.get(2)),
+            () -> assertEquals(2, subscriber.getInFlightBatches())
+        );
+        subscriber.onComplete();
+        requests.get(1).complete(response);
+        requests.get(2).complete(response);
+        assertTrue(downstream.completed);
+    }
+
+    @Test
+    public void testDownstreamBackpressure() {
+        LMLogsSubscriber subscriber = subscriber(1, 60_000, 2);
+        subscriber.onNext(entry(0));
+        subscriber.onNext(entry(1));
+        requests.forEach(request -> request.complete(response));
+        // the entries are requested again only when the acknowledgements are delivered
+        assertAll(
+            () -> assertEquals(2, upstream.requested.get()),
+            () -> assertTrue(downstream.results.isEmpty())
+        );
+        downstream.subscription.request(1);
+        assertAll(
+            () -> assertEquals(3, upstream.requested.get()),
+            () -> assertEquals(1, downstream.results.size())
+        );
+        downstream.subscription.cancel();
+        assertAll(
+            () -> assertEquals(4, upstream.requested.get()),
+            () -> assertEquals(1, downstream.results.size()),
+            () -> assertEquals(0, subscriber.getInFlightBatches())
+        );
+    }
+
+    @Test
+    public void testCompleteAfterAcknowledged() {
+        LMLogsSubscriber subscriber = subscriber(10, 60_000, 1);
+        downstream.subscription.request(10);
+        subscriber.onNext(entry(0));
+        subscriber.onComplete();
+        assertAll(
+            () -> assertTrue(subscriber.isDone()),
+            () -> assertEquals(1, batches.size()),
+            () -> assertFalse(downstream.completed)
+        );
+        requests.get(0).completeExceptionally(
+                new LMLogsApiException(new ApiException(503, "error")));
+        assertAll(
+            () -> assertTrue(downstream.completed),
+            () -> assertEquals(1, downstream.results.size()),
+            () -> assertEquals(503,
+                    downstream.results.get(0).getException().getResponse().getStatusCode()),
+            () -> assertEquals(10, upstream.requested.get())
+        );
+    }
+
+    @Test
+    public void testErrorAfterAcknowledged() {
+        LMLogsSubscriber subscriber = subscriber(10, 60_000, 1);
+        downstream.subscription.request(10);
+        subscriber.onNext(entry(0));
+        IllegalStateException error = new IllegalStateException("error");
+        subscriber.onError(error);
+        assertNull(downstream.error);
+        requests.get(0).complete(response);
+        assertAll(
+            () -> assertSame(error, downstream.error),
+            () -> assertEquals(1, downstream.results.size())
+        );
+    }
+
+    @Test
+    public void testCancel() {
+        LMLogsSubscriber subscriber = subscriber(10, 60_000, 1);
+        downstream.subscription.request(1);
+        subscriber.onNext(entry(0));
+        subscriber.cancel();
+        RecordingSubscription other = new RecordingSubscription();
+        subscriber.onSubscribe(other);
+        requests.get(0).complete(response);
+        assertAll(
+            () -> assertTrue(upstream.cancelled),
+            () -> assertTrue(other.cancelled),
+            () -> assertEquals(0, other.requested.get()),
+            () -> assertEquals(1, batches.size()),
+            () -> assertTrue(downstream.completed)
+        );
+    }
+
+    @Test
+    public void testNoSignalBeforeOnSubscribe() {
+        LMLogsSubscriber subscriber = new LMLogsSubscriber.Builder(api).build();
+        subscriber.onSubscribe(upstream);
+        subscriber.onNext(entry(0));
+        subscriber.onComplete();
+        requests.get(0).complete(response);
+        List<String> signals = new CopyOnWriteArrayList<>();
+        subscriber.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(0);
+                subscription.request(1);
+                signals.add("onSubscribe");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                super.onError(throwable);
+                signals.add("onError");
+            }
+        });
+        assertEquals(List.of("onSubscribe", "onError"), signals);
+    }
+
+    @Test
+    public void testInvalidSubscribers() {
+        LMLogsSubscriber subscriber = subscriber(10, 60_000, 1);
+        RecordingSubscriber other = new RecordingSubscriber();
+        subscriber.subscribe(other);
+        downstream.subscription.request(0);
+        assertAll(
+            () -> assertTrue(other.error instanceof IllegalStateException),
+            () -> assertTrue(downstream.error instanceof IllegalArgumentException)
+        );
+    }
+
+    @Test
+    public void testPublisher() throws Exception {
+        requests.clear();
+        when(api.logIngestPostAsync(anyList())).thenAnswer(invocation -> {
+            batches.add(invocation.getArgument(0));
+            return CompletableFuture.supplyAsync(() -> response);
+        });
+        LMLogsSubscriber subscriber = new LMLogsSubscriber.Builder(api)
+            .withBatchSize(10)
+            .withLingerMillis(1)
+            .withMaxInFlightBatches(2)
+            .build();
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicLong acknowledged = new AtomicLong();
+        subscriber.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(LMLogsBatchResult item) {
+                acknowledged.addAndGet(item.getEntries().size());
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+        try (SubmissionPublisher<LogEntry> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(subscriber);
+            for (int i = 0; i < 1000; i++) {
+                publisher.submit(entry(i));
+            }
+        }
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        List<LogEntry> sent = new ArrayList<>();
+        batches.forEach(sent::addAll);
+        assertAll(
+            () -> assertEquals(1000, acknowledged.get()),
+            () -> assertEquals(1000, sent.size()),
+            () -> assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10))
+        );
+    }
+
+    private LMLogsSubscriber subscriber(int batchSize, long lingerMillis, int maxInFlightBatches) {
+        LMLogsSubscriber subscriber = new LMLogsSubscriber.Builder(api)
+            .withBatchSize(batchSize)
+            .withLingerMillis(lingerMillis)
+            .withMaxInFlightBatches(maxInFlightBatches)
+            .build();
+        subscriber.subscribe(downstream);
+        subscriber.onSubscribe(upstream);
+        return subscriber;
+    }
+
+    private static LogEntry entry(int i) {
+        return new LogEntry().message("message " + i);
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested.addAndGet(n);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<LMLogsBatchResult> {
+        private final List<LMLogsBatchResult> results = new CopyOnWriteArrayList<>();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(LMLogsBatchResult item) {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2020 LogicMonitor, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.logicmonitor.logs;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.logicmonitor.logs.model.LogEntry;
+
+// log entries shared by the tests
+final class LMLogsTestEntries {
+
+    // timestamp of the first entry, the following ones are 1 ms apart
+    static final long TIMESTAMP = 1593604800000L;
+
+    private LMLogsTestEntries() {
+    }
+
+    static List<LogEntry> entries(int count) {
+        return entries(0, count);
+    }
+
+    static List<LogEntry> entries(int from, int to) {
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            entries.add(new LogEntry()
+                .message("message " + i)
+                .timestamp(TIMESTAMP + i)
+                .putLmResourceIdItem("system.hostname", "host"));
+        }
+        return entries;
+    }
+
+}